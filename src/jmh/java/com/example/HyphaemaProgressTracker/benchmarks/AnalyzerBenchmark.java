@@ -0,0 +1,70 @@
+package com.example.HyphaemaProgressTracker.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.util.FileSystemUtils;
+
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalyzer;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.JavaHyphemaAnalyzer;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.StubHyphemaAnalyzer;
+
+/**
+ * Measures one analyzer invocation on a photo of the size produced by the normalization stage.
+ * <p>
+ * The stub engine shows the overhead of the invocation itself; the Java engine is the real
+ * in-process analysis. The Python engine is not included, because it needs an interpreter with
+ * OpenCV and is dominated by the script; the load test harness covers it end to end.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnalyzerBenchmark {
+
+    @Param({"stub", "java"})
+    public String engine;
+
+    @Param({"1600"})
+    public int longerSide;
+
+    private Path photoDir;
+    private Path photo;
+    private HyphemaAnalyzer analyzer;
+
+    @Setup
+    public void setUp() throws IOException {
+        photoDir = Files.createTempDirectory("hyphaema-jmh");
+        photo = BenchmarkPhotos.writeEyePhoto(photoDir.resolve("eye.jpg"), longerSide, longerSide * 3 / 4);
+        analyzer = switch (engine) {
+            case "stub" -> new StubHyphemaAnalyzer(-1, 42, 0.0, "constant", 0, 0, 0.5, 0);
+            case "java" -> new JavaHyphemaAnalyzer(0, 0.9, 60, 140);
+            default -> throw new IllegalArgumentException("Unknown engine " + engine);
+        };
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (analyzer instanceof JavaHyphemaAnalyzer javaHyphemaAnalyzer) {
+            javaHyphemaAnalyzer.shutdown();
+        }
+        FileSystemUtils.deleteRecursively(photoDir);
+    }
+
+    @Benchmark
+    public Map<String, Object> analyse() throws Exception {
+        return analyzer.analyse(photo);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.HyphaemaProgressTracker.benchmarks;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Creates synthetic eye photos for the benchmarks, so they run without patient data.
+ */
+final class BenchmarkPhotos {
+
+    private BenchmarkPhotos() {
+    }
+
+    /**
+     * Draws an eye with a brown iris, a dark pupil and blood filling the lower third of the iris,
+     * and writes it as JPEG.
+     *
+     * @param target the file to write
+     * @param width the width of the photo in pixels
+     * @param height the height of the photo in pixels
+     * @return the written file
+     * @throws IOException if the photo cannot be written
+     */
+    static Path writeEyePhoto(Path target, int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(235, 225, 220));
+        graphics.fillRect(0, 0, width, height);
+
+        int radius = Math.min(width, height) * 2 / 5;
+        int centerX = width / 2;
+        int centerY = height / 2;
+        graphics.setColor(new Color(110, 75, 45));
+        graphics.fillOval(centerX - radius, centerY - radius, 2 * radius, 2 * radius);
+        graphics.setColor(new Color(20, 15, 15));
+        graphics.fillOval(centerX - radius / 3, centerY - radius / 3, 2 * radius / 3, 2 * radius / 3);
+
+        graphics.setClip(centerX - radius, centerY + radius / 3, 2 * radius, radius);
+        graphics.setColor(new Color(170, 25, 30));
+        graphics.fillOval(centerX - radius, centerY - radius, 2 * radius, 2 * radius);
+        graphics.dispose();
+
+        ImageIO.write(image, "jpg", target.toFile());
+        return target;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.HyphaemaProgressTracker.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import com.example.HyphaemaProgressTracker.HyphaemaProgressTrackerApplication;
+import com.example.HyphaemaProgressTracker.dto.EyeSeriesPage;
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
+import com.example.HyphaemaProgressTracker.services.EyeService;
+import com.example.HyphaemaProgressTracker.services.MeasurementSeriesCache;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures loading the healing curve of the dashboard chart against a seeded database, from the query to
+ * the JSON sent to the browser.
+ * <p>
+ * The application is started with an in-memory H2 database instead of PostgreSQL, so the benchmark
+ * runs anywhere; absolute numbers are therefore only comparable between runs of this benchmark.
+ * Every patient gets {@value #INJURIES_PER_PATIENT} injuries with one record per side and day.
+ * </p>
+ * <p>
+ * With {@code maxPoints=0} the whole series is read with {@link EyeService#findSeries}, following the
+ * keyset pages as the dashboard follows the {@code next} links; otherwise it is read with
+ * {@link EyeService#findDownsampledSeries} in one response. The size of the JSON is reported by
+ * {@link PayloadCounters}.
+ * </p>
+ * <p>
+ * With {@code cache=true} every series is read once before measuring, so the benchmark shows the hit
+ * latency of {@link MeasurementSeriesCache}; with {@code cache=false} every invocation queries the
+ * database. The heap taken by the cache is the {@code hyphaema.chart.cache.size} gauge.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChartQueryBenchmark {
+
+    private static final int INJURIES_PER_PATIENT = 2;
+    private static final int BATCH_SIZE = 5_000;
+
+    @Param({"250"})
+    public int patients;
+
+    @Param({"120", "1825"})
+    public int daysPerInjury;
+
+    @Param({"0", "600"})
+    public int maxPoints;
+
+    @Param({"true", "false"})
+    public boolean cache;
+
+    private Path cacheDir;
+    private ConfigurableApplicationContext context;
+    private EyeService eyeService;
+    private ObjectMapper objectMapper;
+    private long injuries;
+    private long nextInjury;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        cacheDir = Files.createTempDirectory("hyphaema-jmh-cache");
+        context = new SpringApplicationBuilder(HyphaemaProgressTrackerApplication.class).run(
+                "--spring.datasource.url=jdbc:h2:mem:hyphaema-jmh;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--hyphaema.analyzer.engine=stub",
+                "--hyphaema.analysis.cache.dir=" + cacheDir,
+                "--hyphaema.chart.cache.enabled=" + cache,
+                "--hyphaema.statistics.repair.enabled=false",
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN");
+        eyeService = context.getBean(EyeService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        seed(context.getBean(JdbcTemplate.class));
+        if (cache) {
+            for (long i = 0; i < injuries; i++) {
+                loadChart(new PayloadCounters());
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        FileSystemUtils.deleteRecursively(cacheDir.toFile());
+    }
+
+    /**
+     * Loads the chart series of the next injury, so consecutive invocations do not hit the same rows.
+     */
+    @Benchmark
+    public long loadChart(PayloadCounters payload) throws JsonProcessingException {
+        long injuryId = nextInjury++ % injuries + 1;
+        long patientId = (injuryId - 1) / INJURIES_PER_PATIENT + 1;
+        long bytes = 0;
+        if (maxPoints > 0) {
+            bytes = objectMapper.writeValueAsBytes(eyeService.findDownsampledSeries(
+                    patientId, injuryId, EyeSide.LEFT, null, null, false, maxPoints)).length;
+        } else {
+            String cursor = null;
+            do {
+                EyeSeriesPage page = eyeService.findSeries(patientId, injuryId, EyeSide.LEFT, null, null, false,
+                        cursor, null);
+                bytes += objectMapper.writeValueAsBytes(page.getResults()).length;
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+        }
+        payload.record(bytes);
+        return bytes;
+    }
+
+    /**
+     * Inserts patients, injuries and eye records with explicit ids in JDBC batches.
+     */
+    private void seed(JdbcTemplate jdbcTemplate) {
+        List<Object[]> patientRows = new ArrayList<>(patients);
+        List<Object[]> injuryRows = new ArrayList<>(patients * INJURIES_PER_PATIENT);
+        for (long patientId = 1; patientId <= patients; patientId++) {
+            patientRows.add(new Object[] {patientId, "patient" + patientId, "{noop}benchmark", true, "USER"});
+            for (int i = 0; i < INJURIES_PER_PATIENT; i++) {
+                injuryRows.add(new Object[] {(patientId - 1) * INJURIES_PER_PATIENT + i + 1, "Hyphäma", patientId});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO patient (id, login, password, enabled, roles) VALUES (?, ?, ?, ?, ?)",
+                patientRows);
+        jdbcTemplate.batchUpdate("INSERT INTO injury (id, diagnosis, patient_id) VALUES (?, ?, ?)", injuryRows);
+        injuries = injuryRows.size();
+
+        String insertEye = "INSERT INTO eye (id, percentage_of_eye_affected_by_hyphema, date, side, injury_id) "
+                + "VALUES (?, ?, ?, ?, ?)";
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        List<Object[]> eyeRows = new ArrayList<>(BATCH_SIZE);
+        long eyeId = 1;
+        for (long injuryId = 1; injuryId <= injuries; injuryId++) {
+            for (EyeSide side : EyeSide.values()) {
+                for (int day = 0; day < daysPerInjury; day++) {
+                    int percentage = Math.max(0, 60 - day * 60 / daysPerInjury);
+                    eyeRows.add(new Object[] {eyeId++, percentage, Date.valueOf(start.plusDays(day)), side.name(), injuryId});
+                    if (eyeRows.size() == BATCH_SIZE) {
+                        jdbcTemplate.batchUpdate(insertEye, eyeRows);
+                        eyeRows.clear();
+                    }
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate(insertEye, eyeRows);
+    }
+}
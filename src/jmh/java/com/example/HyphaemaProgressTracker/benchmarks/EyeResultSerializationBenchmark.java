@@ -0,0 +1,84 @@
+package com.example.HyphaemaProgressTracker.benchmarks;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.example.HyphaemaProgressTracker.dto.EyeResultDTO;
+import com.example.HyphaemaProgressTracker.services.SeriesDownsampler;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+/**
+ * Measures serializing the healing series of the dashboard chart, a list of {@link EyeResultDTO},
+ * with the same Jackson settings Spring Boot uses for the REST responses.
+ * <p>
+ * With {@code maxPoints > 0} the series is first reduced with {@link SeriesDownsampler} as the chart
+ * endpoint does for {@code ?maxPoints=}, including the cost of the downsampling itself. The size of the
+ * payload is reported by {@link PayloadCounters}.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EyeResultSerializationBenchmark {
+
+    @Param({"30", "365", "3650"})
+    public int points;
+
+    @Param({"0", "600"})
+    public int maxPoints;
+
+    private final JsonMapper jsonMapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    private List<EyeResultDTO> series;
+    private double[] days;
+    private double[] percentages;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        series = new ArrayList<>(points);
+        double percentage = 60;
+        for (int i = 0; i < points; i++) {
+            percentage = Math.max(0, percentage - random.nextDouble(1.5));
+            series.add(new EyeResultDTO(start.plusDays(i), Math.round(percentage)));
+        }
+        days = series.stream().mapToDouble(result -> result.getDate().toEpochDay()).toArray();
+        percentages = series.stream().mapToDouble(EyeResultDTO::getPercentageOfEyeAffectedByHyphema).toArray();
+    }
+
+    @Benchmark
+    public byte[] serializeSeries(PayloadCounters payload) throws JsonProcessingException {
+        List<EyeResultDTO> sent = maxPoints == 0 ? series : downsample();
+        byte[] json = jsonMapper.writeValueAsBytes(sent);
+        payload.record(json.length);
+        return json;
+    }
+
+    private List<EyeResultDTO> downsample() {
+        int[] kept = SeriesDownsampler.select(days, percentages, points, maxPoints);
+        List<EyeResultDTO> downsampled = new ArrayList<>(kept.length);
+        for (int index : kept) {
+            downsampled.add(series.get(index));
+        }
+        return downsampled;
+    }
+}
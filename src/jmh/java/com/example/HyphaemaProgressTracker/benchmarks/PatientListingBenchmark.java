@@ -0,0 +1,159 @@
+package com.example.HyphaemaProgressTracker.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import com.example.HyphaemaProgressTracker.HyphaemaProgressTrackerApplication;
+import com.example.HyphaemaProgressTracker.entities.Patient;
+import com.example.HyphaemaProgressTracker.entities.PatientRepository;
+import com.example.HyphaemaProgressTracker.services.PatientService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Measures writing the complete patient listing of {@code GET /api/getAllPatients} as JSON
+ * against a seeded database.
+ * <p>
+ * With {@code mode=entities} all {@link Patient} entities are loaded into a list and serialized, as the
+ * endpoint used to do; with {@code mode=stream} the listing is written by
+ * {@link PatientService#writePatients}, which streams password-free projections. The JSON is counted
+ * and discarded, so only the listing itself takes heap.
+ * </p>
+ * <p>
+ * The application is started with an in-memory H2 database, as in {@link ChartQueryBenchmark}. The
+ * peak usage of the heap memory pools is reset before and printed after every iteration; it includes
+ * garbage not yet collected, so it is an upper bound of the heap the listing needs.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PatientListingBenchmark {
+
+    private static final int BATCH_SIZE = 10_000;
+
+    @Param({"1000000"})
+    public int patients;
+
+    @Param({"entities", "stream"})
+    public String mode;
+
+    private Path cacheDir;
+    private ConfigurableApplicationContext context;
+    private PatientRepository patientRepository;
+    private PatientService patientService;
+    private ObjectMapper objectMapper;
+    private long bytesWritten;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        cacheDir = Files.createTempDirectory("hyphaema-jmh-cache");
+        context = new SpringApplicationBuilder(HyphaemaProgressTrackerApplication.class).run(
+                "--spring.datasource.url=jdbc:h2:mem:hyphaema-jmh-patients;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--hyphaema.analyzer.engine=stub",
+                "--hyphaema.analysis.cache.dir=" + cacheDir,
+                "--hyphaema.statistics.repair.enabled=false",
+                "--server.port=0",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN");
+        patientRepository = context.getBean(PatientRepository.class);
+        patientService = context.getBean(PatientService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        seed(context.getBean(JdbcTemplate.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        FileSystemUtils.deleteRecursively(cacheDir.toFile());
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeakHeap() {
+        System.gc();
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+    }
+
+    @TearDown(Level.Iteration)
+    public void printPeakHeap() {
+        long peak = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+        System.out.printf("%nPeak heap: %d MB for %d patients (%s), %d bytes of JSON%n",
+                peak >> 20, patients, mode, bytesWritten);
+    }
+
+    @Benchmark
+    public long listPatients() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        if ("entities".equals(mode)) {
+            List<Patient> all = new ArrayList<>();
+            patientRepository.findAll().forEach(all::add);
+            objectMapper.writeValue(out, all);
+        } else {
+            patientService.writePatients(null, () -> out);
+        }
+        bytesWritten = out.count;
+        return out.count;
+    }
+
+    /**
+     * Inserts the patients with explicit ids in JDBC batches.
+     */
+    private void seed(JdbcTemplate jdbcTemplate) {
+        String insertPatient = "INSERT INTO patient (id, login, password, enabled, roles) VALUES (?, ?, ?, ?, ?)";
+        List<Object[]> patientRows = new ArrayList<>(BATCH_SIZE);
+        for (long patientId = 1; patientId <= patients; patientId++) {
+            patientRows.add(new Object[] {patientId, "patient" + patientId, "{noop}benchmark", true, "USER"});
+            if (patientRows.size() == BATCH_SIZE) {
+                jdbcTemplate.batchUpdate(insertPatient, patientRows);
+                patientRows.clear();
+            }
+        }
+        jdbcTemplate.batchUpdate(insertPatient, patientRows);
+    }
+
+    /**
+     * Discards everything written to it and counts the bytes.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.HyphaemaProgressTracker.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the JSON bytes a benchmark would send to the dashboard chart, reported by JMH next to the score.
+ * <p>
+ * JMH adds up event counters over all measurement iterations, so both counters are totals;
+ * {@code payloadBytes / charts} is the payload of one chart, whether it took one response or several pages.
+ * </p>
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class PayloadCounters {
+
+    public long payloadBytes; // Serialized bytes of all charts of the iteration.
+    public long charts; // Charts loaded in the iteration.
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        payloadBytes = 0;
+        charts = 0;
+    }
+
+    /**
+     * Records the payload of one chart.
+     *
+     * @param bytes the serialized bytes of all responses of the chart
+     */
+    void record(long bytes) {
+        payloadBytes += bytes;
+        charts++;
+    }
+}
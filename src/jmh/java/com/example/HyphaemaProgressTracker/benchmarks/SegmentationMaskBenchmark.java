@@ -0,0 +1,92 @@
+package com.example.HyphaemaProgressTracker.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.util.FileSystemUtils;
+
+import com.example.HyphaemaProgressTracker.enums.ImageFormat;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalyzer;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.ImageNormalizer;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.JavaHyphemaAnalyzer;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.SegmentationMask;
+import com.example.HyphaemaProgressTracker.services.SegmentationMaskStore;
+import com.example.HyphaemaProgressTracker.services.StoredPhoto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Compares showing a stored hyphema region with running the analysis again.
+ * <p>
+ * {@code renderOverlay} is what the overlay endpoint does for a saved result, {@code reanalyse} is
+ * what it would cost without a stored mask. The encoded mask size is printed once per trial next to
+ * the photo size and the size of an uncompressed bit mask.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SegmentationMaskBenchmark {
+
+    @Param({"1600"})
+    public int longerSide;
+
+    private Path photoDir;
+    private StoredPhoto photo;
+    private JavaHyphemaAnalyzer analyzer;
+    private SegmentationMaskStore maskStore;
+    private SegmentationMask mask;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws Exception {
+        photoDir = Files.createTempDirectory("hyphaema-jmh");
+        Path path = BenchmarkPhotos.writeEyePhoto(photoDir.resolve("eye.jpg"), longerSide, longerSide * 3 / 4);
+        photo = new StoredPhoto(null, path, "0".repeat(64), Files.size(path), ImageFormat.JPEG);
+        analyzer = new JavaHyphemaAnalyzer(0, 0.9, 60, 140);
+        maskStore = new SegmentationMaskStore(new ImageNormalizer(new SimpleMeterRegistry(), true, longerSide, false, 0.92f),
+                new SimpleMeterRegistry(), photoDir.resolve("masks").toString());
+        mask = SegmentationMask.fromResult(analyzer.analyse(path).get(HyphemaAnalyzer.RESULT_MASK));
+        encoded = mask.toBytes();
+        System.out.printf("%nMask: %d runs, %d bytes encoded, %d bytes as bit mask, photo %d bytes%n",
+                mask.getRunCount(), encoded.length, (long) mask.getWidth() * mask.getHeight() / 8, photo.getSize());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        analyzer.shutdown();
+        FileSystemUtils.deleteRecursively(photoDir);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return mask.toBytes();
+    }
+
+    @Benchmark
+    public SegmentationMask decode() {
+        return SegmentationMask.fromBytes(encoded);
+    }
+
+    @Benchmark
+    public byte[] renderOverlay() throws IOException {
+        return maskStore.renderOverlay(photo, SegmentationMask.fromBytes(encoded));
+    }
+
+    @Benchmark
+    public Map<String, Object> reanalyse() throws Exception {
+        return analyzer.analyse(photo.getPath());
+    }
+}
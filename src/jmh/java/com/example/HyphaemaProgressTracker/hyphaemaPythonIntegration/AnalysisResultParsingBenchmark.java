@@ -0,0 +1,110 @@
+package com.example.HyphaemaProgressTracker.hyphaemaPythonIntegration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.AnalysisPipelineMetrics;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalysisException;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalyzer;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.SegmentationMask;
+import com.example.HyphaemaProgressTracker.threadConfiguration.AnalysisExecutors;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Measures {@link PythonHyphemaAnalyzer#parse}, the step after the Python script or worker has written
+ * its JSON line, including the timer of the parse stage.
+ * <p>
+ * {@code parseResultWithMask} adds the hyphema region of a {@value #WIDTH}x{@value #HEIGHT} photo as
+ * {@value HyphemaAnalyzer#RESULT_MASK}, blood filling the lower third of the iris, as the script writes it
+ * for the overlay.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class AnalysisResultParsingBenchmark {
+
+    private static final int WIDTH = 1600;
+    private static final int HEIGHT = 1200;
+    private static final int RADIUS = 480;
+
+    private static final String RESULT_LINE = "{\"hyphema_area_percentage\": 23.57}";
+    private static final String ERROR_LINE = "{\"error\": \"Auge wurde nicht erkannt\"}";
+
+    private ProcessSupervisor processSupervisor;
+    private PythonWorkerPool pythonWorkerPool;
+    private PythonHyphemaAnalyzer analyzer;
+    private String maskLine;
+
+    @Setup
+    public void setUp() throws JsonProcessingException, HyphemaAnalysisException {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AnalysisPipelineMetrics pipelineMetrics = new AnalysisPipelineMetrics(meterRegistry, "python");
+        processSupervisor = new ProcessSupervisor(meterRegistry, new AnalysisExecutors(false), Duration.ofSeconds(60));
+        // Without workers the pool is never started; parse does not touch it.
+        pythonWorkerPool = new PythonWorkerPool(0, 500, 30_000, 5_000, 120_000, "python", processSupervisor,
+                pipelineMetrics);
+        analyzer = new PythonHyphemaAnalyzer(pythonWorkerPool, processSupervisor, "python", "1", pipelineMetrics);
+        maskLine = new ObjectMapper().writeValueAsString(Map.of(HyphemaAnalyzer.RESULT_PERCENTAGE, 23.57,
+                HyphemaAnalyzer.RESULT_MASK, Map.of("width", WIDTH, "height", HEIGHT, "counts", maskCounts())));
+        SegmentationMask.fromResult(analyzer.parse(maskLine).get(HyphemaAnalyzer.RESULT_MASK));
+    }
+
+    @TearDown
+    public void tearDown() {
+        pythonWorkerPool.stop();
+        processSupervisor.shutdown();
+    }
+
+    @Benchmark
+    public Map<String, Object> parseResult() throws HyphemaAnalysisException {
+        return analyzer.parse(RESULT_LINE);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseResultWithMask() throws HyphemaAnalysisException {
+        return analyzer.parse(maskLine);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseError() throws HyphemaAnalysisException {
+        return analyzer.parse(ERROR_LINE);
+    }
+
+    /**
+     * Encodes the lower third of a centered disk as row-major runs, one background and one hyphema run per row.
+     */
+    private static List<Integer> maskCounts() {
+        List<Integer> counts = new ArrayList<>();
+        int background = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            int dy = y - HEIGHT / 2;
+            int halfChord = dy > RADIUS / 3 && dy < RADIUS ? (int) Math.sqrt((double) RADIUS * RADIUS - dy * dy) : 0;
+            if (halfChord == 0) {
+                background += WIDTH;
+                continue;
+            }
+            counts.add(background + WIDTH / 2 - halfChord);
+            counts.add(2 * halfChord);
+            background = WIDTH / 2 - halfChord;
+        }
+        counts.add(background);
+        return counts;
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.HyphaemaProgressTracker.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * One simulated clinician, following the same requests as the dashboard in the browser.
+ * <p>
+ * The clinician registers an account, logs in through the form login, opens the dashboard to learn
+ * the patient ID and creates an injury. Until the end of the run it then repeats: upload a photo to
+ * {@code runAnalyseHyphema}, save the result with {@code saveResult} and reload the chart of that eye,
+ * pausing for the think time between the actions. Each request waits for the previous one, like a
+ * real user; the session cookie is kept per clinician.
+ * </p>
+ */
+final class ClinicianSession implements Runnable {
+
+    static final String REGISTER = "register";
+    static final String LOGIN = "login";
+    static final String DASHBOARD = "dashboard";
+    static final String CREATE_INJURY = "createInjury";
+    static final String ANALYSE = "runAnalyseHyphema";
+    static final String SAVE_RESULT = "saveResult";
+    static final String CHART = "chart";
+
+    static final List<String> ENDPOINTS = List.of(REGISTER, LOGIN, DASHBOARD, CREATE_INJURY, ANALYSE, SAVE_RESULT, CHART);
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(3);
+    private static final Pattern PATIENT_ID = Pattern.compile("const patientId = \"(\\d+)\"");
+    private static final Pattern SESSION_COOKIE = Pattern.compile("^(JSESSIONID|SESSION)=([^;]*)");
+    private static final String[] EYE_SIDES = {"LEFT", "RIGHT"};
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final LoadTestSettings settings;
+    private final SyntheticPhotos photos;
+    private final Map<String, EndpointStats> stats;
+    private final String login;
+    private final long startDelayMillis;
+    private final long deadlineNanos;
+    private final SplittableRandom random;
+
+    private String sessionCookie;
+    private long patientId;
+    private long injuryId;
+    private String lastPhotoTag;
+
+    ClinicianSession(HttpClient httpClient, ObjectMapper objectMapper, LoadTestSettings settings, SyntheticPhotos photos,
+                     Map<String, EndpointStats> stats, String login, long startDelayMillis, long deadlineNanos, long seed) {
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.settings = settings;
+        this.photos = photos;
+        this.stats = stats;
+        this.login = login;
+        this.startDelayMillis = startDelayMillis;
+        this.deadlineNanos = deadlineNanos;
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public void run() {
+        try {
+            Thread.sleep(startDelayMillis);
+            if (!logIn() || !createInjury()) {
+                return;
+            }
+            LocalDate date = LocalDate.of(2024, 1, 1);
+            int upload = 0;
+            while (System.nanoTime() < deadlineNanos) {
+                String eyeSide = EYE_SIDES[random.nextInt(EYE_SIDES.length)];
+                thinkTime();
+                Integer percentage = analyse(eyeSide, date, upload++);
+                if (percentage != null) {
+                    thinkTime();
+                    saveResult(eyeSide, date, percentage);
+                }
+                loadChart(eyeSide);
+                date = date.plusDays(1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean logIn() throws InterruptedException {
+        String password = "loadtest-" + login;
+        HttpResponse<String> registered = send(REGISTER, form("/register", Map.of("login", login, "password", password)), 302);
+        if (registered == null) {
+            return false;
+        }
+        HttpResponse<String> loggedIn = send(LOGIN, form("/login", Map.of("username", login, "password", password)), 302);
+        if (loggedIn == null || loggedIn.headers().firstValue("Location").orElse("").contains("error")) {
+            System.err.println(login + ": Login fehlgeschlagen");
+            return false;
+        }
+        HttpResponse<String> dashboard = send(DASHBOARD, request("/dashboard").GET(), 200);
+        if (dashboard == null) {
+            return false;
+        }
+        Matcher matcher = PATIENT_ID.matcher(dashboard.body());
+        if (!matcher.find()) {
+            System.err.println(login + ": Patienten-ID nicht im Dashboard gefunden");
+            return false;
+        }
+        patientId = Long.parseLong(matcher.group(1));
+        return true;
+    }
+
+    private boolean createInjury() throws InterruptedException {
+        HttpResponse<String> response = send(CREATE_INJURY, json("/api/" + patientId + "/injuries",
+                Map.of("diagnosis", "Traumatisches Hyphäma (Lasttest)")), 200);
+        if (response == null) {
+            return false;
+        }
+        injuryId = readTree(response).path("id").asLong();
+        return injuryId > 0;
+    }
+
+    private Integer analyse(String eyeSide, LocalDate date, int upload) throws InterruptedException {
+        if (lastPhotoTag == null || random.nextDouble() >= settings.getRepeatPhotoRate()) {
+            lastPhotoTag = login + "-" + upload;
+        }
+        String boundary = "----hyphaema-loadtest-" + Long.toHexString(random.nextLong());
+        List<byte[]> parts = new ArrayList<>();
+        parts.add(formField(boundary, "injuryId", Long.toString(injuryId)));
+        parts.add(formField(boundary, "eye", eyeSide));
+        parts.add(formField(boundary, "date", date.toString()));
+        parts.add(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"photo\"; filename=\"eye.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        parts.add(photos.variant(lastPhotoTag));
+        parts.add(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        HttpResponse<String> response = send(ANALYSE, request("/api/" + patientId + "/runAnalyseHyphema")
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArrays(parts)), 200);
+        if (response == null) {
+            return null;
+        }
+        JsonNode percentage = readTree(response).path("percentageOfEyeAffectedByHyphema");
+        return percentage.isNumber() ? (int) Math.round(percentage.asDouble()) : null;
+    }
+
+    private void saveResult(String eyeSide, LocalDate date, int percentage) throws InterruptedException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("injuryId", injuryId);
+        body.put("eye", eyeSide);
+        body.put("date", date.toString());
+        body.put("percentageOfEyeAffectedByHyphema", percentage);
+        send(SAVE_RESULT, json("/api/" + patientId + "/saveResult", body), 200);
+    }
+
+    private void loadChart(String eyeSide) throws InterruptedException {
+        String path = "/api/patients/" + patientId + "/injuries/" + injuryId + "/eyes/" + eyeSide;
+        if (settings.getChartMaxPoints() > 0) {
+            path += "?maxPoints=" + settings.getChartMaxPoints();
+        }
+        send(CHART, request(path).GET(), 200);
+    }
+
+    /**
+     * Sends a request, records its latency and keeps the session cookie.
+     *
+     * @return the response, or null if the request failed or returned an unexpected status
+     */
+    private HttpResponse<String> send(String endpoint, HttpRequest.Builder builder, int expectedStatus)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = httpClient.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            stats.get(endpoint).record((System.nanoTime() - start) / 1000, false);
+            System.err.println(login + ": " + endpoint + " fehlgeschlagen: " + e);
+            return null;
+        }
+        boolean success = response.statusCode() == expectedStatus;
+        stats.get(endpoint).record((System.nanoTime() - start) / 1000, success);
+        for (String cookie : response.headers().allValues("Set-Cookie")) {
+            Matcher matcher = SESSION_COOKIE.matcher(cookie);
+            if (matcher.find()) {
+                sessionCookie = matcher.group(1) + "=" + matcher.group(2);
+            }
+        }
+        if (!success) {
+            System.err.println(login + ": " + endpoint + " antwortete mit " + response.statusCode());
+            return null;
+        }
+        return response;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(settings.getBaseUrl() + path)).timeout(REQUEST_TIMEOUT);
+        if (sessionCookie != null) {
+            builder.header("Cookie", sessionCookie);
+        }
+        return builder;
+    }
+
+    private HttpRequest.Builder form(String path, Map<String, String> fields) {
+        StringBuilder body = new StringBuilder();
+        fields.forEach((name, value) -> {
+            if (!body.isEmpty()) {
+                body.append('&');
+            }
+            body.append(URLEncoder.encode(name, StandardCharsets.UTF_8)).append('=')
+                    .append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+        });
+        return request(path)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+    }
+
+    private HttpRequest.Builder json(String path, Object body) {
+        try {
+            return request(path)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private JsonNode readTree(HttpResponse<String> response) {
+        try {
+            return objectMapper.readTree(response.body());
+        } catch (IOException e) {
+            System.err.println(login + ": Ungültige Antwort: " + response.body());
+            return objectMapper.missingNode();
+        }
+    }
+
+    private static byte[] formField(String boundary, String name, String value) {
+        return ("--" + boundary + "\r\nContent-Disposition: form-data; name=\"" + name + "\"\r\n\r\n" + value + "\r\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Pauses between 0.5 and 1.5 times the configured think time, but not beyond the end of the run.
+     */
+    private void thinkTime() throws InterruptedException {
+        long thinkMillis = Math.round(settings.getThinkTime().toMillis() * (0.5 + random.nextDouble()));
+        long remainingMillis = (deadlineNanos - System.nanoTime()) / 1_000_000;
+        Thread.sleep(Math.max(0, Math.min(thinkMillis, remainingMillis)));
+    }
+}
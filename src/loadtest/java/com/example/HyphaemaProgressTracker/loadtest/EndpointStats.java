@@ -0,0 +1,117 @@
+package com.example.HyphaemaProgressTracker.loadtest;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Latencies and failures of one endpoint during a load test run.
+ * <p>
+ * Every latency is kept, so the percentiles in the report are exact. At a few hundred requests
+ * per second this is a few megabytes per hour, which is far less than a histogram library would
+ * add to the harness.
+ * </p>
+ */
+final class EndpointStats {
+
+    private final String endpoint;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private long[] latencyMicros = new long[1024];
+    private int count;
+    private int errors;
+
+    EndpointStats(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Records a finished request.
+     *
+     * @param micros the latency in microseconds
+     * @param success whether the request returned the expected status
+     */
+    void record(long micros, boolean success) {
+        lock.lock();
+        try {
+            if (count == latencyMicros.length) {
+                latencyMicros = Arrays.copyOf(latencyMicros, count * 2);
+            }
+            latencyMicros[count++] = micros;
+            if (!success) {
+                errors++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * Takes an immutable snapshot for the report.
+     *
+     * @return the sorted latencies and the error count recorded so far
+     */
+    Snapshot snapshot() {
+        lock.lock();
+        try {
+            long[] sorted = Arrays.copyOf(latencyMicros, count);
+            Arrays.sort(sorted);
+            return new Snapshot(endpoint, sorted, errors);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sorted latencies of an endpoint with percentile lookups.
+     */
+    static final class Snapshot {
+
+        private final String endpoint;
+        private final long[] sortedMicros;
+        private final int errors;
+
+        private Snapshot(String endpoint, long[] sortedMicros, int errors) {
+            this.endpoint = endpoint;
+            this.sortedMicros = sortedMicros;
+            this.errors = errors;
+        }
+
+        String getEndpoint() {
+            return endpoint;
+        }
+
+        int getCount() {
+            return sortedMicros.length;
+        }
+
+        int getErrors() {
+            return errors;
+        }
+
+        double getErrorRate() {
+            return sortedMicros.length == 0 ? 0.0 : (double) errors / sortedMicros.length;
+        }
+
+        /**
+         * Returns a percentile using the nearest-rank method.
+         *
+         * @param percentile the percentile between 0 and 100
+         * @return the latency in milliseconds, or 0 if nothing was recorded
+         */
+        double percentileMillis(double percentile) {
+            if (sortedMicros.length == 0) {
+                return 0.0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sortedMicros.length);
+            return sortedMicros[Math.max(0, Math.min(sortedMicros.length - 1, rank - 1))] / 1000.0;
+        }
+
+        double maxMillis() {
+            return sortedMicros.length == 0 ? 0.0 : sortedMicros[sortedMicros.length - 1] / 1000.0;
+        }
+    }
+}
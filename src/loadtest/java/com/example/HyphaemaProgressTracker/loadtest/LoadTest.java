@@ -0,0 +1,180 @@
+package com.example.HyphaemaProgressTracker.loadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Load generator simulating clinicians using the dashboard at the same time.
+ * <p>
+ * Start the application with the stub analyzer, e.g. {@code ./gradlew bootRun --args='--spring.profiles.active=loadtest'},
+ * then run {@code ./gradlew loadTest -Ploadtest.users=50 -Ploadtest.duration=5m}. The clinicians
+ * log in one after another over the ramp-up and keep working until the end of the run; see
+ * {@link LoadTestSettings} for all options and {@link ClinicianSession} for what a clinician does.
+ * </p>
+ * <p>
+ * At the end the throughput and latency percentiles of every endpoint are printed and written as
+ * JSON. The process exits with status 1 if a service level objective was violated, so the task
+ * fails the build, and with status 2 if the instance cannot be reached.
+ * </p>
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.fromSystemProperties();
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        try (ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .followRedirects(HttpClient.Redirect.NEVER) // Redirects carry the session cookie, see ClinicianSession
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .executor(clientExecutor)
+                    .build();
+            if (!isReachable(httpClient, settings.getBaseUrl())) {
+                System.err.println("Instanz nicht erreichbar: " + settings.getBaseUrl());
+                System.exit(2);
+            }
+
+            System.out.printf("Lasttest gegen %s: %d Benutzer, Ramp-up %s, Dauer %s, Denkzeit %s%n",
+                    settings.getBaseUrl(), settings.getUsers(), settings.getRampUp(), settings.getDuration(),
+                    settings.getThinkTime());
+            SyntheticPhotos photos = new SyntheticPhotos(settings.getPhotoSize(), 42);
+            Map<String, EndpointStats> stats = new LinkedHashMap<>();
+            ClinicianSession.ENDPOINTS.forEach(endpoint -> stats.put(endpoint, new EndpointStats(endpoint)));
+
+            String runId = Long.toString(System.currentTimeMillis(), 36);
+            long start = System.nanoTime();
+            long deadline = start + settings.getRampUp().plus(settings.getDuration()).toNanos();
+            try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < settings.getUsers(); i++) {
+                    long startDelayMillis = settings.getRampUp().toMillis() * i / settings.getUsers();
+                    users.submit(new ClinicianSession(httpClient, objectMapper, settings, photos, stats,
+                            "loadtest-" + runId + "-" + i, startDelayMillis, deadline, i));
+                }
+            } // Waits for all clinicians to finish their last action
+            double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+            List<EndpointStats.Snapshot> snapshots = new ArrayList<>();
+            stats.values().forEach(endpointStats -> snapshots.add(endpointStats.snapshot()));
+            List<String> violations = checkObjectives(settings, snapshots, elapsedSeconds);
+            printReport(snapshots, elapsedSeconds, violations);
+            writeReport(objectMapper, settings, snapshots, elapsedSeconds, violations);
+            System.exit(violations.isEmpty() ? 0 : 1);
+        }
+    }
+
+    private static boolean isReachable(HttpClient httpClient, URI baseUrl) throws InterruptedException {
+        try {
+            httpClient.send(HttpRequest.newBuilder(baseUrl.resolve("/")).timeout(Duration.ofSeconds(10)).GET().build(),
+                    HttpResponse.BodyHandlers.discarding());
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Compares the recorded latencies, error rates and analysis throughput with the configured objectives.
+     *
+     * @return a description of every violated objective
+     */
+    private static List<String> checkObjectives(LoadTestSettings settings, List<EndpointStats.Snapshot> snapshots,
+                                                double elapsedSeconds) {
+        List<String> violations = new ArrayList<>();
+        for (EndpointStats.Snapshot snapshot : snapshots) {
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            long p95Objective = settings.getP95Millis(snapshot.getEndpoint());
+            double p95 = snapshot.percentileMillis(95);
+            if (p95 > p95Objective) {
+                violations.add(String.format(Locale.ROOT, "%s: p95 %.1f ms > %d ms", snapshot.getEndpoint(), p95, p95Objective));
+            }
+            if (snapshot.getErrorRate() > settings.getMaxErrorRate()) {
+                violations.add(String.format(Locale.ROOT, "%s: Fehlerrate %.2f %% > %.2f %%", snapshot.getEndpoint(),
+                        snapshot.getErrorRate() * 100, settings.getMaxErrorRate() * 100));
+            }
+        }
+        double analyses = snapshots.stream()
+                .filter(snapshot -> snapshot.getEndpoint().equals(ClinicianSession.ANALYSE))
+                .mapToDouble(snapshot -> snapshot.getCount() - snapshot.getErrors())
+                .sum();
+        if (analyses == 0) {
+            violations.add("Keine erfolgreiche Analyse");
+        } else if (analyses / elapsedSeconds < settings.getMinThroughput()) {
+            violations.add(String.format(Locale.ROOT, "Durchsatz %.2f Analysen/s < %.2f Analysen/s",
+                    analyses / elapsedSeconds, settings.getMinThroughput()));
+        }
+        return violations;
+    }
+
+    private static void printReport(List<EndpointStats.Snapshot> snapshots, double elapsedSeconds, List<String> violations) {
+        System.out.printf(Locale.ROOT, "%nDauer %.1f s%n", elapsedSeconds);
+        System.out.printf(Locale.ROOT, "%-18s %8s %7s %8s %9s %9s %9s %9s %9s%n",
+                "Endpunkt", "Anfragen", "Fehler", "Anf./s", "p50 ms", "p90 ms", "p95 ms", "p99 ms", "max ms");
+        for (EndpointStats.Snapshot snapshot : snapshots) {
+            System.out.printf(Locale.ROOT, "%-18s %8d %7d %8.2f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    snapshot.getEndpoint(), snapshot.getCount(), snapshot.getErrors(), snapshot.getCount() / elapsedSeconds,
+                    snapshot.percentileMillis(50), snapshot.percentileMillis(90), snapshot.percentileMillis(95),
+                    snapshot.percentileMillis(99), snapshot.maxMillis());
+        }
+        if (violations.isEmpty()) {
+            System.out.println("\nAlle Service-Level-Ziele eingehalten");
+        } else {
+            System.out.println("\nVerletzte Service-Level-Ziele:");
+            violations.forEach(violation -> System.out.println("  " + violation));
+        }
+    }
+
+    private static void writeReport(ObjectMapper objectMapper, LoadTestSettings settings,
+                                    List<EndpointStats.Snapshot> snapshots, double elapsedSeconds,
+                                    List<String> violations) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("baseUrl", settings.getBaseUrl().toString());
+        report.put("users", settings.getUsers());
+        report.put("rampUpSeconds", settings.getRampUp().toSeconds());
+        report.put("durationSeconds", settings.getDuration().toSeconds());
+        report.put("thinkTimeMillis", settings.getThinkTime().toMillis());
+        report.put("elapsedSeconds", elapsedSeconds);
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (EndpointStats.Snapshot snapshot : snapshots) {
+            Map<String, Object> endpoint = new LinkedHashMap<>();
+            endpoint.put("requests", snapshot.getCount());
+            endpoint.put("errors", snapshot.getErrors());
+            endpoint.put("throughputPerSecond", snapshot.getCount() / elapsedSeconds);
+            endpoint.put("p50Millis", snapshot.percentileMillis(50));
+            endpoint.put("p90Millis", snapshot.percentileMillis(90));
+            endpoint.put("p95Millis", snapshot.percentileMillis(95));
+            endpoint.put("p99Millis", snapshot.percentileMillis(99));
+            endpoint.put("maxMillis", snapshot.maxMillis());
+            endpoints.put(snapshot.getEndpoint(), endpoint);
+        }
+        report.put("endpoints", endpoints);
+        report.put("violations", violations);
+
+        Path file = Path.of(settings.getReport());
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        objectMapper.writer(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), report);
+        System.out.println("Bericht: " + file.toAbsolutePath());
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.HyphaemaProgressTracker.loadtest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Configuration of a load test run, read from {@code loadtest.*} system properties.
+ * <p>
+ * Durations accept Spring Boot style values such as {@code 500ms}, {@code 30s} or {@code 5m}.
+ * When run with {@code ./gradlew loadTest}, every {@code -Ploadtest.*} project property is passed through.
+ * </p>
+ * <ul>
+ *     <li>{@code loadtest.base-url} - the instance under test (default {@code http://localhost:8080})</li>
+ *     <li>{@code loadtest.users} - the number of concurrent clinicians (default 20)</li>
+ *     <li>{@code loadtest.ramp-up} - the time over which the clinicians log in (default 30s)</li>
+ *     <li>{@code loadtest.duration} - the time the full load is held after the ramp-up (default 2m)</li>
+ *     <li>{@code loadtest.think-time} - the mean pause between two actions of a clinician (default 2s)</li>
+ *     <li>{@code loadtest.repeat-photo-rate} - the share of uploads repeating an earlier photo (default 0.1)</li>
+ *     <li>{@code loadtest.photo-size} - the longer side of the uploaded photos in pixels (default 2400)</li>
+ *     <li>{@code loadtest.chart-max-points} - the {@code maxPoints} requested with the chart, 0 for the full
+ *     series (default 0)</li>
+ *     <li>{@code loadtest.report} - the JSON report file (default {@code build/reports/loadtest/results.json})</li>
+ *     <li>{@code loadtest.slo.p95-ms} - the 95th percentile every endpoint must stay below (default 2000)</li>
+ *     <li>{@code loadtest.slo.<endpoint>.p95-ms} - the 95th percentile of a single endpoint, e.g.
+ *     {@code loadtest.slo.runAnalyseHyphema.p95-ms}</li>
+ *     <li>{@code loadtest.slo.max-error-rate} - the share of failed requests allowed per endpoint (default 0.01)</li>
+ *     <li>{@code loadtest.slo.min-throughput} - the minimum analyses per second over the whole run (default 0)</li>
+ * </ul>
+ */
+final class LoadTestSettings {
+
+    private final Properties properties;
+
+    private final URI baseUrl;
+    private final int users;
+    private final Duration rampUp;
+    private final Duration duration;
+    private final Duration thinkTime;
+    private final double repeatPhotoRate;
+    private final int photoSize;
+    private final int chartMaxPoints;
+    private final String report;
+    private final long defaultP95Millis;
+    private final double maxErrorRate;
+    private final double minThroughput;
+
+    private LoadTestSettings(Properties properties) {
+        this.properties = properties;
+        this.baseUrl = URI.create(stripTrailingSlash(properties.getProperty("loadtest.base-url", "http://localhost:8080")));
+        this.users = Integer.parseInt(properties.getProperty("loadtest.users", "20"));
+        this.rampUp = parseDuration(properties.getProperty("loadtest.ramp-up", "30s"));
+        this.duration = parseDuration(properties.getProperty("loadtest.duration", "2m"));
+        this.thinkTime = parseDuration(properties.getProperty("loadtest.think-time", "2s"));
+        this.repeatPhotoRate = Double.parseDouble(properties.getProperty("loadtest.repeat-photo-rate", "0.1"));
+        this.photoSize = Integer.parseInt(properties.getProperty("loadtest.photo-size", "2400"));
+        this.chartMaxPoints = Integer.parseInt(properties.getProperty("loadtest.chart-max-points", "0"));
+        this.report = properties.getProperty("loadtest.report", "build/reports/loadtest/results.json");
+        this.defaultP95Millis = Long.parseLong(properties.getProperty("loadtest.slo.p95-ms", "2000"));
+        this.maxErrorRate = Double.parseDouble(properties.getProperty("loadtest.slo.max-error-rate", "0.01"));
+        this.minThroughput = Double.parseDouble(properties.getProperty("loadtest.slo.min-throughput", "0"));
+        if (users < 1) {
+            throw new IllegalArgumentException("loadtest.users must be at least 1");
+        }
+    }
+
+    /**
+     * Reads the settings from the system properties.
+     *
+     * @return the settings of this run
+     */
+    static LoadTestSettings fromSystemProperties() {
+        return new LoadTestSettings(System.getProperties());
+    }
+
+    URI getBaseUrl() {
+        return baseUrl;
+    }
+
+    int getUsers() {
+        return users;
+    }
+
+    Duration getRampUp() {
+        return rampUp;
+    }
+
+    Duration getDuration() {
+        return duration;
+    }
+
+    Duration getThinkTime() {
+        return thinkTime;
+    }
+
+    double getRepeatPhotoRate() {
+        return repeatPhotoRate;
+    }
+
+    int getPhotoSize() {
+        return photoSize;
+    }
+
+    int getChartMaxPoints() {
+        return chartMaxPoints;
+    }
+
+    String getReport() {
+        return report;
+    }
+
+    double getMaxErrorRate() {
+        return maxErrorRate;
+    }
+
+    double getMinThroughput() {
+        return minThroughput;
+    }
+
+    /**
+     * Returns the 95th percentile objective of an endpoint.
+     *
+     * @param endpoint the endpoint name used in the report
+     * @return the objective in milliseconds
+     */
+    long getP95Millis(String endpoint) {
+        String value = properties.getProperty("loadtest.slo." + endpoint + ".p95-ms");
+        return value != null ? Long.parseLong(value) : defaultP95Millis;
+    }
+
+    /**
+     * Parses a duration such as {@code 250ms}, {@code 30s}, {@code 5m} or {@code 1h};
+     * a plain number is read as milliseconds.
+     */
+    static Duration parseDuration(String value) {
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        if (text.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2).trim()));
+        }
+        if (text.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(text.substring(0, text.length() - 1).trim()));
+        }
+        if (text.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(text.substring(0, text.length() - 1).trim()));
+        }
+        if (text.endsWith("h")) {
+            return Duration.ofHours(Long.parseLong(text.substring(0, text.length() - 1).trim()));
+        }
+        return Duration.ofMillis(Long.parseLong(text));
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.HyphaemaProgressTracker.loadtest;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Generates the eye photos uploaded by the simulated clinicians.
+ * <p>
+ * The photo is drawn and encoded once. Every upload gets its own copy with a unique JPEG comment
+ * segment behind the start-of-image marker, so its content hash differs and the analysis cache
+ * cannot answer it, while the client spends no time encoding images during the run.
+ * </p>
+ */
+final class SyntheticPhotos {
+
+    private final byte[] jpeg;
+
+    /**
+     * Draws the base photo.
+     *
+     * @param longerSide the longer side of the photo in pixels, the shorter side is three quarters of it
+     * @param seed the seed for the hyphema level and the sensor noise
+     * @throws IOException if the photo cannot be encoded
+     */
+    SyntheticPhotos(int longerSide, long seed) throws IOException {
+        int width = longerSide;
+        int height = longerSide * 3 / 4;
+        SplittableRandom random = new SplittableRandom(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(235, 225, 220));
+        graphics.fillRect(0, 0, width, height);
+
+        int radius = height * 2 / 5;
+        int centerX = width / 2;
+        int centerY = height / 2;
+        graphics.setColor(new Color(110, 75, 45));
+        graphics.fillOval(centerX - radius, centerY - radius, 2 * radius, 2 * radius);
+        graphics.setColor(new Color(20, 15, 15));
+        graphics.fillOval(centerX - radius / 3, centerY - radius / 3, 2 * radius / 3, 2 * radius / 3);
+
+        int bloodLevel = centerY + radius - random.nextInt(radius / 5, radius);
+        graphics.setClip(centerX - radius, bloodLevel, 2 * radius, radius * 2);
+        graphics.setColor(new Color(170, 25, 30));
+        graphics.fillOval(centerX - radius, centerY - radius, 2 * radius, 2 * radius);
+        graphics.dispose();
+
+        // Sensor noise, so the JPEG has a realistic size instead of compressing flat areas away
+        for (int i = 0; i < width * height / 8; i++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            int rgb = image.getRGB(x, y);
+            int delta = random.nextInt(-12, 13);
+            int r = clamp(((rgb >> 16) & 0xFF) + delta);
+            int g = clamp(((rgb >> 8) & 0xFF) + delta);
+            int b = clamp((rgb & 0xFF) + delta);
+            image.setRGB(x, y, (r << 16) | (g << 8) | b);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        this.jpeg = out.toByteArray();
+    }
+
+    /**
+     * Returns a copy of the photo that differs from all other copies with a different tag.
+     *
+     * @param tag the unique tag written into the JPEG comment
+     * @return the JPEG bytes
+     */
+    byte[] variant(String tag) {
+        byte[] comment = tag.getBytes(StandardCharsets.US_ASCII);
+        int segmentLength = comment.length + 2; // The length field counts itself
+        byte[] result = new byte[jpeg.length + 2 + segmentLength];
+        result[0] = jpeg[0]; // SOI marker
+        result[1] = jpeg[1];
+        result[2] = (byte) 0xFF; // COM marker
+        result[3] = (byte) 0xFE;
+        result[4] = (byte) (segmentLength >> 8);
+        result[5] = (byte) segmentLength;
+        System.arraycopy(comment, 0, result, 6, comment.length);
+        System.arraycopy(jpeg, 2, result, 6 + comment.length, jpeg.length - 2);
+        return result;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
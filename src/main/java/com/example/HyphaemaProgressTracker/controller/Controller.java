@@ -1,12 +1,29 @@
 package com.example.HyphaemaProgressTracker.controller;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
-
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.example.HyphaemaProgressTracker.dto.AnalysisJobDTO;
+import com.example.HyphaemaProgressTracker.dto.BatchAnalysisItemDTO;
+import com.example.HyphaemaProgressTracker.dto.CohortDTO;
+import com.example.HyphaemaProgressTracker.dto.CohortReportDTO;
+import com.example.HyphaemaProgressTracker.dto.EyeDTO;
 import com.example.HyphaemaProgressTracker.dto.EyeResultDTO;
+import com.example.HyphaemaProgressTracker.dto.EyeSeriesPage;
+import com.example.HyphaemaProgressTracker.dto.HealingSummaryDTO;
+import com.example.HyphaemaProgressTracker.dto.InjuryDTO;
+import com.example.HyphaemaProgressTracker.dto.PatientPage;
+import com.example.HyphaemaProgressTracker.dto.PatientSummaryDTO;
 import com.example.HyphaemaProgressTracker.dto.SaveResultRequest;
 import com.example.HyphaemaProgressTracker.entities.Eye;
 import com.example.HyphaemaProgressTracker.entities.EyeRepository;
@@ -14,23 +31,38 @@ import com.example.HyphaemaProgressTracker.entities.Injury;
 import com.example.HyphaemaProgressTracker.entities.InjuryRepository;
 import com.example.HyphaemaProgressTracker.entities.Patient;
 import com.example.HyphaemaProgressTracker.entities.PatientRepository;
+import com.example.HyphaemaProgressTracker.entities.Photo;
+import com.example.HyphaemaProgressTracker.entities.PhotoRepository;
+import com.example.HyphaemaProgressTracker.enums.AnalysisFailureReason;
 import com.example.HyphaemaProgressTracker.enums.EyeSide;
-import com.example.HyphaemaProgressTracker.hyphaemaPythonIntegration.PythonIntegration;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.AnalysisPipelineMetrics;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalysisException;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalyzer;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.SegmentationMask;
+import com.example.HyphaemaProgressTracker.services.AnalysisJob;
+import com.example.HyphaemaProgressTracker.services.AnalysisJobService;
+import com.example.HyphaemaProgressTracker.services.BatchAnalysisService;
+import com.example.HyphaemaProgressTracker.services.CohortAnalyticsService;
 import com.example.HyphaemaProgressTracker.services.EyeService;
+import com.example.HyphaemaProgressTracker.services.HealingStatisticsService;
+import com.example.HyphaemaProgressTracker.services.HyphemaAnalysisService;
 import com.example.HyphaemaProgressTracker.services.InjuryService;
 import com.example.HyphaemaProgressTracker.services.PatientService;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.HyphaemaProgressTracker.services.PhotoService;
+import com.example.HyphaemaProgressTracker.services.SegmentationMaskStore;
+import com.example.HyphaemaProgressTracker.services.StoredPhoto;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletResponse;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.IOException;
+import java.net.URI;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 
 /**
@@ -50,8 +82,11 @@ import java.util.Optional;
  *     <li>CRUD operations for Patients, Injuries, and Eyes</li>
  *     <li>Linking Injuries to Patients</li>
  *     <li>Linking Eyes to Injuries</li>
- *     <li>Running hyphema analysis via an integrated Python application</li>
+ *     <li>Running hyphema analysis via the configured {@link HyphemaAnalyzer} engine</li>
+ *     <li>Running hyphema analysis as asynchronous, pollable jobs</li>
+ *     <li>Running hyphema analysis for several photos of one visit in parallel</li>
  *     <li>Storing analysis results as persistent Eye records</li>
+ *     <li>Rendering the stored hyphema region of an Eye record on its photo</li>
  * </ul>
  * 
  * Dependencies:
@@ -59,21 +94,40 @@ import java.util.Optional;
  *     <li>{@link PatientRepository} for Patient data management</li>
  *     <li>{@link InjuryRepository} for Injury data management</li>
  *     <li>{@link EyeRepository} for Eye data management</li>
+ *     <li>{@link PhotoRepository} for linking Eye records to their analyzed photo</li>
  *     <li>{@link PatientService} for business logic related to Patients</li>
  *     <li>{@link InjuryService} for business logic related to Injuries</li>
  *     <li>{@link EyeService} for business logic related to Eyes</li>
+ *     <li>{@link HealingStatisticsService} for the healing summary of an Eye</li>
+ *     <li>{@link CohortAnalyticsService} for the healing curves of all patients by diagnosis</li>
+ *     <li>{@link HyphemaAnalysisService} for storing photos and running hyphema analyses</li>
+ *     <li>{@link AnalysisJobService} for running hyphema analyses asynchronously</li>
+ *     <li>{@link BatchAnalysisService} for running hyphema analyses of several photos in parallel</li>
+ *     <li>{@link AnalysisPipelineMetrics} for timing the stages of the analyze-and-save pipeline</li>
+ *     <li>{@link PhotoService} and {@link SegmentationMaskStore} for rendering stored hyphema regions</li>
  * </ul>
  */
 @RestController
 @RequestMapping("/api") 
 public class Controller {
 
+    private static final Logger log = LoggerFactory.getLogger(Controller.class);
+
     private final PatientRepository patientRepository;
     private final InjuryRepository injuryRepository;
     private final EyeRepository eyeRepository;
+    private final PhotoRepository photoRepository;
     private final PatientService patientService;
     private final InjuryService injuryService;
     private final EyeService eyeService;
+    private final HealingStatisticsService healingStatisticsService;
+    private final CohortAnalyticsService cohortAnalyticsService;
+    private final HyphemaAnalysisService hyphemaAnalysisService;
+    private final AnalysisJobService analysisJobService;
+    private final BatchAnalysisService batchAnalysisService;
+    private final AnalysisPipelineMetrics pipelineMetrics;
+    private final PhotoService photoService;
+    private final SegmentationMaskStore segmentationMaskStore;
 
     /**
      * Constructor for the Controller.
@@ -82,22 +136,49 @@ public class Controller {
      * @param patientRepository the repository for managing patients
      * @param injuryRepository the repository for managing injuries
      * @param eyeRepository the repository for managing eyes
+     * @param photoRepository the repository for photo metadata
      * @param patientService the service for patient-related operations
      * @param injuryService the service for injury-related operations
      * @param eyeService the service for eye-related operations
+     * @param healingStatisticsService the service for the running statistics of every eye
+     * @param cohortAnalyticsService the service for the healing curves of the diagnosis cohorts
+     * @param hyphemaAnalysisService the service for storing and analyzing photos
+     * @param analysisJobService the service for asynchronous analysis jobs
+     * @param batchAnalysisService the service for parallel batch analyses
+     * @param pipelineMetrics the timers of the analyze-and-save pipeline
+     * @param photoService the service for finding stored photos
+     * @param segmentationMaskStore the store for the hyphema regions found by the engine
      */
     public Controller(PatientRepository patientRepository,
                       InjuryRepository injuryRepository,
                       EyeRepository eyeRepository,
+                      PhotoRepository photoRepository,
                       PatientService patientService,
                       InjuryService injuryService, 
-                      EyeService eyeService) {
+                      EyeService eyeService,
+                      HealingStatisticsService healingStatisticsService,
+                      CohortAnalyticsService cohortAnalyticsService,
+                      HyphemaAnalysisService hyphemaAnalysisService,
+                      AnalysisJobService analysisJobService,
+                      BatchAnalysisService batchAnalysisService,
+                      AnalysisPipelineMetrics pipelineMetrics,
+                      PhotoService photoService,
+                      SegmentationMaskStore segmentationMaskStore) {
         this.patientRepository = patientRepository;
         this.injuryRepository = injuryRepository;
         this.eyeRepository = eyeRepository;
+        this.photoRepository = photoRepository;
         this.patientService = patientService;
         this.injuryService = injuryService;
         this.eyeService = eyeService;
+        this.healingStatisticsService = healingStatisticsService;
+        this.cohortAnalyticsService = cohortAnalyticsService;
+        this.hyphemaAnalysisService = hyphemaAnalysisService;
+        this.analysisJobService = analysisJobService;
+        this.batchAnalysisService = batchAnalysisService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.photoService = photoService;
+        this.segmentationMaskStore = segmentationMaskStore;
     }
 
 
@@ -153,26 +234,73 @@ public class Controller {
     public ResponseEntity<Void> deletePatient(@PathVariable("patientId") Long patientId) {
         if (patientRepository.existsById(patientId)) {
             patientRepository.deleteById(patientId);
+            eyeService.evictSeriesOfPatient(patientId);
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
     }
 
     /**
-     * Retrieves all patients stored in the repository.
+     * Retrieves all patients stored in the repository, without their password hashes.
+     * <p>
+     * The patients are written to the response as they are read from the database, so the listing
+     * takes the same memory for any number of patients. The status is decided by the first row of the
+     * same query. Clients that show the patients page by page should use {@link #getPatients} instead.
+     * </p>
      *
-     * @return a ResponseEntity containing the list of all patients, or a 204 status if no patients are found
+     * @param loginPrefix the prefix the login must start with (optional)
+     * @param response the response the JSON array of all patients is written to; 204 if no patients are found
+     * @throws IOException if the response cannot be written
      */
     @GetMapping("/getAllPatients")
-    public ResponseEntity<List<Patient>> getAllPatients() {
-        Iterable<Patient> iterableAllPatients = patientRepository.findAll();
-        List<Patient> allPatients = new ArrayList<>();
-        iterableAllPatients.forEach(allPatients::add);
-        allPatients.forEach(System.out::println);
-        if (allPatients.isEmpty()) {
+    public void getAllPatients(@RequestParam(value = "loginPrefix", required = false) String loginPrefix,
+                               HttpServletResponse response) throws IOException {
+        boolean found = patientService.writePatients(loginPrefix, () -> {
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            return response.getOutputStream();
+        });
+        if (!found) {
+            response.setStatus(HttpStatus.NO_CONTENT.value());
+        }
+    }
+
+    /**
+     * Retrieves the patients page by page in id order, without their password hashes.
+     * <p>
+     * If there are more patients, the response carries a {@code Link} header with {@code rel="next"}
+     * pointing to the next page, like the chart series.
+     * </p>
+     *
+     * @param loginPrefix the prefix the login must start with (optional)
+     * @param after the cursor of the page to return, taken from the {@code Link} header (optional)
+     * @param limit the page size (optional)
+     * @return a ResponseEntity containing the patients of the page, or a 204 status if no patients are found
+     * @throws ResponseStatusException with 400 if the page size is invalid
+     */
+    @GetMapping("/patients")
+    public ResponseEntity<List<PatientSummaryDTO>> getPatients(
+            @RequestParam(value = "loginPrefix", required = false) String loginPrefix,
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "limit", required = false) Integer limit) {
+        PatientPage page;
+        try {
+            page = patientService.findPage(loginPrefix, after, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ungültiger Seitenparameter", e);
+        }
+
+        if (page.getResults().isEmpty()) {
             return ResponseEntity.noContent().build();
         }
-        return ResponseEntity.ok(allPatients);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", page.getNextCursor())
+                    .build()
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page.getResults());
     }
 
 
@@ -198,35 +326,152 @@ public class Controller {
     /**
      * Retrieves all injuries associated with a specific patient.
      *
+     * <p>
+     * The injuries are read with one projection query; only an empty result costs a second statement,
+     * which tells a patient without injuries from an unknown one.
+     * </p>
+     *
      * @param patientId the ID of the patient whose injuries are to be retrieved
      * @return a ResponseEntity containing the list of injuries, or a 404 status if the patient is not found
      */
     @GetMapping("/{patientId}/injuries")
-    public ResponseEntity<List<Injury>> getInjuriesForPatient(@PathVariable("patientId") Long patientId) {
-        return patientRepository.findById(patientId)
-                .map(patient -> ResponseEntity.ok(patient.getInjuries()))
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<List<InjuryDTO>> getInjuriesForPatient(@PathVariable("patientId") Long patientId) {
+        List<InjuryDTO> injuries = injuryRepository.findInjuriesOfPatient(patientId);
+        if (injuries.isEmpty() && !patientRepository.existsById(patientId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(injuries);
     }
 
     /**
      * Retrieves eyes affected by a specific injury for a specific patient, filtered by eye side.
+     * <p>
+     * The series can be limited to a date range and is returned page by page in date order, oldest
+     * first unless {@code order=desc}. If there are more results, the response carries a
+     * {@code Link} header with {@code rel="next"} pointing to the next page.
+     * </p>
+     * <p>
+     * With {@code maxPoints}, the whole range is returned at once instead, reduced to at most that many
+     * points with a shape-preserving downsampling that keeps the first, last, lowest and highest value.
+     * A chart needs no more points than it has pixels.
+     * </p>
      *
      * @param patientId the ID of the patient
      * @param injuryId the ID of the injury
      * @param eyeSide the side of the eye (e.g., LEFT, RIGHT)
+     * @param from the first date of the range, inclusive (optional)
+     * @param to the last date of the range, inclusive (optional)
+     * @param order {@code asc} or {@code desc}
+     * @param after the cursor of the page to return, taken from the {@code Link} header (optional)
+     * @param limit the page size (optional)
+     * @param maxPoints the maximum number of points of the whole range, at least 4 (optional, not combinable with paging)
      * @return a ResponseEntity containing the list of eye results, or a 204 status if no matching eyes are found
+     * @throws ResponseStatusException with 400 if the range, the order, the cursor, the page size or the number of points is invalid
      */
     @GetMapping("/patients/{patientId}/injuries/{injuryId}/eyes/{eyeSide}")
     public ResponseEntity<List<EyeResultDTO>> getEyesByPatientAndInjury(
             @PathVariable("patientId") Long patientId, 
             @PathVariable("injuryId") Long injuryId, 
-            @PathVariable("eyeSide") EyeSide eyeSide) {
-        List<EyeResultDTO> eyes = patientRepository.findEyesByPatientAndInjuryAndSide(patientId, injuryId, eyeSide);
+            @PathVariable("eyeSide") EyeSide eyeSide,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "order", defaultValue = "asc") String order,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "maxPoints", required = false) Integer maxPoints) {
+        boolean descending;
+        if ("asc".equalsIgnoreCase(order)) {
+            descending = false;
+        } else if ("desc".equalsIgnoreCase(order)) {
+            descending = true;
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unbekannte Sortierung: " + order);
+        }
+
+        if (maxPoints != null) {
+            if (after != null || limit != null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "maxPoints kann nicht mit after oder limit kombiniert werden");
+            }
+            List<EyeResultDTO> points;
+            try {
+                points = eyeService.findDownsampledSeries(patientId, injuryId, eyeSide, from, to, descending, maxPoints);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ungültiger Zeitraum oder ungültige Punktzahl", e);
+            }
+            return points.isEmpty() ? ResponseEntity.noContent().build() : ResponseEntity.ok(points);
+        }
 
-        if (eyes.isEmpty()) {
+        EyeSeriesPage page;
+        try {
+            page = eyeService.findSeries(patientId, injuryId, eyeSide, from, to, descending, after, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Ungültiger Zeitraum oder Seitenparameter", e);
+        }
+
+        if (page.getResults().isEmpty()) {
             return ResponseEntity.noContent().build();
         }
-        return ResponseEntity.ok(eyes);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", page.getNextCursor())
+                    .build()
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page.getResults());
+    }
+
+    /**
+     * Retrieves the healing summary of an eye of a specific injury: first and latest value, peak,
+     * days since the first measurement, rate of resolution and projected clearance date.
+     * <p>
+     * The summary is read from statistics maintained on every save, so it costs the same for a series
+     * of any length.
+     * </p>
+     *
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury
+     * @param eyeSide the side of the eye (e.g., LEFT, RIGHT)
+     * @return a ResponseEntity containing the summary, or a 204 status if the eye has no records
+     */
+    @GetMapping("/patients/{patientId}/injuries/{injuryId}/eyes/{eyeSide}/summary")
+    public ResponseEntity<HealingSummaryDTO> getHealingSummary(
+            @PathVariable("patientId") Long patientId,
+            @PathVariable("injuryId") Long injuryId,
+            @PathVariable("eyeSide") EyeSide eyeSide) {
+        return healingStatisticsService.findSummary(patientId, injuryId, eyeSide)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.noContent().build());
+    }
+
+    /**
+     * Retrieves the healing curves of all patients, one per diagnosis: percentiles of the affected
+     * percentage and the share of resolved eyes per day since the first measurement, and the eyes
+     * healing slowest compared to their cohort.
+     * <p>
+     * The report is computed from all measurements and cached until the next measurement is saved, so
+     * the first request after a save may take a while.
+     * </p>
+     *
+     * @return a ResponseEntity containing the report of all cohorts
+     */
+    @GetMapping("/analytics/cohorts")
+    public ResponseEntity<CohortReportDTO> getCohortReport() {
+        return ResponseEntity.ok(cohortAnalyticsService.getReport());
+    }
+
+    /**
+     * Retrieves the healing curve of the cohort of one diagnosis.
+     *
+     * @param diagnosis the diagnosis, compared ignoring case and surrounding whitespace
+     * @return a ResponseEntity containing the cohort, or a 404 status if the diagnosis is not among the most frequent ones
+     */
+    @GetMapping("/analytics/cohort")
+    public ResponseEntity<CohortDTO> getCohort(@RequestParam("diagnosis") String diagnosis) {
+        return cohortAnalyticsService.findCohort(diagnosis)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
     /**
@@ -236,8 +481,8 @@ public class Controller {
      * @return a ResponseEntity containing the list of injuries, or a 204 status if no injuries are found
      */
     @GetMapping("/{patientId}/allInjuries")
-    public ResponseEntity<List<Injury>> findAllInjuriesByPatient(@PathVariable("patientId") Long patientId) {
-        List<Injury> allInjuriesByPatient = injuryRepository.findByPatientId(patientId);
+    public ResponseEntity<List<InjuryDTO>> findAllInjuriesByPatient(@PathVariable("patientId") Long patientId) {
+        List<InjuryDTO> allInjuriesByPatient = injuryRepository.findInjuriesOfPatient(patientId);
         if (allInjuriesByPatient.isEmpty()) {
             return ResponseEntity.noContent().build();
         }
@@ -259,7 +504,7 @@ public class Controller {
         return injuryRepository.findById(injuryId)
                 .map(injury -> {
                     eye.setInjury(injury);
-                    return ResponseEntity.ok(eyeRepository.save(eye));
+                    return ResponseEntity.ok(eyeService.save(eye));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -267,78 +512,235 @@ public class Controller {
     /**
      * Retrieves all eye records associated with a specific injury.
      *
+     * <p>
+     * The records are read with one projection query; only an empty result costs a second statement,
+     * which tells an injury without records from an unknown one.
+     * </p>
+     *
      * @param injuryId the ID of the injury whose eye records are to be retrieved
      * @return a ResponseEntity containing the list of eyes, or a 404 status if the injury is not found
      */
     @GetMapping("/injuries/{injuryId}/eyes")
-    public ResponseEntity<List<Eye>> getEyesForInjury(@PathVariable("injuryId") Long injuryId) {
-        return injuryRepository.findById(injuryId)
-                .map(injury -> ResponseEntity.ok(injury.getEyes()))
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<List<EyeDTO>> getEyesForInjury(@PathVariable("injuryId") Long injuryId) {
+        List<EyeDTO> eyes = eyeRepository.findEyesOfInjury(injuryId);
+        if (eyes.isEmpty() && !injuryRepository.existsById(injuryId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(eyes);
+    }
+
+    /**
+     * Renders the hyphema region of an eye record on the photo it was analyzed from.
+     * <p>
+     * The region is read from the stored segmentation mask, so the analysis is not run again.
+     * </p>
+     *
+     * @param patientId the ID of the patient
+     * @param eyeId the ID of the eye record
+     * @return a ResponseEntity containing the overlay as JPEG
+     * @throws ResponseStatusException with 404 if the eye record does not belong to the patient
+     *         or no segmentation is stored for it
+     * @throws IOException if the photo or the mask cannot be read
+     */
+    @GetMapping(value = "/{patientId}/eyes/{eyeId}/overlay", produces = MediaType.IMAGE_JPEG_VALUE)
+    public ResponseEntity<byte[]> getHyphemaOverlay(@PathVariable("patientId") Long patientId,
+                                                    @PathVariable("eyeId") Long eyeId) throws IOException {
+        Eye eye = eyeRepository.findById(eyeId)
+                .filter(found -> found.getInjury().getPatient().getId().equals(patientId))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Augenbefund nicht gefunden"));
+        if (eye.getPhoto() == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Keine Segmentierung gespeichert");
+        }
+        StoredPhoto photo = photoService.find(eye.getPhoto().getId())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Datei nicht gefunden"));
+        SegmentationMask mask = segmentationMaskStore.find(photo.getSha256())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Keine Segmentierung gespeichert"));
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .body(segmentationMaskStore.renderOverlay(photo, mask));
     }
 
     /**
-     * Runs an analysis of a hyphema using a Python application.
+     * Runs an analysis of a hyphema using the configured {@link HyphemaAnalyzer}.
+     * <p>
+     * With the default Python engine the photo is analyzed by a warm worker instead of
+     * starting a new Python process for every upload; the Java engine analyzes the photo
+     * in-process.
+     * </p>
+     * <p>
+     * The request is processed asynchronously: if the client disconnects or the request times out,
+     * the analysis is cancelled and its analyzer process is killed instead of running to the end.
+     * </p>
      *
      * @param patientId the ID of the patient
      * @param injuryId the ID of the injury
      * @param eyeSide the side of the eye being analyzed (e.g., LEFT, RIGHT)
      * @param date the date of the analysis
      * @param photo the photo of the eye to be analyzed
-     * @return a ResponseEntity containing the analysis result, including the percentage of the eye affected by hyphema,
+     * @return a DeferredResult completed with the analysis result, including the percentage of the eye affected by hyphema,
      *         or an appropriate error status if an issue occurs
      */
     @PostMapping("/{patientId}/runAnalyseHyphema")
-    public ResponseEntity<?> runAnalyseHyphema(
+    public DeferredResult<ResponseEntity<?>> runAnalyseHyphema(
             @PathVariable("patientId") Long patientId,
             @RequestParam("injuryId") Long injuryId,
             @RequestParam("eye") String eyeSide,
             @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
             @RequestPart("photo") MultipartFile photo) {
 
-        try {
-            // 1. Check/create folder "uploads" in folder "static"
-            Path uploadDir = Paths.get("src/main/resources/static/uploads");
-            if (!Files.exists(uploadDir)) {
-                Files.createDirectories(uploadDir); 
-            }
+        DeferredResult<ResponseEntity<?>> response =
+                new DeferredResult<>(hyphemaAnalysisService.getRequestTimeout().toMillis());
 
-            // 2. Save photo
-            String fileName = photo.getOriginalFilename();
-            Path photoPath = uploadDir.resolve(fileName);
-            Files.write(photoPath, photo.getBytes());
-
-            // 3. Start Python analysis
-            String analyzedPhotoPath = photoPath.toAbsolutePath().toString();
-            String analysisResult = PythonIntegration.runHyphaemaApp(analyzedPhotoPath);
+        // 1. Save photo
+        StoredPhoto storedPhoto;
+        try {
+            storedPhoto = hyphemaAnalysisService.storePhoto(photo, patientId, injuryId);
+        } catch (Exception e) {
+            response.setResult(analysisErrorResponse(e));
+            return response;
+        }
 
-            // 4. Parse JSON result from the analysis
-            ObjectMapper objectMapper = new ObjectMapper();
-            Map<String, Object> analysisData = objectMapper.readValue(analysisResult, new TypeReference<>() {});
+        // 2. Run the analysis with the configured engine (or reuse a cached result) and compile the result
+        Future<?> analysis = hyphemaAnalysisService.analyseCancellable(patientId, injuryId, eyeSide, date, storedPhoto,
+                (result, error) -> response.setResult(error == null ? ResponseEntity.ok(result) : analysisErrorResponse(error)));
+
+        // 3. Stop the analysis when nobody is waiting for it any more
+        response.onTimeout(() -> {
+            analysis.cancel(true);
+            response.setResult(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body("Zeitüberschreitung bei der Analyse"));
+        });
+        response.onError(error -> analysis.cancel(true));
+        return response;
+    }
 
-            if (analysisData.containsKey("error")) {
-                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(analysisData.get("error"));
-            }
+    /**
+     * Maps an exception of a single analysis to the response sent to the client.
+     */
+    private ResponseEntity<?> analysisErrorResponse(Exception e) {
+        if (e instanceof HyphemaAnalysisException analysisException) {
+            return ResponseEntity.status(statusOf(analysisException.getReason())).body(analysisException.getMessage());
+        }
+        if (e instanceof ResponseStatusException statusException) {
+            return ResponseEntity.status(statusException.getStatusCode()).body(statusException.getReason());
+        }
+        if (e instanceof InterruptedException) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Analyse abgebrochen");
+        }
+        log.error("Analysis failed", e);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Fehler bei der Analyse");
+    }
 
-            // 5. Compile the result
-            Map<String, Object> result = new HashMap<>();
-            result.put("patientId", patientId);
-            result.put("injuryId", injuryId);
-            result.put("eye", eyeSide);
-            result.put("date", date);
+    private static HttpStatus statusOf(AnalysisFailureReason reason) {
+        return switch (reason) {
+            case REJECTED -> HttpStatus.BAD_REQUEST;
+            case UNAVAILABLE, CANCELLED -> HttpStatus.SERVICE_UNAVAILABLE;
+            case TIMEOUT -> HttpStatus.GATEWAY_TIMEOUT;
+            case ENGINE_ERROR -> HttpStatus.INTERNAL_SERVER_ERROR;
+        };
+    }
 
-            // URL of the saved image relative to the application
-            String relativePath = "/uploads/" + fileName;
-            result.put("processedImage", relativePath); 
-            result.put("percentageOfEyeAffectedByHyphema", analysisData.get("hyphema_area_percentage"));
+    /**
+     * Submits an analysis of a hyphema as an asynchronous job.
+     * <p>
+     * The photo is saved and the analysis is queued on a dedicated executor; the request returns
+     * immediately with the job ID and the URL to poll. If the queue is full, the request is answered
+     * with 503 and a {@code Retry-After} header instead of blocking, and the photo is not saved.
+     * </p>
+     *
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury
+     * @param eyeSide the side of the eye being analyzed (e.g., LEFT, RIGHT)
+     * @param date the date of the analysis
+     * @param photo the photo of the eye to be analyzed
+     * @return a ResponseEntity with status 202 containing the queued job,
+     *         or status 503 if the analysis queue is full
+     */
+    @PostMapping("/{patientId}/analysisJobs")
+    public ResponseEntity<?> submitAnalysisJob(
+            @PathVariable("patientId") Long patientId,
+            @RequestParam("injuryId") Long injuryId,
+            @RequestParam("eye") String eyeSide,
+            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestPart("photo") MultipartFile photo) {
 
-            return ResponseEntity.ok(result); 
+        try {
+            AnalysisJob job = analysisJobService.submit(patientId, injuryId, eyeSide, date,
+                    () -> hyphemaAnalysisService.storePhoto(photo, patientId, injuryId));
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/analysisJobs/" + job.getId()))
+                    .body(new AnalysisJobDTO(job));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(analysisJobService.getRetryAfterSeconds()))
+                    .body("Analyse-Warteschlange ist voll, bitte später erneut versuchen");
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Submitting an analysis job for patient {} failed", patientId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Fehler bei der Analyse");
         }
     }
 
+    /**
+     * Retrieves the state of an asynchronous analysis job.
+     *
+     * @param jobId the ID of the job returned on submission
+     * @return a ResponseEntity containing the job state and, once finished, its result or error,
+     *         or a 404 status if the job is unknown or expired
+     */
+    @GetMapping("/analysisJobs/{jobId}")
+    public ResponseEntity<AnalysisJobDTO> getAnalysisJob(@PathVariable("jobId") String jobId) {
+        return analysisJobService.findJob(jobId)
+                .map(job -> ResponseEntity.ok(new AnalysisJobDTO(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Runs hyphema analyses of several photos of one visit in parallel.
+     * <p>
+     * The request contains one or more {@code photo} parts and, in the same order, one {@code eye}
+     * and one {@code date} parameter per photo. Every photo is analyzed like a single upload to
+     * {@code /api/{patientId}/runAnalyseHyphema}; a photo that cannot be analyzed is reported as a
+     * failed item without failing the whole batch. The batch shares the deadline of a single request;
+     * photos not analyzed by then are cancelled and reported as failed items.
+     * </p>
+     *
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury
+     * @param eyeSides the side of the eye for each photo (e.g., LEFT, RIGHT)
+     * @param dates the date of the analysis for each photo
+     * @param photos the photos of the eye to be analyzed
+     * @return a ResponseEntity containing one result item per photo,
+     *         a 400 status if the photos and their metadata do not match,
+     *         or a 404 status if the injury does not belong to the patient
+     */
+    @PostMapping("/{patientId}/runAnalyseHyphemaBatch")
+    public ResponseEntity<?> runAnalyseHyphemaBatch(
+            @PathVariable("patientId") Long patientId,
+            @RequestParam("injuryId") Long injuryId,
+            @RequestParam("eye") List<String> eyeSides,
+            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) List<LocalDate> dates,
+            @RequestPart("photo") List<MultipartFile> photos) {
+
+        if (photos.size() != eyeSides.size() || photos.size() != dates.size()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Jedes Foto benötigt Auge und Datum");
+        }
+        if (photos.size() > batchAnalysisService.getMaxPhotos()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("Maximal " + batchAnalysisService.getMaxPhotos() + " Fotos pro Anfrage");
+        }
+
+        try {
+            List<BatchAnalysisItemDTO> items = batchAnalysisService.analyse(patientId, injuryId, photos, eyeSides, dates);
+            return ResponseEntity.ok(items);
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatusCode()).body(e.getReason());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Analyse abgebrochen");
+        }
+    }
+
 
     /**
      * Saves the result of a hyphema analysis as a new eye record.
@@ -353,6 +755,7 @@ public class Controller {
             @PathVariable("patientId") Long patientId,
             @RequestBody SaveResultRequest request) {
 
+        Timer.Sample saveSample = pipelineMetrics.start();
         try {
             Injury injury = injuryRepository.findById(request.getInjuryId())
                     .orElseThrow(() -> new RuntimeException("Injury nicht gefunden"));
@@ -362,18 +765,34 @@ public class Controller {
             eye.setDate(LocalDate.parse(request.getDate()));
             eye.setSide(EyeSide.valueOf(request.getEye()));
             eye.setInjury(injury);
+            findPhotoOfInjury(request.getPhotoId(), injury).ifPresent(eye::setPhoto);
 
-            eyeRepository.save(eye);
+            eyeService.save(eye);
 
+            pipelineMetrics.stop(saveSample, AnalysisPipelineMetrics.STAGE_SAVE, AnalysisPipelineMetrics.OUTCOME_SUCCESS);
             return ResponseEntity.ok("Ergebnis erfolgreich gespeichert");
         } catch (Exception e) {
-            e.printStackTrace();
+            pipelineMetrics.stop(saveSample, AnalysisPipelineMetrics.STAGE_SAVE, AnalysisPipelineMetrics.OUTCOME_ERROR);
+            log.error("Saving the analysis result for patient {} failed", patientId, e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Fehler beim Speichern");
         }
     }
 
-}
-
-
-    
+    /**
+     * Finds the analyzed photo of a result, ignoring IDs that are malformed or belong to another injury.
+     */
+    private Optional<Photo> findPhotoOfInjury(String photoId, Injury injury) {
+        if (photoId == null) {
+            return Optional.empty();
+        }
+        UUID id;
+        try {
+            id = UUID.fromString(photoId);
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+        return photoRepository.findById(id)
+                .filter(photo -> photo.getInjury().getId().equals(injury.getId()));
+    }
 
+}
@@ -1,15 +1,12 @@
 package com.example.HyphaemaProgressTracker.controller;
 
 
-import java.nio.file.Files;
+import java.io.IOException;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.UUID;
 
-import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
-import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
@@ -21,13 +18,21 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.server.ResponseStatusException;
 
 import com.example.HyphaemaProgressTracker.entities.Patient;
 import com.example.HyphaemaProgressTracker.entities.PatientRepository;
+import com.example.HyphaemaProgressTracker.entities.Photo;
+import com.example.HyphaemaProgressTracker.enums.ImageFormat;
+import com.example.HyphaemaProgressTracker.enums.PhotoSize;
 import com.example.HyphaemaProgressTracker.services.PatientService;
+import com.example.HyphaemaProgressTracker.services.PhotoDerivativeService;
+import com.example.HyphaemaProgressTracker.services.PhotoService;
+import com.example.HyphaemaProgressTracker.services.StoredPhoto;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * Controller responsible for handling home page, user registration, and file serving.
@@ -48,13 +53,16 @@ import jakarta.servlet.http.HttpServletRequest;
  *     <li>{@link PatientRepository} for saving and retrieving patient data</li>
  *     <li>{@link BCryptPasswordEncoder} for securely encrypting passwords</li>
  *     <li>{@link PatientService} for creating new patient instances</li>
+ *     <li>{@link PhotoService} for finding uploaded photos by their ID</li>
+ *     <li>{@link PhotoDerivativeService} for thumbnails and previews of uploaded photos</li>
+ *     <li>{@link PhotoTransfer} for sending photos with caching and range support</li>
  * </ul>
  * 
  * Endpoints:
  * <ul>
  *     <li>{@code GET /} - Displays the homepage with login and registration forms</li>
  *     <li>{@code POST /register} - Processes user registration</li>
- *     <li>{@code GET /uploads/{filename}} - Serves uploaded files</li>
+ *     <li>{@code GET /uploads/{photoId}?size=thumbnail|preview} - Serves uploaded photos, optionally scaled down</li>
  * </ul>
  */
 @Controller
@@ -63,6 +71,9 @@ public class HomeController {
     private final PatientRepository patientRepository;
     private final BCryptPasswordEncoder passwordEncoder;
     private final PatientService patientService; 
+    private final PhotoService photoService;
+    private final PhotoDerivativeService photoDerivativeService;
+    private final PhotoTransfer photoTransfer;
 
     /**
      * Constructs a new {@code HomeController} with required dependencies.
@@ -70,11 +81,18 @@ public class HomeController {
      * @param patientRepository the repository for managing {@link Patient} data
      * @param passwordEncoder the password encoder for encrypting user passwords
      * @param patientService the service for creating new patient instances
+     * @param photoService the service for finding uploaded photos
+     * @param photoDerivativeService the service providing thumbnails and previews
+     * @param photoTransfer the writer sending photos to clients
      */
-    public HomeController(PatientRepository patientRepository, BCryptPasswordEncoder passwordEncoder, PatientService patientService) {
+    public HomeController(PatientRepository patientRepository, BCryptPasswordEncoder passwordEncoder, PatientService patientService,
+                          PhotoService photoService, PhotoDerivativeService photoDerivativeService, PhotoTransfer photoTransfer) {
         this.patientRepository = patientRepository;
         this.passwordEncoder = passwordEncoder;
         this.patientService = patientService;
+        this.photoService = photoService;
+        this.photoDerivativeService = photoDerivativeService;
+        this.photoTransfer = photoTransfer;
     }
 
     /**
@@ -110,25 +128,64 @@ public class HomeController {
     }
 
     /**
-     * Serves uploaded files for further analysis.
+     * Serves an uploaded photo.
      * <p>
-     * Validates the existence of the requested file and returns it as a {@link Resource}.
-     * Throws a {@link ResponseStatusException} if the file is not found.
+     * Photos are looked up by the opaque ID returned by the analysis, not by a file name, and are
+     * read from the content-addressed photo store. As stored photos never change, they are sent by
+     * {@link PhotoTransfer} with long-lived caching, conditional GET and range support.
+     * With {@code size}, a scaled down JPEG copy is served instead; it is generated on the first request
+     * if it does not exist yet. Photos that cannot be scaled are served in their original size.
+     * An archived photo is only restored when its original bytes are needed, i.e. to send them or to
+     * generate a missing copy; cached copies and 304 responses are served from its metadata.
+     * Throws a {@link ResponseStatusException} if the photo is not found or the size is unknown.
      * </p>
      * 
-     * @param filename the name of the file to be served
-     * @return the file wrapped in a {@link ResponseEntity} for downloading
+     * @param photoId the ID of the photo to be served
+     * @param size the optional size, {@code thumbnail} or {@code preview}
+     * @param request the current request, checked for conditional and range headers
+     * @param response the response the photo is written to
+     * @throws IOException if the photo cannot be read
      */
-    @GetMapping("/uploads/{filename}")
-    public ResponseEntity<Resource> serveFile(@PathVariable("filename") String filename) {
-        Path file = Paths.get("src/main/resources/static/uploads").resolve(filename);
-        if (!Files.exists(file)) {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Datei nicht gefunden: " + filename);
+    @GetMapping("/uploads/{photoId}")
+    public void serveFile(@PathVariable("photoId") String photoId,
+                          @RequestParam(value = "size", required = false) String size,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<PhotoSize> photoSize = Optional.empty();
+        if (size != null) {
+            photoSize = Optional.of(PhotoSize.fromParameter(size)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unbekannte Bildgröße: " + size)));
+        }
+        UUID id = parseId(photoId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Datei nicht gefunden: " + photoId));
+        Photo photo = photoService.findMetadata(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Datei nicht gefunden: " + photoId));
+        if (photoSize.isPresent()) {
+            Optional<Path> derivative = photoDerivativeService.findCached(photo.getSha256(), photoSize.get());
+            if (derivative.isEmpty()) {
+                derivative = photoDerivativeService.find(open(photo, photoId), photoSize.get());
+            }
+            if (derivative.isPresent()) {
+                photoTransfer.write(derivative.get(), photo.getSha256() + "-" + photoSize.get().getParameterName(),
+                        ImageFormat.JPEG.getContentType(), request, response);
+                return;
+            }
+        }
+        photoTransfer.write(() -> open(photo, photoId).getPath(), photo.getSha256(),
+                photo.getUploadedAt().toEpochMilli(), photo.getSize(), photo.getFormat().getContentType(),
+                request, response);
+    }
+
+    private StoredPhoto open(Photo photo, String photoId) throws IOException {
+        return photoService.open(photo)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Datei nicht gefunden: " + photoId));
+    }
+
+    private static Optional<UUID> parseId(String photoId) {
+        try {
+            return Optional.of(UUID.fromString(photoId));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
         }
-        Resource resource = new FileSystemResource(file);
-        return ResponseEntity.ok()
-                .cacheControl(CacheControl.noCache().cachePrivate())
-                .body(resource);
     }
 
 }
\ No newline at end of file
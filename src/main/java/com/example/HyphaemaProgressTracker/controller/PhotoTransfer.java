@@ -0,0 +1,237 @@
+package com.example.HyphaemaProgressTracker.controller;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Writes stored photos to HTTP responses without copying them through the heap.
+ * <p>
+ * Stored photos never change once written, because they are kept under their content hash. They are
+ * therefore served with the hash as strong {@code ETag}, a {@code Last-Modified} date and a long private
+ * {@code max-age}, so browsers keep them across dashboard visits and revalidate them with a 304 at most.
+ * A single byte range ({@code Range: bytes=...}) is answered with 206; multiple ranges are answered
+ * with the full photo, which RFC 9110 permits.
+ * </p>
+ * <p>
+ * The file can be given lazily as a {@link FileSource} together with its hash, date and length. It is
+ * then only opened once its bytes are sent, so conditional and {@code HEAD} requests for an archived
+ * photo are answered without restoring it.
+ * </p>
+ * <p>
+ * The body is handed to Tomcat's sendfile support when the connector offers it, so the kernel copies the
+ * file to the socket after the request thread has returned. Otherwise it is transferred with
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)} into the response stream.
+ * </p>
+ *
+ * Metrics:
+ * <ul>
+ *     <li>{@code hyphaema.photos.responses} - photo responses, tagged with {@code status} (200, 206, 304 or 416)</li>
+ *     <li>{@code hyphaema.photos.bytes.served} - body bytes served, tagged with {@code transfer} ({@code sendfile} or {@code channel})</li>
+ * </ul>
+ */
+@Component
+public class PhotoTransfer {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024; // Below this, the extra poller round trip costs more than copying.
+
+    private final CacheControl cacheControl;
+    private final Counter fullResponses;
+    private final Counter partialResponses;
+    private final Counter notModifiedResponses;
+    private final Counter unsatisfiableResponses;
+    private final Counter sendfileBytes;
+    private final Counter channelBytes;
+
+    /**
+     * Constructs the transfer from the application configuration.
+     *
+     * @param meterRegistry the registry for the transfer metrics
+     * @param maxAge how long browsers may use a photo without revalidating it
+     */
+    public PhotoTransfer(MeterRegistry meterRegistry,
+                         @Value("${hyphaema.photos.cache-max-age:365d}") Duration maxAge) {
+        this.cacheControl = CacheControl.maxAge(maxAge).cachePrivate();
+        this.fullResponses = responseCounter(meterRegistry, HttpStatus.OK);
+        this.partialResponses = responseCounter(meterRegistry, HttpStatus.PARTIAL_CONTENT);
+        this.notModifiedResponses = responseCounter(meterRegistry, HttpStatus.NOT_MODIFIED);
+        this.unsatisfiableResponses = responseCounter(meterRegistry, HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+        this.sendfileBytes = bytesCounter(meterRegistry, "sendfile");
+        this.channelBytes = bytesCounter(meterRegistry, "channel");
+    }
+
+    /**
+     * Writes an immutable file, honouring conditional and range requests.
+     *
+     * @param file the file to send
+     * @param contentHash the hex encoded hash of the file content, used as entity tag
+     * @param contentType the media type of the file
+     * @param request the current request
+     * @param response the response to write to
+     * @throws IOException if the file cannot be read or the client went away
+     */
+    public void write(Path file, String contentHash, String contentType,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        write(() -> file, contentHash, Files.getLastModifiedTime(file).toMillis(), Files.size(file), contentType,
+                request, response);
+    }
+
+    /**
+     * Writes an immutable file that is only opened once its bytes are sent, honouring conditional and
+     * range requests.
+     *
+     * @param source opens the file to send
+     * @param contentHash the hex encoded hash of the file content, used as entity tag
+     * @param lastModified the modification date of the content in milliseconds since the epoch
+     * @param length the length of the file in bytes
+     * @param contentType the media type of the file
+     * @param request the current request
+     * @param response the response to write to
+     * @throws IOException if the file cannot be opened or read, or the client went away
+     */
+    public void write(FileSource source, String contentHash, long lastModified, long length, String contentType,
+                      HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String etag = "\"" + contentHash + "\"";
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        // Sets ETag and Last-Modified, and answers If-None-Match / If-Modified-Since with 304
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            notModifiedResponses.increment();
+            return;
+        }
+        Path file = "HEAD".equals(request.getMethod()) ? null : source.open();
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(contentType);
+
+        long start = 0;
+        long end = length; // Exclusive
+        boolean partial = false;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && rangeStillValid(request, etag, lastModified)) {
+            List<HttpRange> ranges;
+            try {
+                ranges = HttpRange.parseRanges(range);
+            } catch (IllegalArgumentException e) {
+                ranges = List.of(); // Malformed ranges are ignored
+            }
+            if (ranges.size() == 1) {
+                HttpRange httpRange = ranges.get(0);
+                if (length == 0 || !isSatisfiable(range, length)) {
+                    response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                    unsatisfiableResponses.increment();
+                    return;
+                }
+                start = httpRange.getRangeStart(length);
+                end = httpRange.getRangeEnd(length) + 1;
+                partial = true;
+                response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+            }
+        }
+        if (partial) {
+            partialResponses.increment();
+        } else {
+            fullResponses.increment();
+        }
+
+        long count = end - start;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count == 0) {
+            return;
+        }
+
+        if (count >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            sendfileBytes.increment(count);
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred <= 0) {
+                    break; // The file was truncated underneath us
+                }
+                position += transferred;
+            }
+            channelBytes.increment(position - start);
+        }
+    }
+
+    /**
+     * Opens a file once its bytes are needed, e.g. by restoring it from the archive.
+     */
+    @FunctionalInterface
+    public interface FileSource {
+        Path open() throws IOException;
+    }
+
+    /**
+     * Checks {@code If-Range}: a range request only applies if the client's copy is still current.
+     */
+    private static boolean rangeStillValid(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        long date = request.getDateHeader(HttpHeaders.IF_RANGE);
+        return date != -1 && lastModified / 1000 <= date / 1000;
+    }
+
+    /**
+     * Checks that the range starts inside the file; suffix ranges ({@code bytes=-500}) always are.
+     */
+    private static boolean isSatisfiable(String range, long length) {
+        String spec = range.substring(range.indexOf('=') + 1).trim();
+        if (spec.startsWith("-")) {
+            return !spec.equals("-0");
+        }
+        int dash = spec.indexOf('-');
+        return Long.parseLong(spec.substring(0, dash).trim()) < length;
+    }
+
+    private static Counter responseCounter(MeterRegistry meterRegistry, HttpStatus status) {
+        return Counter.builder("hyphaema.photos.responses")
+                .description("Photo responses by status")
+                .tag("status", String.valueOf(status.value()))
+                .register(meterRegistry);
+    }
+
+    private static Counter bytesCounter(MeterRegistry meterRegistry, String transfer) {
+        return Counter.builder("hyphaema.photos.bytes.served").baseUnit("bytes")
+                .description("Photo bytes written to clients")
+                .tag("transfer", transfer)
+                .register(meterRegistry);
+    }
+}
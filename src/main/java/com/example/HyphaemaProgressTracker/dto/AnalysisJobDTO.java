@@ -0,0 +1,90 @@
+package com.example.HyphaemaProgressTracker.dto;
+
+import java.util.Map;
+
+import com.example.HyphaemaProgressTracker.enums.AnalysisJobStatus;
+import com.example.HyphaemaProgressTracker.services.AnalysisJob;
+
+/**
+ * Data Transfer Object (DTO) for reporting the state of an asynchronous analysis job.
+ * <p>
+ * Once the job has succeeded, {@code result} contains the same data that the synchronous
+ * endpoint {@code /api/{patientId}/runAnalyseHyphema} returns.
+ * </p>
+ */
+public class AnalysisJobDTO {
+    private final String jobId; // Identifier used to poll the job.
+    private final AnalysisJobStatus status; // Current state of the job.
+    private final long waitMillis; // Time spent in the queue.
+    private final long runMillis; // Time spent analyzing.
+    private final Map<String, Object> result; // Analysis result if the job succeeded.
+    private final String error; // Error message if the job failed.
+
+    /**
+     * Creates a snapshot of the given job.
+     *
+     * @param job the job to describe
+     */
+    public AnalysisJobDTO(AnalysisJob job) {
+        this.jobId = job.getId();
+        this.status = job.getStatus();
+        this.waitMillis = job.getWaitTime().toMillis();
+        this.runMillis = job.getRunTime().toMillis();
+        this.result = job.getResult();
+        this.error = job.getError();
+    }
+
+    /**
+     * Gets the identifier of the job.
+     * 
+     * @return the job ID
+     */
+    public String getJobId() {
+        return jobId;
+    }
+
+    /**
+     * Gets the state of the job.
+     * 
+     * @return the job status
+     */
+    public AnalysisJobStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the time the job spent waiting in the queue in milliseconds.
+     * 
+     * @return the wait time
+     */
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    /**
+     * Gets the time the job spent analyzing in milliseconds.
+     * 
+     * @return the run time
+     */
+    public long getRunMillis() {
+        return runMillis;
+    }
+
+    /**
+     * Gets the analysis result.
+     * 
+     * @return the result, or null if the job has not succeeded
+     */
+    public Map<String, Object> getResult() {
+        return result;
+    }
+
+    /**
+     * Gets the error message.
+     * 
+     * @return the error, or null if the job has not failed
+     */
+    public String getError() {
+        return error;
+    }
+}
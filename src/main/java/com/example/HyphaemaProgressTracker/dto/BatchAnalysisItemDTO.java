@@ -0,0 +1,96 @@
+package com.example.HyphaemaProgressTracker.dto;
+
+import java.util.Map;
+
+/**
+ * Data Transfer Object (DTO) for the result of one photo of a batch analysis.
+ * <p>
+ * A successful item carries the same {@code result} that the endpoint
+ * {@code /api/{patientId}/runAnalyseHyphema} returns for a single photo; a failed item
+ * carries an error message instead. Items are returned in the order the photos were sent.
+ * </p>
+ */
+public class BatchAnalysisItemDTO {
+    private final int index; // Position of the photo in the request.
+    private final String fileName; // Original file name of the photo.
+    private final boolean success; // Whether the photo was analyzed successfully.
+    private final Map<String, Object> result; // Analysis result if successful.
+    private final String error; // Error message if the analysis failed.
+
+    private BatchAnalysisItemDTO(int index, String fileName, boolean success, Map<String, Object> result, String error) {
+        this.index = index;
+        this.fileName = fileName;
+        this.success = success;
+        this.result = result;
+        this.error = error;
+    }
+
+    /**
+     * Creates the item of a successfully analyzed photo.
+     *
+     * @param index the position of the photo in the request
+     * @param fileName the original file name of the photo
+     * @param result the analysis result
+     * @return the successful item
+     */
+    public static BatchAnalysisItemDTO success(int index, String fileName, Map<String, Object> result) {
+        return new BatchAnalysisItemDTO(index, fileName, true, result, null);
+    }
+
+    /**
+     * Creates the item of a photo that could not be analyzed.
+     *
+     * @param index the position of the photo in the request
+     * @param fileName the original file name of the photo
+     * @param error the error message
+     * @return the failed item
+     */
+    public static BatchAnalysisItemDTO failure(int index, String fileName, String error) {
+        return new BatchAnalysisItemDTO(index, fileName, false, null, error);
+    }
+
+    /**
+     * Gets the position of the photo in the request.
+     *
+     * @return the index
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the original file name of the photo.
+     *
+     * @return the file name
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Checks whether the photo was analyzed successfully.
+     *
+     * @return true if successful, false otherwise
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Gets the analysis result.
+     *
+     * @return the result, or null if the analysis failed
+     */
+    public Map<String, Object> getResult() {
+        return result;
+    }
+
+    /**
+     * Gets the error message.
+     *
+     * @return the error, or null if the analysis succeeded
+     */
+    public String getError() {
+        return error;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.HyphaemaProgressTracker.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for the healing curve of all injuries with the same diagnosis.
+ * <p>
+ * Diagnoses are compared ignoring case and surrounding whitespace. Injuries whose diagnosis is not
+ * among the most frequent ones are combined into one cohort, whose {@code other} flag is set.
+ * </p>
+ */
+public class CohortDTO {
+    private final String diagnosis;
+    private final boolean other;
+    private final int eyes;
+    private final List<CohortDayDTO> days;
+    private final List<CohortOutlierDTO> outliers;
+
+    /**
+     * Parameterized constructor for {@code CohortDTO}.
+     *
+     * @param diagnosis the diagnosis as first spelled in the data
+     * @param other whether the cohort combines the less frequent diagnoses
+     * @param eyes the number of eyes with at least one measurement
+     * @param days the days with measurements, in ascending order
+     * @param outliers the eyes healing slowest compared to the cohort, slowest first
+     */
+    public CohortDTO(String diagnosis, boolean other, int eyes, List<CohortDayDTO> days, List<CohortOutlierDTO> outliers) {
+        this.diagnosis = diagnosis;
+        this.other = other;
+        this.eyes = eyes;
+        this.days = days;
+        this.outliers = outliers;
+    }
+
+    /**
+     * Gets the diagnosis of the cohort.
+     *
+     * @return the diagnosis
+     */
+    public String getDiagnosis() {
+        return diagnosis;
+    }
+
+    /**
+     * Checks whether the cohort combines the less frequent diagnoses.
+     *
+     * @return true for the combined cohort
+     */
+    public boolean isOther() {
+        return other;
+    }
+
+    /**
+     * Gets the number of eyes with at least one measurement.
+     *
+     * @return the number of eyes
+     */
+    public int getEyes() {
+        return eyes;
+    }
+
+    /**
+     * Gets the healing curve.
+     *
+     * @return the days with measurements, in ascending order
+     */
+    public List<CohortDayDTO> getDays() {
+        return days;
+    }
+
+    /**
+     * Gets the eyes healing slowest compared to the cohort.
+     *
+     * @return the outliers, slowest first
+     */
+    public List<CohortOutlierDTO> getOutliers() {
+        return outliers;
+    }
+}
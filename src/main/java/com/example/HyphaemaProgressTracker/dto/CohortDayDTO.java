@@ -0,0 +1,104 @@
+package com.example.HyphaemaProgressTracker.dto;
+
+/**
+ * Data Transfer Object (DTO) for one day of the healing curve of a cohort.
+ * <p>
+ * Days are counted from the first measurement of every eye. The percentiles are taken over all
+ * measurements of the cohort on that day; {@code resolvedPercentage} is the share of the cohort's eyes
+ * that were measured at or below the resolved percentage on that day or earlier.
+ * </p>
+ */
+public class CohortDayDTO {
+    private final int day;
+    private final int measurements;
+    private final int lowerQuartile;
+    private final int median;
+    private final int upperQuartile;
+    private final int ninetiethPercentile;
+    private final double resolvedPercentage;
+
+    /**
+     * Parameterized constructor for {@code CohortDayDTO}.
+     *
+     * @param day the days since the first measurement
+     * @param measurements the number of measurements on that day
+     * @param lowerQuartile the 25th percentile of the affected percentage
+     * @param median the median of the affected percentage
+     * @param upperQuartile the 75th percentile of the affected percentage
+     * @param ninetiethPercentile the 90th percentile of the affected percentage
+     * @param resolvedPercentage the percentage of eyes resolved by that day
+     */
+    public CohortDayDTO(int day, int measurements, int lowerQuartile, int median, int upperQuartile,
+                        int ninetiethPercentile, double resolvedPercentage) {
+        this.day = day;
+        this.measurements = measurements;
+        this.lowerQuartile = lowerQuartile;
+        this.median = median;
+        this.upperQuartile = upperQuartile;
+        this.ninetiethPercentile = ninetiethPercentile;
+        this.resolvedPercentage = resolvedPercentage;
+    }
+
+    /**
+     * Gets the days since the first measurement.
+     *
+     * @return the day
+     */
+    public int getDay() {
+        return day;
+    }
+
+    /**
+     * Gets the number of measurements on that day.
+     *
+     * @return the number of measurements
+     */
+    public int getMeasurements() {
+        return measurements;
+    }
+
+    /**
+     * Gets the 25th percentile of the affected percentage.
+     *
+     * @return the lower quartile
+     */
+    public int getLowerQuartile() {
+        return lowerQuartile;
+    }
+
+    /**
+     * Gets the median of the affected percentage.
+     *
+     * @return the median
+     */
+    public int getMedian() {
+        return median;
+    }
+
+    /**
+     * Gets the 75th percentile of the affected percentage.
+     *
+     * @return the upper quartile
+     */
+    public int getUpperQuartile() {
+        return upperQuartile;
+    }
+
+    /**
+     * Gets the 90th percentile of the affected percentage.
+     *
+     * @return the 90th percentile
+     */
+    public int getNinetiethPercentile() {
+        return ninetiethPercentile;
+    }
+
+    /**
+     * Gets the percentage of eyes resolved by that day.
+     *
+     * @return the resolved percentage
+     */
+    public double getResolvedPercentage() {
+        return resolvedPercentage;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.HyphaemaProgressTracker.dto;
+
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
+
+/**
+ * Data Transfer Object (DTO) for an eye healing slower than its cohort.
+ * <p>
+ * An eye is an outlier if its latest measurement lies above the 90th percentile of its cohort on the
+ * same day since the first measurement.
+ * </p>
+ */
+public class CohortOutlierDTO {
+    private final Long patientId;
+    private final Long injuryId;
+    private final EyeSide side;
+    private final int day;
+    private final int latestPercentage;
+    private final int cohortMedian;
+    private final int cohortNinetiethPercentile;
+
+    /**
+     * Parameterized constructor for {@code CohortOutlierDTO}.
+     *
+     * @param patientId the id of the patient
+     * @param injuryId the id of the injury
+     * @param side the side of the eye
+     * @param day the days between the first and the latest measurement
+     * @param latestPercentage the affected percentage of the latest measurement
+     * @param cohortMedian the median of the cohort on that day
+     * @param cohortNinetiethPercentile the 90th percentile of the cohort on that day
+     */
+    public CohortOutlierDTO(Long patientId, Long injuryId, EyeSide side, int day, int latestPercentage,
+                            int cohortMedian, int cohortNinetiethPercentile) {
+        this.patientId = patientId;
+        this.injuryId = injuryId;
+        this.side = side;
+        this.day = day;
+        this.latestPercentage = latestPercentage;
+        this.cohortMedian = cohortMedian;
+        this.cohortNinetiethPercentile = cohortNinetiethPercentile;
+    }
+
+    /**
+     * Gets the id of the patient.
+     *
+     * @return the patient id
+     */
+    public Long getPatientId() {
+        return patientId;
+    }
+
+    /**
+     * Gets the id of the injury.
+     *
+     * @return the injury id
+     */
+    public Long getInjuryId() {
+        return injuryId;
+    }
+
+    /**
+     * Gets the side of the eye.
+     *
+     * @return the side
+     */
+    public EyeSide getSide() {
+        return side;
+    }
+
+    /**
+     * Gets the days between the first and the latest measurement.
+     *
+     * @return the day
+     */
+    public int getDay() {
+        return day;
+    }
+
+    /**
+     * Gets the affected percentage of the latest measurement.
+     *
+     * @return the latest percentage
+     */
+    public int getLatestPercentage() {
+        return latestPercentage;
+    }
+
+    /**
+     * Gets the median of the cohort on the day of the latest measurement.
+     *
+     * @return the cohort median
+     */
+    public int getCohortMedian() {
+        return cohortMedian;
+    }
+
+    /**
+     * Gets the 90th percentile of the cohort on the day of the latest measurement.
+     *
+     * @return the cohort's 90th percentile
+     */
+    public int getCohortNinetiethPercentile() {
+        return cohortNinetiethPercentile;
+    }
+}
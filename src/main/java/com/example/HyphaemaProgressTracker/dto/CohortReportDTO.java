@@ -0,0 +1,57 @@
+package com.example.HyphaemaProgressTracker.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for the healing curves of all cohorts.
+ * <p>
+ * A report is computed from all measurements at once and then cached, so {@code computedAt} tells
+ * how current it is.
+ * </p>
+ */
+public class CohortReportDTO {
+    private final Instant computedAt;
+    private final long measurements;
+    private final List<CohortDTO> cohorts;
+
+    /**
+     * Parameterized constructor for {@code CohortReportDTO}.
+     *
+     * @param computedAt the time the computation started
+     * @param measurements the number of measurements read
+     * @param cohorts the cohorts, most frequent diagnosis first
+     */
+    public CohortReportDTO(Instant computedAt, long measurements, List<CohortDTO> cohorts) {
+        this.computedAt = computedAt;
+        this.measurements = measurements;
+        this.cohorts = cohorts;
+    }
+
+    /**
+     * Gets the time the computation started.
+     *
+     * @return the computation time
+     */
+    public Instant getComputedAt() {
+        return computedAt;
+    }
+
+    /**
+     * Gets the number of measurements read.
+     *
+     * @return the number of measurements
+     */
+    public long getMeasurements() {
+        return measurements;
+    }
+
+    /**
+     * Gets the cohorts.
+     *
+     * @return the cohorts, most frequent diagnosis first
+     */
+    public List<CohortDTO> getCohorts() {
+        return cohorts;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.HyphaemaProgressTracker.dto;
+
+import java.time.LocalDate;
+
+import com.example.HyphaemaProgressTracker.entities.Eye;
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
+
+/**
+ * Data Transfer Object (DTO) for listing the eye records of an injury.
+ * <p>
+ * Holds the columns of {@link Eye} itself, read with a constructor query, so the injury, its patient
+ * and the analyzed photo are not loaded.
+ * </p>
+ */
+public class EyeDTO {
+    private final Long id;
+    private final int percentageOfEyeAffectedByHyphema;
+    private final LocalDate date;
+    private final EyeSide side;
+
+    /**
+     * Parameterized constructor for {@code EyeDTO}.
+     *
+     * @param id the id of the eye record
+     * @param percentageOfEyeAffectedByHyphema the percentage of the eye affected by hyphema
+     * @param date the date of the eye analysis
+     * @param side the side of the eye
+     */
+    public EyeDTO(Long id, int percentageOfEyeAffectedByHyphema, LocalDate date, EyeSide side) {
+        this.id = id;
+        this.percentageOfEyeAffectedByHyphema = percentageOfEyeAffectedByHyphema;
+        this.date = date;
+        this.side = side;
+    }
+
+    /**
+     * Gets the id of the eye record.
+     *
+     * @return the record id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the percentage of the eye affected by hyphema.
+     *
+     * @return the percentage
+     */
+    public int getPercentageOfEyeAffectedByHyphema() {
+        return percentageOfEyeAffectedByHyphema;
+    }
+
+    /**
+     * Gets the date of the eye analysis.
+     *
+     * @return the date
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Gets the side of the eye.
+     *
+     * @return the side
+     */
+    public EyeSide getSide() {
+        return side;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.HyphaemaProgressTracker.dto;
+
+import java.time.LocalDate;
+
+import com.example.HyphaemaProgressTracker.entities.Eye;
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
+
+/**
+ * Data Transfer Object (DTO) for one measurement of {@link Eye} as read by the cohort analytics.
+ * <p>
+ * Unlike {@link EyeResultDTO}, a measurement names its injury and eye side, so the measurements of
+ * many series can be read in one query and told apart by the reader.
+ * </p>
+ */
+public class EyeMeasurementDTO {
+    private final Long injuryId;
+    private final EyeSide side;
+    private final Long id;
+    private final LocalDate date;
+    private final int percentageOfEyeAffectedByHyphema;
+
+    /**
+     * Parameterized constructor for {@code EyeMeasurementDTO}.
+     *
+     * @param injuryId the id of the injury
+     * @param side the side of the eye
+     * @param id the id of the eye record
+     * @param date the date of the eye analysis
+     * @param percentageOfEyeAffectedByHyphema the percentage of the eye affected by hyphema
+     */
+    public EyeMeasurementDTO(Long injuryId, EyeSide side, Long id, LocalDate date, int percentageOfEyeAffectedByHyphema) {
+        this.injuryId = injuryId;
+        this.side = side;
+        this.id = id;
+        this.date = date;
+        this.percentageOfEyeAffectedByHyphema = percentageOfEyeAffectedByHyphema;
+    }
+
+    /**
+     * Gets the id of the injury.
+     *
+     * @return the injury id
+     */
+    public Long getInjuryId() {
+        return injuryId;
+    }
+
+    /**
+     * Gets the side of the eye.
+     *
+     * @return the side
+     */
+    public EyeSide getSide() {
+        return side;
+    }
+
+    /**
+     * Gets the id of the eye record.
+     *
+     * @return the record id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the date of the eye analysis.
+     *
+     * @return the date
+     */
+    public LocalDate getDate() {
+        return date;
+    }
+
+    /**
+     * Gets the percentage of the eye affected by hyphema.
+     *
+     * @return the percentage
+     */
+    public int getPercentageOfEyeAffectedByHyphema() {
+        return percentageOfEyeAffectedByHyphema;
+    }
+}
@@ -3,6 +3,7 @@ package com.example.HyphaemaProgressTracker.dto;
 import java.time.LocalDate;
 
 import com.example.HyphaemaProgressTracker.entities.Eye;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 /**
  * Data Transfer Object (DTO) for representing the results of an eye analysis.
@@ -14,6 +15,8 @@ import com.example.HyphaemaProgressTracker.entities.Eye;
  * </p>
  */
 public class EyeResultDTO {
+    @JsonIgnore
+    private Long id; // Id of the eye record, used as tie-breaker of the page cursor.
     private LocalDate date;
     private double percentageOfEyeAffectedByHyphema;
 
@@ -33,6 +36,27 @@ public class EyeResultDTO {
         this.percentageOfEyeAffectedByHyphema = percentageOfEyeAffectedByHyphema;
     }
 
+    /**
+     * Parameterized constructor for {@code EyeResultDTO} including the id of the eye record.
+     *
+     * @param id the id of the eye record
+     * @param date the date of the eye analysis
+     * @param percentageOfEyeAffectedByHyphema the percentage of the eye affected by hyphema
+     */
+    public EyeResultDTO(Long id, LocalDate date, double percentageOfEyeAffectedByHyphema) {
+        this(date, percentageOfEyeAffectedByHyphema);
+        this.id = id;
+    }
+
+    /**
+     * Gets the id of the eye record.
+     *
+     * @return the id, or null if the result was not loaded from an eye record
+     */
+    public Long getId() {
+        return id;
+    }
+
     /**
      * Gets the date of the eye analysis.
      * 
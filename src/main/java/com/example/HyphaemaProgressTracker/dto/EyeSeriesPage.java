@@ -0,0 +1,45 @@
+package com.example.HyphaemaProgressTracker.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for one page of the measurement series of an eye.
+ * <p>
+ * Pages are addressed by keyset: the cursor names the last result of the page by date and record id,
+ * and the next page starts right after it. Unlike an offset, a cursor stays valid when records are
+ * added to the series and the query does not have to skip over the previous pages.
+ * </p>
+ */
+public class EyeSeriesPage {
+    private final List<EyeResultDTO> results;
+    private final String nextCursor;
+
+    /**
+     * Parameterized constructor for {@code EyeSeriesPage}.
+     *
+     * @param results the results of the page in the requested order
+     * @param nextCursor the cursor of the next page, or null if this is the last page
+     */
+    public EyeSeriesPage(List<EyeResultDTO> results, String nextCursor) {
+        this.results = results;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gets the results of the page.
+     *
+     * @return the results in the requested order
+     */
+    public List<EyeResultDTO> getResults() {
+        return results;
+    }
+
+    /**
+     * Gets the cursor of the next page.
+     *
+     * @return the cursor, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
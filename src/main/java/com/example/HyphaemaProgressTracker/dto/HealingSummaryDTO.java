@@ -0,0 +1,138 @@
+package com.example.HyphaemaProgressTracker.dto;
+
+import java.time.LocalDate;
+
+import com.example.HyphaemaProgressTracker.entities.HealingStatistics;
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
+
+/**
+ * Data Transfer Object (DTO) for the healing summary of one eye of an injury.
+ * <p>
+ * The summary is derived from the running {@link HealingStatistics} of the eye, so it is available
+ * without reading the measurement series. The rate of resolution and the projected clearance date come
+ * from the least-squares line through all measurements; they are null while the series has fewer than
+ * two measurement dates, and the clearance date also while the line does not decline.
+ * </p>
+ */
+public class HealingSummaryDTO {
+    private final EyeSide side;
+    private final long measurementCount;
+    private final LocalDate firstDate;
+    private final Integer firstPercentage;
+    private final LocalDate latestDate;
+    private final Integer latestPercentage;
+    private final Integer peakPercentage;
+    private final Integer lowestPercentage;
+    private final long daysSinceFirstMeasurement;
+    private final Double resolutionRatePerDay;
+    private final LocalDate projectedClearanceDate;
+
+    /**
+     * Creates the summary of an eye from its statistics.
+     *
+     * @param statistics the statistics of the eye, with at least one measurement
+     * @param today the date the days since the first measurement are counted to
+     */
+    public HealingSummaryDTO(HealingStatistics statistics, LocalDate today) {
+        double slope = statistics.getSlope();
+        this.side = statistics.getSide();
+        this.measurementCount = statistics.getCount();
+        this.firstDate = statistics.getFirstDate();
+        this.firstPercentage = statistics.getFirstPercentage();
+        this.latestDate = statistics.getLastDate();
+        this.latestPercentage = statistics.getLastPercentage();
+        this.peakPercentage = statistics.getMaxPercentage();
+        this.lowestPercentage = statistics.getMinPercentage();
+        this.daysSinceFirstMeasurement = Math.max(0, today.toEpochDay() - firstDate.toEpochDay());
+        this.resolutionRatePerDay = Double.isNaN(slope) ? null : -slope;
+        this.projectedClearanceDate = statistics.getProjectedClearanceDate();
+    }
+
+    /**
+     * Gets the side of the eye.
+     * @return the side.
+     */
+    public EyeSide getSide() {
+        return side;
+    }
+
+    /**
+     * Gets the number of measurements.
+     * @return the count.
+     */
+    public long getMeasurementCount() {
+        return measurementCount;
+    }
+
+    /**
+     * Gets the date of the first measurement.
+     * @return the first date.
+     */
+    public LocalDate getFirstDate() {
+        return firstDate;
+    }
+
+    /**
+     * Gets the affected percentage of the first measurement.
+     * @return the first percentage.
+     */
+    public Integer getFirstPercentage() {
+        return firstPercentage;
+    }
+
+    /**
+     * Gets the date of the latest measurement.
+     * @return the latest date.
+     */
+    public LocalDate getLatestDate() {
+        return latestDate;
+    }
+
+    /**
+     * Gets the affected percentage of the latest measurement.
+     * @return the latest percentage.
+     */
+    public Integer getLatestPercentage() {
+        return latestPercentage;
+    }
+
+    /**
+     * Gets the highest affected percentage measured.
+     * @return the peak percentage.
+     */
+    public Integer getPeakPercentage() {
+        return peakPercentage;
+    }
+
+    /**
+     * Gets the lowest affected percentage measured.
+     * @return the lowest percentage.
+     */
+    public Integer getLowestPercentage() {
+        return lowestPercentage;
+    }
+
+    /**
+     * Gets the number of days since the first measurement, the closest record of the injury date.
+     * @return the number of days.
+     */
+    public long getDaysSinceFirstMeasurement() {
+        return daysSinceFirstMeasurement;
+    }
+
+    /**
+     * Gets the percentage points the hyphema shrinks by per day, negative while it grows.
+     * @return the rate, or null with fewer than two measurement dates.
+     */
+    public Double getResolutionRatePerDay() {
+        return resolutionRatePerDay;
+    }
+
+    /**
+     * Gets the date on which the trend of the measurements reaches 0 %.
+     * @return the projected date, or null if the trend does not decline.
+     */
+    public LocalDate getProjectedClearanceDate() {
+        return projectedClearanceDate;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.HyphaemaProgressTracker.dto;
+
+import com.example.HyphaemaProgressTracker.entities.Injury;
+
+/**
+ * Data Transfer Object (DTO) for listing the injuries of a patient.
+ * <p>
+ * Holds the columns of {@link Injury} the dashboard shows, read with a constructor query, so neither
+ * the injury nor its patient is loaded as an entity.
+ * </p>
+ */
+public class InjuryDTO {
+    private final Long id;
+    private final String diagnosis;
+
+    /**
+     * Parameterized constructor for {@code InjuryDTO}.
+     *
+     * @param id the id of the injury
+     * @param diagnosis the diagnosis of the injury
+     */
+    public InjuryDTO(Long id, String diagnosis) {
+        this.id = id;
+        this.diagnosis = diagnosis;
+    }
+
+    /**
+     * Gets the id of the injury.
+     *
+     * @return the injury id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the diagnosis of the injury.
+     *
+     * @return the diagnosis
+     */
+    public String getDiagnosis() {
+        return diagnosis;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.HyphaemaProgressTracker.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) for one page of the patient listing.
+ * <p>
+ * Pages are addressed by keyset: the cursor is the id of the last patient of the page, and the next
+ * page starts right after it, like the pages of {@link EyeSeriesPage}.
+ * </p>
+ */
+public class PatientPage {
+    private final List<PatientSummaryDTO> results;
+    private final Long nextCursor;
+
+    /**
+     * Parameterized constructor for {@code PatientPage}.
+     *
+     * @param results the patients of the page in id order
+     * @param nextCursor the cursor of the next page, or null if this is the last page
+     */
+    public PatientPage(List<PatientSummaryDTO> results, Long nextCursor) {
+        this.results = results;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gets the patients of the page.
+     *
+     * @return the patients in id order
+     */
+    public List<PatientSummaryDTO> getResults() {
+        return results;
+    }
+
+    /**
+     * Gets the cursor of the next page.
+     *
+     * @return the cursor, or null if this is the last page
+     */
+    public Long getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.HyphaemaProgressTracker.dto;
+
+import com.example.HyphaemaProgressTracker.entities.Patient;
+
+/**
+ * Data Transfer Object (DTO) for listing patients.
+ * <p>
+ * Holds the columns of {@link Patient} a listing shows and nothing else; in particular the password
+ * hash is neither read from the database nor sent to the client.
+ * </p>
+ */
+public class PatientSummaryDTO {
+    private final Long id;
+    private final String login;
+    private final boolean enabled;
+    private final String roles;
+
+    /**
+     * Parameterized constructor for {@code PatientSummaryDTO}.
+     *
+     * @param id the id of the patient
+     * @param login the login username
+     * @param enabled whether the account is active
+     * @param roles the roles of the patient
+     */
+    public PatientSummaryDTO(Long id, String login, boolean enabled, String roles) {
+        this.id = id;
+        this.login = login;
+        this.enabled = enabled;
+        this.roles = roles;
+    }
+
+    /**
+     * Gets the id of the patient.
+     *
+     * @return the patient id
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the login username.
+     *
+     * @return the login
+     */
+    public String getLogin() {
+        return login;
+    }
+
+    /**
+     * Checks whether the account is active.
+     *
+     * @return true if the account is active
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Gets the roles of the patient.
+     *
+     * @return the roles
+     */
+    public String getRoles() {
+        return roles;
+    }
+}
@@ -14,6 +14,7 @@ public class SaveResultRequest {
     private String eye; // Side of the eye (e.g., "LEFT", "RIGHT")
     private String date; // Analysis date in string format
     private int percentageOfEyeAffectedByHyphema; // Percentage of the eye affected by hyphema
+    private String photoId; // ID of the analyzed photo, optional
 
     /**
      * Gets the ID of the associated injury.
@@ -90,4 +91,22 @@ public class SaveResultRequest {
         this.percentageOfEyeAffectedByHyphema = percentageOfEyeAffectedByHyphema;
     }
 
+    /**
+     * Gets the ID of the analyzed photo.
+     * 
+     * @return the photo ID, or null if the result was not analyzed from a photo
+     */
+    public String getPhotoId() {
+        return photoId;
+    }
+
+    /**
+     * Sets the ID of the analyzed photo.
+     * 
+     * @param photoId the photo ID to set
+     */
+    public void setPhotoId(String photoId) {
+        this.photoId = photoId;
+    }
+
 }
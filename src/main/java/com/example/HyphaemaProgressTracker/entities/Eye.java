@@ -4,13 +4,17 @@ import jakarta.persistence.*;
 import java.time.LocalDate;
 
 import com.example.HyphaemaProgressTracker.enums.EyeSide;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 
 /**
  * This class represents the state of an eye with information about the left/right side,
  * the percentage of the eye affected by hyphema, and related metadata.
  */
 @Entity
-@Table(name = "eye") 
+@Table(name = "eye", indexes = {
+        // Serves the chart series: one injury and side, in date order, with the id as keyset tie-breaker.
+        @Index(name = "idx_eye_injury_side_date", columnList = "injury_id, side, date, id")
+})
 public class Eye {
 
     @Id
@@ -27,9 +31,15 @@ public class Eye {
     @Column(nullable = false)
     private EyeSide side; // Indicates whether the eye is the left or right side.
 
-    @ManyToOne
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "injury_id", nullable = false)
-    private Injury injury; // Reference to the associated injury.
+    private Injury injury; // Reference to the associated injury; loaded only when accessed.
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "photo_id")
+    private Photo photo; // Analyzed photo, whose segmentation mask shows the hyphema region; null for manual records.
 
     /**
      * Gets the unique identifier of the eye record.
@@ -110,5 +120,21 @@ public class Eye {
     public void setInjury(Injury injury) {
         this.injury = injury;
     }
+
+    /**
+     * Gets the photo the record was analyzed from.
+     * @return the analyzed photo, or null for records entered manually.
+     */
+    public Photo getPhoto() {
+        return photo;
+    }
+
+    /**
+     * Sets the photo the record was analyzed from.
+     * @param photo the analyzed photo.
+     */
+    public void setPhoto(Photo photo) {
+        this.photo = photo;
+    }
 }
 
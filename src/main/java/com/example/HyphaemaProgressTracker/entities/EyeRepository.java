@@ -1,6 +1,16 @@
 package com.example.HyphaemaProgressTracker.entities;
 
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import com.example.HyphaemaProgressTracker.dto.EyeDTO;
+import com.example.HyphaemaProgressTracker.dto.EyeMeasurementDTO;
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
 
 
 /**
@@ -9,4 +19,55 @@ import org.springframework.data.repository.CrudRepository;
  */
 public interface EyeRepository extends CrudRepository<Eye, Long>{
 
+    /**
+     * Finds the eye records of an injury for the listing, in one statement and without loading entities.
+     *
+     * @param injuryId the ID of the injury whose eye records are to be retrieved.
+     * @return the eye records of the injury ordered by record id.
+     */
+    @Query("SELECT new com.example.HyphaemaProgressTracker.dto.EyeDTO(e.id, e.percentageOfEyeAffectedByHyphema, e.date, e.side) " +
+        "FROM Eye e WHERE e.injury.id = :injuryId ORDER BY e.id ASC")
+    List<EyeDTO> findEyesOfInjury(@Param("injuryId") Long injuryId);
+
+    /**
+     * Finds the next page of all measurements, series by series.
+     * <p>
+     * The rows are ordered like the composite index on {@code (injury_id, side, date, id)}, so the
+     * database reads them straight from the index, and every series arrives as one contiguous run in
+     * date order. A page may end in the middle of the series of its last injury.
+     * </p>
+     *
+     * @param afterInjuryId the ID of the last injury read completely, or 0 for the first page.
+     * @param pageable the page size; the page number is ignored.
+     * @return the measurements of the page ordered by injury, side, date and record id.
+     */
+    @Query("SELECT new com.example.HyphaemaProgressTracker.dto.EyeMeasurementDTO(e.injury.id, e.side, e.id, e.date, e.percentageOfEyeAffectedByHyphema) " +
+        "FROM Eye e " +
+        "WHERE e.injury.id > :afterInjuryId " +
+        "ORDER BY e.injury.id ASC, e.side ASC, e.date ASC, e.id ASC")
+    List<EyeMeasurementDTO> findMeasurementsAfterInjury(@Param("afterInjuryId") long afterInjuryId, Pageable pageable);
+
+    /**
+     * Finds the next page of the measurements of one eye, for series too long to be read together with others.
+     * <p>
+     * The keyset condition is the same as in {@link PatientRepository#findSeriesAscending}.
+     * </p>
+     *
+     * @param injuryId the ID of the injury.
+     * @param side the side of the eye.
+     * @param afterDate the date of the last measurement of the previous page.
+     * @param afterId the record id of the last measurement of the previous page.
+     * @param pageable the page size; the page number is ignored.
+     * @return the measurements of the page ordered by date and record id.
+     */
+    @Query("SELECT new com.example.HyphaemaProgressTracker.dto.EyeMeasurementDTO(e.injury.id, e.side, e.id, e.date, e.percentageOfEyeAffectedByHyphema) " +
+        "FROM Eye e " +
+        "WHERE e.injury.id = :injuryId AND e.side = :side " +
+        "AND e.date >= :afterDate AND (e.date > :afterDate OR (e.date = :afterDate AND e.id > :afterId)) " +
+        "ORDER BY e.date ASC, e.id ASC")
+    List<EyeMeasurementDTO> findMeasurementsOfSeries(@Param("injuryId") Long injuryId,
+                                                     @Param("side") EyeSide side,
+                                                     @Param("afterDate") LocalDate afterDate,
+                                                     @Param("afterId") long afterId,
+                                                     Pageable pageable);
 }
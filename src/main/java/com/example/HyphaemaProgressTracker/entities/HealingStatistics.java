@@ -0,0 +1,258 @@
+package com.example.HyphaemaProgressTracker.entities;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * This class holds the running statistics of the measurement series of one eye of an injury.
+ * <p>
+ * Every saved eye record is added in constant time, without reading the series: count, minimum and
+ * maximum, the first and latest measurement in date order, and the sums needed for a least-squares
+ * line through the series. The x values of the line are epoch days, the y values the affected
+ * percentage; all sums are exact integers, so they do not drift no matter how often the record is
+ * updated.
+ * </p>
+ * <p>
+ * The record is updated in the transaction that saves the eye record, with the row locked, so
+ * concurrent saves of the same eye are applied one after the other.
+ * </p>
+ */
+@Entity
+@Table(name = "healing_statistics", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_healing_statistics_injury_side", columnNames = {"injury_id", "side"})
+})
+public class HealingStatistics {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id; // Unique identifier for the statistics record.
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "injury_id", nullable = false)
+    private Injury injury; // Injury whose eye is summarized.
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private EyeSide side; // Side of the summarized eye.
+
+    @Column(nullable = false)
+    private long count; // Number of eye records.
+
+    private Integer minPercentage; // Lowest affected percentage, null without records.
+
+    private Integer maxPercentage; // Highest affected percentage, null without records.
+
+    private LocalDate firstDate; // Date of the first record in date order.
+
+    private Integer firstPercentage; // Affected percentage of the first record.
+
+    private LocalDate lastDate; // Date of the latest record in date order; of the last saved one on equal dates.
+
+    private Integer lastPercentage; // Affected percentage of the latest record.
+
+    @Column(nullable = false)
+    private long sumDays; // Sum of the epoch days of all records.
+
+    @Column(nullable = false)
+    private long sumPercentages; // Sum of the affected percentages.
+
+    @Column(nullable = false)
+    private long sumDaysSquared; // Sum of the squared epoch days.
+
+    @Column(nullable = false)
+    private long sumDaysTimesPercentages; // Sum of epoch day times affected percentage.
+
+    /**
+     * Default constructor for JPA.
+     */
+    protected HealingStatistics() {
+    }
+
+    /**
+     * Creates empty statistics of an eye.
+     *
+     * @param injury the injury
+     * @param side the side of the eye
+     */
+    public HealingStatistics(Injury injury, EyeSide side) {
+        this.injury = injury;
+        this.side = side;
+    }
+
+    /**
+     * Adds a record saved after all records already added.
+     *
+     * @param date the measurement date
+     * @param percentage the affected percentage
+     */
+    public void add(LocalDate date, int percentage) {
+        long day = date.toEpochDay();
+        if (count == 0 || date.isBefore(firstDate)) {
+            firstDate = date;
+            firstPercentage = percentage;
+        }
+        if (count == 0 || !date.isBefore(lastDate)) {
+            lastDate = date;
+            lastPercentage = percentage;
+        }
+        minPercentage = count == 0 ? percentage : Math.min(minPercentage, percentage);
+        maxPercentage = count == 0 ? percentage : Math.max(maxPercentage, percentage);
+        count++;
+        sumDays += day;
+        sumPercentages += percentage;
+        sumDaysSquared += day * day;
+        sumDaysTimesPercentages += day * percentage;
+    }
+
+    /**
+     * Overwrites these statistics with others of the same eye, e.g. recomputed from the eye records.
+     *
+     * @param other the statistics to copy
+     * @return true if anything changed
+     */
+    public boolean copyFrom(HealingStatistics other) {
+        boolean changed = count != other.count
+                || !java.util.Objects.equals(minPercentage, other.minPercentage)
+                || !java.util.Objects.equals(maxPercentage, other.maxPercentage)
+                || !java.util.Objects.equals(firstDate, other.firstDate)
+                || !java.util.Objects.equals(firstPercentage, other.firstPercentage)
+                || !java.util.Objects.equals(lastDate, other.lastDate)
+                || !java.util.Objects.equals(lastPercentage, other.lastPercentage)
+                || sumDays != other.sumDays
+                || sumPercentages != other.sumPercentages
+                || sumDaysSquared != other.sumDaysSquared
+                || sumDaysTimesPercentages != other.sumDaysTimesPercentages;
+        count = other.count;
+        minPercentage = other.minPercentage;
+        maxPercentage = other.maxPercentage;
+        firstDate = other.firstDate;
+        firstPercentage = other.firstPercentage;
+        lastDate = other.lastDate;
+        lastPercentage = other.lastPercentage;
+        sumDays = other.sumDays;
+        sumPercentages = other.sumPercentages;
+        sumDaysSquared = other.sumDaysSquared;
+        sumDaysTimesPercentages = other.sumDaysTimesPercentages;
+        return changed;
+    }
+
+    /**
+     * Computes the slope of the least-squares line through the series.
+     * <p>
+     * The slope is {@code Sxy / Sxx} with the centered sums {@code Sxx = Σx² - (Σx)² / n} and
+     * {@code Sxy = Σxy - Σx Σy / n}, computed from the exact integer sums on every call.
+     * </p>
+     *
+     * @return the change of the affected percentage per day, or NaN unless there are two distinct dates
+     */
+    public double getSlope() {
+        if (count < 2) {
+            return Double.NaN;
+        }
+        double centeredDaysSquared = sumDaysSquared - (double) sumDays * sumDays / count;
+        double centeredDaysTimesPercentages = sumDaysTimesPercentages - (double) sumDays * sumPercentages / count;
+        if (centeredDaysSquared <= 0) {
+            return Double.NaN;
+        }
+        return centeredDaysTimesPercentages / centeredDaysSquared;
+    }
+
+    /**
+     * Computes the date on which the least-squares line reaches 0 %.
+     *
+     * @return the projected clearance date, or null if the series does not decline
+     */
+    public LocalDate getProjectedClearanceDate() {
+        double slope = getSlope();
+        if (!(slope < 0)) {
+            return null;
+        }
+        double meanDay = (double) sumDays / count;
+        double meanPercentage = (double) sumPercentages / count;
+        return LocalDate.ofEpochDay(Math.round(Math.ceil(meanDay - meanPercentage / slope)));
+    }
+
+    /**
+     * Gets the unique identifier of the statistics record.
+     * @return the ID of the record.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Gets the injury whose eye is summarized.
+     * @return the injury.
+     */
+    public Injury getInjury() {
+        return injury;
+    }
+
+    /**
+     * Gets the side of the summarized eye.
+     * @return the side of the eye.
+     */
+    public EyeSide getSide() {
+        return side;
+    }
+
+    /**
+     * Gets the number of eye records.
+     * @return the count.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the lowest affected percentage.
+     * @return the minimum, or null without records.
+     */
+    public Integer getMinPercentage() {
+        return minPercentage;
+    }
+
+    /**
+     * Gets the highest affected percentage.
+     * @return the peak, or null without records.
+     */
+    public Integer getMaxPercentage() {
+        return maxPercentage;
+    }
+
+    /**
+     * Gets the date of the first record.
+     * @return the first date, or null without records.
+     */
+    public LocalDate getFirstDate() {
+        return firstDate;
+    }
+
+    /**
+     * Gets the affected percentage of the first record.
+     * @return the first percentage, or null without records.
+     */
+    public Integer getFirstPercentage() {
+        return firstPercentage;
+    }
+
+    /**
+     * Gets the date of the latest record.
+     * @return the latest date, or null without records.
+     */
+    public LocalDate getLastDate() {
+        return lastDate;
+    }
+
+    /**
+     * Gets the affected percentage of the latest record.
+     * @return the latest percentage, or null without records.
+     */
+    public Integer getLastPercentage() {
+        return lastPercentage;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.HyphaemaProgressTracker.entities;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
+
+import jakarta.persistence.LockModeType;
+
+/**
+ * Repository interface for managing HealingStatistics entities.
+ * Extends the CrudRepository interface to provide basic CRUD operations.
+ */
+public interface HealingStatisticsRepository extends CrudRepository<HealingStatistics, Long> {
+
+    /**
+     * Finds the statistics of an eye of a patient's injury.
+     *
+     * @param patientId the ID of the patient.
+     * @param injuryId the ID of the injury.
+     * @param side the side of the eye.
+     * @return an Optional containing the statistics, or empty if the eye has no records.
+     */
+    @Query("SELECT s FROM HealingStatistics s " +
+        "WHERE s.injury.id = :injuryId AND s.injury.patient.id = :patientId AND s.side = :side")
+    Optional<HealingStatistics> findByPatientAndInjuryAndSide(@Param("patientId") Long patientId,
+                                                              @Param("injuryId") Long injuryId,
+                                                              @Param("side") EyeSide side);
+
+    /**
+     * Checks whether an eye already has a statistics row.
+     *
+     * @param injuryId the ID of the injury.
+     * @param side the side of the eye.
+     * @return true if the row exists.
+     */
+    boolean existsByInjuryIdAndSide(Long injuryId, EyeSide side);
+
+    /**
+     * Finds the statistics of an eye and locks the row until the end of the transaction.
+     * <p>
+     * Every write of the statistics goes through this lock, so concurrent saves of records of the same
+     * eye add to the statistics one after the other instead of overwriting each other's sums.
+     * </p>
+     *
+     * @param injuryId the ID of the injury.
+     * @param side the side of the eye.
+     * @return an Optional containing the locked statistics, or empty if there is no row yet.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM HealingStatistics s WHERE s.injury.id = :injuryId AND s.side = :side")
+    Optional<HealingStatistics> findForUpdate(@Param("injuryId") Long injuryId, @Param("side") EyeSide side);
+
+    /**
+     * Finds the statistics following an ID, in ID order, for walking over all statistics in batches.
+     *
+     * @param id the ID of the last statistics of the previous batch, or 0 for the first batch.
+     * @param pageable the batch size; the page number is ignored.
+     * @return the next statistics ordered by ID.
+     */
+    List<HealingStatistics> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+}
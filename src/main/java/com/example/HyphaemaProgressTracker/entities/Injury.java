@@ -12,7 +12,10 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
  * and a list of related eye conditions.
  */
 @Entity
-@Table(name = "injury") 
+@Table(name = "injury", indexes = {
+        // Serves the injury listing of a patient; PostgreSQL does not index foreign keys by itself.
+        @Index(name = "idx_injury_patient", columnList = "patient_id")
+})
 public class Injury {
 
     @Id
@@ -22,14 +25,23 @@ public class Injury {
     @Column(columnDefinition = "TEXT", nullable = false)
     private String diagnosis; // Detailed diagnosis description of the injury.
 
-    @ManyToOne
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "patient_id", nullable = false)
-    private Patient patient; // Reference to the patient who has this injury.
+    private Patient patient; // Reference to the patient who has this injury; loaded only when accessed.
 
     @OneToMany(mappedBy = "injury", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore
     private List<Eye> eyes = new ArrayList<>(); // List of eye conditions associated with this injury.
 
+    @OneToMany(mappedBy = "injury", cascade = CascadeType.ALL, orphanRemoval = true)
+    @JsonIgnore
+    private List<Photo> photos = new ArrayList<>(); // List of photos uploaded for this injury.
+
+    @OneToMany(mappedBy = "injury", cascade = CascadeType.ALL, orphanRemoval = true)
+    @JsonIgnore
+    private List<HealingStatistics> statistics = new ArrayList<>(); // Running statistics of the eyes of this injury.
+
     /**
      * Gets the unique identifier of the injury.
      * @return the ID of the injury.
@@ -93,6 +105,28 @@ public class Injury {
     public void setEyes(List<Eye> eyes) {
         this.eyes = eyes;
     }
-}
 
+    /**
+     * Gets the list of photos uploaded for this injury.
+     * @return the list of photos.
+     */
+    public List<Photo> getPhotos() {
+        return photos;
+    }
+
+    /**
+     * Sets the list of photos uploaded for this injury.
+     * @param photos the list of photos to set.
+     */
+    public void setPhotos(List<Photo> photos) {
+        this.photos = photos;
+    }
 
+    /**
+     * Gets the running statistics of the eyes of this injury.
+     * @return the statistics, at most one per side.
+     */
+    public List<HealingStatistics> getStatistics() {
+        return statistics;
+    }
+}
@@ -1,10 +1,15 @@
 package com.example.HyphaemaProgressTracker.entities;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import com.example.HyphaemaProgressTracker.dto.InjuryDTO;
+
 /**
  * Repository interface for managing Injury entities.
  * Extends the CrudRepository interface to provide basic CRUD operations.
@@ -18,4 +23,41 @@ public interface InjuryRepository extends CrudRepository<Injury, Long> {
      * @return a list of Injury entities associated with the given patient ID.
      */
     List<Injury> findByPatientId(@Param("patientId") Long patientId);
+
+    /**
+     * Finds the injuries of a patient for the listing, in one statement and without loading entities.
+     *
+     * @param patientId the ID of the patient whose injuries are to be retrieved.
+     * @return the injuries of the patient ordered by ID.
+     */
+    @Query("SELECT new com.example.HyphaemaProgressTracker.dto.InjuryDTO(i.id, i.diagnosis) " +
+        "FROM Injury i WHERE i.patient.id = :patientId ORDER BY i.id ASC")
+    List<InjuryDTO> findInjuriesOfPatient(@Param("patientId") Long patientId);
+
+    /**
+     * Finds the injuries following an ID, in ID order, for walking over all injuries in batches.
+     *
+     * @param id the ID of the last injury of the previous batch, or 0 for the first batch.
+     * @param pageable the batch size; the page number is ignored.
+     * @return the next injuries ordered by ID.
+     */
+    List<Injury> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Finds the patient and diagnosis of injuries without loading the injuries and their patients.
+     *
+     * @param ids the IDs of the injuries.
+     * @return one row {@code [injuryId, patientId, diagnosis]} per found injury.
+     */
+    @Query("SELECT i.id, i.patient.id, i.diagnosis FROM Injury i WHERE i.id IN :ids")
+    List<Object[]> findDiagnoses(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Finds the most frequent diagnoses, spelled exactly alike.
+     *
+     * @param pageable the number of diagnoses; the page number is ignored.
+     * @return the diagnoses, most frequent first.
+     */
+    @Query("SELECT i.diagnosis FROM Injury i GROUP BY i.diagnosis ORDER BY COUNT(i) DESC, i.diagnosis ASC")
+    List<String> findMostFrequentDiagnoses(Pageable pageable);
 }
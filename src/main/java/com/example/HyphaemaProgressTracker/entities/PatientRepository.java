@@ -1,15 +1,23 @@
 package com.example.HyphaemaProgressTracker.entities;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
 import com.example.HyphaemaProgressTracker.dto.EyeResultDTO;
+import com.example.HyphaemaProgressTracker.dto.PatientSummaryDTO;
 import com.example.HyphaemaProgressTracker.enums.EyeSide;
 
+import jakarta.persistence.QueryHint;
+
 /**
  * Repository interface for managing Patient entities.
  * Extends CrudRepository to provide basic CRUD operations for Patient entities.
@@ -28,20 +36,67 @@ public interface PatientRepository extends CrudRepository<Patient, Long> {
     List<Eye> findEyesByPatientAndInjury(@Param("patientId") Long patientId, @Param("injuryId") Long injuryId);
 
     /**
-     * Finds a list of EyeResultDTO containing date and percentage of eye affected by hyphema for a specific patient, injury, and eye side.
-     * This method joins the Eye, Injury, and Patient entities and returns a list of EyeResultDTO with specific details about the eye.
-     * 
+     * Finds the next page of the measurement series of an eye in chronological order.
+     * <p>
+     * The page starts after the record {@code (afterDate, afterId)}, ordered by date and record id, so
+     * the first page of a range starting at {@code from} is requested with {@code (from, 0)}. The
+     * redundant {@code e.date >= :afterDate} lets the database bound the scan of the composite index on
+     * {@code (injury_id, side, date, id)}, which also delivers the rows in the requested order.
+     * </p>
+     *
+     * @param patientId the ID of the patient whose eye results are to be retrieved.
+     * @param injuryId the ID of the injury associated with the eyes.
+     * @param side the side of the eye (e.g., LEFT or RIGHT) to filter results.
+     * @param afterDate the date of the last result of the previous page.
+     * @param afterId the record id of the last result of the previous page.
+     * @param to the last date of the range, inclusive.
+     * @param pageable the page size; the page number is ignored.
+     * @return the results of the page ordered by date and record id.
+     */
+    @Query("SELECT new com.example.HyphaemaProgressTracker.dto.EyeResultDTO(e.id, e.date, e.percentageOfEyeAffectedByHyphema) " +
+        "FROM Eye e " +
+        "WHERE e.injury.id = :injuryId AND e.injury.patient.id = :patientId AND e.side = :side " +
+        "AND e.date >= :afterDate AND (e.date > :afterDate OR (e.date = :afterDate AND e.id > :afterId)) " +
+        "AND e.date <= :to " +
+        "ORDER BY e.date ASC, e.id ASC")
+    List<EyeResultDTO> findSeriesAscending(@Param("patientId") Long patientId,
+                                           @Param("injuryId") Long injuryId,
+                                           @Param("side") EyeSide side,
+                                           @Param("afterDate") LocalDate afterDate,
+                                           @Param("afterId") long afterId,
+                                           @Param("to") LocalDate to,
+                                           Pageable pageable);
+
+    /**
+     * Finds the next page of the measurement series of an eye, newest first.
+     * <p>
+     * The mirror image of {@link #findSeriesAscending}: the page starts before the record
+     * {@code (beforeDate, beforeId)}, so the first page of a range ending at {@code to} is requested
+     * with {@code (to, Long.MAX_VALUE)}, and the index is scanned backwards.
+     * </p>
+     *
      * @param patientId the ID of the patient whose eye results are to be retrieved.
      * @param injuryId the ID of the injury associated with the eyes.
      * @param side the side of the eye (e.g., LEFT or RIGHT) to filter results.
-     * @return a list of EyeResultDTO objects containing the date and percentage of eye affected by hyphema.
+     * @param beforeDate the date of the last result of the previous page.
+     * @param beforeId the record id of the last result of the previous page.
+     * @param from the first date of the range, inclusive.
+     * @param pageable the page size; the page number is ignored.
+     * @return the results of the page ordered by date and record id, descending.
      */
-    @Query("SELECT new com.example.HyphaemaProgressTracker.dto.EyeResultDTO(e.date, e.percentageOfEyeAffectedByHyphema) " +
-        "FROM Eye e JOIN e.injury i JOIN i.patient p " +
-        "WHERE p.id = :patientId AND i.id = :injuryId AND e.side = :side")
-    List<EyeResultDTO> findEyesByPatientAndInjuryAndSide(@Param("patientId") Long patientId,
-                                                        @Param("injuryId") Long injuryId,
-                                                        @Param("side") EyeSide side);
+    @Query("SELECT new com.example.HyphaemaProgressTracker.dto.EyeResultDTO(e.id, e.date, e.percentageOfEyeAffectedByHyphema) " +
+        "FROM Eye e " +
+        "WHERE e.injury.id = :injuryId AND e.injury.patient.id = :patientId AND e.side = :side " +
+        "AND e.date <= :beforeDate AND (e.date < :beforeDate OR (e.date = :beforeDate AND e.id < :beforeId)) " +
+        "AND e.date >= :from " +
+        "ORDER BY e.date DESC, e.id DESC")
+    List<EyeResultDTO> findSeriesDescending(@Param("patientId") Long patientId,
+                                            @Param("injuryId") Long injuryId,
+                                            @Param("side") EyeSide side,
+                                            @Param("beforeDate") LocalDate beforeDate,
+                                            @Param("beforeId") long beforeId,
+                                            @Param("from") LocalDate from,
+                                            Pageable pageable);
 
     /**
      * Finds a Patient entity by login name.
@@ -51,4 +106,41 @@ public interface PatientRepository extends CrudRepository<Patient, Long> {
      * @return an Optional containing the Patient entity if found, or empty if no patient is found with the given login name.
      */
     Optional<Patient> findByLogin(String name);
+
+    /**
+     * Finds the next page of patients in id order, without their password hashes.
+     * <p>
+     * {@code loginPattern} is a LIKE pattern with {@code !} as escape character, e.g. {@code "ma%"}
+     * for all logins starting with "ma" or {@code "%"} for all patients.
+     * </p>
+     *
+     * @param afterId the id of the last patient of the previous page, or 0 for the first page.
+     * @param loginPattern the LIKE pattern the login must match.
+     * @param pageable the page size; the page number is ignored.
+     * @return the patients of the page ordered by id.
+     */
+    @Query("SELECT new com.example.HyphaemaProgressTracker.dto.PatientSummaryDTO(p.id, p.login, p.enabled, p.roles) " +
+        "FROM Patient p " +
+        "WHERE p.id > :afterId AND p.login LIKE :loginPattern ESCAPE '!' " +
+        "ORDER BY p.id ASC")
+    List<PatientSummaryDTO> findPatientsAfter(@Param("afterId") long afterId,
+                                              @Param("loginPattern") String loginPattern,
+                                              Pageable pageable);
+
+    /**
+     * Streams all patients in id order, without their password hashes.
+     * <p>
+     * The rows are fetched from the database in batches while the stream is consumed, so the caller
+     * must consume and close the stream within a transaction.
+     * </p>
+     *
+     * @param loginPattern the LIKE pattern the login must match, with {@code !} as escape character.
+     * @return the patients ordered by id.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.example.HyphaemaProgressTracker.dto.PatientSummaryDTO(p.id, p.login, p.enabled, p.roles) " +
+        "FROM Patient p " +
+        "WHERE p.login LIKE :loginPattern ESCAPE '!' " +
+        "ORDER BY p.id ASC")
+    Stream<PatientSummaryDTO> streamPatients(@Param("loginPattern") String loginPattern);
 }
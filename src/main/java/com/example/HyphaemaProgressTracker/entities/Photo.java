@@ -0,0 +1,218 @@
+package com.example.HyphaemaProgressTracker.entities;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.UUID;
+
+import com.example.HyphaemaProgressTracker.enums.ImageFormat;
+import com.example.HyphaemaProgressTracker.enums.StorageTier;
+
+/**
+ * This class represents an uploaded photo of an eye.
+ * <p>
+ * The bytes are kept once per content hash in the photo store; every upload gets its own record with
+ * the patient, the injury and the original file name. Photos are served by their random {@code id},
+ * so their URLs can neither be guessed nor collide between patients. All records of the same bytes
+ * are always in the same {@link StorageTier}.
+ * </p>
+ */
+@Entity
+@Table(name = "photo", indexes = @Index(name = "idx_photo_sha256", columnList = "sha256"))
+public class Photo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id; // Opaque identifier used in photo URLs.
+
+    @Column(nullable = false, length = 64)
+    private String sha256; // Hex encoded SHA-256 hash of the photo bytes, the key in the photo store.
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ImageFormat format; // Image format detected from the photo bytes.
+
+    @Column(nullable = false)
+    private long size; // Size of the photo in bytes.
+
+    @Column
+    private String originalFilename; // File name chosen by the uploading device, for display only.
+
+    @Column(nullable = false)
+    private Instant uploadedAt; // Time of the upload.
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StorageTier tier = StorageTier.HOT; // Where the photo bytes are currently kept.
+
+    @Column(nullable = false)
+    private Instant tierChangedAt; // Time of the upload or of the last move between tiers.
+
+    @ManyToOne
+    @JoinColumn(name = "patient_id", nullable = false)
+    private Patient patient; // Reference to the patient the photo belongs to.
+
+    @ManyToOne
+    @JoinColumn(name = "injury_id", nullable = false)
+    private Injury injury; // Reference to the injury the photo was taken for.
+
+    /**
+     * Gets the opaque identifier of the photo.
+     * @return the ID of the photo.
+     */
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * Sets the opaque identifier of the photo.
+     * @param id the ID to set.
+     */
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the content hash of the photo.
+     * @return the hex encoded SHA-256 hash.
+     */
+    public String getSha256() {
+        return sha256;
+    }
+
+    /**
+     * Sets the content hash of the photo.
+     * @param sha256 the hex encoded SHA-256 hash to set.
+     */
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    /**
+     * Gets the image format of the photo.
+     * @return the image format.
+     */
+    public ImageFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Sets the image format of the photo.
+     * @param format the image format to set.
+     */
+    public void setFormat(ImageFormat format) {
+        this.format = format;
+    }
+
+    /**
+     * Gets the size of the photo.
+     * @return the size in bytes.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Sets the size of the photo.
+     * @param size the size in bytes to set.
+     */
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    /**
+     * Gets the file name chosen by the uploading device.
+     * @return the original file name.
+     */
+    public String getOriginalFilename() {
+        return originalFilename;
+    }
+
+    /**
+     * Sets the file name chosen by the uploading device.
+     * @param originalFilename the original file name to set.
+     */
+    public void setOriginalFilename(String originalFilename) {
+        this.originalFilename = originalFilename;
+    }
+
+    /**
+     * Gets the time of the upload.
+     * @return the upload time.
+     */
+    public Instant getUploadedAt() {
+        return uploadedAt;
+    }
+
+    /**
+     * Sets the time of the upload.
+     * @param uploadedAt the upload time to set.
+     */
+    public void setUploadedAt(Instant uploadedAt) {
+        this.uploadedAt = uploadedAt;
+    }
+
+    /**
+     * Gets the storage tier of the photo.
+     * @return the storage tier.
+     */
+    public StorageTier getTier() {
+        return tier;
+    }
+
+    /**
+     * Sets the storage tier of the photo.
+     * @param tier the storage tier to set.
+     */
+    public void setTier(StorageTier tier) {
+        this.tier = tier;
+    }
+
+    /**
+     * Gets the time the photo last moved between tiers.
+     * @return the time of the upload or of the last tier change.
+     */
+    public Instant getTierChangedAt() {
+        return tierChangedAt;
+    }
+
+    /**
+     * Sets the time the photo last moved between tiers.
+     * @param tierChangedAt the time to set.
+     */
+    public void setTierChangedAt(Instant tierChangedAt) {
+        this.tierChangedAt = tierChangedAt;
+    }
+
+    /**
+     * Gets the patient the photo belongs to.
+     * @return the patient.
+     */
+    public Patient getPatient() {
+        return patient;
+    }
+
+    /**
+     * Sets the patient the photo belongs to.
+     * @param patient the patient to associate.
+     */
+    public void setPatient(Patient patient) {
+        this.patient = patient;
+    }
+
+    /**
+     * Gets the injury the photo was taken for.
+     * @return the injury.
+     */
+    public Injury getInjury() {
+        return injury;
+    }
+
+    /**
+     * Sets the injury the photo was taken for.
+     * @param injury the injury to associate.
+     */
+    public void setInjury(Injury injury) {
+        this.injury = injury;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.HyphaemaProgressTracker.entities;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import com.example.HyphaemaProgressTracker.enums.StorageTier;
+
+/**
+ * Repository interface for managing Photo entities.
+ * Extends the CrudRepository interface to provide basic CRUD operations.
+ */
+public interface PhotoRepository extends CrudRepository<Photo, UUID> {
+
+    /**
+     * Finds all records of the same photo bytes.
+     *
+     * @param sha256 the hex encoded SHA-256 hash of the photo
+     * @return the photos with this content hash
+     */
+    List<Photo> findBySha256(String sha256);
+
+    /**
+     * Counts the records of the same photo bytes in a tier.
+     *
+     * @param sha256 the hex encoded SHA-256 hash of the photo
+     * @param tier the storage tier
+     * @return the number of photos with this content hash in the tier
+     */
+    long countBySha256AndTier(String sha256, StorageTier tier);
+
+    /**
+     * Finds photos of closed injuries, i.e. injuries without eye records since {@code activeSince},
+     * that have not moved between tiers since {@code unchangedSince}.
+     *
+     * @param tier the current storage tier of the photos
+     * @param unchangedSince photos uploaded or restored after this time are skipped
+     * @param activeSince injuries with eye records on or after this date are still open
+     * @param pageable the maximum number of photos to return
+     * @return the photos that can be moved to the archive
+     */
+    @Query("SELECT p FROM Photo p WHERE p.tier = :tier AND p.tierChangedAt < :unchangedSince " +
+           "AND NOT EXISTS (SELECT e FROM Eye e WHERE e.injury = p.injury AND e.date >= :activeSince) " +
+           "ORDER BY p.tierChangedAt")
+    List<Photo> findInClosedInjuries(@Param("tier") StorageTier tier,
+                                     @Param("unchangedSince") Instant unchangedSince,
+                                     @Param("activeSince") LocalDate activeSince,
+                                     Pageable pageable);
+}
@@ -0,0 +1,12 @@
+package com.example.HyphaemaProgressTracker.enums;
+
+/**
+ * Enum representing why a hyphema analysis did not produce a result.
+ */
+public enum AnalysisFailureReason {
+    REJECTED, // The engine analyzed the photo but could not find an eye or hyphema on it.
+    ENGINE_ERROR, // The engine crashed, exited with an error or wrote output that is not a result.
+    UNAVAILABLE, // No engine was free to take the analysis in time.
+    TIMEOUT, // The analysis did not finish before its deadline and was killed.
+    CANCELLED // The client went away or the analysis was interrupted.
+}
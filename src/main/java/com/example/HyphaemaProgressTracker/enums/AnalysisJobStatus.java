@@ -0,0 +1,11 @@
+package com.example.HyphaemaProgressTracker.enums;
+
+/**
+ * Enum representing the state of an asynchronous analysis job.
+ */
+public enum AnalysisJobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+}
@@ -0,0 +1,37 @@
+package com.example.HyphaemaProgressTracker.enums;
+
+/**
+ * Enum representing the image formats accepted for uploaded photos.
+ */
+public enum ImageFormat {
+    JPEG("jpg", "image/jpeg"),
+    PNG("png", "image/png"),
+    GIF("gif", "image/gif"),
+    BMP("bmp", "image/bmp"),
+    TIFF("tif", "image/tiff"),
+    WEBP("webp", "image/webp");
+
+    private final String extension; // File extension used in the photo store.
+    private final String contentType; // Media type sent when the photo is served.
+
+    ImageFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Gets the file extension of the format, without the dot.
+     * @return the file extension.
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Gets the media type of the format.
+     * @return the content type.
+     */
+    public String getContentType() {
+        return contentType;
+    }
+}
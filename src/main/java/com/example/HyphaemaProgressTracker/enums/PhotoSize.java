@@ -0,0 +1,49 @@
+package com.example.HyphaemaProgressTracker.enums;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Enum representing the scaled down sizes in which stored photos are served besides the original.
+ */
+public enum PhotoSize {
+    THUMBNAIL(256),
+    PREVIEW(1024);
+
+    private final int maxDimension; // Maximum length of the longer image side in pixels.
+
+    PhotoSize(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    /**
+     * Gets the maximum length of the longer image side.
+     * @return the maximum dimension in pixels.
+     */
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    /**
+     * Gets the name used in URLs and on disk, e.g. {@code thumbnail}.
+     * @return the lower case name.
+     */
+    public String getParameterName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Finds the size named by a request parameter.
+     *
+     * @param parameter the parameter value, case insensitive
+     * @return an Optional containing the size, or empty if there is no size with this name
+     */
+    public static Optional<PhotoSize> fromParameter(String parameter) {
+        for (PhotoSize size : values()) {
+            if (size.getParameterName().equalsIgnoreCase(parameter.trim())) {
+                return Optional.of(size);
+            }
+        }
+        return Optional.empty();
+    }
+}
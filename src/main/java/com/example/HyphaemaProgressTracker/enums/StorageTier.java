@@ -0,0 +1,9 @@
+package com.example.HyphaemaProgressTracker.enums;
+
+/**
+ * Enum representing where the bytes of a stored photo are kept.
+ */
+public enum StorageTier {
+    HOT, // Uncompressed in the photo store, served directly.
+    ARCHIVE // Gzip compressed in the archive, restored to the photo store on access.
+}
@@ -0,0 +1,153 @@
+package com.example.HyphaemaProgressTracker.hyphaemaAnalysis;
+
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.HyphaemaProgressTracker.enums.AnalysisFailureReason;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Records how long each stage of the analyze-and-save pipeline takes and how it ends.
+ * <p>
+ * All stages are recorded in one timer, so their latency percentiles can be compared directly,
+ * e.g. in Prometheus with {@code histogram_quantile(0.99, sum by (stage, le) (rate(hyphaema_pipeline_stage_seconds_bucket[5m])))}.
+ * </p>
+ *
+ * Metrics:
+ * <ul>
+ *     <li>{@code hyphaema.pipeline.stage} - duration of a stage, tagged with {@code stage}, {@code engine} and {@code outcome}</li>
+ *     <li>{@code hyphaema.analysis.failures} - failed analyses, tagged with {@code engine} and {@code reason}</li>
+ *     <li>{@code hyphaema.upload.photo.size} - size distribution of stored photos</li>
+ * </ul>
+ *
+ * Stages:
+ * <ul>
+ *     <li>{@value #STAGE_UPLOAD} - streaming the upload to disk</li>
+ *     <li>{@value #STAGE_NORMALIZE} - scaling the photo down for the engine</li>
+ *     <li>{@value #STAGE_BORROW} - waiting for a free Python worker</li>
+ *     <li>{@value #STAGE_ANALYSIS} - running the engine, including borrow and parse</li>
+ *     <li>{@value #STAGE_PARSE} - parsing the JSON written by the Python script</li>
+ *     <li>{@value #STAGE_SAVE} - persisting the result as an eye record</li>
+ * </ul>
+ */
+@Component
+public class AnalysisPipelineMetrics {
+
+    public static final String STAGE_UPLOAD = "upload";
+    public static final String STAGE_NORMALIZE = "normalize";
+    public static final String STAGE_BORROW = "borrow";
+    public static final String STAGE_ANALYSIS = "analysis";
+    public static final String STAGE_PARSE = "parse";
+    public static final String STAGE_SAVE = "save";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_ERROR = "error";
+
+    private final MeterRegistry meterRegistry;
+    private final String engine;
+    private final DistributionSummary photoSizeSummary;
+
+    /**
+     * Constructs the metrics for the configured engine.
+     * <p>
+     * The engine name is read from the configuration instead of the {@link HyphemaAnalyzer} bean,
+     * because the engines themselves record stages.
+     * </p>
+     *
+     * @param meterRegistry the registry for pipeline metrics
+     * @param engine the configured analysis engine
+     */
+    public AnalysisPipelineMetrics(MeterRegistry meterRegistry,
+                                   @Value("${hyphaema.analyzer.engine:python}") String engine) {
+        this.meterRegistry = meterRegistry;
+        this.engine = engine;
+        this.photoSizeSummary = DistributionSummary.builder("hyphaema.upload.photo.size").baseUnit("bytes")
+                .description("Size of stored photos")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts timing a stage.
+     *
+     * @return the sample to pass to {@link #stop(Timer.Sample, String, String)}
+     */
+    public Timer.Sample start() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Stops timing a stage and records it with its outcome.
+     *
+     * @param sample the sample returned by {@link #start()}
+     * @param stage the stage, one of the {@code STAGE_} constants
+     * @param outcome {@value #OUTCOME_SUCCESS}, or the outcome returned by {@link #outcomeOf(Throwable)}
+     */
+    public void stop(Timer.Sample sample, String stage, String outcome) {
+        sample.stop(Timer.builder("hyphaema.pipeline.stage")
+                .description("Duration of the stages of the analyze-and-save pipeline")
+                .tag("stage", stage)
+                .tag("engine", engine)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry));
+    }
+
+    /**
+     * Counts a failed analysis.
+     *
+     * @param e the exception the analysis failed with
+     */
+    public void recordFailure(Throwable e) {
+        AnalysisFailureReason reason;
+        if (e instanceof HyphemaAnalysisException analysisException) {
+            reason = analysisException.getReason();
+        } else if (e instanceof InterruptedException) {
+            reason = AnalysisFailureReason.CANCELLED;
+        } else {
+            reason = AnalysisFailureReason.ENGINE_ERROR;
+        }
+        Counter.builder("hyphaema.analysis.failures")
+                .description("Analyses that did not produce a result")
+                .tag("engine", engine)
+                .tag("reason", reason.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * Records the size of a stored photo.
+     *
+     * @param bytes the photo size in bytes
+     */
+    public void recordPhotoSize(long bytes) {
+        photoSizeSummary.record(bytes);
+    }
+
+    /**
+     * Maps an exception to the outcome tag of a stage.
+     *
+     * @param e the exception the stage ended with
+     * @return the failure reason of an analysis, {@code rejected} for invalid uploads,
+     *         {@code cancelled} for interruptions, or {@value #OUTCOME_ERROR} otherwise
+     */
+    public static String outcomeOf(Throwable e) {
+        if (e instanceof HyphemaAnalysisException analysisException) {
+            return analysisException.getReason().name().toLowerCase(Locale.ROOT);
+        }
+        if (e instanceof ResponseStatusException) {
+            return "rejected";
+        }
+        if (e instanceof InterruptedException) {
+            return "cancelled";
+        }
+        return OUTCOME_ERROR;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.HyphaemaProgressTracker.hyphaemaAnalysis;
+
+import com.example.HyphaemaProgressTracker.enums.AnalysisFailureReason;
+
+/**
+ * Thrown when a photo could not be analyzed.
+ * <p>
+ * The message is meant to be shown to the user; the {@link AnalysisFailureReason} tells callers
+ * how to answer, e.g. whether retrying the same photo makes sense.
+ * </p>
+ */
+public class HyphemaAnalysisException extends Exception {
+
+    private final AnalysisFailureReason reason;
+
+    /**
+     * Constructs the exception with the error reported by the engine for the photo.
+     *
+     * @param message the error message
+     */
+    public HyphemaAnalysisException(String message) {
+        this(AnalysisFailureReason.REJECTED, message, null);
+    }
+
+    /**
+     * Constructs the exception for the given reason.
+     *
+     * @param reason why the analysis failed
+     * @param message the error message
+     */
+    public HyphemaAnalysisException(AnalysisFailureReason reason, String message) {
+        this(reason, message, null);
+    }
+
+    /**
+     * Constructs the exception for the given reason and cause.
+     *
+     * @param reason why the analysis failed
+     * @param message the error message
+     * @param cause the underlying error
+     */
+    public HyphemaAnalysisException(AnalysisFailureReason reason, String message, Throwable cause) {
+        super(message, cause);
+        this.reason = reason;
+    }
+
+    /**
+     * Gets why the analysis failed.
+     * @return the failure reason.
+     */
+    public AnalysisFailureReason getReason() {
+        return reason;
+    }
+}
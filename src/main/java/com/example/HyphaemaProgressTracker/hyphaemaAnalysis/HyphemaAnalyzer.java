@@ -0,0 +1,73 @@
+package com.example.HyphaemaProgressTracker.hyphaemaAnalysis;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Engine that calculates the percentage of the iris and pupil area covered by hyphema on a photo.
+ * <p>
+ * Every engine produces the same result contract as the Python script {@code analyze_hyphema.py}:
+ * a map containing {@value #RESULT_PERCENTAGE} on success, or {@value #RESULT_ERROR} with a
+ * message if the photo could not be analyzed. Failures of the engine itself, such as a crash or a
+ * timeout, are thrown as {@link HyphemaAnalysisException} instead. A successful result may also contain
+ * the analyzed region as {@value #RESULT_MASK} (see {@link SegmentationMask}), which is kept so the
+ * region can be shown later without analyzing the photo again; engines that do not segment omit it.
+ * </p>
+ * <p>
+ * The engine in use is selected with the property {@code hyphaema.analyzer.engine} and injected
+ * wherever photos are analyzed:
+ * </p>
+ * <ul>
+ *     <li>{@code python} - the OpenCV script on a pool of warm Python workers (default)</li>
+ *     <li>{@code java} - an in-process estimate from the image raster</li>
+ *     <li>{@code stub} - configurable fixed or seeded-random results and latencies for load tests</li>
+ * </ul>
+ */
+public interface HyphemaAnalyzer {
+
+    /**
+     * Result key holding the percentage of the eye affected by hyphema.
+     */
+    String RESULT_PERCENTAGE = "hyphema_area_percentage";
+
+    /**
+     * Result key holding the optional hyphema region as a map with {@code width}, {@code height}
+     * and the row-major run-length encoded {@code counts}, see {@link SegmentationMask#fromResult(Object)}.
+     */
+    String RESULT_MASK = "hyphema_mask";
+
+    /**
+     * Result key holding an error message if the analysis failed.
+     */
+    String RESULT_ERROR = "error";
+
+    /**
+     * Gets the name of the engine, e.g. {@code python} or {@code java}.
+     *
+     * @return the engine name
+     */
+    String getName();
+
+    /**
+     * Gets the version of the engine and its model or configuration.
+     * <p>
+     * Cached analysis results are keyed by this version, so it must change whenever
+     * the engine could produce a different result for the same photo.
+     * </p>
+     *
+     * @return the engine version
+     */
+    String getVersion();
+
+    /**
+     * Analyzes the photo stored at the given path.
+     *
+     * @param photoPath the path of the photo to analyze
+     * @return the analysis result following the contract described above
+     * @throws HyphemaAnalysisException if the engine failed, timed out or was cancelled
+     * @throws IOException if the photo or the engine output cannot be read
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the engine
+     */
+    Map<String, Object> analyse(Path photoPath) throws HyphemaAnalysisException, IOException, InterruptedException;
+}
@@ -0,0 +1,414 @@
+package com.example.HyphaemaProgressTracker.hyphaemaAnalysis;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Prepares uploaded photos for the analysis engines.
+ * <p>
+ * Phones deliver photos with 12 to 50 megapixels, but the hyphema percentage does not need that
+ * resolution while the analysis time grows with the pixel count. Before a photo is analyzed it is
+ * therefore decoded, turned upright according to its EXIF orientation, optionally cropped to a
+ * centered square, scaled down so its longer side does not exceed {@code hyphaema.normalization.max-dimension}
+ * and re-encoded as JPEG. The original upload is kept untouched; the normalized copy is written to
+ * the folder {@code normalized} next to it.
+ * </p>
+ * <p>
+ * Large JPEGs are decoded with source subsampling, so the full resolution raster is never held in memory.
+ * </p>
+ * <p>
+ * The same decoding and scaling is used for the thumbnails and previews shown in the dashboard,
+ * see {@link #writeScaledCopy(Path, Path, int, float)}.
+ * </p>
+ *
+ * Metrics:
+ * <ul>
+ *     <li>{@code hyphaema.normalization.time} - time spent normalizing a photo</li>
+ *     <li>{@code hyphaema.normalization.bytes.saved} - bytes the analyzer does not have to read</li>
+ * </ul>
+ */
+@Component
+public class ImageNormalizer {
+
+    private static final Logger log = LoggerFactory.getLogger(ImageNormalizer.class);
+
+    private static final int EXIF_ORIENTATION_TAG = 0x0112;
+
+    private final boolean enabled;
+    private final int maxDimension;
+    private final boolean cropToSquare;
+    private final float jpegQuality;
+
+    private final Timer normalizationTimer;
+    private final Counter bytesSavedCounter;
+
+    /**
+     * Constructs the normalizer from the application configuration.
+     *
+     * @param meterRegistry the registry for normalization metrics
+     * @param enabled whether photos are normalized before the analysis
+     * @param maxDimension the maximum length of the longer image side in pixels
+     * @param cropToSquare whether photos are cropped to a centered square
+     * @param jpegQuality the JPEG quality of the normalized photo (0.0 - 1.0)
+     */
+    public ImageNormalizer(MeterRegistry meterRegistry,
+                           @Value("${hyphaema.normalization.enabled:true}") boolean enabled,
+                           @Value("${hyphaema.normalization.max-dimension:1600}") int maxDimension,
+                           @Value("${hyphaema.normalization.crop-to-square:false}") boolean cropToSquare,
+                           @Value("${hyphaema.normalization.jpeg-quality:0.92}") float jpegQuality) {
+        this.enabled = enabled;
+        this.maxDimension = maxDimension;
+        this.cropToSquare = cropToSquare;
+        this.jpegQuality = jpegQuality;
+        this.normalizationTimer = Timer.builder("hyphaema.normalization.time")
+                .description("Time spent normalizing photos before the analysis")
+                .register(meterRegistry);
+        this.bytesSavedCounter = Counter.builder("hyphaema.normalization.bytes.saved").baseUnit("bytes")
+                .description("Bytes saved by normalizing photos before the analysis")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Gets the version of the normalization settings.
+     * <p>
+     * Analysis results depend on these settings, so they are part of the analysis cache key.
+     * </p>
+     *
+     * @return the normalization version
+     */
+    public String getVersion() {
+        return enabled ? "norm-1/" + maxDimension + "/" + cropToSquare + "/" + jpegQuality : "original";
+    }
+
+    /**
+     * Normalizes a photo for the analysis.
+     * <p>
+     * If normalization is disabled or the photo cannot be decoded, the original path is returned
+     * and the engine decides how to handle the photo.
+     * </p>
+     *
+     * @param original the path of the uploaded photo
+     * @param name the file name (without extension) of the normalized copy, e.g. the content hash
+     * @return the path of the photo the analyzer should read
+     * @throws IOException if the photo cannot be read or the normalized copy cannot be written
+     */
+    public Path normalize(Path original, String name) throws IOException {
+        if (!enabled) {
+            return original;
+        }
+        long start = System.nanoTime();
+        BufferedImage image = prepare(original);
+        if (image == null) {
+            return original;
+        }
+
+        Path normalizedDir = original.resolveSibling("normalized");
+        Files.createDirectories(normalizedDir);
+        Path normalized = normalizedDir.resolve(name + ".jpg");
+        writeJpeg(image, normalized, jpegQuality);
+
+        long elapsed = System.nanoTime() - start;
+        long saved = Files.size(original) - Files.size(normalized);
+        normalizationTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        if (saved > 0) {
+            bytesSavedCounter.increment(saved);
+        }
+        log.debug("Normalized {} to {}x{} in {} ms, {} bytes saved",
+                original.getFileName(), image.getWidth(), image.getHeight(), elapsed / 1_000_000, saved);
+        return normalized;
+    }
+
+    /**
+     * Decodes a photo as the engine sees it, e.g. to draw the analyzed region on it.
+     * <p>
+     * The image equals the normalized copy at the time of the call; if normalization is disabled,
+     * it is the decoded original.
+     * </p>
+     *
+     * @param original the path of the uploaded photo
+     * @return the decoded image, or null if the photo cannot be decoded
+     * @throws IOException if the photo cannot be read
+     */
+    public BufferedImage readAsAnalyzed(Path original) throws IOException {
+        return enabled ? prepare(original) : ImageIO.read(original.toFile());
+    }
+
+    /**
+     * Decodes, orients, crops and scales a photo according to the normalization settings.
+     */
+    private BufferedImage prepare(Path original) throws IOException {
+        BufferedImage image = decodeSubsampled(original, maxDimension);
+        if (image == null) {
+            return null;
+        }
+        image = orient(image, readExifOrientation(original));
+        if (cropToSquare) {
+            image = cropToCenteredSquare(image);
+        }
+        return scaleDown(image, maxDimension);
+    }
+
+    /**
+     * Writes an upright, scaled down JPEG copy of a photo, e.g. a thumbnail.
+     * <p>
+     * Unlike {@link #normalize(Path, String)}, the copy is written regardless of whether normalization
+     * is enabled and is never cropped. Photos smaller than the requested size are not scaled up.
+     * </p>
+     *
+     * @param original the path of the uploaded photo
+     * @param target the path of the copy
+     * @param maxDimension the maximum length of the longer side of the copy in pixels
+     * @param quality the JPEG quality of the copy (0.0 - 1.0)
+     * @return true if the copy was written, false if the photo cannot be decoded
+     * @throws IOException if the photo cannot be read or the copy cannot be written
+     */
+    public boolean writeScaledCopy(Path original, Path target, int maxDimension, float quality) throws IOException {
+        BufferedImage image = decodeSubsampled(original, maxDimension);
+        if (image == null) {
+            return false;
+        }
+        image = orient(image, readExifOrientation(original));
+        writeJpeg(scaleDown(image, maxDimension), target, quality);
+        return true;
+    }
+
+    /**
+     * Decodes the photo, skipping rows and columns so that the decoded raster is at most about
+     * twice the target size; the remaining scaling is done with interpolation.
+     */
+    private static BufferedImage decodeSubsampled(Path photo, int maxDimension) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(photo.toFile())) {
+            if (input == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int longerSide = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, longerSide / (maxDimension * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scaleDown(BufferedImage image, int maxDimension) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        // Halve step by step first, so bilinear interpolation never skips source pixels.
+        while (Math.max(width, height) > maxDimension * 2) {
+            width = Math.max(1, width / 2);
+            height = Math.max(1, height / 2);
+            image = resize(image, width, height);
+        }
+        int longerSide = Math.max(width, height);
+        if (longerSide > maxDimension) {
+            double scale = (double) maxDimension / longerSide;
+            image = resize(image, Math.max(1, (int) Math.round(width * scale)), Math.max(1, (int) Math.round(height * scale)));
+        }
+        return image;
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, width, height, null);
+        graphics.dispose();
+        return resized;
+    }
+
+    private static BufferedImage cropToCenteredSquare(BufferedImage image) {
+        int side = Math.min(image.getWidth(), image.getHeight());
+        return image.getSubimage((image.getWidth() - side) / 2, (image.getHeight() - side) / 2, side, side);
+    }
+
+    /**
+     * Applies an EXIF orientation (1-8), so the returned image is upright.
+     */
+    static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation < 2 || orientation > 8) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swapsSides = orientation >= 5;
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> transform.scale(-1, 1);
+            case 3 -> transform.rotate(Math.PI);
+            case 4 -> transform.scale(1, -1);
+            case 5 -> {
+                transform.rotate(Math.PI / 2);
+                transform.scale(1, -1);
+            }
+            case 6 -> transform.rotate(Math.PI / 2);
+            case 7 -> {
+                transform.rotate(-Math.PI / 2);
+                transform.scale(1, -1);
+            }
+            default -> transform.rotate(-Math.PI / 2);
+        }
+        int targetWidth = swapsSides ? height : width;
+        int targetHeight = swapsSides ? width : height;
+        // Move the transformed image back into the visible area.
+        AffineTransform placement = new AffineTransform();
+        Rectangle2D bounds = transform.createTransformedShape(
+                new Rectangle(0, 0, width, height)).getBounds2D();
+        placement.translate(-bounds.getX(), -bounds.getY());
+        placement.concatenate(transform);
+
+        BufferedImage oriented = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = oriented.createGraphics();
+        graphics.drawImage(image, placement, null);
+        graphics.dispose();
+        return oriented;
+    }
+
+    private static void writeJpeg(BufferedImage image, Path target, float quality) throws IOException {
+        try (OutputStream out = Files.newOutputStream(target)) {
+            writeJpeg(image, out, quality);
+        }
+    }
+
+    /**
+     * Encodes an image as JPEG.
+     *
+     * @param image the image; transparency is flattened
+     * @param target the stream to write to, left open
+     * @param quality the JPEG quality (0.0 - 1.0)
+     * @throws IOException if the image cannot be written
+     */
+    public static void writeJpeg(BufferedImage image, OutputStream target, float quality) throws IOException {
+        if (image.getType() != BufferedImage.TYPE_INT_RGB && image.getType() != BufferedImage.TYPE_3BYTE_BGR) {
+            // JPEG has no alpha channel, so images with transparency are flattened first.
+            image = resize(image, image.getWidth(), image.getHeight());
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Reads the EXIF orientation of a JPEG from its APP1 segment.
+     *
+     * @param photo the path of the photo
+     * @return the orientation (1-8), or 1 if the photo has none
+     */
+    static int readExifOrientation(Path photo) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(photo)))) {
+            if (in.readUnsignedShort() != 0xFFD8) {
+                return 1;
+            }
+            while (true) {
+                int marker = in.readUnsignedShort();
+                if ((marker & 0xFF00) != 0xFF00 || marker == 0xFFDA) {
+                    return 1; // Start of the image data, no EXIF segment before it.
+                }
+                int length = in.readUnsignedShort() - 2;
+                if (marker != 0xFFE1) {
+                    skipFully(in, length);
+                    continue;
+                }
+                byte[] segment = new byte[length];
+                in.readFully(segment);
+                return parseExifOrientation(segment);
+            }
+        } catch (IOException e) {
+            return 1;
+        }
+    }
+
+    private static int parseExifOrientation(byte[] segment) {
+        // "Exif\0\0" followed by a TIFF header.
+        if (segment.length < 14 || segment[0] != 'E' || segment[1] != 'x' || segment[2] != 'i' || segment[3] != 'f') {
+            return 1;
+        }
+        int tiff = 6;
+        boolean littleEndian = segment[tiff] == 'I';
+        int ifd = tiff + readInt(segment, tiff + 4, littleEndian);
+        if (ifd + 2 > segment.length) {
+            return 1;
+        }
+        int entries = readShort(segment, ifd, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > segment.length) {
+                return 1;
+            }
+            if (readShort(segment, entry, littleEndian) == EXIF_ORIENTATION_TAG) {
+                return readShort(segment, entry + 8, littleEndian);
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean littleEndian) {
+        int first = data[offset] & 0xFF;
+        int second = data[offset + 1] & 0xFF;
+        return littleEndian ? second << 8 | first : first << 8 | second;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean littleEndian) {
+        int high = readShort(data, littleEndian ? offset + 2 : offset, littleEndian);
+        int low = readShort(data, littleEndian ? offset : offset + 2, littleEndian);
+        return high << 16 | low;
+    }
+
+    private static void skipFully(InputStream in, int length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            remaining -= skipped;
+        }
+    }
+}
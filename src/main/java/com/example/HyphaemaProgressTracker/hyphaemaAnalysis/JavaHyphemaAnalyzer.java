@@ -0,0 +1,277 @@
+package com.example.HyphaemaProgressTracker.hyphaemaAnalysis;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import javax.imageio.ImageIO;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pure Java {@link HyphemaAnalyzer} that estimates the hyphema area directly from the decoded image raster.
+ * <p>
+ * The photo is expected to show the eye with the iris and pupil fully visible, as the upload guidelines
+ * require. The iris and pupil area is approximated by a centered circle, and every pixel inside that
+ * circle whose red channel clearly dominates green and blue is counted as blood. The result is the
+ * share of blood pixels within the circle. The blood pixels are returned as {@value #RESULT_MASK}.
+ * </p>
+ * <p>
+ * Pixels are read straight from the primitive {@code int[]} or {@code byte[]} backing the raster, without
+ * allocating per-pixel objects, and rows are counted in parallel on a dedicated {@link ForkJoinPool}.
+ * </p>
+ * <p>
+ * The engine is enabled with {@code hyphaema.analyzer.engine=java}.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "hyphaema.analyzer.engine", havingValue = "java")
+public class JavaHyphemaAnalyzer implements HyphemaAnalyzer {
+
+    private final ForkJoinPool pool;
+    private final double regionScale;
+    private final int minRed;
+    private final int redDominancePercent;
+
+    /**
+     * Constructs the analyzer from the application configuration.
+     *
+     * @param parallelism the number of threads used to scan rows, 0 for the number of processors
+     * @param regionScale the radius of the analyzed circle relative to half the shorter image side
+     * @param minRed the minimum red value of a blood pixel (0-255)
+     * @param redDominancePercent how much stronger red must be than green and blue, in percent (e.g. 140)
+     */
+    public JavaHyphemaAnalyzer(@Value("${hyphaema.java-analyzer.parallelism:0}") int parallelism,
+                               @Value("${hyphaema.java-analyzer.region-scale:0.9}") double regionScale,
+                               @Value("${hyphaema.java-analyzer.min-red:60}") int minRed,
+                               @Value("${hyphaema.java-analyzer.red-dominance-percent:140}") int redDominancePercent) {
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.regionScale = regionScale;
+        this.minRed = minRed;
+        this.redDominancePercent = redDominancePercent;
+    }
+
+    /**
+     * Shuts down the row scanning pool.
+     */
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Override
+    public String getName() {
+        return "java";
+    }
+
+    @Override
+    public String getVersion() {
+        return "java-2/" + regionScale + "/" + minRed + "/" + redDominancePercent;
+    }
+
+    /**
+     * Decodes the photo and calculates the hyphema area percentage.
+     *
+     * @param photoPath the path of the photo to analyze
+     * @return a map with {@value #RESULT_PERCENTAGE} and {@value #RESULT_MASK}, or {@value #RESULT_ERROR} if the photo cannot be decoded
+     * @throws IOException if the photo cannot be read
+     */
+    @Override
+    public Map<String, Object> analyse(Path photoPath) throws IOException {
+        BufferedImage image = ImageIO.read(photoPath.toFile());
+        if (image == null) {
+            Map<String, Object> result = new HashMap<>();
+            result.put(RESULT_ERROR, "Bildformat wird nicht unterstützt");
+            return result;
+        }
+        return analyse(image);
+    }
+
+    /**
+     * Calculates the hyphema area percentage of a decoded photo.
+     *
+     * @param image the decoded photo
+     * @return a map with {@value #RESULT_PERCENTAGE} and {@value #RESULT_MASK}
+     */
+    Map<String, Object> analyse(BufferedImage image) {
+        Map<String, Object> result = new HashMap<>();
+        int wordsPerRow = (image.getWidth() + 63) >>> 6;
+        long[] bits = new long[wordsPerRow * image.getHeight()];
+        long[] counts = pool.invoke(new RowCounter(PixelAccess.of(image), 0, image.getHeight(), bits, wordsPerRow));
+        result.put(RESULT_PERCENTAGE, percentageOf(counts));
+        result.put(RESULT_MASK, SegmentationMask.fromBits(image.getWidth(), image.getHeight(), bits, wordsPerRow).toResult());
+        return result;
+    }
+
+    private static double percentageOf(long[] counts) {
+        if (counts[0] == 0) {
+            return 0.0;
+        }
+        return Math.round(counts[1] * 10000.0 / counts[0]) / 100.0;
+    }
+
+    /**
+     * Counts pixels in the analyzed circle and blood pixels for a band of rows, splitting large bands.
+     * Blood pixels are also marked in the bit set; every row starts at a word boundary, so tasks never
+     * write to the same word.
+     */
+    private final class RowCounter extends RecursiveTask<long[]> {
+
+        private static final int MIN_ROWS_PER_TASK = 32;
+
+        private final PixelAccess pixels;
+        private final int fromRow;
+        private final int toRow;
+        private final long[] bits;
+        private final int wordsPerRow;
+
+        RowCounter(PixelAccess pixels, int fromRow, int toRow, long[] bits, int wordsPerRow) {
+            this.pixels = pixels;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.bits = bits;
+            this.wordsPerRow = wordsPerRow;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (toRow - fromRow > MIN_ROWS_PER_TASK) {
+                int middle = (fromRow + toRow) >>> 1;
+                RowCounter upper = new RowCounter(pixels, fromRow, middle, bits, wordsPerRow);
+                upper.fork();
+                long[] lower = new RowCounter(pixels, middle, toRow, bits, wordsPerRow).compute();
+                long[] upperCounts = upper.join();
+                lower[0] += upperCounts[0];
+                lower[1] += upperCounts[1];
+                return lower;
+            }
+            return countRows();
+        }
+
+        private long[] countRows() {
+            int width = pixels.width;
+            double centerX = (width - 1) / 2.0;
+            double centerY = (pixels.height - 1) / 2.0;
+            double radius = Math.min(width, pixels.height) / 2.0 * regionScale;
+            double radiusSquared = radius * radius;
+
+            long region = 0;
+            long blood = 0;
+            for (int y = fromRow; y < toRow; y++) {
+                double dy = y - centerY;
+                double remaining = radiusSquared - dy * dy;
+                if (remaining < 0) {
+                    continue;
+                }
+                // Only the horizontal span of the circle in this row is visited.
+                double halfSpan = Math.sqrt(remaining);
+                int fromX = Math.max(0, (int) Math.ceil(centerX - halfSpan));
+                int toX = Math.min(width - 1, (int) Math.floor(centerX + halfSpan));
+                for (int x = fromX; x <= toX; x++) {
+                    int rgb = pixels.rgb(x, y);
+                    int r = (rgb >> 16) & 0xFF;
+                    int g = (rgb >> 8) & 0xFF;
+                    int b = rgb & 0xFF;
+                    if (r >= minRed && r * 100 >= g * redDominancePercent && r * 100 >= b * redDominancePercent) {
+                        blood++;
+                        bits[y * wordsPerRow + (x >>> 6)] |= 1L << x;
+                    }
+                }
+                region += toX - fromX + 1;
+            }
+            return new long[] {region, blood};
+        }
+    }
+
+    /**
+     * Direct read access to the primitive pixel array backing a {@link BufferedImage}.
+     * <p>
+     * Packed integer rasters and interleaved byte rasters are read in place; any other layout
+     * is converted once to {@link BufferedImage#TYPE_INT_RGB}.
+     * </p>
+     */
+    static final class PixelAccess {
+
+        final int width;
+        final int height;
+        private final int[] ints;
+        private final byte[] bytes;
+        private final int offset;
+        private final int scanlineStride;
+        private final int pixelStride;
+        private final int redOffset;
+        private final int greenOffset;
+        private final int blueOffset;
+
+        private PixelAccess(int width, int height, int[] ints, byte[] bytes, int offset, int scanlineStride,
+                            int pixelStride, int redOffset, int greenOffset, int blueOffset) {
+            this.width = width;
+            this.height = height;
+            this.ints = ints;
+            this.bytes = bytes;
+            this.offset = offset;
+            this.scanlineStride = scanlineStride;
+            this.pixelStride = pixelStride;
+            this.redOffset = redOffset;
+            this.greenOffset = greenOffset;
+            this.blueOffset = blueOffset;
+        }
+
+        static PixelAccess of(BufferedImage image) {
+            Raster raster = image.getRaster();
+            int type = image.getType();
+            if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+                    && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sampleModel
+                    && raster.getDataBuffer() instanceof DataBufferInt buffer) {
+                int offset = buffer.getOffset()
+                        - raster.getSampleModelTranslateY() * sampleModel.getScanlineStride()
+                        - raster.getSampleModelTranslateX();
+                return new PixelAccess(image.getWidth(), image.getHeight(), buffer.getData(), null, offset,
+                        sampleModel.getScanlineStride(), 1, 0, 0, 0);
+            }
+            if ((type == BufferedImage.TYPE_3BYTE_BGR || type == BufferedImage.TYPE_4BYTE_ABGR)
+                    && raster.getSampleModel() instanceof ComponentSampleModel sampleModel
+                    && raster.getDataBuffer() instanceof DataBufferByte buffer) {
+                int[] bandOffsets = sampleModel.getBandOffsets();
+                int offset = buffer.getOffset()
+                        - raster.getSampleModelTranslateY() * sampleModel.getScanlineStride()
+                        - raster.getSampleModelTranslateX() * sampleModel.getPixelStride();
+                return new PixelAccess(image.getWidth(), image.getHeight(), null, buffer.getData(), offset,
+                        sampleModel.getScanlineStride(), sampleModel.getPixelStride(),
+                        bandOffsets[0], bandOffsets[1], bandOffsets[2]);
+            }
+            BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = converted.createGraphics();
+            graphics.drawImage(image, 0, 0, null);
+            graphics.dispose();
+            return of(converted);
+        }
+
+        /**
+         * Reads a pixel as packed {@code 0xRRGGBB}.
+         */
+        int rgb(int x, int y) {
+            if (ints != null) {
+                return ints[offset + y * scanlineStride + x];
+            }
+            int index = offset + y * scanlineStride + x * pixelStride;
+            return (bytes[index + redOffset] & 0xFF) << 16
+                    | (bytes[index + greenOffset] & 0xFF) << 8
+                    | (bytes[index + blueOffset] & 0xFF);
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.HyphaemaProgressTracker.hyphaemaAnalysis;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The hyphema region found by an engine, as a run-length encoded binary mask.
+ * <p>
+ * The mask has the size of the photo the engine analyzed. Its pixels are scanned row by row (row-major,
+ * NumPy's default C order), and the mask is stored as the lengths of alternating runs of background and
+ * hyphema pixels, starting with background (a mask starting with hyphema begins with a run of length 0).
+ * The Python script can produce it from {@code mask.ravel()} with a few lines of NumPy. This is not the
+ * RLE of COCO: pycocotools scans column by column (Fortran order), and its counts would describe a
+ * transposed mask here. As blood settles as one contiguous region, a mask usually needs a few runs per
+ * row instead of one bit per pixel.
+ * </p>
+ * <p>
+ * Engines return the mask as {@value HyphemaAnalyzer#RESULT_MASK}, a map with {@code width}, {@code height}
+ * and {@code counts}. It is persisted in a binary form: the magic {@code HM}, a format version and the
+ * width, height, number of runs and all runs as unsigned LEB128 varints, so runs shorter than 128 pixels
+ * take one byte.
+ * </p>
+ */
+public final class SegmentationMask {
+
+    private static final byte MAGIC_0 = 'H';
+    private static final byte MAGIC_1 = 'M';
+    private static final byte FORMAT_VERSION = 1;
+
+    private final int width;
+    private final int height;
+    private final int[] runs; // Alternating background and hyphema run lengths, row-major, starting with background.
+
+    private SegmentationMask(int width, int height, int[] runs) {
+        long total = 0;
+        for (int run : runs) {
+            if (run < 0) {
+                throw new IllegalArgumentException("Negative run length " + run);
+            }
+            total += run;
+        }
+        if (width <= 0 || height <= 0 || total != (long) width * height) {
+            throw new IllegalArgumentException("Runs cover " + total + " pixels, expected " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.runs = runs;
+    }
+
+    /**
+     * Creates a mask from a bit set with one word-aligned row per image row.
+     *
+     * @param width the mask width in pixels
+     * @param height the mask height in pixels
+     * @param bits the hyphema pixels; pixel {@code (x, y)} is bit {@code x % 64} of word {@code y * wordsPerRow + x / 64}
+     * @param wordsPerRow the number of words per row, at least {@code ceil(width / 64)}
+     * @return the run-length encoded mask
+     */
+    public static SegmentationMask fromBits(int width, int height, long[] bits, int wordsPerRow) {
+        RunBuilder builder = new RunBuilder();
+        for (int y = 0; y < height; y++) {
+            int rowStart = y * wordsPerRow;
+            int x = 0;
+            while (x < width) {
+                long word = bits[rowStart + (x >>> 6)];
+                int bit = x & 63;
+                int chunk = Math.min(64 - bit, width - x);
+                long window = word >>> bit;
+                if (chunk < 64) {
+                    window &= (1L << chunk) - 1;
+                }
+                // Runs inside the word are found by counting trailing zeros or ones, not bit by bit.
+                int i = 0;
+                while (i < chunk) {
+                    long rest = window >>> i;
+                    boolean value = (rest & 1L) != 0;
+                    int length = Math.min(Long.numberOfTrailingZeros(value ? ~rest : rest), chunk - i);
+                    builder.append(value, length);
+                    i += length;
+                }
+                x += chunk;
+            }
+        }
+        return new SegmentationMask(width, height, builder.toArray());
+    }
+
+    /**
+     * Creates a mask from the {@value HyphemaAnalyzer#RESULT_MASK} entry of an analysis result.
+     * <p>
+     * The counts must be in row-major order; column-major counts, as written by pycocotools, cover the
+     * same number of pixels and cannot be told apart.
+     * </p>
+     *
+     * @param result the map with {@code width}, {@code height} and {@code counts}
+     * @return the mask
+     * @throws IllegalArgumentException if the entry is not a valid mask
+     */
+    public static SegmentationMask fromResult(Object result) {
+        if (!(result instanceof Map<?, ?> map)
+                || !(map.get("width") instanceof Number width)
+                || !(map.get("height") instanceof Number height)
+                || !(map.get("counts") instanceof List<?> counts)) {
+            throw new IllegalArgumentException("Mask needs width, height and counts");
+        }
+        int[] runs = new int[counts.size()];
+        for (int i = 0; i < runs.length; i++) {
+            if (!(counts.get(i) instanceof Number count)) {
+                throw new IllegalArgumentException("Mask counts must be numbers");
+            }
+            runs[i] = count.intValue();
+        }
+        return new SegmentationMask(width.intValue(), height.intValue(), runs);
+    }
+
+    /**
+     * Reads a mask written by {@link #toBytes()}.
+     *
+     * @param bytes the binary mask
+     * @return the mask
+     * @throws IllegalArgumentException if the bytes are not a valid mask
+     */
+    public static SegmentationMask fromBytes(byte[] bytes) {
+        if (bytes.length < 3 || bytes[0] != MAGIC_0 || bytes[1] != MAGIC_1 || bytes[2] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Not a segmentation mask");
+        }
+        int[] position = {3};
+        int width = readVarint(bytes, position);
+        int height = readVarint(bytes, position);
+        int[] runs = new int[readVarint(bytes, position)];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = readVarint(bytes, position);
+        }
+        return new SegmentationMask(width, height, runs);
+    }
+
+    /**
+     * Encodes the mask in its binary form.
+     *
+     * @return the binary mask
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + runs.length * 2);
+        out.write(MAGIC_0);
+        out.write(MAGIC_1);
+        out.write(FORMAT_VERSION);
+        writeVarint(out, width);
+        writeVarint(out, height);
+        writeVarint(out, runs.length);
+        for (int run : runs) {
+            writeVarint(out, run);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Converts the mask to the {@value HyphemaAnalyzer#RESULT_MASK} entry of an analysis result.
+     *
+     * @return a map with {@code width}, {@code height} and {@code counts}
+     */
+    public Map<String, Object> toResult() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("width", width);
+        result.put("height", height);
+        List<Integer> counts = new ArrayList<>(runs.length);
+        for (int run : runs) {
+            counts.add(run);
+        }
+        result.put("counts", counts);
+        return result;
+    }
+
+    /**
+     * Paints the hyphema pixels in one color on an otherwise transparent image of the mask size.
+     *
+     * @param argb the color of hyphema pixels as packed {@code 0xAARRGGBB}
+     * @return the overlay image
+     */
+    public BufferedImage toOverlay(int argb) {
+        BufferedImage overlay = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) overlay.getRaster().getDataBuffer()).getData();
+        int position = 0;
+        for (int i = 0; i < runs.length; i++) {
+            if ((i & 1) == 1) {
+                Arrays.fill(pixels, position, position + runs[i], argb);
+            }
+            position += runs[i];
+        }
+        return overlay;
+    }
+
+    /**
+     * Counts the hyphema pixels.
+     *
+     * @return the number of pixels in the hyphema region
+     */
+    public long countHyphemaPixels() {
+        long count = 0;
+        for (int i = 1; i < runs.length; i += 2) {
+            count += runs[i];
+        }
+        return count;
+    }
+
+    /**
+     * Gets the mask width.
+     * @return the width in pixels.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Gets the mask height.
+     * @return the height in pixels.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Gets the number of runs.
+     * @return the run count.
+     */
+    public int getRunCount() {
+        return runs.length;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] bytes, int[] position) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (position[0] >= bytes.length) {
+                throw new IllegalArgumentException("Truncated segmentation mask");
+            }
+            byte b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed segmentation mask");
+    }
+
+    /**
+     * Collects alternating runs, merging consecutive appends of the same value.
+     */
+    private static final class RunBuilder {
+
+        private int[] runs = new int[64];
+        private int size = 1; // runs[0] is the first background run, possibly empty.
+        private boolean current; // Value of the run at size - 1.
+
+        void append(boolean value, int length) {
+            if (value != current) {
+                if (size == runs.length) {
+                    runs = Arrays.copyOf(runs, size * 2);
+                }
+                size++;
+                current = value;
+            }
+            runs[size - 1] += length;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(runs, size);
+        }
+    }
+}
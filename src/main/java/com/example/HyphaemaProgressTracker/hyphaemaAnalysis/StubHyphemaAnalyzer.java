@@ -0,0 +1,152 @@
+package com.example.HyphaemaProgressTracker.hyphaemaAnalysis;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link HyphemaAnalyzer} that does not look at the photo at all, for load and performance tests.
+ * <p>
+ * With the stub, the upload, storage, caching and persistence paths can be benchmarked on any
+ * machine without Python or OpenCV, and without the analysis time dominating the measurement.
+ * Everything the stub returns is reproducible from its configuration:
+ * </p>
+ * <ul>
+ *     <li>{@code hyphaema.stub-analyzer.percentage} - the percentage returned for every photo,
+ *     or a negative value for a seeded random percentage that is stable per photo</li>
+ *     <li>{@code hyphaema.stub-analyzer.seed} - the seed of all random values</li>
+ *     <li>{@code hyphaema.stub-analyzer.error-rate} - the share of photos answered with {@value #RESULT_ERROR} (0.0 - 1.0)</li>
+ *     <li>{@code hyphaema.stub-analyzer.latency-distribution} - {@code constant}, {@code uniform},
+ *     {@code exponential} or {@code lognormal}</li>
+ *     <li>{@code hyphaema.stub-analyzer.latency-ms} - the constant, mean (uniform, exponential) or median (lognormal) latency</li>
+ *     <li>{@code hyphaema.stub-analyzer.latency-jitter-ms} - the half-width of the uniform distribution</li>
+ *     <li>{@code hyphaema.stub-analyzer.latency-sigma} - the shape of the lognormal distribution</li>
+ *     <li>{@code hyphaema.stub-analyzer.latency-max-ms} - the upper bound of every latency</li>
+ * </ul>
+ * <p>
+ * The latency is simulated with {@link Thread#sleep(long)}, so the calling thread is blocked like it is
+ * while waiting for a Python worker, and cancelling the analysis interrupts the wait. The engine is
+ * enabled with {@code hyphaema.analyzer.engine=stub}.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "hyphaema.analyzer.engine", havingValue = "stub")
+public class StubHyphemaAnalyzer implements HyphemaAnalyzer {
+
+    /**
+     * Distribution of the simulated analysis time.
+     */
+    public enum LatencyDistribution {
+        CONSTANT,
+        UNIFORM,
+        EXPONENTIAL,
+        LOGNORMAL
+    }
+
+    private final double percentage;
+    private final long seed;
+    private final double errorRate;
+    private final LatencyDistribution latencyDistribution;
+    private final long latencyMillis;
+    private final long latencyJitterMillis;
+    private final double latencySigma;
+    private final long latencyMaxMillis;
+
+    private final AtomicLong analyses = new AtomicLong(); // Number of analyses, mixed into the latency seed.
+
+    /**
+     * Constructs the stub from the application configuration.
+     *
+     * @param percentage the fixed percentage, or a negative value for seeded random percentages
+     * @param seed the seed of all random values
+     * @param errorRate the share of photos answered with an error
+     * @param latencyDistribution the name of the latency distribution
+     * @param latencyMillis the constant, mean or median latency
+     * @param latencyJitterMillis the half-width of the uniform distribution
+     * @param latencySigma the shape of the lognormal distribution
+     * @param latencyMaxMillis the upper bound of every latency
+     */
+    public StubHyphemaAnalyzer(@Value("${hyphaema.stub-analyzer.percentage:-1}") double percentage,
+                               @Value("${hyphaema.stub-analyzer.seed:42}") long seed,
+                               @Value("${hyphaema.stub-analyzer.error-rate:0.0}") double errorRate,
+                               @Value("${hyphaema.stub-analyzer.latency-distribution:constant}") String latencyDistribution,
+                               @Value("${hyphaema.stub-analyzer.latency-ms:200}") long latencyMillis,
+                               @Value("${hyphaema.stub-analyzer.latency-jitter-ms:0}") long latencyJitterMillis,
+                               @Value("${hyphaema.stub-analyzer.latency-sigma:0.5}") double latencySigma,
+                               @Value("${hyphaema.stub-analyzer.latency-max-ms:30000}") long latencyMaxMillis) {
+        this.percentage = percentage;
+        this.seed = seed;
+        this.errorRate = errorRate;
+        this.latencyDistribution = LatencyDistribution.valueOf(latencyDistribution.trim().toUpperCase(Locale.ROOT));
+        this.latencyMillis = latencyMillis;
+        this.latencyJitterMillis = latencyJitterMillis;
+        this.latencySigma = latencySigma;
+        this.latencyMaxMillis = latencyMaxMillis;
+    }
+
+    @Override
+    public String getName() {
+        return "stub";
+    }
+
+    @Override
+    public String getVersion() {
+        return "stub-1/" + percentage + "/" + seed + "/" + errorRate;
+    }
+
+    /**
+     * Waits for a simulated analysis time and returns the configured result.
+     * <p>
+     * The result depends only on the configuration and the file name of the photo, which is the
+     * content hash for normalized photos, so the same photo always gets the same result.
+     * </p>
+     *
+     * @param photoPath the path of the photo, only its file name is used
+     * @return a map with {@value #RESULT_PERCENTAGE}, or {@value #RESULT_ERROR} for simulated failures
+     * @throws InterruptedException if the analysis is cancelled while simulating the latency
+     */
+    @Override
+    public Map<String, Object> analyse(Path photoPath) throws InterruptedException {
+        Thread.sleep(nextLatencyMillis());
+
+        SplittableRandom photoRandom = new SplittableRandom(seed ^ photoPath.getFileName().toString().hashCode());
+        Map<String, Object> result = new HashMap<>();
+        if (photoRandom.nextDouble() < errorRate) {
+            result.put(RESULT_ERROR, "Auge wurde nicht erkannt");
+            return result;
+        }
+        double value = percentage >= 0 ? percentage : photoRandom.nextDouble(100.0);
+        result.put(RESULT_PERCENTAGE, Math.round(value * 100.0) / 100.0);
+        return result;
+    }
+
+    /**
+     * Draws the next latency; the sequence of latencies is the same in every run with the same seed.
+     */
+    long nextLatencyMillis() {
+        SplittableRandom random = new SplittableRandom(seed + analyses.getAndIncrement());
+        double latency = switch (latencyDistribution) {
+            case CONSTANT -> latencyMillis;
+            case UNIFORM -> latencyMillis - latencyJitterMillis + random.nextDouble() * 2 * latencyJitterMillis;
+            case EXPONENTIAL -> -latencyMillis * Math.log(1.0 - random.nextDouble());
+            case LOGNORMAL -> latencyMillis * Math.exp(latencySigma * gaussian(random));
+        };
+        return Math.max(0, Math.min(latencyMaxMillis, Math.round(latency)));
+    }
+
+    /**
+     * Standard normal value using the Box-Muller transform.
+     */
+    private static double gaussian(SplittableRandom random) {
+        double u1 = 1.0 - random.nextDouble(); // (0, 1], so the logarithm is finite
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2.0 * Math.PI * u2);
+    }
+}
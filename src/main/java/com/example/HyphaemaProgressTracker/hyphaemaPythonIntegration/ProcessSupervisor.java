@@ -0,0 +1,249 @@
+package com.example.HyphaemaProgressTracker.hyphaemaPythonIntegration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.HyphaemaProgressTracker.enums.AnalysisFailureReason;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalysisException;
+import com.example.HyphaemaProgressTracker.threadConfiguration.AnalysisExecutors;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Supervises external analyzer processes.
+ * <p>
+ * All blocking reads from a process happen on a separate I/O thread while the caller waits
+ * for them with a wall-clock deadline ({@code hyphaema.analysis.timeout}). This way:
+ * </p>
+ * <ul>
+ *     <li>standard output and standard error are drained concurrently, so no pipe can fill up and block the script</li>
+ *     <li>a hung analysis is killed, together with all processes it started, once its deadline has passed</li>
+ *     <li>an interrupted caller, e.g. because the client disconnected, kills the process instead of leaving it running</li>
+ * </ul>
+ * Every failure is reported as a {@link HyphemaAnalysisException} with a typed {@link AnalysisFailureReason}.
+ *
+ * Metrics:
+ * <ul>
+ *     <li>{@code hyphaema.analysis.processes.active} - analyses currently waiting on a process</li>
+ *     <li>{@code hyphaema.analysis.processes.hung} - analyses that exceeded their deadline</li>
+ *     <li>{@code hyphaema.analysis.processes.killed} - killed process trees, tagged with {@code reason=timeout|cancelled}</li>
+ * </ul>
+ */
+@Component
+public class ProcessSupervisor {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessSupervisor.class);
+
+    private static final long KILL_GRACE_MILLIS = 5000;
+    private static final int MAX_CAPTURED_BYTES = 1024 * 1024;
+
+    private final Duration timeout;
+    private final ExecutorService ioExecutor;
+    private final AtomicInteger activeProcesses = new AtomicInteger();
+
+    private final Counter hungCounter;
+    private final Counter killedOnTimeoutCounter;
+    private final Counter killedOnCancelCounter;
+
+    /**
+     * Constructs the supervisor from the application configuration.
+     *
+     * @param meterRegistry the registry for process metrics
+     * @param analysisExecutors the factory creating platform or virtual threads for the process I/O
+     * @param timeout the wall-clock deadline of a single analysis
+     */
+    public ProcessSupervisor(MeterRegistry meterRegistry,
+                             AnalysisExecutors analysisExecutors,
+                             @Value("${hyphaema.analysis.timeout:60s}") Duration timeout) {
+        this.timeout = timeout;
+        this.ioExecutor = analysisExecutors.newUnboundedExecutor("process-io");
+        Gauge.builder("hyphaema.analysis.processes.active", activeProcesses, AtomicInteger::get)
+                .description("Analyses currently waiting on an analyzer process")
+                .register(meterRegistry);
+        this.hungCounter = Counter.builder("hyphaema.analysis.processes.hung")
+                .description("Analyses that did not finish before their deadline")
+                .register(meterRegistry);
+        this.killedOnTimeoutCounter = Counter.builder("hyphaema.analysis.processes.killed").tag("reason", "timeout")
+                .description("Analyzer process trees killed by the supervisor")
+                .register(meterRegistry);
+        this.killedOnCancelCounter = Counter.builder("hyphaema.analysis.processes.killed").tag("reason", "cancelled")
+                .description("Analyzer process trees killed by the supervisor")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stops the I/O threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        ioExecutor.shutdownNow();
+    }
+
+    /**
+     * Gets the wall-clock deadline of a single analysis.
+     * @return the analysis timeout.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Runs a process to completion, draining its standard output and standard error concurrently.
+     *
+     * @param command the command line of the process
+     * @return the exit code and the captured output of the process
+     * @throws HyphemaAnalysisException if the process exceeded the deadline or the caller was interrupted
+     * @throws IOException if the process cannot be started or its output cannot be read
+     */
+    public ProcessOutput run(List<String> command) throws HyphemaAnalysisException, IOException {
+        Process process = new ProcessBuilder(command).start();
+        process.getOutputStream().close();
+        Future<String> stdout = ioExecutor.submit(() -> readAll(process.getInputStream()));
+        Future<String> stderr = ioExecutor.submit(() -> readAll(process.getErrorStream()));
+        try {
+            // Process.waitFor() waits on a monitor and would pin a virtual thread; onExit() does not.
+            return await(process, () -> new ProcessOutput(process.onExit().get().exitValue(), stdout.get(), stderr.get()),
+                    timeout);
+        } finally {
+            stdout.cancel(true);
+            stderr.cancel(true);
+        }
+    }
+
+    /**
+     * Waits for a blocking interaction with a process, killing the process tree if the deadline
+     * passes or the calling thread is interrupted.
+     *
+     * @param process the process the interaction reads from
+     * @param interaction the blocking reads and writes, executed on an I/O thread
+     * @param deadline how long the caller waits for the interaction
+     * @param <T> the result type of the interaction
+     * @return the result of the interaction
+     * @throws HyphemaAnalysisException with {@link AnalysisFailureReason#TIMEOUT} or {@link AnalysisFailureReason#CANCELLED}
+     *         if the process was killed, or {@link AnalysisFailureReason#ENGINE_ERROR} if the interaction failed unexpectedly
+     * @throws IOException if the interaction failed to read from or write to the process
+     */
+    public <T> T await(Process process, Callable<T> interaction, Duration deadline)
+            throws HyphemaAnalysisException, IOException {
+        activeProcesses.incrementAndGet();
+        Future<T> result = ioExecutor.submit(interaction);
+        try {
+            return result.get(deadline.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            hungCounter.increment();
+            log.warn("Analyzer process {} exceeded its deadline of {}, killing it", process.pid(), deadline);
+            killTree(process);
+            killedOnTimeoutCounter.increment();
+            throw new HyphemaAnalysisException(AnalysisFailureReason.TIMEOUT, "Zeitüberschreitung bei der Analyse");
+        } catch (InterruptedException e) {
+            log.info("Analysis cancelled, killing analyzer process {}", process.pid());
+            killTree(process);
+            killedOnCancelCounter.increment();
+            Thread.currentThread().interrupt();
+            throw new HyphemaAnalysisException(AnalysisFailureReason.CANCELLED, "Analyse abgebrochen");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new HyphemaAnalysisException(AnalysisFailureReason.ENGINE_ERROR, "Fehler bei der Analyse", e.getCause());
+        } finally {
+            result.cancel(true);
+            activeProcesses.decrementAndGet();
+        }
+    }
+
+    /**
+     * Forcibly terminates a process and every process it started, then waits briefly for it to exit.
+     *
+     * @param process the process to kill
+     */
+    public void killTree(Process process) {
+        // Collect the descendants first; once the parent is gone they are re-parented and no longer found.
+        List<ProcessHandle> descendants = process.descendants().toList();
+        process.destroyForcibly();
+        descendants.forEach(ProcessHandle::destroyForcibly);
+        try {
+            process.onExit().get(KILL_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            log.error("Analyzer process {} did not exit after being killed", process.pid());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads a stream to its end, keeping at most {@link #MAX_CAPTURED_BYTES} so a runaway script cannot exhaust the heap.
+     */
+    private static String readAll(InputStream stream) throws IOException {
+        try (InputStream in = stream) {
+            ByteArrayOutputStream captured = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                int keep = Math.min(read, MAX_CAPTURED_BYTES - captured.size());
+                if (keep > 0) {
+                    captured.write(buffer, 0, keep);
+                }
+            }
+            return captured.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Exit code and captured output of a finished process.
+     */
+    public static final class ProcessOutput {
+        private final int exitCode; // Exit code of the process.
+        private final String stdout; // Captured standard output.
+        private final String stderr; // Captured standard error.
+
+        ProcessOutput(int exitCode, String stdout, String stderr) {
+            this.exitCode = exitCode;
+            this.stdout = stdout;
+            this.stderr = stderr;
+        }
+
+        /**
+         * Gets the exit code of the process.
+         * @return the exit code.
+         */
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        /**
+         * Gets the captured standard output.
+         * @return the standard output.
+         */
+        public String getStdout() {
+            return stdout;
+        }
+
+        /**
+         * Gets the captured standard error.
+         * @return the standard error.
+         */
+        public String getStderr() {
+            return stderr;
+        }
+    }
+}
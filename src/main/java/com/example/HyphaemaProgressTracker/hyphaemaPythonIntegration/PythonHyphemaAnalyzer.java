@@ -0,0 +1,118 @@
+package com.example.HyphaemaProgressTracker.hyphaemaPythonIntegration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.HyphaemaProgressTracker.enums.AnalysisFailureReason;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.AnalysisPipelineMetrics;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalysisException;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalyzer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * {@link HyphemaAnalyzer} that runs the Python script {@code analyze_hyphema.py}.
+ * <p>
+ * This is the default engine ({@code hyphaema.analyzer.engine=python}). By default the script is
+ * started once per photo under the {@link ProcessSupervisor}; with {@code hyphaema.python.workers}
+ * greater than zero the photo is analyzed on a worker borrowed from the {@link PythonWorkerPool}.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "hyphaema.analyzer.engine", havingValue = "python", matchIfMissing = true)
+public class PythonHyphemaAnalyzer implements HyphemaAnalyzer {
+
+    private static final Logger log = LoggerFactory.getLogger(PythonHyphemaAnalyzer.class);
+
+    private static final TypeReference<Map<String, Object>> RESULT_TYPE = new TypeReference<>() {};
+
+    private final PythonWorkerPool pythonWorkerPool;
+    private final ProcessSupervisor processSupervisor;
+    private final String pythonCommand;
+    private final String version;
+    private final AnalysisPipelineMetrics pipelineMetrics;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Constructs the analyzer on top of the given worker pool.
+     *
+     * @param pythonWorkerPool the pool of warm Python workers
+     * @param processSupervisor the supervisor running the script once per photo if the pool has no workers
+     * @param pythonCommand the command used to start the Python interpreter
+     * @param version the version of the analysis script and its model
+     * @param pipelineMetrics the timers of the pipeline stages
+     */
+    public PythonHyphemaAnalyzer(PythonWorkerPool pythonWorkerPool,
+                                 ProcessSupervisor processSupervisor,
+                                 @Value("${hyphaema.python.command:python}") String pythonCommand,
+                                 @Value("${hyphaema.python.version:1}") String version,
+                                 AnalysisPipelineMetrics pipelineMetrics) {
+        this.pythonWorkerPool = pythonWorkerPool;
+        this.processSupervisor = processSupervisor;
+        this.pythonCommand = pythonCommand;
+        this.version = version;
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
+    @Override
+    public String getName() {
+        return "python";
+    }
+
+    @Override
+    public String getVersion() {
+        return "python-" + version;
+    }
+
+    /**
+     * Runs the Python analysis and parses the JSON written by the script.
+     *
+     * @param photoPath the path of the photo to analyze
+     * @return the parsed analysis result
+     * @throws HyphemaAnalysisException if the script failed, timed out or wrote output that is not valid JSON
+     * @throws InterruptedException if the caller is interrupted while waiting for a worker
+     */
+    @Override
+    public Map<String, Object> analyse(Path photoPath) throws HyphemaAnalysisException, InterruptedException {
+        String path = photoPath.toAbsolutePath().toString();
+        return parse(pythonWorkerPool.isEnabled() ? pythonWorkerPool.analyse(path) : runScript(path));
+    }
+
+    /**
+     * Parses the JSON line written by the script or a worker, timed as the parse stage of the pipeline.
+     *
+     * @param analysisResult the JSON written by the script
+     * @return the parsed analysis result
+     * @throws HyphemaAnalysisException if the output is not valid JSON
+     */
+    Map<String, Object> parse(String analysisResult) throws HyphemaAnalysisException {
+        Timer.Sample parseSample = pipelineMetrics.start();
+        try {
+            Map<String, Object> result = objectMapper.readValue(analysisResult, RESULT_TYPE);
+            pipelineMetrics.stop(parseSample, AnalysisPipelineMetrics.STAGE_PARSE, AnalysisPipelineMetrics.OUTCOME_SUCCESS);
+            return result;
+        } catch (JsonProcessingException e) {
+            pipelineMetrics.stop(parseSample, AnalysisPipelineMetrics.STAGE_PARSE, AnalysisPipelineMetrics.OUTCOME_ERROR);
+            throw new HyphemaAnalysisException(AnalysisFailureReason.ENGINE_ERROR, "Ungültiges Analyseergebnis", e);
+        }
+    }
+
+    private String runScript(String photoPath) throws HyphemaAnalysisException {
+        try {
+            return PythonIntegration.runHyphaemaApp(pythonCommand, photoPath, processSupervisor);
+        } catch (IOException e) {
+            log.warn("Python script failed to analyse {}", photoPath, e);
+            throw new HyphemaAnalysisException(AnalysisFailureReason.ENGINE_ERROR, "Fehler bei der Analyse", e);
+        }
+    }
+}
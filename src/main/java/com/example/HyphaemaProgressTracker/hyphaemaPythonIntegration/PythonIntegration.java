@@ -1,67 +1,78 @@
 package com.example.HyphaemaProgressTracker.hyphaemaPythonIntegration;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.nio.file.Paths;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.HyphaemaProgressTracker.enums.AnalysisFailureReason;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalysisException;
 
 /**
  * Represents a class for integrating Python code for hyphema analysis.
  * This class is responsible for running a Python script that calculates the percentage
  * of hyphema (blood in the eye) relative to the iris and pupil area from a photo.
  * The Python script uses OpenCV for image processing and analysis.
+ * <p>
+ * By default the script is started once per photo by {@link #runHyphaemaApp(String, String, ProcessSupervisor)}.
+ * A script that supports it can instead be started as a long-lived worker by passing {@link #WORKER_FLAG}.
+ * In worker mode the script prints {@link #WORKER_READY} once its libraries are loaded, then reads one
+ * photo path per line from standard input and writes one JSON result per line to standard output. The
+ * worker mode is used by {@link PythonWorkerPool} when {@code hyphaema.python.workers} is greater than zero.
+ * </p>
  */
 public class PythonIntegration {
 
+    private static final Logger log = LoggerFactory.getLogger(PythonIntegration.class);
+
+    /**
+     * Command line flag that starts the Python script as a long-lived worker.
+     */
+    public static final String WORKER_FLAG = "--worker";
+
+    /**
+     * Line written by a worker once it is ready to accept photo paths.
+     */
+    public static final String WORKER_READY = "READY";
+
+    /**
+     * Returns the absolute path of the Python analysis script.
+     *
+     * @return the absolute path to {@code analyze_hyphema.py}
+     */
+    public static String scriptPath() {
+        return Paths.get("src/main/resources/analyze_hyphema.py").toAbsolutePath().toString();
+    }
+
     /**
      * Executes the Python script for hyphema analysis.
      * This method runs the Python script that performs the analysis on a given photo
      * and returns the result in JSON format.
-     * 
+     * <p>
+     * The process is run by the {@link ProcessSupervisor}, which drains both output streams
+     * concurrently and kills the script if it exceeds the analysis deadline.
+     * </p>
+     *
+     * @param pythonCommand the command used to start the Python interpreter
      * @param photoPath the path of the photo to be analyzed by the Python script.
-     * @return the output of the Python script, which is expected to be in JSON format,
-     *         or an error message if the script execution fails.
+     * @param processSupervisor the supervisor running the script
+     * @return the output of the Python script, which is expected to be in JSON format.
+     * @throws HyphemaAnalysisException if the script failed, exceeded the deadline or was cancelled
+     * @throws IOException if the script cannot be started
      */
-    public static String runHyphaemaApp(String photoPath) {
-        try {
-            // Define the absolute path to the Python script
-            String scriptPath = Paths.get("src/main/resources/analyze_hyphema.py").toAbsolutePath().toString();
-            
-            // Create a ProcessBuilder to execute the Python script with the photo path as an argument
-            ProcessBuilder processBuilder = new ProcessBuilder(
-                "python", // Command to run Python
-                scriptPath, // Path to the Python script
-                photoPath // Path of the photo to be analyzed
-            );
-            
-            // Start the process to execute the script
-            Process process = processBuilder.start();
-    
-            // Create a BufferedReader to read the standard output of the Python process
-            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-            StringBuilder output = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line);
-            }
-    
-            // Read the output of the Python script line by line
-            int exitCode = process.waitFor();
-            if (exitCode == 0) {
-                return output.toString(); 
-            } else {
-                BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()));
-                StringBuilder errorOutput = new StringBuilder();
-                while ((line = errorReader.readLine()) != null) {
-                    errorOutput.append(line);
-                }
-                return "Fehler: " + errorOutput.toString();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "Fehler bei der Analyse";
+    public static String runHyphaemaApp(String pythonCommand, String photoPath, ProcessSupervisor processSupervisor)
+            throws HyphemaAnalysisException, IOException {
+        ProcessSupervisor.ProcessOutput output = processSupervisor.run(List.of(
+            pythonCommand, // Command to run Python
+            scriptPath(), // Path to the Python script
+            photoPath // Path of the photo to be analyzed
+        ));
+        if (output.getExitCode() != 0) {
+            log.warn("Python script exited with code {}: {}", output.getExitCode(), output.getStderr());
+            throw new HyphemaAnalysisException(AnalysisFailureReason.ENGINE_ERROR, "Fehler bei der Analyse");
         }
+        return output.getStdout();
     }
 }
-
-
-
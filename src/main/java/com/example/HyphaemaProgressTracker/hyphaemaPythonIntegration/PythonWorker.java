@@ -0,0 +1,160 @@
+package com.example.HyphaemaProgressTracker.hyphaemaPythonIntegration;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalysisException;
+
+/**
+ * Represents a single long-lived Python analyzer process.
+ * <p>
+ * The worker is started once with the {@link PythonIntegration#WORKER_FLAG} argument, so the
+ * interpreter and the image processing libraries are loaded only once. Afterwards the worker
+ * accepts one photo path per line on its standard input and answers each path with exactly
+ * one line of JSON on its standard output.
+ * </p>
+ * <p>
+ * A worker is not thread-safe; it is always used by one caller at a time, which is
+ * guaranteed by {@link PythonWorkerPool}.
+ * </p>
+ */
+class PythonWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(PythonWorker.class);
+
+    private final Process process;
+    private final BufferedWriter input;
+    private final BufferedReader output;
+    private int completedJobs; // Number of analyses this worker has answered.
+
+    private PythonWorker(Process process) {
+        this.process = process;
+        this.input = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+        this.output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        drainErrorStream(process.getErrorStream());
+    }
+
+    /**
+     * Starts a new worker process and waits until it reports that it is ready.
+     * <p>
+     * The ready line is awaited through the {@link ProcessSupervisor}, so a script that hangs while
+     * loading is killed once the startup timeout has passed instead of blocking the caller forever.
+     * </p>
+     *
+     * @param command the command line used to start the worker
+     * @param processSupervisor the supervisor enforcing the startup timeout
+     * @param startupTimeout how long the worker may take to become ready
+     * @return the started and warmed-up worker
+     * @throws IOException if the process cannot be started, exits before it is ready or exceeds the startup timeout
+     */
+    static PythonWorker start(List<String> command, ProcessSupervisor processSupervisor, Duration startupTimeout)
+            throws IOException {
+        PythonWorker worker = new PythonWorker(new ProcessBuilder(command).start());
+        String line;
+        try {
+            line = processSupervisor.await(worker.process, worker.output::readLine, startupTimeout);
+        } catch (HyphemaAnalysisException e) {
+            worker.destroy();
+            throw new IOException("Python worker did not become ready within " + startupTimeout, e);
+        } catch (IOException e) {
+            worker.destroy();
+            throw e;
+        }
+        if (!PythonIntegration.WORKER_READY.equals(line)) {
+            worker.destroy();
+            throw new IOException("Python worker did not become ready, got: " + line);
+        }
+        return worker;
+    }
+
+    /**
+     * Sends a photo path to the worker and waits for its JSON answer.
+     *
+     * @param photoPath the absolute path of the photo to analyze
+     * @return the JSON line written by the worker
+     * @throws IOException if the worker died or closed its output
+     */
+    String analyse(String photoPath) throws IOException {
+        if (photoPath.indexOf('\n') >= 0 || photoPath.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Photo path must not contain line breaks");
+        }
+        input.write(photoPath);
+        input.newLine();
+        input.flush();
+
+        String line = output.readLine();
+        if (line == null) {
+            throw new IOException("Python worker exited with code " + exitCodeOrUnknown());
+        }
+        completedJobs++;
+        return line;
+    }
+
+    /**
+     * Gets the number of analyses this worker has completed.
+     * @return the number of completed jobs.
+     */
+    int getCompletedJobs() {
+        return completedJobs;
+    }
+
+    /**
+     * Gets the underlying process, e.g. to kill it when an analysis hangs.
+     * @return the worker process.
+     */
+    Process getProcess() {
+        return process;
+    }
+
+    /**
+     * Checks whether the underlying process is still running.
+     * @return true if the process is alive, false otherwise.
+     */
+    boolean isAlive() {
+        return process.isAlive();
+    }
+
+    /**
+     * Stops the worker by closing its input and terminating the process.
+     */
+    void destroy() {
+        try {
+            input.close();
+        } catch (IOException ignored) {
+            // The process is terminated below anyway.
+        }
+        process.destroy();
+    }
+
+    private String exitCodeOrUnknown() {
+        return process.isAlive() ? "unknown" : String.valueOf(process.exitValue());
+    }
+
+    /**
+     * Continuously reads the error stream so a chatty script can never block on a full pipe.
+     */
+    private static void drainErrorStream(InputStream errorStream) {
+        Thread drainer = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(errorStream, StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    log.warn("Python worker: {}", line);
+                }
+            } catch (IOException ignored) {
+                // The stream is closed when the process exits.
+            }
+        }, "python-worker-stderr");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+}
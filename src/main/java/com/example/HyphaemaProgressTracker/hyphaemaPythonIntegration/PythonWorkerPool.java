@@ -0,0 +1,243 @@
+package com.example.HyphaemaProgressTracker.hyphaemaPythonIntegration;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.HyphaemaProgressTracker.enums.AnalysisFailureReason;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.AnalysisPipelineMetrics;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalysisException;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pool of warm, long-lived Python analyzer workers.
+ * <p>
+ * Starting the Python interpreter and importing the image processing libraries takes
+ * much longer than the analysis of a single photo. The pool therefore starts a fixed
+ * number of {@link PythonWorker}s at application startup and lends them to callers
+ * one analysis at a time.
+ * </p>
+ * <p>
+ * The workers need a script that supports the worker mode described in {@link PythonIntegration}, so
+ * the pool is opt-in: with {@code hyphaema.python.workers=0}, the default, no worker is started and
+ * {@link PythonHyphemaAnalyzer} runs the script once per photo instead.
+ * </p>
+ *
+ * Lifecycle:
+ * <ul>
+ *     <li>All workers are started in the background when the application boots</li>
+ *     <li>A worker is recycled after {@code hyphaema.python.max-jobs-per-worker} analyses</li>
+ *     <li>A crashed worker is discarded and replaced by a fresh one</li>
+ *     <li>A worker that exceeds the analysis deadline or whose caller is cancelled is killed by the
+ *     {@link ProcessSupervisor} and replaced by a fresh one</li>
+ *     <li>A worker that does not report that it is ready within {@code hyphaema.python.startup-timeout-ms}
+ *     is killed and started again</li>
+ *     <li>The pool becomes warm once every worker has reported that it is ready, and stays warm while at
+ *     least one worker is live, so recycling and replacing workers does not take the node out of rotation</li>
+ * </ul>
+ */
+@Component
+@ConditionalOnProperty(name = "hyphaema.analyzer.engine", havingValue = "python", matchIfMissing = true)
+public class PythonWorkerPool {
+
+    private static final Logger log = LoggerFactory.getLogger(PythonWorkerPool.class);
+
+    private final int size;
+    private final int maxJobsPerWorker;
+    private final long borrowTimeoutMillis;
+    private final long restartDelayMillis;
+    private final Duration startupTimeout;
+    private final List<String> workerCommand;
+    private final ProcessSupervisor processSupervisor;
+    private final AnalysisPipelineMetrics pipelineMetrics;
+
+    private final BlockingQueue<PythonWorker> idleWorkers = new LinkedBlockingQueue<>();
+    private final AtomicInteger liveWorkers = new AtomicInteger(); // Started workers, idle or borrowed.
+    private final ScheduledExecutorService starter;
+    private volatile boolean warmedUp; // Set once all workers were live at the same time; never reset.
+    private volatile boolean shutdown;
+
+    /**
+     * Constructs the pool from the application configuration.
+     *
+     * @param size the number of workers kept alive, or 0 to start none
+     * @param maxJobsPerWorker the number of analyses after which a worker is recycled
+     * @param borrowTimeoutMillis how long a caller waits for a free worker
+     * @param restartDelayMillis the delay before a failed worker start is retried
+     * @param startupTimeoutMillis how long a worker may take to become ready before it is killed
+     * @param pythonCommand the command used to start the Python interpreter
+     * @param processSupervisor the supervisor enforcing the analysis deadline
+     * @param pipelineMetrics the timers of the pipeline stages
+     */
+    public PythonWorkerPool(@Value("${hyphaema.python.workers:0}") int size,
+                            @Value("${hyphaema.python.max-jobs-per-worker:500}") int maxJobsPerWorker,
+                            @Value("${hyphaema.python.borrow-timeout-ms:30000}") long borrowTimeoutMillis,
+                            @Value("${hyphaema.python.restart-delay-ms:5000}") long restartDelayMillis,
+                            @Value("${hyphaema.python.startup-timeout-ms:120000}") long startupTimeoutMillis,
+                            @Value("${hyphaema.python.command:python}") String pythonCommand,
+                            ProcessSupervisor processSupervisor,
+                            AnalysisPipelineMetrics pipelineMetrics) {
+        this.size = size;
+        this.maxJobsPerWorker = maxJobsPerWorker;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.restartDelayMillis = restartDelayMillis;
+        this.startupTimeout = Duration.ofMillis(startupTimeoutMillis);
+        this.processSupervisor = processSupervisor;
+        this.pipelineMetrics = pipelineMetrics;
+        this.workerCommand = List.of(pythonCommand, PythonIntegration.scriptPath(), PythonIntegration.WORKER_FLAG);
+        this.starter = Executors.newScheduledThreadPool(Math.max(1, size), runnable -> {
+            Thread thread = new Thread(runnable, "python-worker-starter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts all workers in the background so application startup is not blocked.
+     */
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < size; i++) {
+            starter.execute(this::startWorker);
+        }
+    }
+
+    /**
+     * Stops all idle workers and prevents new ones from being started.
+     */
+    @PreDestroy
+    public void stop() {
+        shutdown = true;
+        starter.shutdownNow();
+        PythonWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.destroy();
+        }
+    }
+
+    /**
+     * Analyzes a photo on a borrowed worker within the analysis deadline.
+     *
+     * @param photoPath the absolute path of the photo to analyze
+     * @return the JSON line written by the script
+     * @throws HyphemaAnalysisException if no worker is free, the worker crashed, or the analysis
+     *         exceeded its deadline or was cancelled
+     * @throws InterruptedException if the caller is interrupted while waiting for a worker
+     */
+    public String analyse(String photoPath) throws HyphemaAnalysisException, InterruptedException {
+        Timer.Sample borrowSample = pipelineMetrics.start();
+        PythonWorker worker;
+        try {
+            worker = idleWorkers.poll(borrowTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            pipelineMetrics.stop(borrowSample, AnalysisPipelineMetrics.STAGE_BORROW, AnalysisPipelineMetrics.outcomeOf(e));
+            throw e;
+        }
+        pipelineMetrics.stop(borrowSample, AnalysisPipelineMetrics.STAGE_BORROW,
+                worker != null ? AnalysisPipelineMetrics.OUTCOME_SUCCESS : "unavailable");
+        if (worker == null) {
+            throw new HyphemaAnalysisException(AnalysisFailureReason.UNAVAILABLE, "Kein Analyse-Worker verfügbar");
+        }
+        try {
+            return processSupervisor.await(worker.getProcess(), () -> worker.analyse(photoPath), processSupervisor.getTimeout());
+        } catch (IOException e) {
+            log.warn("Python worker failed to analyse {}", photoPath, e);
+            throw new HyphemaAnalysisException(AnalysisFailureReason.ENGINE_ERROR, "Analyse-Worker ist ausgefallen", e);
+        } finally {
+            release(worker);
+        }
+    }
+
+    /**
+     * Checks whether workers are configured at all.
+     * @return true if the pool starts workers, false if the script is run once per photo.
+     */
+    public boolean isEnabled() {
+        return size > 0;
+    }
+
+    /**
+     * Checks whether the pool can serve analyses.
+     * <p>
+     * Before the initial warm-up every configured worker has to be ready; afterwards one live worker is
+     * enough, because a recycled or crashed worker is only missing until its replacement has started.
+     * A pool without workers is always warm.
+     * </p>
+     *
+     * @return true if the pool is warm, false otherwise
+     */
+    public boolean isWarm() {
+        int live = liveWorkers.get();
+        return warmedUp ? live > 0 : live >= size;
+    }
+
+    /**
+     * Gets the number of started workers, idle or borrowed.
+     * @return the number of live workers.
+     */
+    public int getLiveWorkers() {
+        return liveWorkers.get();
+    }
+
+    /**
+     * Gets the number of workers currently waiting for a job.
+     * @return the number of idle workers.
+     */
+    public int getIdleWorkers() {
+        return idleWorkers.size();
+    }
+
+    /**
+     * Gets the configured number of workers.
+     * @return the pool size.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    private void release(PythonWorker worker) {
+        if (!shutdown && worker.isAlive() && worker.getCompletedJobs() < maxJobsPerWorker) {
+            idleWorkers.offer(worker);
+            return;
+        }
+        worker.destroy();
+        liveWorkers.decrementAndGet();
+        if (!shutdown) {
+            starter.execute(this::startWorker);
+        }
+    }
+
+    private void startWorker() {
+        if (shutdown) {
+            return;
+        }
+        try {
+            PythonWorker worker = PythonWorker.start(workerCommand, processSupervisor, startupTimeout);
+            if (liveWorkers.incrementAndGet() >= size && !warmedUp) {
+                warmedUp = true;
+                log.info("Python worker pool is warm with {} workers", size);
+            }
+            idleWorkers.offer(worker);
+        } catch (IOException e) {
+            log.warn("Could not start Python worker, retrying in {} ms", restartDelayMillis, e);
+            if (!shutdown) {
+                starter.schedule(this::startWorker, restartDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.HyphaemaProgressTracker.hyphaemaPythonIntegration;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health indicator that reports whether the Python worker pool is warm.
+ * <p>
+ * The indicator is part of the readiness group ({@code /readyz} on the application port,
+ * {@code /actuator/health/readiness} on the management port), so a node is only put into rotation once all of its analyzer workers are loaded. Afterwards it
+ * only leaves rotation if no worker is live at all. Without configured workers it is always UP.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(name = "hyphaema.analyzer.engine", havingValue = "python", matchIfMissing = true)
+public class PythonWorkerPoolHealthIndicator implements HealthIndicator {
+
+    private final PythonWorkerPool pythonWorkerPool;
+
+    /**
+     * Constructs the health indicator for the given pool.
+     *
+     * @param pythonWorkerPool the pool whose warmness is reported
+     */
+    public PythonWorkerPoolHealthIndicator(PythonWorkerPool pythonWorkerPool) {
+        this.pythonWorkerPool = pythonWorkerPool;
+    }
+
+    /**
+     * Reports UP while the pool is warm, OUT_OF_SERVICE while it is warming up or has no live worker.
+     *
+     * @return the health of the worker pool
+     */
+    @Override
+    public Health health() {
+        Health.Builder builder = pythonWorkerPool.isWarm() ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("size", pythonWorkerPool.getSize())
+                .withDetail("live", pythonWorkerPool.getLiveWorkers())
+                .withDetail("idle", pythonWorkerPool.getIdleWorkers())
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.HyphaemaProgressTracker.securityConfiguration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -10,6 +11,13 @@ import org.springframework.security.web.SecurityFilterChain;
  * This class contains the security configuration for the Spring Boot application.
  * It configures HTTP security settings for authentication, authorization, login, logout, 
  * and password encoding using Spring Security.
+ * <p>
+ * The actuator endpoints, including the Prometheus scrape endpoint, are served on their own port
+ * ({@code management.server.port}), which only listens on {@code management.server.address}
+ * (localhost by default; set it to an internal interface if Prometheus scrapes from another host).
+ * Requests to that port need no login. Load balancers probe liveness and readiness on the application
+ * port as {@code /livez} and {@code /readyz}.
+ * </p>
  */
 @Configuration
 public class SecurityConfig {
@@ -20,11 +28,13 @@ public class SecurityConfig {
      * login and logout settings, and more.
      *
      * @param http the HttpSecurity object used to configure the security settings.
+     * @param managementPort the port of the actuator endpoints, or -1 if they share the application port.
      * @return the configured SecurityFilterChain.
      * @throws Exception if there is an error in configuring the security settings.
      */
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http,
+                                                   @Value("${management.server.port:-1}") int managementPort) throws Exception {
         // Disables CSRF protection (Cross-Site Request Forgery) for simplicity.
         http
             .csrf(csrf -> csrf.disable()) // CSRF protection disabled.
@@ -32,6 +42,10 @@ public class SecurityConfig {
             .authorizeHttpRequests(auth -> auth
             // Allows unauthenticated access to specific paths (e.g., home, registration, static resources)
             .requestMatchers("/", "/register", "/css/**", "/js/**", "/images/**", "/illustrations/**").permitAll()
+            // Allows load balancers to probe liveness and readiness without logging in
+            .requestMatchers("/livez", "/readyz").permitAll()
+            // Allows Prometheus to scrape the actuator port, which is not reachable from outside
+            .requestMatchers(request -> managementPort > 0 && request.getLocalPort() == managementPort).permitAll()
                 .anyRequest().authenticated() // All other URLs require user to be logged in
             )
             // Configures the login page and login behavior
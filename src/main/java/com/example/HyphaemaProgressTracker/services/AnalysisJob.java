@@ -0,0 +1,117 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+import com.example.HyphaemaProgressTracker.enums.AnalysisJobStatus;
+
+/**
+ * Represents a hyphema analysis that was submitted for asynchronous execution.
+ * <p>
+ * A job is created by {@link AnalysisJobService} in the {@link AnalysisJobStatus#QUEUED} state
+ * and is updated by the analysis thread; all fields are safe to read from request threads.
+ * </p>
+ */
+public class AnalysisJob {
+
+    private final String id; // Opaque identifier handed out to the client.
+    private final Instant submittedAt; // Time the job was accepted.
+    private volatile Instant startedAt; // Time an analysis thread picked up the job.
+    private volatile Instant finishedAt; // Time the job succeeded or failed.
+    private volatile AnalysisJobStatus status = AnalysisJobStatus.QUEUED;
+    private volatile Map<String, Object> result; // Result of a successful analysis.
+    private volatile String error; // Error message of a failed analysis.
+
+    /**
+     * Constructs a new queued job.
+     *
+     * @param id the identifier of the job
+     */
+    AnalysisJob(String id) {
+        this.id = id;
+        this.submittedAt = Instant.now();
+    }
+
+    /**
+     * Gets the identifier of the job.
+     * @return the job ID.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the current state of the job.
+     * @return the job status.
+     */
+    public AnalysisJobStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the result of a successful analysis.
+     * @return the result, or null if the job has not succeeded.
+     */
+    public Map<String, Object> getResult() {
+        return result;
+    }
+
+    /**
+     * Gets the error message of a failed analysis.
+     * @return the error, or null if the job has not failed.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Gets the time the job spent waiting in the queue so far.
+     * @return the wait time.
+     */
+    public Duration getWaitTime() {
+        Instant started = startedAt;
+        return Duration.between(submittedAt, started != null ? started : Instant.now());
+    }
+
+    /**
+     * Gets the time the analysis has been running so far.
+     * @return the run time, or zero if the job has not started.
+     */
+    public Duration getRunTime() {
+        Instant started = startedAt;
+        if (started == null) {
+            return Duration.ZERO;
+        }
+        Instant finished = finishedAt;
+        return Duration.between(started, finished != null ? finished : Instant.now());
+    }
+
+    /**
+     * Checks whether the job finished before the given instant.
+     *
+     * @param instant the instant to compare with
+     * @return true if the job is finished and finished before the instant
+     */
+    boolean finishedBefore(Instant instant) {
+        Instant finished = finishedAt;
+        return finished != null && finished.isBefore(instant);
+    }
+
+    void markRunning() {
+        startedAt = Instant.now();
+        status = AnalysisJobStatus.RUNNING;
+    }
+
+    void markSucceeded(Map<String, Object> result) {
+        this.result = result;
+        finishedAt = Instant.now();
+        status = AnalysisJobStatus.SUCCEEDED;
+    }
+
+    void markFailed(String error) {
+        this.error = error;
+        finishedAt = Instant.now();
+        status = AnalysisJobStatus.FAILED;
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalysisException;
+import com.example.HyphaemaProgressTracker.threadConfiguration.AnalysisExecutors;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * This service runs hyphema analyses asynchronously on a dedicated, bounded executor.
+ * <p>
+ * Request threads only store the photo and enqueue a job, so a burst of uploads can no longer
+ * exhaust the servlet thread pool. When the queue is full, {@link #submit} rejects the job
+ * immediately instead of piling up threads; clients are expected to retry after
+ * {@link #getRetryAfterSeconds()} seconds.
+ * </p>
+ * <p>
+ * A job takes one of {@code threads + queue-capacity} slots before its photo is stored and gives it
+ * back when it has finished, so a rejected submission has not written anything.
+ * </p>
+ *
+ * Metrics:
+ * <ul>
+ *     <li>{@code hyphaema.analysis.jobs.queue.depth} - jobs waiting for a thread</li>
+ *     <li>{@code hyphaema.analysis.jobs.active} - jobs currently analyzing</li>
+ *     <li>{@code hyphaema.analysis.jobs.wait} - time jobs spent in the queue</li>
+ *     <li>{@code hyphaema.analysis.jobs.run} - time jobs spent analyzing</li>
+ *     <li>{@code hyphaema.analysis.jobs.rejected} - jobs rejected because the queue was full</li>
+ * </ul>
+ */
+@Service
+public class AnalysisJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisJobService.class);
+
+    private final HyphemaAnalysisService hyphemaAnalysisService;
+    private final ThreadPoolExecutor executor;
+    private final Semaphore slots; // Free places for jobs, running or waiting.
+    private final Map<String, AnalysisJob> jobs = new ConcurrentHashMap<>();
+    private final long retentionMillis;
+    private final int retryAfterSeconds;
+
+    private final Timer waitTimer;
+    private final Timer runTimer;
+    private final Counter rejectedCounter;
+
+    /**
+     * Constructs the service and its bounded executor from the application configuration.
+     *
+     * @param hyphemaAnalysisService the service performing the analysis
+     * @param meterRegistry the registry for queue and timing metrics
+     * @param analysisExecutors the factory creating platform or virtual threads
+     * @param threads the number of analysis threads
+     * @param queueCapacity the number of jobs that may wait for a thread
+     * @param retentionMillis how long finished jobs can be polled
+     * @param retryAfterSeconds the retry hint sent to clients when the queue is full
+     */
+    public AnalysisJobService(HyphemaAnalysisService hyphemaAnalysisService,
+                              MeterRegistry meterRegistry,
+                              AnalysisExecutors analysisExecutors,
+                              @Value("${hyphaema.jobs.threads:4}") int threads,
+                              @Value("${hyphaema.jobs.queue-capacity:50}") int queueCapacity,
+                              @Value("${hyphaema.jobs.retention-ms:600000}") long retentionMillis,
+                              @Value("${hyphaema.jobs.retry-after-seconds:5}") int retryAfterSeconds) {
+        this.hyphemaAnalysisService = hyphemaAnalysisService;
+        this.retentionMillis = retentionMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.slots = new Semaphore(threads + queueCapacity);
+        // Unbounded, as the slots bound the jobs and a finishing job frees its slot before its thread.
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), analysisExecutors.threadFactory("analysis-job"),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("hyphaema.analysis.jobs.queue.depth", executor, e -> e.getQueue().size())
+                .description("Analysis jobs waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("hyphaema.analysis.jobs.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Analysis jobs currently running")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("hyphaema.analysis.jobs.wait")
+                .description("Time analysis jobs spent in the queue")
+                .register(meterRegistry);
+        this.runTimer = Timer.builder("hyphaema.analysis.jobs.run")
+                .description("Time analysis jobs spent analyzing")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("hyphaema.analysis.jobs.rejected")
+                .description("Analysis jobs rejected because the queue was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stops accepting jobs and interrupts running analyses.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Stores a photo and enqueues its analysis.
+     * <p>
+     * The photo is only stored once a slot in the queue is taken, so a full queue leaves no file
+     * and no {@code Photo} record behind.
+     * </p>
+     *
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury
+     * @param eyeSide the side of the eye being analyzed (e.g., LEFT, RIGHT)
+     * @param date the date of the analysis
+     * @param upload stores the photo to analyze
+     * @return the queued job
+     * @throws RejectedExecutionException if the queue is full
+     * @throws IOException if the photo cannot be stored
+     */
+    public AnalysisJob submit(Long patientId, Long injuryId, String eyeSide, LocalDate date, Upload upload)
+            throws IOException {
+        removeExpiredJobs();
+        if (!slots.tryAcquire()) {
+            rejectedCounter.increment();
+            throw new RejectedExecutionException("Analysis queue is full");
+        }
+        StoredPhoto photo;
+        try {
+            photo = upload.store();
+        } catch (IOException | RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+        AnalysisJob job = new AnalysisJob(UUID.randomUUID().toString());
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> {
+                try {
+                    run(job, patientId, injuryId, eyeSide, date, photo);
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Only after shutdown; while running, the slots keep the queue from overflowing.
+            jobs.remove(job.getId());
+            slots.release();
+            rejectedCounter.increment();
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * Finds a job that was submitted and has not expired yet.
+     *
+     * @param jobId the ID of the job
+     * @return an Optional containing the job, or empty if it is unknown or expired
+     */
+    public Optional<AnalysisJob> findJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    /**
+     * Gets the number of seconds clients should wait before retrying a rejected submission.
+     * @return the retry hint in seconds.
+     */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    private void run(AnalysisJob job, Long patientId, Long injuryId, String eyeSide, LocalDate date, StoredPhoto photo) {
+        job.markRunning();
+        waitTimer.record(job.getWaitTime());
+        try {
+            job.markSucceeded(hyphemaAnalysisService.analyse(patientId, injuryId, eyeSide, date, photo));
+        } catch (HyphemaAnalysisException e) {
+            job.markFailed(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.markFailed("Analyse abgebrochen");
+        } catch (Exception e) {
+            log.error("Analysis job {} failed", job.getId(), e);
+            job.markFailed("Fehler bei der Analyse");
+        } finally {
+            runTimer.record(job.getRunTime());
+        }
+    }
+
+    /**
+     * Stores the photo of a job once the job has a place in the queue.
+     */
+    @FunctionalInterface
+    public interface Upload {
+        StoredPhoto store() throws IOException;
+    }
+
+    private void removeExpiredJobs() {
+        Instant expiry = Instant.now().minusMillis(retentionMillis);
+        jobs.values().removeIf(job -> job.finishedBefore(expiry));
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalyzer;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.ImageNormalizer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+
+/**
+ * This service caches analysis results by the SHA-256 hash of the analyzed photo.
+ * <p>
+ * Retried uploads of a byte-identical photo are answered from the cache instead of running the
+ * analysis again. Entries are keyed by the hash and by {@link HyphemaAnalyzer#getVersion()}, so a new
+ * engine version never sees results of an old one. The cache is bounded by a maximum number of
+ * entries (least recently used entries are evicted first) and by a time-to-live. The settings of the
+ * {@link ImageNormalizer} are part of the version as well, since they change what the engine sees.
+ * </p>
+ * <p>
+ * Every entry is also written as a small JSON file below {@code hyphaema.analysis.cache.dir}, one
+ * folder per engine version, so the cache survives restarts. Folders of other versions are removed
+ * at startup.
+ * </p>
+ *
+ * Metrics:
+ * <ul>
+ *     <li>{@code hyphaema.analysis.cache.requests} - lookups, tagged with {@code result=hit|miss}</li>
+ *     <li>{@code hyphaema.analysis.cache.hit.ratio} - share of lookups answered from the cache</li>
+ *     <li>{@code hyphaema.analysis.cache.saved} - analysis time saved by cache hits, in milliseconds</li>
+ *     <li>{@code hyphaema.analysis.cache.size} - number of cached results</li>
+ * </ul>
+ */
+@Service
+public class AnalysisResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisResultCache.class);
+
+    private final String analyzerVersion;
+    private final Path versionDir;
+    private final int maxEntries;
+    private final Duration timeToLive;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // Access-ordered, so iteration starts with the least recently used entry.
+    private final LinkedHashMap<String, CachedAnalysis> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Guards entries; a lock instead of synchronized, so virtual threads are not pinned while waiting.
+    // File I/O is always done after releasing it.
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter savedMillisCounter;
+
+    /**
+     * Constructs the cache from the application configuration.
+     *
+     * @param hyphemaAnalyzer the configured analysis engine whose version keys the entries
+     * @param imageNormalizer the normalizer whose settings key the entries as well
+     * @param meterRegistry the registry for cache metrics
+     * @param cacheDir the folder where entries are persisted
+     * @param maxEntries the maximum number of cached results
+     * @param timeToLive how long a result stays valid
+     */
+    public AnalysisResultCache(HyphemaAnalyzer hyphemaAnalyzer,
+                               ImageNormalizer imageNormalizer,
+                               MeterRegistry meterRegistry,
+                               @Value("${hyphaema.analysis.cache.dir:analysis-cache}") String cacheDir,
+                               @Value("${hyphaema.analysis.cache.max-entries:10000}") int maxEntries,
+                               @Value("${hyphaema.analysis.cache.ttl:P30D}") Duration timeToLive) {
+        this.analyzerVersion = hyphemaAnalyzer.getVersion() + "+" + imageNormalizer.getVersion();
+        this.versionDir = Paths.get(cacheDir).resolve(sanitize(analyzerVersion));
+        this.maxEntries = maxEntries;
+        this.timeToLive = timeToLive;
+
+        this.hitCounter = Counter.builder("hyphaema.analysis.cache.requests").tag("result", "hit")
+                .description("Analysis cache lookups").register(meterRegistry);
+        this.missCounter = Counter.builder("hyphaema.analysis.cache.requests").tag("result", "miss")
+                .description("Analysis cache lookups").register(meterRegistry);
+        this.savedMillisCounter = Counter.builder("hyphaema.analysis.cache.saved").baseUnit("milliseconds")
+                .description("Analysis time saved by cache hits").register(meterRegistry);
+        Gauge.builder("hyphaema.analysis.cache.hit.ratio", this, AnalysisResultCache::getHitRatio)
+                .description("Share of analysis cache lookups answered from the cache").register(meterRegistry);
+        Gauge.builder("hyphaema.analysis.cache.size", this, AnalysisResultCache::size)
+                .description("Number of cached analysis results").register(meterRegistry);
+    }
+
+    /**
+     * Loads the persisted entries of the current engine version and removes those of other versions.
+     */
+    @PostConstruct
+    public void load() {
+        try {
+            Files.createDirectories(versionDir);
+            try (Stream<Path> versions = Files.list(versionDir.getParent())) {
+                versions.filter(dir -> !dir.equals(versionDir)).forEach(this::deleteQuietly);
+            }
+            try (Stream<Path> files = Files.list(versionDir)) {
+                files.filter(file -> file.getFileName().toString().endsWith(".json"))
+                        .sorted((a, b) -> Long.compare(a.toFile().lastModified(), b.toFile().lastModified()))
+                        .forEach(this::loadEntry);
+            }
+            log.info("Loaded {} cached analysis results for {}", size(), analyzerVersion);
+        } catch (IOException e) {
+            log.warn("Could not load the analysis cache from {}", versionDir, e);
+        }
+    }
+
+    /**
+     * Looks up the result of a previous analysis of a byte-identical photo.
+     *
+     * @param sha256 the hex encoded SHA-256 hash of the photo
+     * @return an Optional containing the cached analysis result, or empty if there is none
+     */
+    public Optional<Map<String, Object>> get(String sha256) {
+        CachedAnalysis cached;
+        boolean expired = false;
+        lock.lock();
+        try {
+            cached = entries.get(sha256);
+            if (cached != null && cached.isExpired(timeToLive)) {
+                entries.remove(sha256);
+                expired = true;
+                cached = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (expired) {
+            deleteQuietly(entryFile(sha256));
+        }
+        if (cached == null) {
+            missCounter.increment();
+            return Optional.empty();
+        }
+        hitCounter.increment();
+        savedMillisCounter.increment(cached.analysisMillis);
+        return Optional.of(cached.result);
+    }
+
+    /**
+     * Caches the result of a successful analysis.
+     *
+     * @param sha256 the hex encoded SHA-256 hash of the analyzed photo
+     * @param result the analysis result as returned by the engine
+     * @param analysisTime the time the analysis took, reported as saved time on later hits
+     */
+    public void put(String sha256, Map<String, Object> result, Duration analysisTime) {
+        CachedAnalysis cached = new CachedAnalysis();
+        cached.createdAt = Instant.now().toEpochMilli();
+        cached.analysisMillis = analysisTime.toMillis();
+        cached.result = result;
+        List<String> evicted;
+        lock.lock();
+        try {
+            entries.put(sha256, cached);
+            evicted = evictOverflow();
+        } finally {
+            lock.unlock();
+        }
+        evicted.forEach(evictedSha256 -> deleteQuietly(entryFile(evictedSha256)));
+        persist(sha256, cached);
+    }
+
+    /**
+     * Gets the number of cached results.
+     * @return the cache size.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double getHitRatio() {
+        double lookups = hitCounter.count() + missCounter.count();
+        return lookups == 0 ? 0.0 : hitCounter.count() / lookups;
+    }
+
+    /**
+     * Removes the least recently used entries above the limit; must be called while holding the lock.
+     * The files of the returned entries are deleted by the caller after releasing the lock.
+     */
+    private List<String> evictOverflow() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, CachedAnalysis>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && eldest.hasNext()) {
+            evicted.add(eldest.next().getKey());
+            eldest.remove();
+        }
+        return evicted;
+    }
+
+    private void loadEntry(Path file) {
+        String fileName = file.getFileName().toString();
+        String sha256 = fileName.substring(0, fileName.length() - ".json".length());
+        try {
+            CachedAnalysis cached = objectMapper.readValue(file.toFile(), CachedAnalysis.class);
+            if (cached.isExpired(timeToLive)) {
+                deleteQuietly(file);
+                return;
+            }
+            List<String> evicted;
+            lock.lock();
+            try {
+                entries.put(sha256, cached);
+                evicted = evictOverflow();
+            } finally {
+                lock.unlock();
+            }
+            evicted.forEach(evictedSha256 -> deleteQuietly(entryFile(evictedSha256)));
+        } catch (IOException e) {
+            log.warn("Dropping unreadable analysis cache entry {}", file, e);
+            deleteQuietly(file);
+        }
+    }
+
+    private void persist(String sha256, CachedAnalysis cached) {
+        try {
+            Path temp = Files.createTempFile(versionDir, sha256, ".tmp");
+            objectMapper.writeValue(temp.toFile(), cached);
+            Files.move(temp, entryFile(sha256), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not persist analysis cache entry {}", sha256, e);
+        }
+    }
+
+    private Path entryFile(String sha256) {
+        return versionDir.resolve(sha256 + ".json");
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            FileSystemUtils.deleteRecursively(path);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", path, e);
+        }
+    }
+
+    private static String sanitize(String version) {
+        return version.replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+
+    /**
+     * A cached analysis result as stored in memory and on disk.
+     */
+    static class CachedAnalysis {
+        public long createdAt; // Epoch milliseconds when the result was cached.
+        public long analysisMillis; // Time the original analysis took.
+        public Map<String, Object> result; // Analysis result as returned by the engine.
+
+        boolean isExpired(Duration timeToLive) {
+            return Instant.ofEpochMilli(createdAt).plus(timeToLive).isBefore(Instant.now());
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.HyphaemaProgressTracker.dto.BatchAnalysisItemDTO;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalysisException;
+import com.example.HyphaemaProgressTracker.threadConfiguration.AnalysisExecutors;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * This service analyzes several photos of one visit in parallel.
+ * <p>
+ * Each photo is stored and analyzed by {@link HyphemaAnalysisService}, exactly like a single upload.
+ * The photos of one request are fanned out to a shared executor, but never more than
+ * {@code hyphaema.batch.max-concurrency} at a time, so one large batch cannot take over all
+ * analysis capacity. A failing photo does not affect the other photos of the batch.
+ * </p>
+ * <p>
+ * The injury is checked once before any photo is stored. The whole batch shares the deadline of a
+ * single request ({@code hyphaema.analysis.request-timeout}); photos that are not done by then are
+ * cancelled, which kills their analyzer processes, and reported as failed items.
+ * </p>
+ */
+@Service
+public class BatchAnalysisService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchAnalysisService.class);
+
+    private final HyphemaAnalysisService hyphemaAnalysisService;
+    private final PhotoService photoService;
+    private final ExecutorService executor;
+    private final int maxConcurrency;
+    private final int maxPhotos;
+
+    /**
+     * Constructs the service and its executor from the application configuration.
+     *
+     * @param hyphemaAnalysisService the service storing and analyzing single photos
+     * @param photoService the service checking the injury of the batch
+     * @param analysisExecutors the factory creating platform or virtual thread executors
+     * @param threads the number of threads shared by all batch requests (unused with virtual threads)
+     * @param maxConcurrency the maximum number of photos of one request analyzed at the same time
+     * @param maxPhotos the maximum number of photos accepted in one request
+     */
+    public BatchAnalysisService(HyphemaAnalysisService hyphemaAnalysisService,
+                                PhotoService photoService,
+                                AnalysisExecutors analysisExecutors,
+                                @Value("${hyphaema.batch.threads:8}") int threads,
+                                @Value("${hyphaema.batch.max-concurrency:4}") int maxConcurrency,
+                                @Value("${hyphaema.batch.max-photos:20}") int maxPhotos) {
+        this.hyphemaAnalysisService = hyphemaAnalysisService;
+        this.photoService = photoService;
+        this.maxConcurrency = maxConcurrency;
+        this.maxPhotos = maxPhotos;
+        this.executor = analysisExecutors.newExecutor("batch-analysis", threads);
+    }
+
+    /**
+     * Stops the batch executor.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Gets the maximum number of photos accepted in one request.
+     * @return the maximum batch size.
+     */
+    public int getMaxPhotos() {
+        return maxPhotos;
+    }
+
+    /**
+     * Stores and analyzes all photos of a batch and waits until every photo is done or the request
+     * deadline has passed.
+     *
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury
+     * @param photos the photos of the eye
+     * @param eyeSides the eye side of each photo, in the order of {@code photos}
+     * @param dates the date of each photo, in the order of {@code photos}
+     * @return one item per photo, in the order of {@code photos}
+     * @throws ResponseStatusException with 404 if the injury does not belong to the patient
+     * @throws InterruptedException if the calling thread is interrupted; all photos are cancelled then
+     */
+    public List<BatchAnalysisItemDTO> analyse(Long patientId, Long injuryId, List<MultipartFile> photos,
+                                              List<String> eyeSides, List<LocalDate> dates) throws InterruptedException {
+        photoService.findInjury(patientId, injuryId);
+        long deadline = System.nanoTime() + hyphemaAnalysisService.getRequestTimeout().toNanos();
+        Semaphore slots = new Semaphore(maxConcurrency);
+        List<CompletableFuture<BatchAnalysisItemDTO>> items = new ArrayList<>(photos.size());
+        List<Future<?>> tasks = new ArrayList<>(photos.size());
+        try {
+            for (int i = 0; i < photos.size(); i++) {
+                if (!slots.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+                int index = i;
+                CompletableFuture<BatchAnalysisItemDTO> item = new CompletableFuture<>();
+                items.add(item);
+                tasks.add(executor.submit(() -> {
+                    try {
+                        item.complete(analyseItem(index, patientId, injuryId, photos.get(index),
+                                eyeSides.get(index), dates.get(index)));
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            }
+            CompletableFuture.allOf(items.toArray(CompletableFuture[]::new))
+                    .get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Batch analysis for injury {} exceeded its deadline, cancelling the remaining photos", injuryId);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause()); // Items never complete exceptionally.
+        } finally {
+            // Interrupts the photos still running, which kills their analyzer processes.
+            tasks.forEach(task -> task.cancel(true));
+        }
+
+        List<BatchAnalysisItemDTO> results = new ArrayList<>(photos.size());
+        for (int i = 0; i < photos.size(); i++) {
+            BatchAnalysisItemDTO item = i < items.size() ? items.get(i).getNow(null) : null;
+            results.add(item != null ? item
+                    : BatchAnalysisItemDTO.failure(i, photos.get(i).getOriginalFilename(), "Zeitüberschreitung bei der Analyse"));
+        }
+        return results;
+    }
+
+    private BatchAnalysisItemDTO analyseItem(int index, Long patientId, Long injuryId, MultipartFile photo,
+                                             String eyeSide, LocalDate date) {
+        String fileName = photo.getOriginalFilename();
+        try {
+            StoredPhoto storedPhoto = hyphemaAnalysisService.storePhoto(photo, patientId, injuryId);
+            return BatchAnalysisItemDTO.success(index, fileName,
+                    hyphemaAnalysisService.analyse(patientId, injuryId, eyeSide, date, storedPhoto));
+        } catch (HyphemaAnalysisException e) {
+            return BatchAnalysisItemDTO.failure(index, fileName, e.getMessage());
+        } catch (ResponseStatusException e) {
+            return BatchAnalysisItemDTO.failure(index, fileName, e.getReason());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return BatchAnalysisItemDTO.failure(index, fileName, "Analyse abgebrochen");
+        } catch (Exception e) {
+            log.error("Batch analysis of {} failed", fileName, e);
+            return BatchAnalysisItemDTO.failure(index, fileName, "Fehler bei der Analyse");
+        }
+    }
+}
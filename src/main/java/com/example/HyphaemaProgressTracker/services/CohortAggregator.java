@@ -0,0 +1,262 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Counts measurements per cohort, day since the first measurement and affected percentage.
+ * <p>
+ * Measurements are buffered in a chunk of parallel primitive arrays. A full chunk is split into one
+ * contiguous partition per worker, and each partition is counted into histograms of its own, so the
+ * workers never write to the same array. The histograms are kept for the whole pass and added up once
+ * at the end. Every histogram holds {@value #BINS} bins per cohort and day, one per whole percent,
+ * so percentiles are exact and the memory does not depend on the number of measurements:
+ * {@code partitions * cohorts * days * 102 * 4} bytes plus the chunk.
+ * </p>
+ * <p>
+ * An aggregator is used by one thread; only the counting inside {@link #flush} runs in parallel.
+ * </p>
+ */
+final class CohortAggregator {
+
+    static final int BINS = 101; // 0 to 100 %.
+    static final int FIRST_OF_SERIES = 1; // The measurement starts the series of an eye.
+    static final int FIRST_RESOLVED = 2; // The first measurement of a series at or below the resolved percentage.
+
+    private static final int MIN_MERGE_LENGTH = 1 << 14;
+
+    private final ForkJoinPool pool;
+    private final int cohorts;
+    private final int days;
+    private final int partitions;
+
+    // Per partition, indexed by (cohort * days + day) * BINS + percentage.
+    private final int[][] counts;
+    // Per partition, indexed by cohort.
+    private final int[][] series;
+    // Per partition, indexed by cohort * days + day.
+    private final int[][] resolved;
+
+    private final short[] chunkCohorts;
+    private final short[] chunkDays;
+    private final byte[] chunkPercentages;
+    private final byte[] chunkFlags;
+    private int chunkSize;
+    private boolean finished;
+
+    /**
+     * Creates an empty aggregator.
+     *
+     * @param pool the pool counting the partitions
+     * @param partitions the number of partitions of a chunk
+     * @param cohorts the number of cohorts, at most {@link Short#MAX_VALUE}
+     * @param days the number of days since the first measurement that are counted, at most {@link Short#MAX_VALUE}
+     * @param chunkCapacity the number of measurements buffered before they are counted
+     */
+    CohortAggregator(ForkJoinPool pool, int partitions, int cohorts, int days, int chunkCapacity) {
+        this.pool = pool;
+        this.cohorts = cohorts;
+        this.days = days;
+        this.partitions = partitions;
+        this.counts = new int[partitions][cohorts * days * BINS];
+        this.series = new int[partitions][cohorts];
+        this.resolved = new int[partitions][cohorts * days];
+        this.chunkCohorts = new short[chunkCapacity];
+        this.chunkDays = new short[chunkCapacity];
+        this.chunkPercentages = new byte[chunkCapacity];
+        this.chunkFlags = new byte[chunkCapacity];
+    }
+
+    /**
+     * Estimates the heap taken by an aggregator.
+     *
+     * @param partitions the number of partitions
+     * @param cohorts the number of cohorts
+     * @param days the number of days
+     * @param chunkCapacity the chunk capacity
+     * @return the estimate in bytes
+     */
+    static long estimateBytes(int partitions, int cohorts, int days, int chunkCapacity) {
+        long perPartition = (long) cohorts * days * (BINS + 1) * Integer.BYTES + (long) cohorts * Integer.BYTES;
+        return partitions * perPartition + chunkCapacity * 6L;
+    }
+
+    /**
+     * Adds a measurement.
+     *
+     * @param cohort the cohort of the injury
+     * @param day the days since the first measurement of the series, less than the number of days
+     * @param percentage the affected percentage, from 0 to 100
+     * @param flags {@link #FIRST_OF_SERIES} and {@link #FIRST_RESOLVED}, or 0
+     */
+    void add(int cohort, int day, int percentage, int flags) {
+        if (chunkSize == chunkCohorts.length) {
+            flush();
+        }
+        chunkCohorts[chunkSize] = (short) cohort;
+        chunkDays[chunkSize] = (short) day;
+        chunkPercentages[chunkSize] = (byte) percentage;
+        chunkFlags[chunkSize] = (byte) flags;
+        chunkSize++;
+    }
+
+    /**
+     * Counts the buffered measurements and empties the chunk.
+     */
+    void flush() {
+        if (chunkSize > 0) {
+            pool.invoke(new PartitionCounter(0, partitions));
+            chunkSize = 0;
+        }
+    }
+
+    /**
+     * Counts the remaining measurements and adds up the histograms of all partitions; no measurement can be added afterwards.
+     */
+    void finish() {
+        flush();
+        if (!finished) {
+            pool.invoke(new Merger(counts, 0, counts[0].length));
+            pool.invoke(new Merger(resolved, 0, resolved[0].length));
+            for (int partition = 1; partition < partitions; partition++) {
+                for (int cohort = 0; cohort < cohorts; cohort++) {
+                    series[0][cohort] += series[partition][cohort];
+                }
+            }
+            finished = true;
+        }
+    }
+
+    /**
+     * Gets the number of measurements of a cohort on a day; only valid after {@link #finish}.
+     *
+     * @param cohort the cohort
+     * @param day the day since the first measurement
+     * @return the number of measurements
+     */
+    int measurements(int cohort, int day) {
+        int offset = (cohort * days + day) * BINS;
+        int total = 0;
+        for (int bin = 0; bin < BINS; bin++) {
+            total += counts[0][offset + bin];
+        }
+        return total;
+    }
+
+    /**
+     * Gets a percentile of the affected percentages of a cohort on a day, by nearest rank; only valid after {@link #finish}.
+     *
+     * @param cohort the cohort
+     * @param day the day since the first measurement
+     * @param fraction the percentile as a fraction, e.g. 0.5 for the median
+     * @return the percentile, or -1 without measurements
+     */
+    int percentile(int cohort, int day, double fraction) {
+        int total = measurements(cohort, day);
+        if (total == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        int offset = (cohort * days + day) * BINS;
+        long seen = 0;
+        for (int bin = 0; bin < BINS; bin++) {
+            seen += counts[0][offset + bin];
+            if (seen >= rank) {
+                return bin;
+            }
+        }
+        return BINS - 1;
+    }
+
+    /**
+     * Gets the number of series of a cohort, i.e. eyes with at least one measurement; only valid after {@link #finish}.
+     *
+     * @param cohort the cohort
+     * @return the number of series
+     */
+    int series(int cohort) {
+        return series[0][cohort];
+    }
+
+    /**
+     * Gets the number of series of a cohort resolved on a day; only valid after {@link #finish}.
+     *
+     * @param cohort the cohort
+     * @param day the day since the first measurement
+     * @return the number of series whose first resolved measurement is on that day
+     */
+    int resolved(int cohort, int day) {
+        return resolved[0][cohort * days + day];
+    }
+
+    /**
+     * Counts partitions {@code [fromPartition, toPartition)} of the chunk, each into its own histograms.
+     */
+    private final class PartitionCounter extends RecursiveAction {
+
+        private final int fromPartition;
+        private final int toPartition;
+
+        PartitionCounter(int fromPartition, int toPartition) {
+            this.fromPartition = fromPartition;
+            this.toPartition = toPartition;
+        }
+
+        @Override
+        protected void compute() {
+            if (toPartition - fromPartition > 1) {
+                int middle = (fromPartition + toPartition) >>> 1;
+                invokeAll(new PartitionCounter(fromPartition, middle), new PartitionCounter(middle, toPartition));
+                return;
+            }
+            int from = (int) ((long) chunkSize * fromPartition / partitions);
+            int to = (int) ((long) chunkSize * toPartition / partitions);
+            int[] partitionCounts = counts[fromPartition];
+            int[] partitionSeries = series[fromPartition];
+            int[] partitionResolved = resolved[fromPartition];
+            for (int i = from; i < to; i++) {
+                int cohortDay = chunkCohorts[i] * days + chunkDays[i];
+                partitionCounts[cohortDay * BINS + chunkPercentages[i]]++;
+                int flags = chunkFlags[i];
+                if ((flags & FIRST_OF_SERIES) != 0) {
+                    partitionSeries[chunkCohorts[i]]++;
+                }
+                if ((flags & FIRST_RESOLVED) != 0) {
+                    partitionResolved[cohortDay]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the histograms of all partitions into the first one, for the index range {@code [from, to)}.
+     */
+    private final class Merger extends RecursiveAction {
+
+        private final int[][] histograms;
+        private final int from;
+        private final int to;
+
+        Merger(int[][] histograms, int from, int to) {
+            this.histograms = histograms;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > MIN_MERGE_LENGTH) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Merger(histograms, from, middle), new Merger(histograms, middle, to));
+                return;
+            }
+            int[] total = histograms[0];
+            for (int partition = 1; partition < partitions; partition++) {
+                int[] histogram = histograms[partition];
+                for (int i = from; i < to; i++) {
+                    total[i] += histogram[i];
+                }
+            }
+        }
+    }
+}
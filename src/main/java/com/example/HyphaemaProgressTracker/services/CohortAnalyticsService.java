@@ -0,0 +1,494 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.example.HyphaemaProgressTracker.dto.CohortDTO;
+import com.example.HyphaemaProgressTracker.dto.CohortDayDTO;
+import com.example.HyphaemaProgressTracker.dto.CohortOutlierDTO;
+import com.example.HyphaemaProgressTracker.dto.CohortReportDTO;
+import com.example.HyphaemaProgressTracker.dto.EyeMeasurementDTO;
+import com.example.HyphaemaProgressTracker.entities.EyeRepository;
+import com.example.HyphaemaProgressTracker.entities.HealingStatistics;
+import com.example.HyphaemaProgressTracker.entities.HealingStatisticsRepository;
+import com.example.HyphaemaProgressTracker.entities.InjuryRepository;
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * This service computes population-level healing curves, one per diagnosis cohort, from all measurements.
+ * <p>
+ * All eye records are read in one pass, in keyset pages of {@code hyphaema.analytics.page-size} rows
+ * in the order of the composite index on {@code (injury_id, side, date, id)}, so every series arrives
+ * in one piece and in date order and only the current page is held in memory. Each measurement is
+ * counted by {@link CohortAggregator} into fixed-size histograms per cohort and day since the first
+ * measurement of its eye, in parallel on a dedicated {@link ForkJoinPool}. The cohorts are the
+ * {@code hyphaema.analytics.max-cohorts} most frequent diagnoses plus one for all others, and days after
+ * {@code hyphaema.analytics.max-days} are not counted. The number of partitions is lowered if the
+ * histograms would not fit into {@code hyphaema.analytics.max-memory}, so the heap taken by a pass does
+ * not grow with the number of measurements.
+ * </p>
+ * <p>
+ * Outliers are found in a second pass over the {@link HealingStatistics} of every eye, which already
+ * hold the first and latest measurement: an eye whose latest value lies above the 90th percentile of
+ * its cohort on the same day heals slower than the cohort.
+ * </p>
+ * <p>
+ * The report is cached until a measurement is saved or a patient is deleted, see {@link #invalidate},
+ * and at most for {@code hyphaema.analytics.cache.max-age}, which covers records written directly to
+ * the database. While a new report is computed, other requests get the previous one.
+ * </p>
+ *
+ * Metrics:
+ * <ul>
+ *     <li>{@code hyphaema.analytics.requests} - report requests, tagged with {@code result=hit|miss|stale}</li>
+ *     <li>{@code hyphaema.analytics.scan.time} - time spent computing a report</li>
+ * </ul>
+ */
+@Service
+public class CohortAnalyticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(CohortAnalyticsService.class);
+
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1, 1, 1); // Same open range bound as EyeService.
+    private static final String OTHER_DIAGNOSES = "Sonstige";
+    private static final long PAGE_ROW_BYTES = 120; // EyeMeasurementDTO with its LocalDate and list slot.
+
+    private final EyeRepository eyeRepository;
+    private final InjuryRepository injuryRepository;
+    private final HealingStatisticsRepository statisticsRepository;
+    private final int days;
+    private final int maxCohorts;
+    private final int pageSize;
+    private final int resolvedPercentage;
+    private final int outlierMinSamples;
+    private final int maxOutliers;
+    private final Duration maxAge;
+    private final int partitions;
+    private final ForkJoinPool pool;
+
+    // Advanced by every change of the measurements; a report is current while it was computed at the same version.
+    private final AtomicLong version = new AtomicLong();
+    // Held while a report is computed, so concurrent requests do not scan all measurements twice.
+    private final ReentrantLock computeLock = new ReentrantLock();
+    private volatile CachedReport cached;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter staleCounter;
+    private final Timer scanTimer;
+
+    /**
+     * Constructs the service from the application configuration.
+     *
+     * @param eyeRepository the repository the measurements are read from
+     * @param injuryRepository the repository the diagnoses are read from
+     * @param statisticsRepository the repository the latest measurement of every eye is read from
+     * @param meterRegistry the registry for analytics metrics
+     * @param maxDays the last day since the first measurement that is counted
+     * @param maxCohorts the number of most frequent diagnoses with a cohort of their own
+     * @param pageSize the number of measurements read per query
+     * @param parallelism the number of threads counting measurements, 0 for the number of processors
+     * @param maxMemory the heap a computation may take for its histograms and the current page
+     * @param resolvedPercentage the affected percentage at or below which an eye counts as resolved
+     * @param outlierMinSamples the number of measurements a cohort needs on a day before eyes are compared to it
+     * @param maxOutliers the number of outliers reported per cohort
+     * @param maxAge the time after which a report is computed again even without changes
+     */
+    public CohortAnalyticsService(EyeRepository eyeRepository,
+                                  InjuryRepository injuryRepository,
+                                  HealingStatisticsRepository statisticsRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${hyphaema.analytics.max-days:180}") int maxDays,
+                                  @Value("${hyphaema.analytics.max-cohorts:20}") int maxCohorts,
+                                  @Value("${hyphaema.analytics.page-size:10000}") int pageSize,
+                                  @Value("${hyphaema.analytics.parallelism:0}") int parallelism,
+                                  @Value("${hyphaema.analytics.max-memory:64MB}") DataSize maxMemory,
+                                  @Value("${hyphaema.analytics.resolved-percentage:0}") int resolvedPercentage,
+                                  @Value("${hyphaema.analytics.outliers.min-samples:20}") int outlierMinSamples,
+                                  @Value("${hyphaema.analytics.outliers.max-per-cohort:20}") int maxOutliers,
+                                  @Value("${hyphaema.analytics.cache.max-age:1h}") Duration maxAge) {
+        this.eyeRepository = eyeRepository;
+        this.injuryRepository = injuryRepository;
+        this.statisticsRepository = statisticsRepository;
+        this.days = Math.min(maxDays, Short.MAX_VALUE - 1) + 1;
+        this.maxCohorts = Math.min(maxCohorts, Short.MAX_VALUE - 1);
+        this.pageSize = pageSize;
+        this.resolvedPercentage = resolvedPercentage;
+        this.outlierMinSamples = outlierMinSamples;
+        this.maxOutliers = maxOutliers;
+        this.maxAge = maxAge;
+
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        long partitionBytes = CohortAggregator.estimateBytes(1, this.maxCohorts + 1, days, 0);
+        long available = maxMemory.toBytes() - pageSize * PAGE_ROW_BYTES - CohortAggregator.estimateBytes(0, 0, 0, pageSize);
+        if (available < partitionBytes) {
+            log.warn("Cohort histograms of {} bytes do not fit into hyphaema.analytics.max-memory of {} bytes",
+                    partitionBytes, maxMemory.toBytes());
+        }
+        this.partitions = (int) Math.max(1, Math.min(threads, available / partitionBytes));
+        this.pool = new ForkJoinPool(partitions);
+
+        this.hitCounter = Counter.builder("hyphaema.analytics.requests").tag("result", "hit")
+                .description("Cohort report requests").register(meterRegistry);
+        this.missCounter = Counter.builder("hyphaema.analytics.requests").tag("result", "miss")
+                .description("Cohort report requests").register(meterRegistry);
+        this.staleCounter = Counter.builder("hyphaema.analytics.requests").tag("result", "stale")
+                .description("Cohort report requests").register(meterRegistry);
+        this.scanTimer = Timer.builder("hyphaema.analytics.scan.time")
+                .description("Time spent computing the cohort report")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Shuts down the counting pool.
+     */
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Marks the cached report as out of date, e.g. after a measurement was saved.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Gets the report of all cohorts, computing it if the cached one is out of date.
+     *
+     * @return the report; the previous one if another request is computing a new one
+     */
+    public CohortReportDTO getReport() {
+        CachedReport current = cached;
+        if (current != null && isCurrent(current)) {
+            hitCounter.increment();
+            return current.report;
+        }
+        if (current == null) {
+            computeLock.lock();
+        } else if (!computeLock.tryLock()) {
+            staleCounter.increment();
+            return current.report;
+        }
+        try {
+            current = cached;
+            if (current != null && isCurrent(current)) {
+                hitCounter.increment();
+                return current.report;
+            }
+            missCounter.increment();
+            long computedVersion = version.get();
+            long start = System.nanoTime();
+            CohortReportDTO report = compute();
+            scanTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.info("Computed cohort report of {} measurements in {} ms", report.getMeasurements(),
+                    (System.nanoTime() - start) / 1_000_000);
+            cached = new CachedReport(report, computedVersion);
+            return report;
+        } finally {
+            computeLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the cohort of a diagnosis.
+     *
+     * @param diagnosis the diagnosis, compared ignoring case and surrounding whitespace
+     * @return an Optional containing the cohort, or empty if the diagnosis has no cohort of its own
+     */
+    public Optional<CohortDTO> findCohort(String diagnosis) {
+        String key = normalize(diagnosis);
+        return getReport().getCohorts().stream()
+                .filter(cohort -> !cohort.isOther() && normalize(cohort.getDiagnosis()).equals(key))
+                .findFirst();
+    }
+
+    private boolean isCurrent(CachedReport report) {
+        return report.version == version.get() && report.report.getComputedAt().plus(maxAge).isAfter(Instant.now());
+    }
+
+    /**
+     * Reads all measurements, then all statistics, and builds the report.
+     * <p>
+     * The pages are read in separate transactions, so an injury may be deleted after its measurements
+     * were read and before its diagnosis is looked up; its measurements are then skipped.
+     * </p>
+     */
+    private CohortReportDTO compute() {
+        Instant computedAt = Instant.now();
+        Cohorts cohorts = new Cohorts(injuryRepository.findMostFrequentDiagnoses(PageRequest.of(0, maxCohorts)));
+        CohortAggregator aggregator = new CohortAggregator(pool, partitions, cohorts.size(), days, pageSize);
+        SeriesReader reader = new SeriesReader(aggregator);
+
+        PageRequest page = PageRequest.of(0, pageSize);
+        long afterInjuryId = 0;
+        List<EyeMeasurementDTO> measurements;
+        do {
+            measurements = eyeRepository.findMeasurementsAfterInjury(afterInjuryId, page);
+            if (measurements.isEmpty()) {
+                break;
+            }
+            Map<Long, InjuryInfo> injuries = findInjuries(measurements.stream().map(EyeMeasurementDTO::getInjuryId).toList(), cohorts);
+            boolean full = measurements.size() == pageSize;
+            Long lastInjuryId = measurements.get(measurements.size() - 1).getInjuryId();
+            for (EyeMeasurementDTO measurement : measurements) {
+                if (full && measurement.getInjuryId().equals(lastInjuryId)) {
+                    break; // The page may end inside this injury, which is read on its own below.
+                }
+                InjuryInfo injury = injuries.get(measurement.getInjuryId());
+                if (injury != null) {
+                    reader.accept(measurement, injury.cohort);
+                }
+            }
+            InjuryInfo lastInjury = injuries.get(lastInjuryId);
+            if (full && lastInjury != null) {
+                readInjury(lastInjuryId, lastInjury.cohort, reader, page);
+            }
+            afterInjuryId = lastInjuryId;
+        } while (measurements.size() == pageSize);
+        aggregator.finish();
+
+        List<PriorityQueue<CohortOutlierDTO>> outliers = findOutliers(aggregator, cohorts);
+        List<CohortDTO> result = new ArrayList<>();
+        for (int cohort = 0; cohort < cohorts.size(); cohort++) {
+            if (aggregator.series(cohort) > 0) {
+                List<CohortOutlierDTO> slowest = new ArrayList<>(outliers.get(cohort));
+                slowest.sort(Comparator.comparingInt(CohortAnalyticsService::excess).reversed());
+                result.add(new CohortDTO(cohorts.name(cohort), cohort == cohorts.other(), aggregator.series(cohort),
+                        curveOf(aggregator, cohort), slowest));
+            }
+        }
+        return new CohortReportDTO(computedAt, reader.measurements, result);
+    }
+
+    /**
+     * Reads all measurements of one injury, series by series, in pages.
+     */
+    private void readInjury(Long injuryId, int cohort, SeriesReader reader, PageRequest page) {
+        for (EyeSide side : EyeSide.values()) {
+            LocalDate afterDate = EARLIEST_DATE;
+            long afterId = 0;
+            List<EyeMeasurementDTO> measurements;
+            do {
+                measurements = eyeRepository.findMeasurementsOfSeries(injuryId, side, afterDate, afterId, page);
+                for (EyeMeasurementDTO measurement : measurements) {
+                    reader.accept(measurement, cohort);
+                }
+                if (!measurements.isEmpty()) {
+                    afterDate = measurements.get(measurements.size() - 1).getDate();
+                    afterId = measurements.get(measurements.size() - 1).getId();
+                }
+            } while (measurements.size() == pageSize);
+        }
+    }
+
+    /**
+     * Compares the latest measurement of every eye with its cohort and keeps the slowest eyes per cohort.
+     */
+    private List<PriorityQueue<CohortOutlierDTO>> findOutliers(CohortAggregator aggregator, Cohorts cohorts) {
+        List<PriorityQueue<CohortOutlierDTO>> outliers = new ArrayList<>(cohorts.size());
+        for (int cohort = 0; cohort < cohorts.size(); cohort++) {
+            outliers.add(new PriorityQueue<>(Comparator.comparingInt(CohortAnalyticsService::excess)));
+        }
+        PageRequest page = PageRequest.of(0, pageSize);
+        long afterId = 0;
+        List<HealingStatistics> batch;
+        do {
+            batch = statisticsRepository.findByIdGreaterThanOrderByIdAsc(afterId, page);
+            if (batch.isEmpty()) {
+                break;
+            }
+            Map<Long, InjuryInfo> injuries = findInjuries(batch.stream().map(statistics -> statistics.getInjury().getId()).toList(), cohorts);
+            for (HealingStatistics statistics : batch) {
+                if (statistics.getCount() < 2 || !statistics.getLastDate().isAfter(statistics.getFirstDate())) {
+                    continue;
+                }
+                long day = statistics.getLastDate().toEpochDay() - statistics.getFirstDate().toEpochDay();
+                InjuryInfo injury = injuries.get(statistics.getInjury().getId());
+                if (injury == null || day >= days || aggregator.measurements(injury.cohort, (int) day) < outlierMinSamples) {
+                    continue;
+                }
+                int latest = statistics.getLastPercentage();
+                int ninetiethPercentile = aggregator.percentile(injury.cohort, (int) day, 0.9);
+                if (latest > ninetiethPercentile && latest > resolvedPercentage) {
+                    PriorityQueue<CohortOutlierDTO> slowest = outliers.get(injury.cohort);
+                    slowest.add(new CohortOutlierDTO(injury.patientId, statistics.getInjury().getId(), statistics.getSide(),
+                            (int) day, latest, aggregator.percentile(injury.cohort, (int) day, 0.5), ninetiethPercentile));
+                    if (slowest.size() > maxOutliers) {
+                        slowest.poll();
+                    }
+                }
+            }
+            afterId = batch.get(batch.size() - 1).getId();
+        } while (batch.size() == pageSize);
+        return outliers;
+    }
+
+    private List<CohortDayDTO> curveOf(CohortAggregator aggregator, int cohort) {
+        List<CohortDayDTO> curve = new ArrayList<>();
+        int eyes = aggregator.series(cohort);
+        int resolved = 0;
+        for (int day = 0; day < days; day++) {
+            resolved += aggregator.resolved(cohort, day);
+            int measurements = aggregator.measurements(cohort, day);
+            if (measurements > 0) {
+                curve.add(new CohortDayDTO(day, measurements,
+                        aggregator.percentile(cohort, day, 0.25),
+                        aggregator.percentile(cohort, day, 0.5),
+                        aggregator.percentile(cohort, day, 0.75),
+                        aggregator.percentile(cohort, day, 0.9),
+                        100.0 * resolved / eyes));
+            }
+        }
+        return curve;
+    }
+
+    private Map<Long, InjuryInfo> findInjuries(List<Long> injuryIds, Cohorts cohorts) {
+        Set<Long> ids = new LinkedHashSet<>(injuryIds);
+        Map<Long, InjuryInfo> injuries = new HashMap<>();
+        for (Object[] row : injuryRepository.findDiagnoses(ids)) {
+            injuries.put((Long) row[0], new InjuryInfo((Long) row[1], cohorts.of((String) row[2])));
+        }
+        return injuries;
+    }
+
+    private static int excess(CohortOutlierDTO outlier) {
+        return outlier.getLatestPercentage() - outlier.getCohortNinetiethPercentile();
+    }
+
+    private static String normalize(String diagnosis) {
+        return diagnosis.strip().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Follows the series in the order they are read and passes every measurement on with its day and flags.
+     */
+    private final class SeriesReader {
+
+        private final CohortAggregator aggregator;
+        private Long injuryId;
+        private EyeSide side;
+        private long firstEpochDay;
+        private boolean resolved;
+        private long measurements;
+
+        SeriesReader(CohortAggregator aggregator) {
+            this.aggregator = aggregator;
+        }
+
+        void accept(EyeMeasurementDTO measurement, int cohort) {
+            measurements++;
+            int flags = 0;
+            long epochDay = measurement.getDate().toEpochDay();
+            if (!measurement.getInjuryId().equals(injuryId) || measurement.getSide() != side) {
+                injuryId = measurement.getInjuryId();
+                side = measurement.getSide();
+                firstEpochDay = epochDay;
+                resolved = false;
+                flags |= CohortAggregator.FIRST_OF_SERIES;
+            }
+            long day = epochDay - firstEpochDay;
+            if (day >= days) {
+                return;
+            }
+            int percentage = Math.max(0, Math.min(CohortAggregator.BINS - 1, measurement.getPercentageOfEyeAffectedByHyphema()));
+            if (!resolved && percentage <= resolvedPercentage) {
+                resolved = true;
+                flags |= CohortAggregator.FIRST_RESOLVED;
+            }
+            aggregator.add(cohort, (int) day, percentage, flags);
+        }
+    }
+
+    /**
+     * Maps diagnoses to cohorts: one per frequent diagnosis, in order of frequency, and one for all others.
+     */
+    private static final class Cohorts {
+
+        private final Map<String, Integer> indexByDiagnosis = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private final int other;
+
+        Cohorts(List<String> frequentDiagnoses) {
+            for (String diagnosis : frequentDiagnoses) {
+                if (indexByDiagnosis.putIfAbsent(normalize(diagnosis), names.size()) == null) {
+                    names.add(diagnosis.strip());
+                }
+            }
+            other = names.size();
+            names.add(OTHER_DIAGNOSES);
+        }
+
+        int of(String diagnosis) {
+            return indexByDiagnosis.getOrDefault(normalize(diagnosis), other);
+        }
+
+        int size() {
+            return names.size();
+        }
+
+        int other() {
+            return other;
+        }
+
+        String name(int cohort) {
+            return names.get(cohort);
+        }
+    }
+
+    /**
+     * The patient and cohort of an injury.
+     */
+    private static final class InjuryInfo {
+
+        private final Long patientId;
+        private final int cohort;
+
+        InjuryInfo(Long patientId, int cohort) {
+            this.patientId = patientId;
+            this.cohort = cohort;
+        }
+    }
+
+    /**
+     * A report with the version of the measurements it was computed from.
+     */
+    private static final class CachedReport {
+
+        private final CohortReportDTO report;
+        private final long version;
+
+        CachedReport(CohortReportDTO report, long version) {
+            this.report = report;
+            this.version = version;
+        }
+    }
+}
@@ -1,16 +1,329 @@
 package com.example.HyphaemaProgressTracker.services;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.HyphaemaProgressTracker.dto.EyeResultDTO;
+import com.example.HyphaemaProgressTracker.dto.EyeSeriesPage;
 import com.example.HyphaemaProgressTracker.entities.Eye;
+import com.example.HyphaemaProgressTracker.entities.EyeRepository;
+import com.example.HyphaemaProgressTracker.entities.HealingStatistics;
+import com.example.HyphaemaProgressTracker.entities.PatientRepository;
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
 
 /**
  * This service provides methods for creating and managing Eye objects.
+ * <p>
+ * The measurement series shown in the chart is read page by page with a keyset cursor of the form
+ * {@code <date>_<id>} (see {@link EyeSeriesPage}). A page holds {@code hyphaema.chart.page-size}
+ * results unless the client asks for fewer or more, up to {@code hyphaema.chart.max-page-size}.
+ * Alternatively, a whole range can be read at once, downsampled to the resolution of the chart.
+ * </p>
+ * <p>
+ * Both are served from {@link MeasurementSeriesCache} when possible and only fall back to the
+ * database queries if a series cannot be cached. Eye records must therefore be saved through
+ * {@link #save(Eye)}, which keeps the cached series and the {@link HealingStatistics} of the eye up to date.
+ * </p>
  */
 @Service
 public class EyeService {
+
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1, 1, 1); // Open range bounds, valid in every supported database.
+    private static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+    private static final char CURSOR_SEPARATOR = '_';
+
+    private final PatientRepository patientRepository;
+    private final EyeRepository eyeRepository;
+    private final MeasurementSeriesCache seriesCache;
+    private final HealingStatisticsService statisticsService;
+    private final CohortAnalyticsService cohortAnalyticsService;
+    private final TransactionTemplate transactionTemplate;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    /**
+     * Constructs the service from the application configuration.
+     *
+     * @param patientRepository the repository running the series queries
+     * @param eyeRepository the repository for saving eye records
+     * @param seriesCache the in-memory cache of the series
+     * @param statisticsService the service maintaining the statistics of every eye
+     * @param cohortAnalyticsService the service whose cohort report is outdated by every saved record
+     * @param transactionTemplate the template for the transaction saving a record together with its statistics
+     * @param defaultPageSize the number of results of a page if the client does not ask for a size
+     * @param maxPageSize the largest page a client can ask for
+     */
+    public EyeService(PatientRepository patientRepository,
+                      EyeRepository eyeRepository,
+                      MeasurementSeriesCache seriesCache,
+                      HealingStatisticsService statisticsService,
+                      CohortAnalyticsService cohortAnalyticsService,
+                      TransactionTemplate transactionTemplate,
+                      @Value("${hyphaema.chart.page-size:1000}") int defaultPageSize,
+                      @Value("${hyphaema.chart.max-page-size:5000}") int maxPageSize) {
+        this.patientRepository = patientRepository;
+        this.eyeRepository = eyeRepository;
+        this.seriesCache = seriesCache;
+        this.statisticsService = statisticsService;
+        this.cohortAnalyticsService = cohortAnalyticsService;
+        this.transactionTemplate = transactionTemplate;
+        this.maxPageSize = maxPageSize;
+        this.defaultPageSize = Math.min(defaultPageSize, maxPageSize);
+    }
+
     public Eye createNewEye() {
         Eye eye = new Eye();
         return eye;
     }
+
+    /**
+     * Saves an eye record, adds it to the statistics and the cached series of its eye and outdates the cohort report.
+     * <p>
+     * The record and the statistics are written in one transaction, with the statistics row locked
+     * before the record is inserted, so concurrent saves of the same eye are added one after the other.
+     * </p>
+     *
+     * @param eye the eye record with its injury
+     * @return the saved record
+     */
+    public Eye save(Eye eye) {
+        statisticsService.ensureExists(eye.getInjury(), eye.getSide());
+        Eye saved = transactionTemplate.execute(status -> {
+            HealingStatistics statistics = statisticsService.lock(eye.getInjury().getId(), eye.getSide());
+            Eye record = eyeRepository.save(eye);
+            statistics.add(record.getDate(), record.getPercentageOfEyeAffectedByHyphema());
+            return record;
+        });
+        seriesCache.recordSaved(saved.getInjury().getPatient().getId(), saved.getInjury().getId(), saved.getSide(),
+                saved.getDate(), saved.getPercentageOfEyeAffectedByHyphema(), saved.getId());
+        cohortAnalyticsService.invalidate();
+        return saved;
+    }
+
+    /**
+     * Drops the cached series of a patient and outdates the cohort report, e.g. after the patient was deleted.
+     *
+     * @param patientId the ID of the patient
+     */
+    public void evictSeriesOfPatient(Long patientId) {
+        seriesCache.evictPatient(patientId);
+        cohortAnalyticsService.invalidate();
+    }
+
+    /**
+     * Reads one page of the measurement series of an eye.
+     *
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury
+     * @param side the side of the eye
+     * @param from the first date of the range, inclusive, or null for no lower bound
+     * @param to the last date of the range, inclusive, or null for no upper bound
+     * @param descending whether the newest results come first
+     * @param cursor the next cursor of the previous page, or null for the first page
+     * @param limit the requested page size, or null for the default; larger sizes are capped
+     * @return the page
+     * @throws IllegalArgumentException if the range, the cursor or the page size is invalid
+     */
+    public EyeSeriesPage findSeries(Long patientId, Long injuryId, EyeSide side, LocalDate from, LocalDate to,
+                                    boolean descending, String cursor, Integer limit) {
+        LocalDate first = from != null ? from : EARLIEST_DATE;
+        LocalDate last = to != null ? to : LATEST_DATE;
+        if (first.isAfter(last)) {
+            throw new IllegalArgumentException("Range starts after it ends");
+        }
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        int pageSize = limit != null ? Math.min(limit, maxPageSize) : defaultPageSize;
+        LocalDate cursorDate = cursor != null ? parseCursorDate(cursor) : null;
+        long cursorId = cursor != null ? parseCursorId(cursor) : 0;
+
+        Optional<MeasurementSeries> cached = seriesCache.get(patientId, injuryId, side);
+        if (cached.isPresent()) {
+            return toPage(pageOf(cached.get(), first, last, descending, cursorDate, cursorId, pageSize + 1), pageSize);
+        }
+
+        // One result more than requested tells whether there is a next page without a count query.
+        PageRequest page = PageRequest.of(0, pageSize + 1);
+        List<EyeResultDTO> results;
+        if (descending) {
+            LocalDate beforeDate = cursorDate != null ? cursorDate : last;
+            long beforeId = cursorDate != null ? cursorId : Long.MAX_VALUE;
+            results = patientRepository.findSeriesDescending(patientId, injuryId, side,
+                    beforeDate.isAfter(last) ? last.plusDays(1) : beforeDate, beforeId, first, page);
+        } else {
+            LocalDate afterDate = cursorDate != null ? cursorDate : first;
+            long afterId = cursorDate != null ? cursorId : 0;
+            results = patientRepository.findSeriesAscending(patientId, injuryId, side,
+                    afterDate.isBefore(first) ? first.minusDays(1) : afterDate, afterId, last, page);
+        }
+        return toPage(results, pageSize);
+    }
+
+    /**
+     * Reads the whole measurement series of an eye in a date range, reduced to at most {@code maxPoints}
+     * points with {@link SeriesDownsampler}.
+     * <p>
+     * Without a cached series, the range is read in pages of {@code hyphaema.chart.max-page-size} into
+     * primitive arrays. Either way, only the kept points are returned as objects.
+     * </p>
+     *
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury
+     * @param side the side of the eye
+     * @param from the first date of the range, inclusive, or null for no lower bound
+     * @param to the last date of the range, inclusive, or null for no upper bound
+     * @param descending whether the newest results come first
+     * @param maxPoints the maximum number of points, at least {@value SeriesDownsampler#MIN_POINTS}
+     * @return the kept points in the requested order
+     * @throws IllegalArgumentException if the range or the number of points is invalid
+     */
+    public List<EyeResultDTO> findDownsampledSeries(Long patientId, Long injuryId, EyeSide side, LocalDate from,
+                                                    LocalDate to, boolean descending, int maxPoints) {
+        LocalDate first = from != null ? from : EARLIEST_DATE;
+        LocalDate last = to != null ? to : LATEST_DATE;
+        if (first.isAfter(last)) {
+            throw new IllegalArgumentException("Range starts after it ends");
+        }
+        if (maxPoints < SeriesDownsampler.MIN_POINTS) {
+            throw new IllegalArgumentException("At least " + SeriesDownsampler.MIN_POINTS + " points must be kept");
+        }
+
+        Optional<MeasurementSeries> cached = seriesCache.get(patientId, injuryId, side);
+        if (cached.isPresent()) {
+            MeasurementSeries series = cached.get();
+            int lower = series.indexAfter(toEpochDay(first) - 1, Long.MAX_VALUE);
+            int upper = series.indexAfter(toEpochDay(last), Long.MAX_VALUE);
+            int length = upper - lower;
+            long[] ids = new long[length];
+            double[] days = new double[length];
+            double[] percentages = new double[length];
+            for (int i = 0; i < length; i++) {
+                ids[i] = series.getId(lower + i);
+                days[i] = series.getEpochDay(lower + i);
+                percentages[i] = series.getPercentage(lower + i);
+            }
+            return downsample(ids, days, percentages, length, maxPoints, descending);
+        }
+
+        long[] ids = new long[Math.min(maxPageSize, 1024)];
+        double[] days = new double[ids.length];
+        double[] percentages = new double[ids.length];
+        int length = 0;
+        LocalDate afterDate = first;
+        long afterId = 0;
+        PageRequest page = PageRequest.of(0, maxPageSize);
+        List<EyeResultDTO> results;
+        do {
+            results = patientRepository.findSeriesAscending(patientId, injuryId, side, afterDate, afterId, last, page);
+            if (length + results.size() > ids.length) {
+                int capacity = Math.max(ids.length * 2, length + results.size());
+                ids = Arrays.copyOf(ids, capacity);
+                days = Arrays.copyOf(days, capacity);
+                percentages = Arrays.copyOf(percentages, capacity);
+            }
+            for (EyeResultDTO result : results) {
+                ids[length] = result.getId();
+                days[length] = result.getDate().toEpochDay();
+                percentages[length] = result.getPercentageOfEyeAffectedByHyphema();
+                length++;
+            }
+            if (!results.isEmpty()) {
+                EyeResultDTO lastResult = results.get(results.size() - 1);
+                afterDate = lastResult.getDate();
+                afterId = lastResult.getId();
+            }
+        } while (results.size() == maxPageSize);
+        return downsample(ids, days, percentages, length, maxPoints, descending);
+    }
+
+    /**
+     * Collects up to {@code count} points of a cached series in the order and range of a page.
+     */
+    private static List<EyeResultDTO> pageOf(MeasurementSeries series, LocalDate first, LocalDate last, boolean descending,
+                                             LocalDate cursorDate, long cursorId, int count) {
+        int lower = series.indexAfter(toEpochDay(first) - 1, Long.MAX_VALUE);
+        int upper = series.indexAfter(toEpochDay(last), Long.MAX_VALUE);
+        List<EyeResultDTO> results = new ArrayList<>(Math.min(count, Math.max(0, upper - lower)));
+        if (descending) {
+            int end = cursorDate != null ? Math.min(upper, series.indexAfter(toEpochDay(cursorDate), cursorId - 1)) : upper;
+            for (int i = end - 1; i >= lower && results.size() < count; i--) {
+                results.add(toResult(series, i));
+            }
+        } else {
+            int start = cursorDate != null ? Math.max(lower, series.indexAfter(toEpochDay(cursorDate), cursorId)) : lower;
+            for (int i = start; i < upper && results.size() < count; i++) {
+                results.add(toResult(series, i));
+            }
+        }
+        return results;
+    }
+
+    private static EyeResultDTO toResult(MeasurementSeries series, int index) {
+        return new EyeResultDTO(series.getId(index), LocalDate.ofEpochDay(series.getEpochDay(index)),
+                series.getPercentage(index));
+    }
+
+    /**
+     * Cuts the extra result of a page and derives the cursor of the next page from it.
+     */
+    private static EyeSeriesPage toPage(List<EyeResultDTO> results, int pageSize) {
+        if (results.size() <= pageSize) {
+            return new EyeSeriesPage(results, null);
+        }
+        List<EyeResultDTO> pageResults = results.subList(0, pageSize);
+        EyeResultDTO lastResult = pageResults.get(pageSize - 1);
+        return new EyeSeriesPage(pageResults, lastResult.getDate().toString() + CURSOR_SEPARATOR + lastResult.getId());
+    }
+
+    private static List<EyeResultDTO> downsample(long[] ids, double[] days, double[] percentages, int length,
+                                                 int maxPoints, boolean descending) {
+        int[] kept = SeriesDownsampler.select(days, percentages, length, maxPoints);
+        List<EyeResultDTO> points = new ArrayList<>(kept.length);
+        for (int index : kept) {
+            points.add(new EyeResultDTO(ids[index], LocalDate.ofEpochDay((long) days[index]), percentages[index]));
+        }
+        if (descending) {
+            Collections.reverse(points);
+        }
+        return points;
+    }
+
+    /**
+     * Converts a date to an epoch day, saturating dates beyond the int range; the series never holds such dates.
+     */
+    private static int toEpochDay(LocalDate date) {
+        return (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE, date.toEpochDay()));
+    }
+
+    private static LocalDate parseCursorDate(String cursor) {
+        int separator = cursor.indexOf(CURSOR_SEPARATOR);
+        if (separator < 0) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor);
+        }
+        try {
+            return LocalDate.parse(cursor.substring(0, separator));
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor, e);
+        }
+    }
+
+    private static long parseCursorId(String cursor) {
+        int separator = cursor.indexOf(CURSOR_SEPARATOR);
+        try {
+            return Long.parseLong(cursor.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor " + cursor, e);
+        }
+    }
 }
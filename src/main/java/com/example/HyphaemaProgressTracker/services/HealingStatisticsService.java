@@ -0,0 +1,265 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.HyphaemaProgressTracker.dto.EyeResultDTO;
+import com.example.HyphaemaProgressTracker.dto.HealingSummaryDTO;
+import com.example.HyphaemaProgressTracker.entities.HealingStatistics;
+import com.example.HyphaemaProgressTracker.entities.HealingStatisticsRepository;
+import com.example.HyphaemaProgressTracker.entities.Injury;
+import com.example.HyphaemaProgressTracker.entities.InjuryRepository;
+import com.example.HyphaemaProgressTracker.entities.PatientRepository;
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * This service maintains the running {@link HealingStatistics} of every eye of an injury.
+ * <p>
+ * {@link EyeService#save} adds every new eye record to the statistics of its eye in the same
+ * transaction, under a row lock taken by {@link #lock}. The row is created beforehand by
+ * {@link #ensureExists} in a transaction of its own; when two first records of an eye are saved at
+ * the same time, the unique constraint on injury and side lets only one insert succeed and the other
+ * save uses the row inserted by the first.
+ * </p>
+ * <p>
+ * Records written without {@link EyeService#save}, such as the demo data or changes made directly in
+ * the database, are picked up by the repair run: every {@code hyphaema.statistics.repair.interval},
+ * and once shortly after startup, the statistics of all eyes are recomputed from the {@code eye}
+ * table and overwritten where they differ. Each eye is repaired in its own transaction while holding
+ * its row lock, so saves of that eye wait for the repair instead of being lost.
+ * </p>
+ *
+ * Metrics:
+ * <ul>
+ *     <li>{@code hyphaema.statistics.repaired} - statistics overwritten by a repair run because they were out of date</li>
+ * </ul>
+ */
+@Service
+public class HealingStatisticsService {
+
+    private static final Logger log = LoggerFactory.getLogger(HealingStatisticsService.class);
+
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1, 1, 1); // Same open range bounds as EyeService.
+    private static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+
+    private final HealingStatisticsRepository statisticsRepository;
+    private final InjuryRepository injuryRepository;
+    private final PatientRepository patientRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean repairEnabled;
+    private final Duration repairInitialDelay;
+    private final Duration repairInterval;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler;
+
+    private final Counter repairedCounter;
+
+    /**
+     * Constructs the service from the application configuration.
+     *
+     * @param statisticsRepository the repository for the statistics rows
+     * @param injuryRepository the repository the injuries to repair are read from
+     * @param patientRepository the repository running the series queries
+     * @param transactionTemplate the template for the transactions of the row creation and the repair
+     * @param meterRegistry the registry for repair metrics
+     * @param repairEnabled whether the statistics are repaired periodically
+     * @param repairInitialDelay the time between startup and the first repair run
+     * @param repairInterval the time between two repair runs
+     * @param batchSize the number of injuries loaded at once during a repair run, and of records per series query
+     */
+    public HealingStatisticsService(HealingStatisticsRepository statisticsRepository,
+                                    InjuryRepository injuryRepository,
+                                    PatientRepository patientRepository,
+                                    TransactionTemplate transactionTemplate,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${hyphaema.statistics.repair.enabled:true}") boolean repairEnabled,
+                                    @Value("${hyphaema.statistics.repair.initial-delay:1m}") Duration repairInitialDelay,
+                                    @Value("${hyphaema.statistics.repair.interval:24h}") Duration repairInterval,
+                                    @Value("${hyphaema.statistics.repair.batch-size:500}") int batchSize) {
+        this.statisticsRepository = statisticsRepository;
+        this.injuryRepository = injuryRepository;
+        this.patientRepository = patientRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.repairEnabled = repairEnabled;
+        this.repairInitialDelay = repairInitialDelay;
+        this.repairInterval = repairInterval;
+        this.batchSize = batchSize;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "statistics-repair");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.repairedCounter = Counter.builder("hyphaema.statistics.repaired")
+                .description("Healing statistics overwritten because they were out of date")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedules the repair runs.
+     */
+    @PostConstruct
+    public void start() {
+        if (repairEnabled) {
+            scheduler.scheduleWithFixedDelay(this::runRepair, repairInitialDelay.toMillis(), repairInterval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the repair runs; the eye that is being repaired is rolled back.
+     */
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Creates the empty statistics row of an eye unless it exists; must be called outside of a transaction.
+     *
+     * @param injury the injury
+     * @param side the side of the eye
+     */
+    public void ensureExists(Injury injury, EyeSide side) {
+        if (statisticsRepository.existsByInjuryIdAndSide(injury.getId(), side)) {
+            return;
+        }
+        try {
+            transactionTemplate.execute(status -> statisticsRepository.save(new HealingStatistics(injury, side)));
+        } catch (DataIntegrityViolationException e) {
+            // Inserted by a concurrent save of the same eye.
+        }
+    }
+
+    /**
+     * Locks the statistics row of an eye until the end of the current transaction.
+     *
+     * @param injuryId the ID of the injury
+     * @param side the side of the eye
+     * @return the locked statistics; changes are written when the transaction commits
+     * @throws IllegalStateException if the row was not created with {@link #ensureExists} before
+     */
+    public HealingStatistics lock(Long injuryId, EyeSide side) {
+        return statisticsRepository.findForUpdate(injuryId, side)
+                .orElseThrow(() -> new IllegalStateException("No statistics of injury " + injuryId + " (" + side + ")"));
+    }
+
+    /**
+     * Gets the healing summary of an eye.
+     *
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury
+     * @param side the side of the eye
+     * @return an Optional containing the summary, or empty if the eye has no records
+     */
+    public Optional<HealingSummaryDTO> findSummary(Long patientId, Long injuryId, EyeSide side) {
+        return statisticsRepository.findByPatientAndInjuryAndSide(patientId, injuryId, side)
+                .filter(statistics -> statistics.getCount() > 0)
+                .map(statistics -> new HealingSummaryDTO(statistics, LocalDate.now()));
+    }
+
+    /**
+     * Recomputes the statistics of all eyes from their records and overwrites those that are out of date.
+     *
+     * @return the number of overwritten statistics
+     */
+    public int repairAll() {
+        int repaired = 0;
+        long afterId = 0;
+        List<Injury> batch;
+        do {
+            batch = injuryRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, batchSize));
+            for (Injury injury : batch) {
+                for (EyeSide side : EyeSide.values()) {
+                    try {
+                        if (repair(injury, side)) {
+                            repaired++;
+                        }
+                    } catch (RuntimeException e) {
+                        log.warn("Could not repair the statistics of injury {} ({})", injury.getId(), side, e);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                afterId = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == batchSize);
+        return repaired;
+    }
+
+    /**
+     * Recomputes the statistics of one eye under its row lock.
+     *
+     * @return true if the statistics were out of date
+     */
+    private boolean repair(Injury injury, EyeSide side) {
+        if (!statisticsRepository.existsByInjuryIdAndSide(injury.getId(), side)) {
+            if (recompute(injury, side).getCount() == 0) {
+                return false; // No row for an eye without records.
+            }
+            ensureExists(injury, side);
+        }
+        Boolean changed = transactionTemplate.execute(status -> {
+            HealingStatistics statistics = lock(injury.getId(), side);
+            return statistics.copyFrom(recompute(injury, side));
+        });
+        if (Boolean.TRUE.equals(changed)) {
+            repairedCounter.increment();
+            log.info("Repaired the statistics of injury {} ({})", injury.getId(), side);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Adds the records of an eye in date and id order, the order in which they would have been saved.
+     */
+    private HealingStatistics recompute(Injury injury, EyeSide side) {
+        HealingStatistics statistics = new HealingStatistics(injury, side);
+        Long patientId = injury.getPatient().getId();
+        LocalDate afterDate = EARLIEST_DATE;
+        long afterId = 0;
+        PageRequest page = PageRequest.of(0, batchSize);
+        List<EyeResultDTO> results;
+        do {
+            results = patientRepository.findSeriesAscending(patientId, injury.getId(), side,
+                    afterDate, afterId, LATEST_DATE, page);
+            for (EyeResultDTO result : results) {
+                statistics.add(result.getDate(), (int) result.getPercentageOfEyeAffectedByHyphema());
+            }
+            if (!results.isEmpty()) {
+                afterDate = results.get(results.size() - 1).getDate();
+                afterId = results.get(results.size() - 1).getId();
+            }
+        } while (results.size() == batchSize);
+        return statistics;
+    }
+
+    private void runRepair() {
+        try {
+            long start = System.nanoTime();
+            int repaired = repairAll();
+            log.info("Repaired {} healing statistics in {} ms", repaired, (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("Statistics repair run failed", e);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.AnalysisPipelineMetrics;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalysisException;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalyzer;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.ImageNormalizer;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.SegmentationMask;
+import com.example.HyphaemaProgressTracker.threadConfiguration.AnalysisExecutors;
+
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * This service stores uploaded eye photos and runs hyphema analyses on them.
+ * <p>
+ * It is shared by the synchronous analysis endpoint and the asynchronous analysis jobs,
+ * so both produce exactly the same result. Results are looked up in the
+ * {@link AnalysisResultCache} by the hash of the photo before the engine is invoked. On a cache miss
+ * the photo is first reduced to analysis size by the {@link ImageNormalizer}; the engine reads the
+ * normalized copy while the client keeps seeing the original upload. If the engine returns the
+ * hyphema region, it is kept by the {@link SegmentationMaskStore} instead of the result cache.
+ * </p>
+ * <p>
+ * Synchronous requests run their analysis on a separate executor via
+ * {@link #analyseCancellable(Long, Long, String, LocalDate, StoredPhoto, BiConsumer)}, so the request
+ * can cancel the analysis, and thereby kill the analyzer process, when the client disconnects.
+ * </p>
+ */
+@Service
+public class HyphemaAnalysisService {
+
+    private static final Logger log = LoggerFactory.getLogger(HyphemaAnalysisService.class);
+
+    private final HyphemaAnalyzer hyphemaAnalyzer;
+    private final AnalysisResultCache analysisResultCache;
+    private final PhotoService photoService;
+    private final ImageNormalizer imageNormalizer;
+    private final SegmentationMaskStore segmentationMaskStore;
+    private final AnalysisPipelineMetrics pipelineMetrics;
+    private final ExecutorService requestExecutor;
+    private final Duration requestTimeout;
+
+    /**
+     * Constructs the service with the configured analysis engine.
+     *
+     * @param hyphemaAnalyzer the configured hyphema analysis engine
+     * @param analysisResultCache the cache of previous analysis results
+     * @param photoService the service storing uploads and their metadata
+     * @param imageNormalizer the stage preparing photos for the engine
+     * @param segmentationMaskStore the store for the hyphema regions found by the engine
+     * @param pipelineMetrics the timers of the pipeline stages
+     * @param analysisExecutors the factory creating platform or virtual thread executors
+     * @param requestThreads the number of threads running analyses of synchronous requests (unused with virtual threads)
+     * @param requestTimeout how long a synchronous request waits for its analysis
+     */
+    public HyphemaAnalysisService(HyphemaAnalyzer hyphemaAnalyzer,
+                                  AnalysisResultCache analysisResultCache,
+                                  PhotoService photoService,
+                                  ImageNormalizer imageNormalizer,
+                                  SegmentationMaskStore segmentationMaskStore,
+                                  AnalysisPipelineMetrics pipelineMetrics,
+                                  AnalysisExecutors analysisExecutors,
+                                  @Value("${hyphaema.analysis.request-threads:16}") int requestThreads,
+                                  @Value("${hyphaema.analysis.request-timeout:120s}") Duration requestTimeout) {
+        this.hyphemaAnalyzer = hyphemaAnalyzer;
+        this.analysisResultCache = analysisResultCache;
+        this.photoService = photoService;
+        this.imageNormalizer = imageNormalizer;
+        this.segmentationMaskStore = segmentationMaskStore;
+        this.pipelineMetrics = pipelineMetrics;
+        this.requestTimeout = requestTimeout;
+        this.requestExecutor = analysisExecutors.newExecutor("analysis-request", requestThreads);
+    }
+
+    /**
+     * Stops the executor of synchronous requests.
+     */
+    @PreDestroy
+    public void shutdown() {
+        requestExecutor.shutdownNow();
+    }
+
+    /**
+     * Gets how long a synchronous request waits for its analysis.
+     * @return the request timeout.
+     */
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * Saves an uploaded photo of an injury in the photo store.
+     * <p>
+     * The photo is streamed to disk by {@link PhotoStorageService}, which also calculates its
+     * SHA-256 hash and rejects photos that are too large or not a supported image, and recorded
+     * by {@link PhotoService} under an opaque ID.
+     * </p>
+     *
+     * @param photo the uploaded photo
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury the photo was taken for
+     * @return the saved photo with its ID and content hash
+     * @throws IOException if the photo cannot be written
+     */
+    public StoredPhoto storePhoto(MultipartFile photo, Long patientId, Long injuryId) throws IOException {
+        Timer.Sample sample = pipelineMetrics.start();
+        try {
+            StoredPhoto storedPhoto = photoService.store(photo, patientId, injuryId);
+            pipelineMetrics.stop(sample, AnalysisPipelineMetrics.STAGE_UPLOAD, AnalysisPipelineMetrics.OUTCOME_SUCCESS);
+            pipelineMetrics.recordPhotoSize(storedPhoto.getSize());
+            return storedPhoto;
+        } catch (Exception e) {
+            pipelineMetrics.stop(sample, AnalysisPipelineMetrics.STAGE_UPLOAD, AnalysisPipelineMetrics.outcomeOf(e));
+            throw e;
+        }
+    }
+
+    /**
+     * Analyzes a saved photo and compiles the result returned to the client.
+     *
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury
+     * @param eyeSide the side of the eye being analyzed (e.g., LEFT, RIGHT)
+     * @param date the date of the analysis
+     * @param photo the saved photo
+     * @return the result, including the percentage of the eye affected by hyphema
+     * @throws HyphemaAnalysisException if the engine reports that the photo cannot be analyzed
+     * @throws IOException if the photo or the engine output cannot be read
+     * @throws InterruptedException if the thread is interrupted while waiting for the engine
+     */
+    public Map<String, Object> analyse(Long patientId, Long injuryId, String eyeSide, LocalDate date, StoredPhoto photo)
+            throws HyphemaAnalysisException, IOException, InterruptedException {
+        Map<String, Object> analysisData = analyseCached(photo);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("patientId", patientId);
+        result.put("injuryId", injuryId);
+        result.put("eye", eyeSide);
+        result.put("date", date);
+
+        // URL of the saved image relative to the application
+        result.put("processedImage", "/uploads/" + photo.getId());
+        result.put("photoId", photo.getId());
+        result.put("percentageOfEyeAffectedByHyphema", analysisData.get(HyphemaAnalyzer.RESULT_PERCENTAGE));
+        result.put("analyzer", hyphemaAnalyzer.getName());
+        return result;
+    }
+
+    /**
+     * Starts an analysis of a saved photo that can be cancelled.
+     * <p>
+     * Cancelling the returned future with {@code mayInterruptIfRunning} interrupts the analysis;
+     * a running analyzer process is then killed and the callback is not invoked with a result.
+     * </p>
+     *
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury
+     * @param eyeSide the side of the eye being analyzed (e.g., LEFT, RIGHT)
+     * @param date the date of the analysis
+     * @param photo the saved photo
+     * @param callback receives either the result or the exception the analysis failed with
+     * @return the future used to cancel the analysis
+     */
+    public Future<?> analyseCancellable(Long patientId, Long injuryId, String eyeSide, LocalDate date, StoredPhoto photo,
+                                        BiConsumer<Map<String, Object>, Exception> callback) {
+        return requestExecutor.submit(() -> {
+            Map<String, Object> result;
+            try {
+                result = analyse(patientId, injuryId, eyeSide, date, photo);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                callback.accept(null, e);
+                return;
+            } catch (Exception e) {
+                callback.accept(null, e);
+                return;
+            }
+            callback.accept(result, null);
+        });
+    }
+
+    /**
+     * Returns the cached result for a byte-identical photo, or runs the engine and caches its result.
+     * Failed analyses are not cached; the mask of a successful one is stored separately.
+     */
+    private Map<String, Object> analyseCached(StoredPhoto photo)
+            throws HyphemaAnalysisException, IOException, InterruptedException {
+        Optional<Map<String, Object>> cached = analysisResultCache.get(photo.getSha256());
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        long start = System.nanoTime();
+        Timer.Sample normalizeSample = pipelineMetrics.start();
+        Path normalized;
+        try {
+            normalized = imageNormalizer.normalize(photo.getPath(), photo.getSha256());
+        } catch (Exception e) {
+            pipelineMetrics.stop(normalizeSample, AnalysisPipelineMetrics.STAGE_NORMALIZE, AnalysisPipelineMetrics.outcomeOf(e));
+            throw e;
+        }
+        pipelineMetrics.stop(normalizeSample, AnalysisPipelineMetrics.STAGE_NORMALIZE, AnalysisPipelineMetrics.OUTCOME_SUCCESS);
+
+        Timer.Sample analysisSample = pipelineMetrics.start();
+        Map<String, Object> analysisData;
+        try {
+            analysisData = hyphemaAnalyzer.analyse(normalized);
+            if (analysisData.containsKey(HyphemaAnalyzer.RESULT_ERROR)) {
+                throw new HyphemaAnalysisException(String.valueOf(analysisData.get(HyphemaAnalyzer.RESULT_ERROR)));
+            }
+        } catch (Exception e) {
+            pipelineMetrics.stop(analysisSample, AnalysisPipelineMetrics.STAGE_ANALYSIS, AnalysisPipelineMetrics.outcomeOf(e));
+            pipelineMetrics.recordFailure(e);
+            throw e;
+        }
+        pipelineMetrics.stop(analysisSample, AnalysisPipelineMetrics.STAGE_ANALYSIS, AnalysisPipelineMetrics.OUTCOME_SUCCESS);
+
+        analysisData = new HashMap<>(analysisData);
+        Object mask = analysisData.remove(HyphemaAnalyzer.RESULT_MASK);
+        if (mask != null) {
+            saveMask(photo, mask);
+        }
+        analysisResultCache.put(photo.getSha256(), analysisData, Duration.ofNanos(System.nanoTime() - start));
+        return analysisData;
+    }
+
+    /**
+     * Stores the hyphema region of an analysis; the percentage stays valid if the mask cannot be stored.
+     */
+    private void saveMask(StoredPhoto photo, Object mask) {
+        try {
+            segmentationMaskStore.save(photo.getSha256(), SegmentationMask.fromResult(mask));
+        } catch (IOException | IllegalArgumentException e) {
+            log.warn("Could not store the segmentation mask of photo {}", photo.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.HyphaemaProgressTracker.services;
+
+/**
+ * An immutable snapshot of the measurement series of one eye of an injury, held as parallel primitive arrays.
+ * <p>
+ * Point {@code i} is the record {@code getId(i)}, measured on {@code getEpochDay(i)} with
+ * {@code getPercentage(i)}. Points are ordered by date and record id, the same order and tie-breaker as
+ * the keyset pages of the chart endpoint. A point takes {@value #BYTES_PER_POINT} bytes, against about
+ * 80 bytes for an {@code EyeResultDTO} with its {@code Long} and {@code LocalDate}.
+ * </p>
+ * <p>
+ * Appending a point at the end creates a new snapshot that shares the arrays with this one: it writes
+ * behind the last point visible to this snapshot, so readers of this snapshot are not affected. Only
+ * one snapshot of a series may be appended to, which {@link MeasurementSeriesCache} guarantees by
+ * appending under its lock to the current snapshot only.
+ * </p>
+ */
+public final class MeasurementSeries {
+
+    static final int BYTES_PER_POINT = Integer.BYTES + Short.BYTES + Long.BYTES;
+    private static final int OVERHEAD_BYTES = 3 * 16 + 32; // Array headers and the snapshot itself.
+    private static final int MIN_CAPACITY = 16;
+
+    private final int[] epochDays;
+    private final short[] percentages;
+    private final long[] ids;
+    private final int size;
+
+    private MeasurementSeries(int[] epochDays, short[] percentages, long[] ids, int size) {
+        this.epochDays = epochDays;
+        this.percentages = percentages;
+        this.ids = ids;
+        this.size = size;
+    }
+
+    /**
+     * Creates a series from points in date and id order.
+     *
+     * @param epochDays the measurement dates as epoch days
+     * @param percentages the affected percentages
+     * @param ids the record ids
+     * @param size the number of points in the arrays
+     * @return the series, owning the arrays
+     * @throws IllegalArgumentException if a percentage does not fit into a short
+     */
+    static MeasurementSeries of(int[] epochDays, int[] percentages, long[] ids, int size) {
+        short[] shortPercentages = new short[epochDays.length];
+        for (int i = 0; i < size; i++) {
+            shortPercentages[i] = toShort(percentages[i]);
+        }
+        return new MeasurementSeries(epochDays, shortPercentages, ids, size);
+    }
+
+    /**
+     * Returns a series with one more point.
+     * <p>
+     * A record the series already contains is not added again. This happens when the series was loaded
+     * after the record was committed but before the cache was told about it.
+     * </p>
+     *
+     * @param epochDay the measurement date as epoch day
+     * @param percentage the affected percentage
+     * @param id the record id
+     * @return the new snapshot, or this series if it already contains the record
+     * @throws IllegalArgumentException if the percentage does not fit into a short
+     */
+    MeasurementSeries with(int epochDay, int percentage, long id) {
+        short value = toShort(percentage);
+        int position = indexAfter(epochDay, id);
+        if (position > 0 && ids[position - 1] == id) {
+            return this;
+        }
+        if (position == size && size < epochDays.length) {
+            // The common case, a new measurement of today: written behind this snapshot's last point.
+            epochDays[size] = epochDay;
+            percentages[size] = value;
+            ids[size] = id;
+            return new MeasurementSeries(epochDays, percentages, ids, size + 1);
+        }
+
+        int capacity = size < epochDays.length ? epochDays.length : Math.max(MIN_CAPACITY, size + (size >> 1));
+        int[] newEpochDays = new int[capacity];
+        short[] newPercentages = new short[capacity];
+        long[] newIds = new long[capacity];
+        System.arraycopy(epochDays, 0, newEpochDays, 0, position);
+        System.arraycopy(percentages, 0, newPercentages, 0, position);
+        System.arraycopy(ids, 0, newIds, 0, position);
+        newEpochDays[position] = epochDay;
+        newPercentages[position] = value;
+        newIds[position] = id;
+        System.arraycopy(epochDays, position, newEpochDays, position + 1, size - position);
+        System.arraycopy(percentages, position, newPercentages, position + 1, size - position);
+        System.arraycopy(ids, position, newIds, position + 1, size - position);
+        return new MeasurementSeries(newEpochDays, newPercentages, newIds, size + 1);
+    }
+
+    /**
+     * Finds the first point after a date and record id.
+     *
+     * @param epochDay the date as epoch day
+     * @param id the record id
+     * @return the index of the first point ordered after {@code (epochDay, id)}, or {@link #size()} if there is none
+     */
+    public int indexAfter(int epochDay, long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (epochDays[middle] < epochDay || epochDays[middle] == epochDay && ids[middle] <= id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Gets the number of points.
+     * @return the size of the series.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the measurement date of a point.
+     * @param index the index of the point.
+     * @return the date as epoch day.
+     */
+    public int getEpochDay(int index) {
+        return epochDays[index];
+    }
+
+    /**
+     * Gets the affected percentage of a point.
+     * @param index the index of the point.
+     * @return the percentage.
+     */
+    public int getPercentage(int index) {
+        return percentages[index];
+    }
+
+    /**
+     * Gets the record id of a point.
+     * @param index the index of the point.
+     * @return the id of the eye record.
+     */
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * Estimates the heap taken by the arrays, including unused capacity.
+     * @return the estimated size in bytes.
+     */
+    long estimateBytes() {
+        return OVERHEAD_BYTES + (long) epochDays.length * BYTES_PER_POINT;
+    }
+
+    private static short toShort(int percentage) {
+        if (percentage < Short.MIN_VALUE || percentage > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Percentage " + percentage + " does not fit into the series");
+        }
+        return (short) percentage;
+    }
+}
@@ -0,0 +1,327 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.example.HyphaemaProgressTracker.dto.EyeResultDTO;
+import com.example.HyphaemaProgressTracker.entities.PatientRepository;
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * This service keeps the measurement series shown in the chart in memory, one {@link MeasurementSeries}
+ * per patient, injury and eye side.
+ * <p>
+ * A series is loaded from the database on the first request and then kept up to date by
+ * {@link #recordSaved}, which adds every newly saved record to the cached snapshot instead of loading
+ * the series again. The cache is bounded by {@code hyphaema.chart.cache.max-size}, an estimate of the
+ * heap taken by the arrays; least recently used series are evicted first.
+ * </p>
+ * <p>
+ * A record saved while a series is being loaded may or may not be part of the loaded rows. Every save
+ * therefore advances a stamp of its key's stripe, and a load whose stripe was stamped in the meantime
+ * is served once but not cached.
+ * </p>
+ *
+ * Metrics:
+ * <ul>
+ *     <li>{@code hyphaema.chart.cache.requests} - lookups, tagged with {@code result=hit|miss}</li>
+ *     <li>{@code hyphaema.chart.cache.size} - estimated heap taken by cached series, in bytes</li>
+ *     <li>{@code hyphaema.chart.cache.series} - number of cached series</li>
+ * </ul>
+ */
+@Service
+public class MeasurementSeriesCache {
+
+    private static final Logger log = LoggerFactory.getLogger(MeasurementSeriesCache.class);
+
+    private static final int STRIPES = 64;
+    private static final int KEY_OVERHEAD_BYTES = 96; // Key, map entry and list links per series.
+    private static final LocalDate EARLIEST_DATE = LocalDate.of(1, 1, 1);
+    private static final LocalDate LATEST_DATE = LocalDate.of(9999, 12, 31);
+
+    private final PatientRepository patientRepository;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final int loadPageSize;
+
+    // Access-ordered, so iteration starts with the least recently used series.
+    private final LinkedHashMap<SeriesKey, MeasurementSeries> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Guards entries, totalBytes and stamps; the database is only queried after releasing it.
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long[] stamps = new long[STRIPES];
+    private long totalBytes;
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    /**
+     * Constructs the cache from the application configuration.
+     *
+     * @param patientRepository the repository the series are loaded from
+     * @param meterRegistry the registry for cache metrics
+     * @param enabled whether series are cached at all
+     * @param maxSize the estimated heap the cached series may take
+     * @param loadPageSize the number of records read per query when loading a series
+     */
+    public MeasurementSeriesCache(PatientRepository patientRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${hyphaema.chart.cache.enabled:true}") boolean enabled,
+                                  @Value("${hyphaema.chart.cache.max-size:64MB}") DataSize maxSize,
+                                  @Value("${hyphaema.chart.max-page-size:5000}") int loadPageSize) {
+        this.patientRepository = patientRepository;
+        this.enabled = enabled;
+        this.maxBytes = maxSize.toBytes();
+        this.loadPageSize = loadPageSize;
+
+        this.hitCounter = Counter.builder("hyphaema.chart.cache.requests").tag("result", "hit")
+                .description("Measurement series cache lookups").register(meterRegistry);
+        this.missCounter = Counter.builder("hyphaema.chart.cache.requests").tag("result", "miss")
+                .description("Measurement series cache lookups").register(meterRegistry);
+        Gauge.builder("hyphaema.chart.cache.size", this, MeasurementSeriesCache::getEstimatedBytes).baseUnit("bytes")
+                .description("Estimated heap taken by cached measurement series").register(meterRegistry);
+        Gauge.builder("hyphaema.chart.cache.series", this, MeasurementSeriesCache::size)
+                .description("Number of cached measurement series").register(meterRegistry);
+    }
+
+    /**
+     * Gets the whole measurement series of an eye, loading it on a miss.
+     *
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury
+     * @param side the side of the eye
+     * @return an Optional containing the series, or empty if the cache is disabled or the series cannot be
+     *         held as a {@link MeasurementSeries}; the caller then queries the database itself
+     */
+    public Optional<MeasurementSeries> get(Long patientId, Long injuryId, EyeSide side) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        SeriesKey key = new SeriesKey(patientId, injuryId, side);
+        long stamp;
+        lock.lock();
+        try {
+            MeasurementSeries cached = entries.get(key);
+            if (cached != null) {
+                hitCounter.increment();
+                return Optional.of(cached);
+            }
+            stamp = stamps[key.stripe()];
+        } finally {
+            lock.unlock();
+        }
+        missCounter.increment();
+
+        MeasurementSeries loaded;
+        try {
+            loaded = load(key);
+        } catch (IllegalArgumentException e) {
+            log.warn("Measurement series of injury {} ({}) cannot be cached", injuryId, side, e);
+            return Optional.empty();
+        }
+
+        lock.lock();
+        try {
+            if (stamps[key.stripe()] == stamp && !entries.containsKey(key)) {
+                put(key, loaded);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return Optional.of(loaded);
+    }
+
+    /**
+     * Adds a newly saved record to its cached series, if the series is cached.
+     *
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury
+     * @param side the side of the eye
+     * @param date the measurement date
+     * @param percentage the affected percentage
+     * @param id the ID of the saved record
+     */
+    public void recordSaved(Long patientId, Long injuryId, EyeSide side, LocalDate date, int percentage, long id) {
+        SeriesKey key = new SeriesKey(patientId, injuryId, side);
+        lock.lock();
+        try {
+            stamps[key.stripe()]++;
+            MeasurementSeries cached = entries.get(key);
+            if (cached != null) {
+                remove(key);
+                try {
+                    put(key, cached.with(Math.toIntExact(date.toEpochDay()), percentage, id));
+                } catch (IllegalArgumentException e) {
+                    log.warn("Measurement series of injury {} ({}) is no longer cached", injuryId, side, e);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes all series of a patient, e.g. after the patient was deleted.
+     *
+     * @param patientId the ID of the patient
+     */
+    public void evictPatient(Long patientId) {
+        lock.lock();
+        try {
+            for (int i = 0; i < STRIPES; i++) {
+                stamps[i]++;
+            }
+            Iterator<Map.Entry<SeriesKey, MeasurementSeries>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<SeriesKey, MeasurementSeries> entry = iterator.next();
+                if (entry.getKey().patientId.equals(patientId)) {
+                    totalBytes -= estimateBytes(entry.getValue());
+                    iterator.remove();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the estimated heap taken by the cached series.
+     * @return the estimate in bytes.
+     */
+    public long getEstimatedBytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the number of cached series.
+     * @return the number of series.
+     */
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads a whole series in keyset pages into primitive arrays.
+     */
+    private MeasurementSeries load(SeriesKey key) {
+        int[] epochDays = new int[0];
+        int[] percentages = new int[0];
+        long[] ids = new long[0];
+        int size = 0;
+        LocalDate afterDate = EARLIEST_DATE;
+        long afterId = 0;
+        PageRequest page = PageRequest.of(0, loadPageSize);
+        List<EyeResultDTO> results;
+        do {
+            results = patientRepository.findSeriesAscending(key.patientId, key.injuryId, key.side,
+                    afterDate, afterId, LATEST_DATE, page);
+            if (size + results.size() > epochDays.length) {
+                int capacity = size + results.size();
+                epochDays = Arrays.copyOf(epochDays, capacity);
+                percentages = Arrays.copyOf(percentages, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+            }
+            for (EyeResultDTO result : results) {
+                epochDays[size] = Math.toIntExact(result.getDate().toEpochDay());
+                percentages[size] = (int) result.getPercentageOfEyeAffectedByHyphema();
+                ids[size] = result.getId();
+                size++;
+            }
+            if (!results.isEmpty()) {
+                afterDate = results.get(results.size() - 1).getDate();
+                afterId = results.get(results.size() - 1).getId();
+            }
+        } while (results.size() == loadPageSize);
+        return MeasurementSeries.of(epochDays, percentages, ids, size);
+    }
+
+    /**
+     * Adds a series and evicts the least recently used ones beyond the budget; called with the lock held.
+     */
+    private void put(SeriesKey key, MeasurementSeries series) {
+        long bytes = estimateBytes(series);
+        if (bytes > maxBytes) {
+            return;
+        }
+        entries.put(key, series);
+        totalBytes += bytes;
+        Iterator<Map.Entry<SeriesKey, MeasurementSeries>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<SeriesKey, MeasurementSeries> eldest = iterator.next();
+            totalBytes -= estimateBytes(eldest.getValue());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes a series; called with the lock held.
+     */
+    private void remove(SeriesKey key) {
+        MeasurementSeries removed = entries.remove(key);
+        if (removed != null) {
+            totalBytes -= estimateBytes(removed);
+        }
+    }
+
+    private static long estimateBytes(MeasurementSeries series) {
+        return KEY_OVERHEAD_BYTES + series.estimateBytes();
+    }
+
+    /**
+     * Identifies the series of one eye of an injury.
+     */
+    private static final class SeriesKey {
+
+        private final Long patientId;
+        private final Long injuryId;
+        private final EyeSide side;
+
+        SeriesKey(Long patientId, Long injuryId, EyeSide side) {
+            this.patientId = patientId;
+            this.injuryId = injuryId;
+            this.side = side;
+        }
+
+        int stripe() {
+            return Math.floorMod(hashCode(), STRIPES);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof SeriesKey key
+                    && patientId.equals(key.patientId) && injuryId.equals(key.injuryId) && side == key.side;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(patientId, injuryId, side);
+        }
+    }
+}
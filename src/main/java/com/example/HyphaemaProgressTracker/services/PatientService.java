@@ -1,18 +1,164 @@
 package com.example.HyphaemaProgressTracker.services;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.example.HyphaemaProgressTracker.dto.PatientPage;
+import com.example.HyphaemaProgressTracker.dto.PatientSummaryDTO;
 import com.example.HyphaemaProgressTracker.entities.Patient;
+import com.example.HyphaemaProgressTracker.entities.PatientRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * This service provides methods for creating and managing Patient objects.
+ * <p>
+ * Patients are listed as {@link PatientSummaryDTO}, read with a constructor query, so neither the
+ * password hashes nor managed entities are loaded. A listing is either read page by page with a
+ * keyset cursor, like the chart series, or written as one JSON array while the rows are streamed
+ * from the database in a read-only transaction, so the whole table is never held in memory.
+ * </p>
  */
 @Service
 public class PatientService {
+
+    private static final char LIKE_ESCAPE = '!'; // Escape character of the login patterns in PatientRepository.
+
+    private final PatientRepository patientRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    /**
+     * Constructs the service from the application configuration.
+     *
+     * @param patientRepository the repository running the listing queries
+     * @param transactionManager the transaction manager for the read-only transaction of a streamed listing
+     * @param objectMapper the mapper writing a streamed listing
+     * @param defaultPageSize the number of patients of a page if the client does not ask for a size
+     * @param maxPageSize the largest page a client can ask for
+     */
+    public PatientService(PatientRepository patientRepository,
+                          PlatformTransactionManager transactionManager,
+                          ObjectMapper objectMapper,
+                          @Value("${hyphaema.patients.page-size:100}") int defaultPageSize,
+                          @Value("${hyphaema.patients.max-page-size:1000}") int maxPageSize) {
+        this.patientRepository = patientRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+        this.maxPageSize = maxPageSize;
+        this.defaultPageSize = Math.min(defaultPageSize, maxPageSize);
+    }
+
     public Patient createNewPatient() {
         Patient patient = new Patient();
         return patient;
     }
-}
 
+    /**
+     * Reads one page of the patient listing.
+     *
+     * @param loginPrefix the prefix the login must start with, or null for all patients
+     * @param after the next cursor of the previous page, or null for the first page
+     * @param limit the requested page size, or null for the default; larger sizes are capped
+     * @return the page
+     * @throws IllegalArgumentException if the page size is not positive
+     */
+    public PatientPage findPage(String loginPrefix, Long after, Integer limit) {
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        int pageSize = limit != null ? Math.min(limit, maxPageSize) : defaultPageSize;
+        // One patient more than requested tells whether there is a next page without a count query.
+        List<PatientSummaryDTO> results = patientRepository.findPatientsAfter(after != null ? after : 0,
+                loginPatternOf(loginPrefix), PageRequest.of(0, pageSize + 1));
+        if (results.size() <= pageSize) {
+            return new PatientPage(results, null);
+        }
+        List<PatientSummaryDTO> page = results.subList(0, pageSize);
+        return new PatientPage(page, page.get(pageSize - 1).getId());
+    }
 
+    /**
+     * Writes all matching patients as a JSON array, streaming them from the database.
+     * <p>
+     * The output is only opened once the first patient has been read, in the same query, so a caller
+     * can still answer an empty listing differently.
+     * </p>
+     *
+     * @param loginPrefix the prefix the login must start with, or null for all patients
+     * @param output opens the stream the JSON is written to; it is flushed but not closed
+     * @return true if at least one patient was written, false if none matched and the output was not opened
+     * @throws IOException if writing fails
+     */
+    public boolean writePatients(String loginPrefix, Output output) throws IOException {
+        try {
+            return readOnlyTransaction.execute(status -> {
+                try (Stream<PatientSummaryDTO> patients = patientRepository.streamPatients(loginPatternOf(loginPrefix))) {
+                    Iterator<PatientSummaryDTO> iterator = patients.iterator();
+                    if (!iterator.hasNext()) {
+                        return false;
+                    }
+                    try (JsonGenerator generator = objectMapper.getFactory().createGenerator(output.open())) {
+                        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                        generator.writeStartArray();
+                        while (iterator.hasNext()) {
+                            generator.writeObject(iterator.next());
+                        }
+                        generator.writeEndArray();
+                    }
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Opens the stream a listing is written to.
+     */
+    @FunctionalInterface
+    public interface Output {
+
+        /**
+         * Opens the stream, e.g. after setting the response headers.
+         *
+         * @return the stream
+         * @throws IOException if the stream cannot be opened
+         */
+        OutputStream open() throws IOException;
+    }
+
+    /**
+     * Turns a login prefix into a LIKE pattern, escaping the wildcards it contains.
+     */
+    private static String loginPatternOf(String loginPrefix) {
+        if (loginPrefix == null) {
+            return "%";
+        }
+        StringBuilder pattern = new StringBuilder(loginPrefix.length() + 2);
+        for (int i = 0; i < loginPrefix.length(); i++) {
+            char c = loginPrefix.charAt(i);
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
@@ -0,0 +1,352 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.example.HyphaemaProgressTracker.entities.Photo;
+import com.example.HyphaemaProgressTracker.entities.PhotoRepository;
+import com.example.HyphaemaProgressTracker.enums.ImageFormat;
+import com.example.HyphaemaProgressTracker.enums.StorageTier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * This service moves photos of closed injuries from the photo store to a compressed archive and back.
+ * <p>
+ * An injury counts as closed when it has no eye record for {@code hyphaema.archive.closed-after-days}
+ * days. Every {@code hyphaema.archive.interval}, the photos of closed injuries that have not moved
+ * between tiers for that long are gzip compressed into {@code hyphaema.archive.dir}, using the same
+ * sharded layout as the photo store, and removed from the store. Bytes that are shared with a photo
+ * of an open injury stay in the store. Already compressed formats such as JPEG shrink only a little;
+ * the main gain is that the store, which should be on fast storage, only holds photos in use.
+ * </p>
+ * <p>
+ * Archived photos are restored transparently: {@link PhotoService#open} decompresses them into the
+ * store when their bytes are first needed and marks them as hot again, so they are only archived again after another
+ * {@code closed-after-days} days. Archiving and restoring the same bytes never run at the same time.
+ * </p>
+ *
+ * Metrics:
+ * <ul>
+ *     <li>{@code hyphaema.storage.disk.usage} - bytes on disk, tagged with {@code tier=hot|archive};
+ *     measured after every archive run and adjusted when photos are archived or restored</li>
+ *     <li>{@code hyphaema.archive.archived} - photos moved to the archive</li>
+ *     <li>{@code hyphaema.archive.restore.time} - time spent restoring a photo from the archive</li>
+ * </ul>
+ */
+@Service
+public class PhotoArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(PhotoArchiveService.class);
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final PhotoStorageService photoStorageService;
+    private final PhotoRepository photoRepository;
+    private final boolean enabled;
+    private final Path archiveDir;
+    private final int closedAfterDays;
+    private final Duration interval;
+    private final int batchSize;
+    private final ScheduledExecutorService scheduler;
+
+    // Striped by content hash, so archiving, restoring and uploading the same bytes are serialized.
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final AtomicLong hotBytes = new AtomicLong();
+    private final AtomicLong archiveBytes = new AtomicLong();
+
+    private final Counter archivedCounter;
+    private final Timer restoreTimer;
+
+    /**
+     * Constructs the service from the application configuration.
+     *
+     * @param photoStorageService the photo store the photos are moved out of and back into
+     * @param photoRepository the repository for photo metadata
+     * @param meterRegistry the registry for disk usage and restore metrics
+     * @param enabled whether photos are archived periodically
+     * @param archiveDir the root folder of the archive
+     * @param closedAfterDays the number of days without eye records after which an injury is closed
+     * @param interval the time between two archive runs
+     * @param batchSize the number of photos loaded at once during an archive run
+     */
+    public PhotoArchiveService(PhotoStorageService photoStorageService,
+                               PhotoRepository photoRepository,
+                               MeterRegistry meterRegistry,
+                               @Value("${hyphaema.archive.enabled:true}") boolean enabled,
+                               @Value("${hyphaema.archive.dir:data/archive}") String archiveDir,
+                               @Value("${hyphaema.archive.closed-after-days:180}") int closedAfterDays,
+                               @Value("${hyphaema.archive.interval:6h}") Duration interval,
+                               @Value("${hyphaema.archive.batch-size:500}") int batchSize) {
+        this.photoStorageService = photoStorageService;
+        this.photoRepository = photoRepository;
+        this.enabled = enabled;
+        this.archiveDir = Paths.get(archiveDir);
+        this.closedAfterDays = closedAfterDays;
+        this.interval = interval;
+        this.batchSize = batchSize;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "photo-archive");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("hyphaema.storage.disk.usage", hotBytes, AtomicLong::get).baseUnit("bytes")
+                .description("Bytes occupied by stored photos")
+                .tag("tier", "hot")
+                .register(meterRegistry);
+        Gauge.builder("hyphaema.storage.disk.usage", archiveBytes, AtomicLong::get).baseUnit("bytes")
+                .description("Bytes occupied by stored photos")
+                .tag("tier", "archive")
+                .register(meterRegistry);
+        this.archivedCounter = Counter.builder("hyphaema.archive.archived")
+                .description("Photos moved to the archive")
+                .register(meterRegistry);
+        this.restoreTimer = Timer.builder("hyphaema.archive.restore.time")
+                .description("Time spent restoring archived photos")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Measures the disk usage in the background and schedules the archive runs.
+     */
+    @PostConstruct
+    public void start() {
+        scheduler.execute(this::measureDiskUsage);
+        if (enabled) {
+            scheduler.scheduleWithFixedDelay(this::runArchive, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops the archive runs; a photo that is being archived stays in the store.
+     */
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Moves the photos of closed injuries to the archive.
+     * <p>
+     * Photos are loaded in batches until a batch does not archive anything, so bytes shared with an
+     * open injury do not stop the run.
+     * </p>
+     *
+     * @return the number of archived photo files
+     */
+    public int archiveClosedInjuries() {
+        Instant unchangedSince = Instant.now().minus(Duration.ofDays(closedAfterDays));
+        LocalDate activeSince = LocalDate.now().minusDays(closedAfterDays);
+        int archived = 0;
+        List<Photo> batch;
+        int archivedInBatch;
+        do {
+            batch = photoRepository.findInClosedInjuries(StorageTier.HOT, unchangedSince, activeSince,
+                    PageRequest.of(0, batchSize));
+            Map<String, List<Photo>> bySha256 = new LinkedHashMap<>();
+            for (Photo photo : batch) {
+                bySha256.computeIfAbsent(photo.getSha256(), sha256 -> new ArrayList<>()).add(photo);
+            }
+            archivedInBatch = 0;
+            for (List<Photo> photos : bySha256.values()) {
+                Photo first = photos.get(0);
+                try {
+                    if (archive(first.getSha256(), first.getFormat(), photos)) {
+                        archivedInBatch++;
+                    }
+                } catch (IOException e) {
+                    log.warn("Could not archive photo {}", first.getSha256(), e);
+                }
+            }
+            archived += archivedInBatch;
+        } while (batch.size() == batchSize && archivedInBatch > 0);
+        return archived;
+    }
+
+    /**
+     * Restores an archived photo into the photo store, together with all records of the same bytes.
+     *
+     * @param photo the archived photo
+     * @return the path of the photo in the store
+     * @throws IOException if the archived photo cannot be read or the restored photo cannot be written
+     */
+    public Path restore(Photo photo) throws IOException {
+        String sha256 = photo.getSha256();
+        Path hot = photoStorageService.pathOf(sha256, photo.getFormat());
+        ReentrantLock lock = lockFor(sha256);
+        lock.lock();
+        try {
+            List<Photo> archived = photoRepository.findBySha256(sha256).stream()
+                    .filter(record -> record.getTier() == StorageTier.ARCHIVE)
+                    .toList();
+            if (archived.isEmpty()) {
+                return hot; // Restored by a concurrent request.
+            }
+            long start = System.nanoTime();
+            Path compressed = archivePathOf(sha256, photo.getFormat());
+            if (!Files.isRegularFile(hot)) {
+                if (!Files.isRegularFile(compressed)) {
+                    log.warn("Archived photo {} is missing in {}", sha256, archiveDir);
+                    return hot;
+                }
+                Files.createDirectories(hot.getParent());
+                Path temp = Files.createTempFile(hot.getParent(), sha256, ".tmp");
+                try {
+                    try (InputStream in = new GZIPInputStream(Files.newInputStream(compressed));
+                         OutputStream out = Files.newOutputStream(temp)) {
+                        in.transferTo(out);
+                    }
+                    Files.move(temp, hot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                hotBytes.addAndGet(Files.size(hot));
+            }
+            moveToTier(archived, StorageTier.HOT);
+            archiveBytes.addAndGet(-deleteAndGetSize(compressed));
+            restoreTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return hot;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Compresses the bytes of the given photos into the archive, marks them as archived and removes them from the store.
+     *
+     * @return true if the photos were archived, false if their bytes are still in use or missing
+     */
+    private boolean archive(String sha256, ImageFormat format, List<Photo> photos) throws IOException {
+        ReentrantLock lock = lockFor(sha256);
+        lock.lock();
+        try {
+            // Counted under the lock, which uploads hold from the deduplication until their record is saved.
+            if (photoRepository.countBySha256AndTier(sha256, StorageTier.HOT) != photos.size()) {
+                return false; // The same bytes are still in use by an open injury.
+            }
+            Path hot = photoStorageService.pathOf(sha256, format);
+            Path compressed = archivePathOf(sha256, format);
+            if (Files.isRegularFile(hot)) {
+                Files.createDirectories(compressed.getParent());
+                Path temp = Files.createTempFile(compressed.getParent(), sha256, ".tmp");
+                try {
+                    try (InputStream in = Files.newInputStream(hot);
+                         OutputStream out = new GZIPOutputStream(Files.newOutputStream(temp))) {
+                        in.transferTo(out);
+                    }
+                    Files.move(temp, compressed, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temp);
+                }
+                archiveBytes.addAndGet(Files.size(compressed));
+            } else if (!Files.isRegularFile(compressed)) {
+                log.warn("Photo {} is missing in {}, not archiving it", sha256, photoStorageService.getStorageDir());
+                return false;
+            }
+            // The records are updated before the bytes are removed, so a crash in between leaves a stray file, never a missing one.
+            moveToTier(photos, StorageTier.ARCHIVE);
+            hotBytes.addAndGet(-deleteAndGetSize(hot));
+            archivedCounter.increment();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void moveToTier(List<Photo> photos, StorageTier tier) {
+        Instant now = Instant.now();
+        for (Photo photo : photos) {
+            photo.setTier(tier);
+            photo.setTierChangedAt(now);
+        }
+        photoRepository.saveAll(photos);
+    }
+
+    private void runArchive() {
+        try {
+            long start = System.nanoTime();
+            int archived = archiveClosedInjuries();
+            if (archived > 0) {
+                log.info("Archived {} photos of closed injuries in {} ms", archived, (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Archive run failed", e);
+        }
+        measureDiskUsage();
+    }
+
+    private void measureDiskUsage() {
+        try {
+            hotBytes.set(sizeOf(photoStorageService.getStorageDir()));
+            archiveBytes.set(sizeOf(archiveDir));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not measure the disk usage of the photo store", e);
+        }
+    }
+
+    private static long sizeOf(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(dir)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static long deleteAndGetSize(Path file) throws IOException {
+        long size = Files.isRegularFile(file) ? Files.size(file) : 0;
+        Files.deleteIfExists(file);
+        return size;
+    }
+
+    private Path archivePathOf(String sha256, ImageFormat format) {
+        return archiveDir.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4))
+                .resolve(sha256 + "." + format.getExtension() + ".gz");
+    }
+
+    /**
+     * Gets the lock serializing archiving, restoring and uploading the same bytes.
+     *
+     * @param sha256 the hex encoded SHA-256 hash of the photo bytes
+     * @return the lock of the hash
+     */
+    ReentrantLock lockFor(String sha256) {
+        return locks[Math.floorMod(sha256.hashCode(), LOCK_STRIPES)];
+    }
+}
@@ -0,0 +1,381 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.example.HyphaemaProgressTracker.enums.PhotoSize;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.ImageNormalizer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * This service provides scaled down copies ({@link PhotoSize thumbnails and previews}) of stored photos.
+ * <p>
+ * Every new photo is queued for all sizes right after it was stored. Photos stored before this
+ * service existed, or whose jobs were dropped, get their copies on the first request instead;
+ * concurrent requests for the same copy wait for one generation. The copies are kept as JPEGs below
+ * {@code hyphaema.derivatives.dir} in one folder per size, in the same sharded layout as the photos
+ * ({@code thumbnail/ab/cd/abcd....jpg}), and are named by the content hash of their photo, so they never
+ * have to be invalidated.
+ * </p>
+ * <p>
+ * The folder is bounded by {@code hyphaema.derivatives.max-size}; the least recently served copies
+ * are deleted first. Copies are cheap to generate again, so the access order is only kept in memory
+ * and rebuilt from the modification times at startup.
+ * </p>
+ * <p>
+ * Generating a copy decodes the full photo and is CPU bound, so queued jobs run on a small pool of
+ * platform threads (also when the application runs on virtual threads); with the default of one thread
+ * they take at most one core from analyses and requests. Thread priorities are not used for this, as
+ * HotSpot ignores them on Linux. When {@code hyphaema.derivatives.queue-capacity} jobs are waiting,
+ * further jobs are dropped and the copy is generated on request.
+ * </p>
+ *
+ * Metrics:
+ * <ul>
+ *     <li>{@code hyphaema.derivatives.requests} - lookups, tagged with {@code result=hit|miss}</li>
+ *     <li>{@code hyphaema.derivatives.generation.time} - time spent generating a copy, tagged with {@code size}</li>
+ *     <li>{@code hyphaema.derivatives.dropped} - queued jobs dropped because the queue was full</li>
+ *     <li>{@code hyphaema.derivatives.queue.depth} - jobs waiting for a thread</li>
+ *     <li>{@code hyphaema.derivatives.disk.usage} - bytes occupied by cached copies</li>
+ * </ul>
+ */
+@Service
+public class PhotoDerivativeService {
+
+    private static final Logger log = LoggerFactory.getLogger(PhotoDerivativeService.class);
+
+    private final ImageNormalizer imageNormalizer;
+    private final MeterRegistry meterRegistry;
+    private final Path derivativeDir;
+    private final long maxBytes;
+    private final float jpegQuality;
+    private final ThreadPoolExecutor executor;
+
+    // Access-ordered file sizes, so iteration starts with the least recently served copy.
+    private final LinkedHashMap<Path, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // Guards entries and totalBytes; file I/O is always done after releasing it.
+    private final ReentrantLock lock = new ReentrantLock();
+    private long totalBytes;
+    // Copies currently being generated, so concurrent requests wait for one generation.
+    private final Map<Path, CompletableFuture<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter droppedCounter;
+
+    /**
+     * Constructs the service and its bounded executor from the application configuration.
+     *
+     * @param imageNormalizer the normalizer decoding and scaling the photos
+     * @param meterRegistry the registry for cache and generation metrics
+     * @param derivativeDir the folder where the copies are kept
+     * @param maxSize the maximum total size of the copies
+     * @param jpegQuality the JPEG quality of the copies (0.0 - 1.0)
+     * @param threads the number of threads generating queued copies
+     * @param queueCapacity the number of jobs that may wait for a thread
+     */
+    public PhotoDerivativeService(ImageNormalizer imageNormalizer,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${hyphaema.derivatives.dir:photo-derivatives}") String derivativeDir,
+                                  @Value("${hyphaema.derivatives.max-size:512MB}") DataSize maxSize,
+                                  @Value("${hyphaema.derivatives.jpeg-quality:0.85}") float jpegQuality,
+                                  @Value("${hyphaema.derivatives.threads:1}") int threads,
+                                  @Value("${hyphaema.derivatives.queue-capacity:200}") int queueCapacity) {
+        this.imageNormalizer = imageNormalizer;
+        this.meterRegistry = meterRegistry;
+        this.derivativeDir = Paths.get(derivativeDir);
+        this.maxBytes = maxSize.toBytes();
+        this.jpegQuality = jpegQuality;
+        this.droppedCounter = Counter.builder("hyphaema.derivatives.dropped")
+                .description("Derivative jobs dropped because the queue was full")
+                .register(meterRegistry);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                Thread.ofPlatform().name("photo-derivatives-", 1).daemon(true).factory(),
+                (job, pool) -> droppedCounter.increment());
+
+        this.hitCounter = Counter.builder("hyphaema.derivatives.requests").tag("result", "hit")
+                .description("Derivative lookups").register(meterRegistry);
+        this.missCounter = Counter.builder("hyphaema.derivatives.requests").tag("result", "miss")
+                .description("Derivative lookups").register(meterRegistry);
+        Gauge.builder("hyphaema.derivatives.queue.depth", executor, e -> e.getQueue().size())
+                .description("Derivative jobs waiting for a thread")
+                .register(meterRegistry);
+        Gauge.builder("hyphaema.derivatives.disk.usage", this, PhotoDerivativeService::getTotalBytes).baseUnit("bytes")
+                .description("Bytes occupied by cached derivatives")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers the copies left from previous runs, oldest first, and removes unfinished ones and
+     * ones in an outdated layout.
+     */
+    @PostConstruct
+    public void load() {
+        try {
+            Files.createDirectories(derivativeDir);
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(derivativeDir)) {
+                files = walk.filter(Files::isRegularFile).toList();
+            }
+            List<Path> evicted = new ArrayList<>();
+            files.stream()
+                    .sorted(Comparator.comparingLong(file -> file.toFile().lastModified()))
+                    .forEach(file -> {
+                        if (file.getFileName().toString().endsWith(".tmp") || !isCurrentLayout(file)) {
+                            deleteQuietly(file);
+                        } else {
+                            evicted.addAll(register(file, file.toFile().length()));
+                        }
+                    });
+            evicted.forEach(this::deleteQuietly);
+            log.info("Loaded {} cached photo derivatives ({} bytes)", entries.size(), getTotalBytes());
+        } catch (IOException e) {
+            log.warn("Could not load the photo derivatives from {}", derivativeDir, e);
+        }
+    }
+
+    /**
+     * Stops generating queued copies.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues the generation of all sizes of a newly stored photo.
+     * <p>
+     * Sizes that already exist, e.g. because the same photo was uploaded before, are skipped.
+     * If the queue is full, the jobs are dropped and the copies are generated on request.
+     * </p>
+     *
+     * @param photo the stored photo
+     */
+    public void generateAsync(StoredPhoto photo) {
+        for (PhotoSize size : PhotoSize.values()) {
+            Path target = pathOf(photo.getSha256(), size);
+            if (isCached(target)) {
+                continue;
+            }
+            executor.execute(() -> {
+                try {
+                    generateOnce(photo, size, target);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Could not generate the {} of photo {}", size.getParameterName(), photo.getId(), e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Gets a scaled down copy of a photo, generating it on the calling thread if it does not exist yet.
+     *
+     * @param photo the stored photo
+     * @param size the requested size
+     * @return an Optional containing the path of the copy, or empty if the photo cannot be decoded
+     * @throws IOException if the photo cannot be read or the copy cannot be written
+     */
+    public Optional<Path> find(StoredPhoto photo, PhotoSize size) throws IOException {
+        Optional<Path> cached = findCached(photo.getSha256(), size);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        missCounter.increment();
+        Path target = pathOf(photo.getSha256(), size);
+        return generateOnce(photo, size, target) ? Optional.of(target) : Optional.empty();
+    }
+
+    /**
+     * Gets a scaled down copy of a photo only if it already exists, so the photo itself is not needed.
+     *
+     * @param sha256 the content hash of the photo
+     * @param size the requested size
+     * @return an Optional containing the path of the copy, or empty if it has not been generated
+     */
+    public Optional<Path> findCached(String sha256, PhotoSize size) {
+        Path target = pathOf(sha256, size);
+        if (isCached(target)) {
+            hitCounter.increment();
+            return Optional.of(target);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Gets the number of bytes occupied by cached copies.
+     * @return the disk usage in bytes.
+     */
+    public long getTotalBytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isCached(Path target) {
+        lock.lock();
+        try {
+            if (entries.get(target) == null) {
+                return false;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (Files.isRegularFile(target)) {
+            return true;
+        }
+        unregister(target); // Deleted from outside, e.g. while cleaning up the disk.
+        return false;
+    }
+
+    /**
+     * Generates a copy unless another thread is already generating it, in which case its result is awaited.
+     *
+     * @return true if the copy exists afterwards, false if the photo cannot be decoded
+     */
+    private boolean generateOnce(StoredPhoto photo, PhotoSize size, Path target) throws IOException {
+        CompletableFuture<Boolean> generation = new CompletableFuture<>();
+        CompletableFuture<Boolean> running = inFlight.putIfAbsent(target, generation);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException ioException) {
+                    throw ioException;
+                }
+                throw e;
+            }
+        }
+        try {
+            boolean written = isCached(target) || generate(photo, size, target);
+            generation.complete(written);
+            return written;
+        } catch (IOException | RuntimeException e) {
+            generation.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(target);
+        }
+    }
+
+    private boolean generate(StoredPhoto photo, PhotoSize size, Path target) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), photo.getSha256(), ".tmp");
+        try {
+            if (!imageNormalizer.writeScaledCopy(photo.getPath(), temp, size.getMaxDimension(), jpegQuality)) {
+                return false;
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        sample.stop(Timer.builder("hyphaema.derivatives.generation.time")
+                .description("Time spent generating photo derivatives")
+                .tag("size", size.getParameterName())
+                .register(meterRegistry));
+        List<Path> evicted = register(target, Files.size(target));
+        evicted.forEach(this::deleteQuietly);
+        return true;
+    }
+
+    /**
+     * Records a copy and removes the least recently served ones above the size limit.
+     * The files of the returned copies are deleted by the caller.
+     */
+    private List<Path> register(Path file, long size) {
+        List<Path> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            Long previous = entries.put(file, size);
+            totalBytes += size - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<Path, Long>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<Path, Long> entry = eldest.next();
+                if (entry.getKey().equals(file)) {
+                    continue; // Never evict the copy that is about to be served.
+                }
+                totalBytes -= entry.getValue();
+                evicted.add(entry.getKey());
+                eldest.remove();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return evicted;
+    }
+
+    private void unregister(Path file) {
+        lock.lock();
+        try {
+            Long size = entries.remove(file);
+            if (size != null) {
+                totalBytes -= size;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Path pathOf(String sha256, PhotoSize size) {
+        return derivativeDir.resolve(size.getParameterName())
+                .resolve(sha256.substring(0, 2))
+                .resolve(sha256.substring(2, 4))
+                .resolve(sha256 + ".jpg");
+    }
+
+    /**
+     * Checks whether a file found in the folder is where {@link #pathOf} puts the copy it is named after.
+     */
+    private boolean isCurrentLayout(Path file) {
+        String name = file.getFileName().toString();
+        Path relative = derivativeDir.relativize(file);
+        if (!name.endsWith(".jpg") || name.length() < 8 || relative.getNameCount() < 2) {
+            return false;
+        }
+        return PhotoSize.fromParameter(relative.getName(0).toString())
+                .map(size -> pathOf(name.substring(0, name.length() - 4), size).equals(file))
+                .orElse(false);
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", path, e);
+        }
+    }
+}
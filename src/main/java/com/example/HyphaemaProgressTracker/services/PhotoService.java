@@ -0,0 +1,151 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.HyphaemaProgressTracker.entities.Injury;
+import com.example.HyphaemaProgressTracker.entities.InjuryRepository;
+import com.example.HyphaemaProgressTracker.entities.Photo;
+import com.example.HyphaemaProgressTracker.entities.PhotoRepository;
+import com.example.HyphaemaProgressTracker.enums.StorageTier;
+
+/**
+ * This service stores uploaded photos of a patient's injury and finds them again by their opaque ID.
+ * <p>
+ * The bytes are written to the content-addressed store by {@link PhotoStorageService}, so a photo
+ * uploaded twice occupies disk space only once. Every upload is recorded as a {@link Photo} with the
+ * patient, the injury, the original file name and the size, and is served under its random ID.
+ * Thumbnails and previews of new photos are queued with {@link PhotoDerivativeService}. Photos that
+ * were moved to the archive by {@link PhotoArchiveService} are restored when they are looked up.
+ * </p>
+ */
+@Service
+public class PhotoService {
+
+    private final PhotoStorageService photoStorageService;
+    private final PhotoRepository photoRepository;
+    private final InjuryRepository injuryRepository;
+    private final PhotoDerivativeService photoDerivativeService;
+    private final PhotoArchiveService photoArchiveService;
+
+    /**
+     * Constructs the service.
+     *
+     * @param photoStorageService the content-addressed store for the photo bytes
+     * @param photoRepository the repository for photo metadata
+     * @param injuryRepository the repository used to check the injury of an upload
+     * @param photoDerivativeService the service generating thumbnails and previews
+     * @param photoArchiveService the service restoring archived photos
+     */
+    public PhotoService(PhotoStorageService photoStorageService, PhotoRepository photoRepository,
+                        InjuryRepository injuryRepository, PhotoDerivativeService photoDerivativeService,
+                        PhotoArchiveService photoArchiveService) {
+        this.photoStorageService = photoStorageService;
+        this.photoRepository = photoRepository;
+        this.injuryRepository = injuryRepository;
+        this.photoDerivativeService = photoDerivativeService;
+        this.photoArchiveService = photoArchiveService;
+    }
+
+    /**
+     * Stores an uploaded photo and records it for the given injury.
+     * <p>
+     * The injury is checked before the upload is read, so photos for unknown injuries or injuries
+     * of other patients are not written at all.
+     * </p>
+     *
+     * @param photo the uploaded photo
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury the photo was taken for
+     * @return the stored photo with its opaque ID
+     * @throws ResponseStatusException with 404 if the injury does not belong to the patient,
+     *         413 if the photo is too large, or 415 if it is not a supported image
+     * @throws IOException if the photo cannot be written
+     */
+    public StoredPhoto store(MultipartFile photo, Long patientId, Long injuryId) throws IOException {
+        Injury injury = findInjury(patientId, injuryId);
+
+        // Under the archive lock of the bytes, so they cannot be archived between the deduplication and the new record.
+        StoredPhoto saved = photoStorageService.store(photo, photoArchiveService::lockFor, stored -> {
+            Photo metadata = new Photo();
+            metadata.setSha256(stored.getSha256());
+            metadata.setFormat(stored.getFormat());
+            metadata.setSize(stored.getSize());
+            metadata.setOriginalFilename(photo.getOriginalFilename());
+            metadata.setUploadedAt(Instant.now());
+            metadata.setTierChangedAt(metadata.getUploadedAt());
+            metadata.setPatient(injury.getPatient());
+            metadata.setInjury(injury);
+            metadata = photoRepository.save(metadata);
+            return new StoredPhoto(metadata.getId(), stored.getPath(), stored.getSha256(), stored.getSize(), stored.getFormat());
+        });
+        photoDerivativeService.generateAsync(saved);
+        return saved;
+    }
+
+    /**
+     * Finds the injury photos are uploaded for, checking that it belongs to the patient.
+     *
+     * @param patientId the ID of the patient
+     * @param injuryId the ID of the injury
+     * @return the injury
+     * @throws ResponseStatusException with 404 if the injury does not exist or belongs to another patient
+     */
+    public Injury findInjury(Long patientId, Long injuryId) {
+        return injuryRepository.findById(injuryId)
+                .filter(found -> found.getPatient().getId().equals(patientId))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Verletzung nicht gefunden"));
+    }
+
+    /**
+     * Finds a stored photo by its opaque ID, restoring it from the archive if necessary.
+     *
+     * @param id the ID returned when the photo was stored
+     * @return the photo, or empty if the ID is unknown or its file is missing
+     * @throws IOException if an archived photo cannot be restored
+     */
+    public Optional<StoredPhoto> find(UUID id) throws IOException {
+        Optional<Photo> found = photoRepository.findById(id);
+        if (found.isEmpty()) {
+            return Optional.empty();
+        }
+        return open(found.get());
+    }
+
+    /**
+     * Finds the metadata of a stored photo by its opaque ID without touching its bytes, so an archived
+     * photo stays in the archive.
+     *
+     * @param id the ID returned when the photo was stored
+     * @return the metadata, or empty if the ID is unknown
+     */
+    public Optional<Photo> findMetadata(UUID id) {
+        return photoRepository.findById(id);
+    }
+
+    /**
+     * Locates the bytes of a photo, restoring them from the archive if necessary.
+     *
+     * @param photo the metadata of the photo
+     * @return the photo, or empty if its file is missing
+     * @throws IOException if an archived photo cannot be restored
+     */
+    public Optional<StoredPhoto> open(Photo photo) throws IOException {
+        Path path = photo.getTier() == StorageTier.ARCHIVE
+                ? photoArchiveService.restore(photo)
+                : photoStorageService.pathOf(photo.getSha256(), photo.getFormat());
+        if (!Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        return Optional.of(new StoredPhoto(photo.getId(), path, photo.getSha256(), photo.getSize(), photo.getFormat()));
+    }
+}
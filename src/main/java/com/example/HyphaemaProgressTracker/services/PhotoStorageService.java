@@ -0,0 +1,314 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.example.HyphaemaProgressTracker.enums.ImageFormat;
+
+/**
+ * This service writes uploaded eye photos to the content-addressed photo store.
+ * <p>
+ * Uploads are streamed channel-to-channel from the (disk-spooled) multipart part into the target file,
+ * so the photo is never materialized as a {@code byte[]} and the heap used per upload stays constant
+ * regardless of the photo size. While the bytes pass through, their SHA-256 hash is calculated and the
+ * leading bytes are checked against the signatures of the supported image formats.
+ * </p>
+ * <p>
+ * A photo is kept under its content hash, sharded by the first two bytes of the hash into
+ * {@code <hyphaema.storage.dir>/ab/cd/abcd...ef.jpg}, so no directory grows beyond a few thousand entries and
+ * file names chosen by phones can no longer overwrite each other. The upload is first written to the
+ * folder {@value #INCOMING_DIR} and then atomically moved into place; if the same bytes are already
+ * stored, the new copy is discarded. Metadata and the opaque IDs photos are served by are kept by
+ * {@link PhotoService}.
+ * </p>
+ * <p>
+ * The store lives outside the application resources, so it can be put on its own volume. Photos of
+ * closed injuries are moved to a compressed archive by {@link PhotoArchiveService}.
+ * </p>
+ */
+@Service
+public class PhotoStorageService {
+
+    private static final int SNIFF_LENGTH = 12;
+    private static final String INCOMING_DIR = "incoming";
+
+    private final Path uploadDir;
+    private final long maxFileSize;
+
+    /**
+     * Constructs the service from the application configuration.
+     *
+     * @param storageDir the root folder of the photo store
+     * @param maxFileSize the maximum accepted photo size
+     */
+    @Autowired
+    public PhotoStorageService(@Value("${hyphaema.storage.dir:data/photos}") String storageDir,
+                               @Value("${hyphaema.upload.max-file-size:25MB}") DataSize maxFileSize) {
+        this(Paths.get(storageDir), maxFileSize);
+    }
+
+    /**
+     * Constructs the service for the given upload folder.
+     *
+     * @param uploadDir the folder photos are written to
+     * @param maxFileSize the maximum accepted photo size
+     */
+    PhotoStorageService(Path uploadDir, DataSize maxFileSize) {
+        this.uploadDir = uploadDir;
+        this.maxFileSize = maxFileSize.toBytes();
+    }
+
+    /**
+     * Streams an uploaded photo into the photo store.
+     *
+     * @param photo the uploaded photo
+     * @return the stored photo with its content hash and format
+     * @throws ResponseStatusException with 413 if the photo is too large, or 415 if it is not a supported image
+     * @throws IOException if the photo cannot be written
+     */
+    public StoredPhoto store(MultipartFile photo) throws IOException {
+        return store(photo, sha256 -> new ReentrantLock(), stored -> stored);
+    }
+
+    /**
+     * Streams an uploaded photo into the photo store and records it while its bytes cannot be moved.
+     * <p>
+     * The lock of the content hash is taken before the upload is moved into place or deduplicated
+     * against the stored copy, and held until the placement has recorded the photo. Whoever removes
+     * stored bytes under the same lock, like {@link PhotoArchiveService}, therefore either sees the new
+     * record or runs before the upload looks for the stored copy.
+     * </p>
+     *
+     * @param photo the uploaded photo
+     * @param lockOf the lock of a content hash
+     * @param placement records the stored photo while the lock is held
+     * @param <T> the result of the placement
+     * @return the result of the placement
+     * @throws ResponseStatusException with 413 if the photo is too large, or 415 if it is not a supported image
+     * @throws IOException if the photo cannot be written or the placement fails
+     */
+    public <T> T store(MultipartFile photo, Function<String, Lock> lockOf, Placement<T> placement) throws IOException {
+        if (photo.getSize() > maxFileSize) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Foto ist zu groß");
+        }
+        Path incomingDir = uploadDir.resolve(INCOMING_DIR);
+        Files.createDirectories(incomingDir);
+
+        Path incoming = incomingDir.resolve(UUID.randomUUID() + ".part");
+        HashingChannel source;
+        long size = 0;
+        try {
+            try (InputStream in = photo.getInputStream();
+                 FileChannel target = FileChannel.open(incoming, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                source = new HashingChannel(Channels.newChannel(in));
+                long transferred;
+                while ((transferred = target.transferFrom(source, size, maxFileSize + 1 - size)) > 0) {
+                    size += transferred;
+                    if (size > maxFileSize) {
+                        break;
+                    }
+                }
+            }
+
+            if (size > maxFileSize) {
+                throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Foto ist zu groß");
+            }
+            ImageFormat format = source.detectFormat();
+            if (format == null) {
+                throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Bildformat wird nicht unterstützt");
+            }
+            String sha256 = source.getSha256();
+            Path photoPath = pathOf(sha256, format);
+            Lock lock = lockOf.apply(sha256);
+            lock.lock();
+            try {
+                moveIntoPlace(incoming, photoPath);
+                return placement.placed(new StoredPhoto(null, photoPath, sha256, size, format));
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            Files.deleteIfExists(incoming);
+        }
+    }
+
+    /**
+     * Gets the root folder of the photo store.
+     * @return the storage folder.
+     */
+    public Path getStorageDir() {
+        return uploadDir;
+    }
+
+    /**
+     * Gets the location of a photo in the store.
+     *
+     * @param sha256 the hex encoded SHA-256 hash of the photo
+     * @param format the image format of the photo
+     * @return the path of the photo, whether or not it exists
+     */
+    public Path pathOf(String sha256, ImageFormat format) {
+        return uploadDir.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4))
+                .resolve(sha256 + "." + format.getExtension());
+    }
+
+    /**
+     * Moves a completely written upload to its content-addressed location, unless the same bytes are already there.
+     */
+    private static void moveIntoPlace(Path incoming, Path photoPath) throws IOException {
+        if (Files.exists(photoPath)) {
+            return; // Deduplicated, the incoming copy is deleted by the caller.
+        }
+        Files.createDirectories(photoPath.getParent());
+        try {
+            Files.move(incoming, photoPath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // A concurrent upload of the same bytes won the race.
+        } catch (AtomicMoveNotSupportedException e) {
+            try {
+                Files.move(incoming, photoPath);
+            } catch (FileAlreadyExistsException alreadyStored) {
+                // A concurrent upload of the same bytes won the race.
+            }
+        }
+    }
+
+    /**
+     * Records a photo once its bytes are in the store.
+     *
+     * @param <T> the result of the placement
+     */
+    @FunctionalInterface
+    public interface Placement<T> {
+
+        /**
+         * Called with the stored photo while the lock of its content hash is held.
+         *
+         * @param stored the stored photo, without an ID
+         * @return the result returned by {@link #store(MultipartFile, Function, Placement)}
+         * @throws IOException if the photo cannot be recorded
+         */
+        T placed(StoredPhoto stored) throws IOException;
+    }
+
+    /**
+     * Channel decorator that hashes every byte read through it and keeps the first bytes for format sniffing.
+     */
+    static final class HashingChannel implements ReadableByteChannel {
+
+        private final ReadableByteChannel delegate;
+        private final MessageDigest digest;
+        private final byte[] header = new byte[SNIFF_LENGTH];
+        private int headerLength;
+
+        HashingChannel(ReadableByteChannel delegate) {
+            this.delegate = delegate;
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        @Override
+        public int read(ByteBuffer destination) throws IOException {
+            int start = destination.position();
+            int read = delegate.read(destination);
+            if (read > 0) {
+                int end = destination.position();
+                for (int i = start; headerLength < SNIFF_LENGTH && i < end; i++) {
+                    header[headerLength++] = destination.get(i);
+                }
+                // Hash the bytes just read in place, then restore the buffer state for the caller.
+                int limit = destination.limit();
+                destination.position(start).limit(end);
+                digest.update(destination);
+                destination.limit(limit);
+            }
+            return read;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        /**
+         * Gets the hex encoded SHA-256 hash of all bytes read so far.
+         */
+        String getSha256() {
+            return HexFormat.of().formatHex(digest.digest());
+        }
+
+        /**
+         * Checks the leading bytes against the signatures of JPEG, PNG, GIF, BMP, TIFF and WebP.
+         *
+         * @return the detected format, or null if the bytes are not a supported image
+         */
+        ImageFormat detectFormat() {
+            if (startsWith(0xFF, 0xD8, 0xFF)) {
+                return ImageFormat.JPEG;
+            }
+            if (startsWith(0x89, 'P', 'N', 'G')) {
+                return ImageFormat.PNG;
+            }
+            if (startsWith('G', 'I', 'F', '8')) {
+                return ImageFormat.GIF;
+            }
+            if (startsWith('B', 'M')) {
+                return ImageFormat.BMP;
+            }
+            if (startsWith('I', 'I', 0x2A, 0x00) || startsWith('M', 'M', 0x00, 0x2A)) {
+                return ImageFormat.TIFF;
+            }
+            if (startsWith('R', 'I', 'F', 'F') && headerLength >= 12
+                    && header[8] == 'W' && header[9] == 'E' && header[10] == 'B' && header[11] == 'P') {
+                return ImageFormat.WEBP;
+            }
+            return null;
+        }
+
+        private boolean startsWith(int... signature) {
+            if (headerLength < signature.length) {
+                return false;
+            }
+            for (int i = 0; i < signature.length; i++) {
+                if ((header[i] & 0xFF) != signature[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
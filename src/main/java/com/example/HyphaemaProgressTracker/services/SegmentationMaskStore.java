@@ -0,0 +1,160 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.ImageNormalizer;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.SegmentationMask;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * This service keeps the hyphema regions found by the engine and draws them on the photo on demand.
+ * <p>
+ * A mask is written as a small sidecar file in the binary form of {@link SegmentationMask}, keyed by
+ * the content hash of the analyzed photo like the photo itself:
+ * {@code <hyphaema.masks.dir>/ab/cd/abcd...ef.mask}. Eye records reference their photo, so the region
+ * of a saved result can be shown without running the analysis again. A later analysis of the same bytes,
+ * e.g. by a new engine version, replaces the mask.
+ * </p>
+ * <p>
+ * The overlay is rendered on the photo as the engine saw it (see {@link ImageNormalizer#readAsAnalyzed(Path)}),
+ * with the hyphema region tinted semi-transparently.
+ * </p>
+ *
+ * Metrics:
+ * <ul>
+ *     <li>{@code hyphaema.masks.size} - size of stored masks</li>
+ *     <li>{@code hyphaema.masks.render.time} - time spent rendering an overlay</li>
+ * </ul>
+ */
+@Service
+public class SegmentationMaskStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentationMaskStore.class);
+
+    private static final int OVERLAY_COLOR = 0xFF00C8FF; // Cyan, which stands out against blood and iris.
+    private static final float OVERLAY_ALPHA = 0.45f;
+    private static final float OVERLAY_JPEG_QUALITY = 0.85f;
+
+    private final Path maskDir;
+    private final ImageNormalizer imageNormalizer;
+    private final DistributionSummary maskSizeSummary;
+    private final Timer renderTimer;
+
+    /**
+     * Constructs the store from the application configuration.
+     *
+     * @param imageNormalizer the normalizer decoding photos as the engine saw them
+     * @param meterRegistry the registry for mask size and render metrics
+     * @param maskDir the root folder of the masks
+     */
+    public SegmentationMaskStore(ImageNormalizer imageNormalizer,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${hyphaema.masks.dir:data/masks}") String maskDir) {
+        this.imageNormalizer = imageNormalizer;
+        this.maskDir = Paths.get(maskDir);
+        this.maskSizeSummary = DistributionSummary.builder("hyphaema.masks.size").baseUnit("bytes")
+                .description("Size of stored segmentation masks")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.renderTimer = Timer.builder("hyphaema.masks.render.time")
+                .description("Time spent rendering hyphema overlays")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Stores the mask of an analyzed photo, replacing an older one.
+     *
+     * @param sha256 the hex encoded SHA-256 hash of the analyzed photo
+     * @param mask the hyphema region
+     * @throws IOException if the mask cannot be written
+     */
+    public void save(String sha256, SegmentationMask mask) throws IOException {
+        byte[] bytes = mask.toBytes();
+        Path target = pathOf(sha256);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(target.getParent(), sha256, ".tmp");
+        try {
+            Files.write(temp, bytes);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        maskSizeSummary.record(bytes.length);
+    }
+
+    /**
+     * Loads the mask of an analyzed photo.
+     *
+     * @param sha256 the hex encoded SHA-256 hash of the analyzed photo
+     * @return an Optional containing the mask, or empty if the photo was not segmented
+     * @throws IOException if the mask cannot be read
+     */
+    public Optional<SegmentationMask> find(String sha256) throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(pathOf(sha256));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(SegmentationMask.fromBytes(bytes));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring unreadable segmentation mask of photo {}", sha256, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Draws the hyphema region on the photo.
+     *
+     * @param photo the analyzed photo
+     * @param mask the hyphema region found in the photo
+     * @return the overlay as JPEG
+     * @throws IOException if the photo cannot be read or decoded
+     */
+    public byte[] renderOverlay(StoredPhoto photo, SegmentationMask mask) throws IOException {
+        long start = System.nanoTime();
+        BufferedImage image = imageNormalizer.readAsAnalyzed(photo.getPath());
+        if (image == null) {
+            throw new IOException("Photo " + photo.getSha256() + " cannot be decoded");
+        }
+        BufferedImage rendered = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rendered.createGraphics();
+        graphics.drawImage(image, 0, 0, null);
+        graphics.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, OVERLAY_ALPHA));
+        // The mask is scaled if the normalization settings changed since the analysis.
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        graphics.drawImage(mask.toOverlay(OVERLAY_COLOR), 0, 0, image.getWidth(), image.getHeight(), null);
+        graphics.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageNormalizer.writeJpeg(rendered, out, OVERLAY_JPEG_QUALITY);
+        renderTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return out.toByteArray();
+    }
+
+    private Path pathOf(String sha256) {
+        return maskDir.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256 + ".mask");
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.util.Arrays;
+
+/**
+ * Reduces a measurement series to fewer points while keeping the shape of its curve.
+ * <p>
+ * The points are chosen with Largest-Triangle-Three-Buckets (Steinarsson, 2013): the first and the
+ * last point are always kept, the points in between are split into equally sized buckets, and from
+ * every bucket the point forming the largest triangle with the point chosen from the previous bucket
+ * and the average of the next bucket is kept. Peaks and steep drops therefore survive, while flat
+ * stretches are thinned out. On top of that, the overall minimum and maximum are always kept, so the
+ * chart never misses the worst or the best measurement.
+ * </p>
+ * <p>
+ * The series is passed as primitive arrays and the result are indices into them, so no point objects
+ * are created for points that are dropped.
+ * </p>
+ */
+public final class SeriesDownsampler {
+
+    /**
+     * The smallest number of points a series can be reduced to: first, last, minimum and maximum.
+     */
+    public static final int MIN_POINTS = 4;
+
+    private SeriesDownsampler() {
+    }
+
+    /**
+     * Chooses the points to keep.
+     *
+     * @param x the x values in ascending order, e.g. the epoch day of the measurement
+     * @param y the y values, e.g. the affected percentage
+     * @param length the number of points in the arrays
+     * @param maxPoints the maximum number of points to keep, at least {@value #MIN_POINTS}
+     * @return the ascending indices of the kept points; all indices if the series has at most {@code maxPoints} points
+     * @throws IllegalArgumentException if {@code maxPoints} is less than {@value #MIN_POINTS}
+     */
+    public static int[] select(double[] x, double[] y, int length, int maxPoints) {
+        if (maxPoints < MIN_POINTS) {
+            throw new IllegalArgumentException("At least " + MIN_POINTS + " points must be kept");
+        }
+        if (length <= maxPoints) {
+            int[] all = new int[length];
+            Arrays.setAll(all, i -> i);
+            return all;
+        }
+
+        int min = 0;
+        int max = 0;
+        for (int i = 1; i < length; i++) {
+            if (y[i] < y[min]) {
+                min = i;
+            }
+            if (y[i] > y[max]) {
+                max = i;
+            }
+        }
+
+        // Two points are reserved for the minimum and maximum, in case the triangles do not pick them.
+        int[] selected = largestTriangleThreeBuckets(x, y, length, maxPoints - 2);
+        int count = selected.length;
+        selected = Arrays.copyOf(selected, count + 2);
+        if (!contains(selected, count, min)) {
+            selected[count++] = min;
+        }
+        if (!contains(selected, count, max)) {
+            selected[count++] = max;
+        }
+        selected = Arrays.copyOf(selected, count);
+        Arrays.sort(selected);
+        return selected;
+    }
+
+    private static boolean contains(int[] indices, int count, int index) {
+        for (int i = 0; i < count; i++) {
+            if (indices[i] == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] largestTriangleThreeBuckets(double[] x, double[] y, int length, int threshold) {
+        if (threshold < 3) {
+            return new int[] {0, length - 1};
+        }
+        int[] selected = new int[threshold];
+        int count = 0;
+        selected[count++] = 0;
+
+        // The first and last point form their own buckets; the rest is split into threshold - 2 buckets.
+        double bucketSize = (double) (length - 2) / (threshold - 2);
+        int previous = 0;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int start = (int) Math.floor(bucket * bucketSize) + 1;
+            int end = (int) Math.floor((bucket + 1) * bucketSize) + 1;
+
+            int nextStart = end;
+            int nextEnd = Math.min((int) Math.floor((bucket + 2) * bucketSize) + 1, length);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += x[i];
+                averageY += y[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            averageX /= nextCount;
+            averageY /= nextCount;
+
+            double largestArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                // Twice the triangle area; the factor does not change which point is the largest.
+                double area = Math.abs((x[previous] - averageX) * (y[i] - y[previous])
+                        - (x[previous] - x[i]) * (averageY - y[previous]));
+                if (area > largestArea) {
+                    largestArea = area;
+                    chosen = i;
+                }
+            }
+            selected[count++] = chosen;
+            previous = chosen;
+        }
+        selected[count] = length - 1;
+        return selected;
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+import com.example.HyphaemaProgressTracker.enums.ImageFormat;
+
+/**
+ * Represents an uploaded photo after it has been written to the photo store.
+ * <p>
+ * The SHA-256 hash is calculated while the photo is written, so identical uploads
+ * can be recognized without reading the file again.
+ * </p>
+ */
+public class StoredPhoto {
+
+    private final UUID id; // Opaque identifier of the upload, null until its metadata is recorded.
+    private final Path path; // Location of the saved photo.
+    private final String sha256; // Hex encoded SHA-256 hash of the photo bytes.
+    private final long size; // Size of the photo in bytes.
+    private final ImageFormat format; // Image format detected from the photo bytes.
+
+    /**
+     * Constructs a stored photo.
+     *
+     * @param id the opaque identifier of the upload, or null if no metadata is recorded
+     * @param path the location of the saved photo
+     * @param sha256 the hex encoded SHA-256 hash of the photo bytes
+     * @param size the size of the photo in bytes
+     * @param format the image format of the photo
+     */
+    public StoredPhoto(UUID id, Path path, String sha256, long size, ImageFormat format) {
+        this.id = id;
+        this.path = path;
+        this.sha256 = sha256;
+        this.size = size;
+        this.format = format;
+    }
+
+    /**
+     * Gets the opaque identifier the photo is served by.
+     * @return the ID of the upload, or null if no metadata is recorded.
+     */
+    public UUID getId() {
+        return id;
+    }
+
+    /**
+     * Gets the location of the saved photo.
+     * @return the path of the photo.
+     */
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Gets the hex encoded SHA-256 hash of the photo bytes.
+     * @return the content hash.
+     */
+    public String getSha256() {
+        return sha256;
+    }
+
+    /**
+     * Gets the size of the photo.
+     * @return the size in bytes.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets the image format of the photo.
+     * @return the image format.
+     */
+    public ImageFormat getFormat() {
+        return format;
+    }
+}
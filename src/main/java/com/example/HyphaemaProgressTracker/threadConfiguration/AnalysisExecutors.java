@@ -0,0 +1,93 @@
+package com.example.HyphaemaProgressTracker.threadConfiguration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the executors of the analysis and I/O paths.
+ * <p>
+ * Uploads spend almost all of their time blocked: writing the photo, waiting for a Python worker,
+ * reading its answer and talking to the database. With {@code spring.threads.virtual.enabled=true}
+ * Spring Boot handles Tomcat requests on virtual threads, and this factory makes the application's
+ * own executors follow suit, so the number of concurrent uploads is no longer limited by the number
+ * of platform threads. The property is off by default, which keeps the previous fixed pools.
+ * </p>
+ * <p>
+ * Executors that exist to bound concurrency (such as the analysis job queue) keep their fixed size
+ * and only switch the kind of thread; executors that were sized to work around blocking become
+ * thread-per-task executors. The real limit for analyses is the Python worker pool, which callers
+ * wait for without holding a platform thread.
+ * </p>
+ * <p>
+ * Blocking inside {@code synchronized} pins a virtual thread to its carrier, so code on these
+ * paths guards I/O with {@link java.util.concurrent.locks.ReentrantLock} or keeps it outside of
+ * locks instead. Pinning can be checked with {@code -Djdk.tracePinnedThreads=short}.
+ * </p>
+ */
+@Component
+public class AnalysisExecutors {
+
+    private final boolean virtualThreads;
+
+    /**
+     * Constructs the factory from the application configuration.
+     *
+     * @param virtualThreads whether the application runs on virtual threads
+     */
+    public AnalysisExecutors(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Checks whether the executors create virtual threads.
+     * @return true if virtual threads are used, false otherwise.
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Creates a thread factory naming its threads {@code <namePrefix>-1}, {@code <namePrefix>-2}, ...
+     *
+     * @param namePrefix the prefix of the thread names
+     * @return a factory for virtual threads, or for platform threads if virtual threads are disabled
+     */
+    public ThreadFactory threadFactory(String namePrefix) {
+        if (virtualThreads) {
+            return Thread.ofVirtual().name(namePrefix + "-", 1).factory();
+        }
+        return Thread.ofPlatform().name(namePrefix + "-", 1).factory();
+    }
+
+    /**
+     * Creates an executor for blocking tasks.
+     *
+     * @param namePrefix the prefix of the thread names
+     * @param platformThreads the number of threads if virtual threads are disabled
+     * @return a thread-per-task executor on virtual threads, or a fixed pool of platform threads
+     */
+    public ExecutorService newExecutor(String namePrefix, int platformThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(threadFactory(namePrefix));
+        }
+        return Executors.newFixedThreadPool(platformThreads, threadFactory(namePrefix));
+    }
+
+    /**
+     * Creates an executor for short-lived helper tasks whose number is not known in advance,
+     * e.g. draining the output of processes.
+     *
+     * @param namePrefix the prefix of the thread names
+     * @return a thread-per-task executor on virtual threads, or a cached pool of daemon platform threads
+     */
+    public ExecutorService newUnboundedExecutor(String namePrefix) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(threadFactory(namePrefix));
+        }
+        return Executors.newCachedThreadPool(Thread.ofPlatform().name(namePrefix + "-", 1).daemon(true).factory());
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.HyphaemaProgressTracker.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.util.FileSystemUtils;
+
+import com.example.HyphaemaProgressTracker.entities.PatientFixture;
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Requests the injury and eye listings through MockMvc against an embedded H2 database and counts the
+ * SQL statements of every request with the Hibernate statistics, so a listing that starts loading
+ * associations row by row fails the build.
+ * <p>
+ * The security filters are left out; the listings are only reachable after login in the application.
+ * </p>
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:hyphaema-listing;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "hyphaema.analyzer.engine=stub",
+        "hyphaema.statistics.repair.enabled=false",
+        "hyphaema.archive.enabled=false"})
+@AutoConfigureMockMvc(addFilters = false)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ListingQueryCountTest {
+
+    private static final int PATIENTS = 3;
+    private static final int INJURIES_PER_PATIENT = 4;
+    private static final int DAYS = 10;
+    private static final Path DATA_DIR = createDataDir();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @DynamicPropertySource
+    static void dataDirs(DynamicPropertyRegistry registry) {
+        for (String dir : new String[] {"storage", "archive", "masks", "derivatives", "analysis.cache"}) {
+            registry.add("hyphaema." + dir + ".dir", () -> DATA_DIR.resolve(dir).toString());
+        }
+    }
+
+    @BeforeAll
+    void seed() {
+        PatientFixture.seed(jdbcTemplate, PATIENTS, INJURIES_PER_PATIENT, DAYS, LocalDate.of(2024, 1, 1));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterAll
+    void clear() {
+        PatientFixture.clear(jdbcTemplate);
+        FileSystemUtils.deleteRecursively(DATA_DIR.toFile());
+    }
+
+    @BeforeEach
+    void resetStatistics() {
+        statistics.clear();
+    }
+
+    @Test
+    void listsInjuriesOfPatientInOneStatement() throws Exception {
+        String body = listing("/api/2/injuries", 1)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(INJURIES_PER_PATIENT))
+                .andExpect(jsonPath("$[0].id").value(INJURIES_PER_PATIENT + 1))
+                .andExpect(jsonPath("$[0].diagnosis").value("Hyphäma"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertFalse(body.contains("password"), body);
+    }
+
+    @Test
+    void listsAllInjuriesOfPatientInOneStatement() throws Exception {
+        listing("/api/3/allInjuries", 1)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(INJURIES_PER_PATIENT));
+    }
+
+    @Test
+    void listsEyesOfInjuryInOneStatement() throws Exception {
+        listing("/api/injuries/5/eyes", 1)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(EyeSide.values().length * DAYS))
+                .andExpect(jsonPath("$[0].percentageOfEyeAffectedByHyphema").value(60))
+                .andExpect(jsonPath("$[0].injury").doesNotExist());
+    }
+
+    @Test
+    void tellsUnknownIdsApartWithOneMoreStatement() throws Exception {
+        listing("/api/99/injuries", 2).andExpect(status().isNotFound());
+        listing("/api/injuries/99/eyes", 2).andExpect(status().isNotFound());
+    }
+
+    /**
+     * Requests a listing and checks the statements it took; projections load no entities at all.
+     */
+    private ResultActions listing(String path, int expectedStatements) throws Exception {
+        statistics.clear();
+        ResultActions result = mockMvc.perform(get(path));
+        assertEquals(expectedStatements, statistics.getPrepareStatementCount(), "SQL statements of " + path);
+        assertEquals(0, statistics.getEntityLoadCount(), "Entities loaded by " + path);
+        return result;
+    }
+
+    private static Path createDataDir() {
+        try {
+            return Files.createTempDirectory("hyphaema-listing-test");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
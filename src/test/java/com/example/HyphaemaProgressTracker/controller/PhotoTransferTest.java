@@ -0,0 +1,147 @@
+package com.example.HyphaemaProgressTracker.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PhotoTransferTest {
+
+    private static final String HASH = "ab12";
+    private static final String ETAG = "\"" + HASH + "\"";
+
+    @TempDir
+    Path dir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PhotoTransfer photoTransfer = new PhotoTransfer(meterRegistry, Duration.ofDays(365));
+    private Path photo;
+    private byte[] bytes;
+
+    @BeforeEach
+    void writePhoto() throws Exception {
+        bytes = new byte[1000];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        photo = Files.write(dir.resolve(HASH + ".jpg"), bytes);
+    }
+
+    @Test
+    void servesFullPhotoWithValidatorsAndLongLivedCaching() throws Exception {
+        MockHttpServletResponse response = serve(new MockHttpServletRequest("GET", "/uploads/1"));
+
+        assertEquals(200, response.getStatus());
+        assertEquals(ETAG, response.getHeader("ETag"));
+        assertEquals("max-age=31536000, private", response.getHeader("Cache-Control"));
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals("image/jpeg", response.getContentType());
+        assertArrayEquals(bytes, response.getContentAsByteArray());
+        assertEquals(1000.0, meterRegistry.get("hyphaema.photos.bytes.served").tag("transfer", "channel").counter().count());
+    }
+
+    @Test
+    void answersMatchingEtagWithNotModified() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/1");
+        request.addHeader("If-None-Match", ETAG);
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(1.0, meterRegistry.get("hyphaema.photos.responses").tag("status", "304").counter().count());
+    }
+
+    @Test
+    void answersMatchingEtagWithoutOpeningTheFile() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/1");
+        request.addHeader("If-None-Match", ETAG);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        photoTransfer.write(() -> {
+            throw new AssertionError("An archived photo must not be restored for a 304");
+        }, HASH, 0L, bytes.length, "image/jpeg", request, response);
+
+        assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    void servesSingleByteRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/1");
+        request.addHeader("Range", "bytes=100-199");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 100-199/1000", response.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(bytes, 100, 200), response.getContentAsByteArray());
+    }
+
+    @Test
+    void servesSuffixRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/1");
+        request.addHeader("Range", "bytes=-10");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 990-999/1000", response.getHeader("Content-Range"));
+        assertArrayEquals(Arrays.copyOfRange(bytes, 990, 1000), response.getContentAsByteArray());
+    }
+
+    @Test
+    void rejectsRangeBeyondEndOfPhoto() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/1");
+        request.addHeader("Range", "bytes=5000-");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */1000", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void ignoresRangeForOutdatedIfRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/1");
+        request.addHeader("Range", "bytes=0-9");
+        request.addHeader("If-Range", "\"other\"");
+
+        MockHttpServletResponse response = serve(request);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(bytes, response.getContentAsByteArray());
+    }
+
+    @Test
+    void handsLargePhotosToSendfileWhenSupported() throws Exception {
+        byte[] large = new byte[64 * 1024];
+        Path largePhoto = Files.write(dir.resolve("large.jpg"), large);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/uploads/1");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        photoTransfer.write(largePhoto, HASH, "image/jpeg", request, response);
+
+        assertEquals(largePhoto.toAbsolutePath().toString(), request.getAttribute("org.apache.tomcat.sendfile.filename"));
+        assertEquals(0L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals((long) large.length, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    private MockHttpServletResponse serve(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        photoTransfer.write(photo, HASH, "image/jpeg", request, response);
+        return response;
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.HyphaemaProgressTracker.entities;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
+
+/**
+ * Seeds patients, injuries and one eye record per side and day with explicit ids in JDBC batches.
+ * <p>
+ * Patient {@code p} owns the injuries {@code (p - 1) * injuriesPerPatient + 1} to
+ * {@code p * injuriesPerPatient}; the eye records are numbered from 1 in injury, side and date order.
+ * </p>
+ */
+public final class PatientFixture {
+
+    private PatientFixture() {
+    }
+
+    /**
+     * Inserts the fixture.
+     *
+     * @param jdbcTemplate the template of the test database
+     * @param patients the number of patients
+     * @param injuriesPerPatient the number of injuries of every patient
+     * @param days the number of daily records per injury and side
+     * @param start the date of the first record
+     * @return the number of inserted eye records, which is also the highest eye id
+     */
+    public static long seed(JdbcTemplate jdbcTemplate, int patients, int injuriesPerPatient, int days, LocalDate start) {
+        List<Object[]> patientRows = new ArrayList<>();
+        List<Object[]> injuryRows = new ArrayList<>();
+        List<Object[]> eyeRows = new ArrayList<>();
+        long eyeId = 0;
+        for (long patientId = 1; patientId <= patients; patientId++) {
+            patientRows.add(new Object[] {patientId, "patient" + patientId, "{noop}test", true, "USER"});
+            for (int i = 0; i < injuriesPerPatient; i++) {
+                long injuryId = (patientId - 1) * injuriesPerPatient + i + 1;
+                injuryRows.add(new Object[] {injuryId, "Hyphäma", patientId});
+                for (EyeSide side : EyeSide.values()) {
+                    for (int day = 0; day < days; day++) {
+                        eyeRows.add(new Object[] {++eyeId, Math.max(0, 60 - day / 3), Date.valueOf(start.plusDays(day)),
+                                side.name(), injuryId});
+                    }
+                }
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO patient (id, login, password, enabled, roles) VALUES (?, ?, ?, ?, ?)",
+                patientRows);
+        jdbcTemplate.batchUpdate("INSERT INTO injury (id, diagnosis, patient_id) VALUES (?, ?, ?)", injuryRows);
+        insertEye(jdbcTemplate, eyeRows);
+        return eyeId;
+    }
+
+    /**
+     * Inserts eye records given as {@code [id, percentage, date, side, injuryId]}.
+     *
+     * @param jdbcTemplate the template of the test database
+     * @param eyeRows the records
+     */
+    public static void insertEye(JdbcTemplate jdbcTemplate, List<Object[]> eyeRows) {
+        jdbcTemplate.batchUpdate("INSERT INTO eye (id, percentage_of_eye_affected_by_hyphema, date, side, injury_id) "
+                + "VALUES (?, ?, ?, ?, ?)", eyeRows);
+    }
+
+    /**
+     * Deletes all rows the fixture inserts, for tests whose inserts are committed.
+     *
+     * @param jdbcTemplate the template of the test database
+     */
+    public static void clear(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.update("DELETE FROM eye");
+        jdbcTemplate.update("DELETE FROM injury");
+        jdbcTemplate.update("DELETE FROM patient");
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.HyphaemaProgressTracker.entities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Date;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.HyphaemaProgressTracker.dto.EyeResultDTO;
+import com.example.HyphaemaProgressTracker.enums.EyeSide;
+
+/**
+ * Runs the chart series queries against an embedded H2 database seeded with a year of daily records
+ * per injury and side, and checks that H2 scans the composite index for the SQL Hibernate generates.
+ * <p>
+ * The rows are inserted in the transaction of each test, which {@code @DataJpaTest} rolls back; a
+ * statement that commits, such as H2's {@code ANALYZE}, would leave them behind for the next test.
+ * </p>
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.HyphaemaProgressTracker.entities.PatientRepositoryTest$LastStatement")
+class PatientRepositoryTest {
+
+    private static final int PATIENTS = 100;
+    private static final int INJURIES_PER_PATIENT = 2;
+    private static final int DAYS = 365;
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final String SERIES_INDEX = "IDX_EYE_INJURY_SIDE_DATE";
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void seed() {
+        long eyeId = PatientFixture.seed(jdbcTemplate, PATIENTS, INJURIES_PER_PATIENT, DAYS, START);
+        // A second record on the same day, so the id has to break the tie between pages.
+        PatientFixture.insertEye(jdbcTemplate, List.<Object[]>of(
+                new Object[] {eyeId + 1, 30, Date.valueOf(START.plusDays(100)), EyeSide.LEFT.name(), 1L}));
+    }
+
+    @Test
+    void pagesThroughDateRangeInBothDirections() {
+        LocalDate from = START.plusDays(90);
+        LocalDate to = START.plusDays(119);
+
+        List<EyeResultDTO> ascending = new ArrayList<>();
+        List<EyeResultDTO> page = patientRepository.findSeriesAscending(1L, 1L, EyeSide.LEFT, from, 0, to, PageRequest.of(0, 7));
+        while (!page.isEmpty()) {
+            ascending.addAll(page);
+            EyeResultDTO last = page.get(page.size() - 1);
+            page = patientRepository.findSeriesAscending(1L, 1L, EyeSide.LEFT, last.getDate(), last.getId(), to, PageRequest.of(0, 7));
+        }
+
+        List<EyeResultDTO> descending = new ArrayList<>();
+        page = patientRepository.findSeriesDescending(1L, 1L, EyeSide.LEFT, to, Long.MAX_VALUE, from, PageRequest.of(0, 7));
+        while (!page.isEmpty()) {
+            descending.addAll(page);
+            EyeResultDTO last = page.get(page.size() - 1);
+            page = patientRepository.findSeriesDescending(1L, 1L, EyeSide.LEFT, last.getDate(), last.getId(), from, PageRequest.of(0, 7));
+        }
+
+        assertEquals(31, ascending.size());
+        assertEquals(from, ascending.get(0).getDate());
+        assertEquals(to, ascending.get(ascending.size() - 1).getDate());
+        for (int i = 1; i < ascending.size(); i++) {
+            EyeResultDTO previous = ascending.get(i - 1);
+            EyeResultDTO current = ascending.get(i);
+            assertTrue(previous.getDate().isBefore(current.getDate())
+                    || previous.getDate().equals(current.getDate()) && previous.getId() < current.getId());
+        }
+        assertEquals(ids(ascending), ids(descending.reversed()), "Both directions return the same records");
+    }
+
+    @Test
+    void seriesQueriesScanCompositeIndex() {
+        patientRepository.findSeriesAscending(7L, 13L, EyeSide.RIGHT, START, 0, START.plusDays(60), PageRequest.of(0, 100));
+        String ascendingPlan = explain(LastStatement.sql);
+        patientRepository.findSeriesDescending(7L, 13L, EyeSide.RIGHT, START.plusDays(60), Long.MAX_VALUE, START, PageRequest.of(0, 100));
+        String descendingPlan = explain(LastStatement.sql);
+
+        // H2 only reports which index it scans; whether the sort is skipped as well can only be seen on PostgreSQL.
+        assertTrue(ascendingPlan.toUpperCase().contains(SERIES_INDEX), ascendingPlan);
+        assertTrue(descendingPlan.toUpperCase().contains(SERIES_INDEX), descendingPlan);
+    }
+
+    private static List<Long> ids(List<EyeResultDTO> results) {
+        return results.stream().map(EyeResultDTO::getId).toList();
+    }
+
+    /**
+     * Explains a statement with placeholders; the plan does not depend on the bound values, only on their types.
+     */
+    private String explain(String sql) {
+        return jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                ParameterMetaData metaData = statement.getParameterMetaData();
+                for (int i = 1; i <= metaData.getParameterCount(); i++) {
+                    switch (metaData.getParameterType(i)) {
+                        case Types.DATE -> statement.setDate(i, Date.valueOf(START));
+                        case Types.BIGINT, Types.INTEGER -> statement.setLong(i, 1);
+                        default -> statement.setString(i, EyeSide.LEFT.name());
+                    }
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Remembers the last SQL statement Hibernate prepared, so the test explains the generated query.
+     */
+    public static class LastStatement implements StatementInspector {
+
+        static volatile String sql;
+
+        @Override
+        public String inspect(String statement) {
+            sql = statement;
+            return statement;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.HyphaemaProgressTracker.hyphaemaAnalysis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class JavaHyphemaAnalyzerTest {
+
+    private static final int WIDTH = 150; // More than two 64 bit words per mask row.
+    private static final int HEIGHT = 100;
+    private static final Color BLOOD = new Color(200, 30, 30);
+
+    private final JavaHyphemaAnalyzer analyzer = new JavaHyphemaAnalyzer(2, 0.9, 60, 140);
+
+    @AfterEach
+    void tearDown() {
+        analyzer.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR})
+    void countsRedPixelsInsideTheCircle(int imageType) {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, imageType);
+        paintLowerHalfRed(image, 0, 0);
+
+        assertMatchesReference(image);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR})
+    void readsSubimagesAtTheirOffset(int imageType) {
+        // A subimage shares the parent's buffer, so its pixels start at a translated offset.
+        BufferedImage parent = new BufferedImage(WIDTH + 37, HEIGHT + 23, imageType);
+        Graphics2D graphics = parent.createGraphics();
+        graphics.setColor(BLOOD);
+        graphics.fillRect(0, 0, parent.getWidth(), parent.getHeight());
+        graphics.dispose();
+        paintLowerHalfRed(parent, 37, 23);
+
+        assertMatchesReference(parent.getSubimage(37, 23, WIDTH, HEIGHT));
+    }
+
+    @Test
+    void reportsNoHyphemaOnWhitePhoto() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, WIDTH, HEIGHT);
+        graphics.dispose();
+
+        Map<String, Object> result = analyzer.analyse(image);
+
+        assertEquals(0.0, result.get(HyphemaAnalyzer.RESULT_PERCENTAGE));
+        assertEquals(0, SegmentationMask.fromResult(result.get(HyphemaAnalyzer.RESULT_MASK)).countHyphemaPixels());
+    }
+
+    /**
+     * Paints a white photo of {@code WIDTH x HEIGHT} at the given position whose lower half is blood red,
+     * like blood settled at the bottom of the anterior chamber.
+     */
+    private static void paintLowerHalfRed(BufferedImage image, int x, int y) {
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(x, y, WIDTH, HEIGHT / 2);
+        graphics.setColor(BLOOD);
+        graphics.fillRect(x, y + HEIGHT / 2, WIDTH, HEIGHT - HEIGHT / 2);
+        graphics.dispose();
+    }
+
+    /**
+     * Compares the result with a pixel by pixel evaluation of the circle for the image painted by
+     * {@link #paintLowerHalfRed}.
+     */
+    private void assertMatchesReference(BufferedImage image) {
+        double centerX = (WIDTH - 1) / 2.0;
+        double centerY = (HEIGHT - 1) / 2.0;
+        double radius = Math.min(WIDTH, HEIGHT) / 2.0 * 0.9;
+        boolean[][] expected = new boolean[HEIGHT][WIDTH];
+        long region = 0;
+        long blood = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                double dx = x - centerX;
+                double dy = y - centerY;
+                if (dx * dx + dy * dy <= radius * radius) {
+                    region++;
+                    if (y >= HEIGHT / 2) {
+                        blood++;
+                        expected[y][x] = true;
+                    }
+                }
+            }
+        }
+
+        Map<String, Object> result = analyzer.analyse(image);
+        SegmentationMask mask = SegmentationMask.fromResult(result.get(HyphemaAnalyzer.RESULT_MASK));
+
+        assertEquals(Math.round(blood * 10000.0 / region) / 100.0, result.get(HyphemaAnalyzer.RESULT_PERCENTAGE));
+        assertEquals(blood, mask.countHyphemaPixels());
+        BufferedImage overlay = mask.toOverlay(0xFFFF0000);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                assertEquals(expected[y][x], overlay.getRGB(x, y) != 0, "mask at " + x + "," + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.HyphaemaProgressTracker.hyphaemaPythonIntegration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import com.example.HyphaemaProgressTracker.enums.AnalysisFailureReason;
+import com.example.HyphaemaProgressTracker.hyphaemaAnalysis.HyphemaAnalysisException;
+import com.example.HyphaemaProgressTracker.threadConfiguration.AnalysisExecutors;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@DisabledOnOs(OS.WINDOWS)
+class ProcessSupervisorTest {
+
+    private static final int MAX_CAPTURED_BYTES = 1024 * 1024;
+
+    private ProcessSupervisor supervisor;
+
+    @AfterEach
+    void tearDown() {
+        supervisor.shutdown();
+    }
+
+    @Test
+    void drainsStandardErrorWhileReadingStandardOutput() throws Exception {
+        supervisor = supervisor(Duration.ofSeconds(30));
+
+        // Far more than a pipe buffer on standard error before anything is written to standard output.
+        ProcessSupervisor.ProcessOutput output = supervisor.run(
+                sh("head -c 3000000 /dev/zero | tr '\\0' e >&2; echo done"));
+
+        assertEquals(0, output.getExitCode());
+        assertEquals("done\n", output.getStdout());
+        assertEquals(MAX_CAPTURED_BYTES, output.getStderr().length());
+    }
+
+    @Test
+    void reportsExitCodeAndStandardError() throws Exception {
+        supervisor = supervisor(Duration.ofSeconds(30));
+
+        ProcessSupervisor.ProcessOutput output = supervisor.run(sh("echo broken >&2; exit 3"));
+
+        assertEquals(3, output.getExitCode());
+        assertEquals("broken\n", output.getStderr());
+    }
+
+    @Test
+    void killsProcessAfterDeadline() {
+        supervisor = supervisor(Duration.ofMillis(500));
+        long start = System.nanoTime();
+
+        HyphemaAnalysisException e = assertThrows(HyphemaAnalysisException.class,
+                () -> supervisor.run(sh("sleep 30")));
+
+        assertEquals(AnalysisFailureReason.TIMEOUT, e.getReason());
+        assertTrue(Duration.ofNanos(System.nanoTime() - start).compareTo(Duration.ofSeconds(10)) < 0);
+    }
+
+    private static ProcessSupervisor supervisor(Duration timeout) {
+        return new ProcessSupervisor(new SimpleMeterRegistry(), new AnalysisExecutors(false), timeout);
+    }
+
+    private static List<String> sh(String script) {
+        return List.of("sh", "-c", script);
+    }
+}
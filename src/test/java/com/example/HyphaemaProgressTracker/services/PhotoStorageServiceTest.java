@@ -0,0 +1,263 @@
+package com.example.HyphaemaProgressTracker.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+class PhotoStorageServiceTest {
+
+    private static final long LARGE_PHOTO_SIZE = DataSize.ofMegabytes(256).toBytes();
+    private static final long SMALL_PHOTO_SIZE = DataSize.ofMegabytes(8).toBytes();
+
+    @TempDir
+    Path uploadDir;
+
+    @Test
+    void storesLargePhotoWithConstantHeap() throws Exception {
+        PhotoStorageService service = new PhotoStorageService(uploadDir, DataSize.ofMegabytes(512));
+
+        // Warm up, so class loading and one-time buffers are not attributed to the measured uploads.
+        service.store(new SyntheticJpeg("warmup.jpg", SMALL_PHOTO_SIZE));
+
+        StoredPhoto[] large = new StoredPhoto[1];
+        long smallAllocation = allocatedBytes(() -> service.store(new SyntheticJpeg("small.jpg", SMALL_PHOTO_SIZE)));
+        long largeAllocation = allocatedBytes(() -> large[0] = service.store(new SyntheticJpeg("large.jpg", LARGE_PHOTO_SIZE)));
+
+        assertEquals(LARGE_PHOTO_SIZE, Files.size(large[0].getPath()));
+        // A full byte[] copy would allocate at least the photo size; streaming allocates a small, constant amount.
+        assertTrue(largeAllocation < DataSize.ofMegabytes(1).toBytes(),
+                "Upload of " + LARGE_PHOTO_SIZE + " bytes allocated " + largeAllocation + " bytes");
+        assertTrue(largeAllocation < smallAllocation + DataSize.ofKilobytes(256).toBytes(),
+                "Allocation grew with photo size: " + smallAllocation + " -> " + largeAllocation);
+    }
+
+    @Test
+    void calculatesHashWhileStreaming() throws Exception {
+        PhotoStorageService service = new PhotoStorageService(uploadDir, DataSize.ofMegabytes(25));
+
+        StoredPhoto storedPhoto = service.store(new SyntheticJpeg("eye.jpg", SMALL_PHOTO_SIZE));
+
+        byte[] written = Files.readAllBytes(storedPhoto.getPath());
+        String expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(written));
+        assertEquals(expected, storedPhoto.getSha256());
+        assertEquals(SMALL_PHOTO_SIZE, storedPhoto.getSize());
+    }
+
+    @Test
+    void rejectsPhotoLargerThanLimitWithoutKeepingIt() throws IOException {
+        PhotoStorageService service = new PhotoStorageService(uploadDir, DataSize.ofMegabytes(1));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> service.store(new SyntheticJpeg("huge.jpg", SMALL_PHOTO_SIZE, -1)));
+
+        assertEquals(HttpStatus.PAYLOAD_TOO_LARGE, e.getStatusCode());
+        assertEquals(0, countFiles());
+    }
+
+    @Test
+    void storesPhotoUnderShardedContentHash() throws Exception {
+        PhotoStorageService service = new PhotoStorageService(uploadDir, DataSize.ofMegabytes(25));
+
+        StoredPhoto storedPhoto = service.store(new SyntheticJpeg("IMG_0001.jpg", 1024));
+
+        String sha256 = storedPhoto.getSha256();
+        assertEquals(uploadDir.resolve(sha256.substring(0, 2)).resolve(sha256.substring(2, 4)).resolve(sha256 + ".jpg"),
+                storedPhoto.getPath());
+        assertEquals(storedPhoto.getPath(), service.pathOf(sha256, storedPhoto.getFormat()));
+        assertEquals(1, countFiles());
+    }
+
+    @Test
+    void deduplicatesIdenticalBytesAndKeepsSameNamedPhotosApart() throws Exception {
+        PhotoStorageService service = new PhotoStorageService(uploadDir, DataSize.ofMegabytes(25));
+
+        StoredPhoto first = service.store(new SyntheticJpeg("IMG_0001.jpg", 4096));
+        StoredPhoto retry = service.store(new SyntheticJpeg("retry.jpg", 4096));
+        StoredPhoto otherPatient = service.store(new SyntheticJpeg("IMG_0001.jpg", 8192));
+
+        assertEquals(first.getPath(), retry.getPath());
+        assertNotEquals(first.getPath(), otherPatient.getPath());
+        assertEquals(4096, Files.size(first.getPath()));
+        assertEquals(8192, Files.size(otherPatient.getPath()));
+        assertEquals(2, countFiles());
+    }
+
+    @Test
+    void recordsDeduplicatedPhotoWhileHoldingLockOfItsHash() throws Exception {
+        PhotoStorageService service = new PhotoStorageService(uploadDir, DataSize.ofMegabytes(25));
+        StoredPhoto first = service.store(new SyntheticJpeg("IMG_0001.jpg", 4096));
+        ReentrantLock lock = new ReentrantLock();
+        String[] lockedHash = new String[1];
+
+        boolean heldWhilePlaced = service.store(new SyntheticJpeg("retry.jpg", 4096), sha256 -> {
+            lockedHash[0] = sha256;
+            return lock;
+        }, stored -> lock.isHeldByCurrentThread() && Files.isRegularFile(stored.getPath()));
+
+        assertTrue(heldWhilePlaced);
+        assertEquals(first.getSha256(), lockedHash[0]);
+        assertFalse(lock.isLocked());
+    }
+
+    @Test
+    void rejectsUnsupportedFormat() {
+        PhotoStorageService service = new PhotoStorageService(uploadDir, DataSize.ofMegabytes(25));
+        MultipartFile text = new SyntheticJpeg("notes.jpg", 1024) {
+            @Override
+            public InputStream getInputStream() {
+                return new ByteGenerator(1024, new byte[] {'h', 'e', 'l', 'l', 'o'});
+            }
+        };
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> service.store(text));
+
+        assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, e.getStatusCode());
+    }
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(uploadDir)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private static long allocatedBytes(Upload upload) throws IOException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        upload.run();
+        return threads.getCurrentThreadAllocatedBytes() - before;
+    }
+
+    @FunctionalInterface
+    private interface Upload {
+        void run() throws IOException;
+    }
+
+    /**
+     * Multipart file whose content is generated on the fly: a JPEG signature followed by pseudo-random bytes.
+     */
+    static class SyntheticJpeg implements MultipartFile {
+
+        private static final byte[] JPEG_SIGNATURE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0};
+
+        private final String name;
+        private final long size;
+        private final long reportedSize;
+
+        SyntheticJpeg(String name, long size) {
+            this(name, size, size);
+        }
+
+        SyntheticJpeg(String name, long size, long reportedSize) {
+            this.name = name;
+            this.size = size;
+            this.reportedSize = reportedSize;
+        }
+
+        @Override
+        public String getName() {
+            return "photo";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return name;
+        }
+
+        @Override
+        public String getContentType() {
+            return "image/jpeg";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return reportedSize;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            throw new UnsupportedOperationException("Uploads must be streamed");
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteGenerator(size, JPEG_SIGNATURE);
+        }
+
+        @Override
+        public void transferTo(File dest) {
+            throw new UnsupportedOperationException("Uploads must be streamed");
+        }
+    }
+
+    /**
+     * Input stream producing a fixed prefix followed by pseudo-random bytes, without holding them in memory.
+     */
+    private static class ByteGenerator extends InputStream {
+
+        private final long size;
+        private final byte[] prefix;
+        private long position;
+        private int state = 0x12345678;
+
+        ByteGenerator(long size, byte[] prefix) {
+            this.size = size;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public int read() {
+            if (position >= size) {
+                return -1;
+            }
+            return nextByte() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position >= size) {
+                return -1;
+            }
+            int count = (int) Math.min(length, size - position);
+            for (int i = 0; i < count; i++) {
+                buffer[offset + i] = nextByte();
+            }
+            return count;
+        }
+
+        private byte nextByte() {
+            long index = position++;
+            if (index < prefix.length) {
+                return prefix[(int) index];
+            }
+            state ^= state << 13;
+            state ^= state >>> 17;
+            state ^= state << 5;
+            return (byte) state;
+        }
+    }
+}